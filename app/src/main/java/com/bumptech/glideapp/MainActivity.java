@@ -15,15 +15,13 @@ import android.widget.TextView;
 
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.RequestManager;
-import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.engine.DiskCacheStrategy;
-import com.bumptech.glide.load.engine.GlideException;
-import com.bumptech.glide.request.RequestListener;
 import com.bumptech.glide.request.target.BitmapImageViewTarget;
 import com.bumptech.glide.request.target.Target;
 import com.bumptech.glide.request.transition.Transition;
-import com.zh.android.glide.progress.ProgressInterceptor;
 import com.zh.android.glide.progress.ProgressListener;
+import com.zh.android.glide.progress.ProgressManager;
+import com.zh.android.glide.progress.ProgressRequestListener;
 import com.zh.android.glide.view.CircleProgressView;
 
 public class MainActivity extends AppCompatActivity {
@@ -59,19 +57,7 @@ public class MainActivity extends AppCompatActivity {
                         .skipMemoryCache(true)
                         .diskCacheStrategy(DiskCacheStrategy.NONE)
                         .override(Target.SIZE_ORIGINAL, Target.SIZE_ORIGINAL)
-                        .addListener(new RequestListener<Bitmap>() {
-                            @Override
-                            public boolean onLoadFailed(@Nullable GlideException e, Object model, Target<Bitmap> target, boolean isFirstResource) {
-                                ProgressInterceptor.removeListener(model);
-                                return false;
-                            }
-
-                            @Override
-                            public boolean onResourceReady(Bitmap resource, Object model, Target<Bitmap> target, DataSource dataSource, boolean isFirstResource) {
-                                ProgressInterceptor.removeListener(model);
-                                return false;
-                            }
-                        })
+                        .addListener(new ProgressRequestListener<Bitmap>())
                         .load(imgUrl)
                         .into(new BitmapImageViewTarget(imageView) {
                             @Override
@@ -80,17 +66,13 @@ public class MainActivity extends AppCompatActivity {
                                 imageProgressView.setVisibility(View.VISIBLE);
                                 imageProgressText.setVisibility(View.VISIBLE);
                                 imageProgressView.setProgress(0f);
-                                ProgressInterceptor.addListener(imgUrl, new ProgressListener() {
+                                //进度在主线程回调
+                                ProgressManager.addListener(imgUrl, this, new ProgressListener() {
                                     @SuppressLint("SetTextI18n")
                                     @Override
-                                    public void onProgress(final int progress) {
-                                        runOnUiThread(new Runnable() {
-                                            @Override
-                                            public void run() {
-                                                imageProgressView.setProgress(progress);
-                                                imageProgressText.setText(progress + "%");
-                                            }
-                                        });
+                                    public void onProgress(int progress) {
+                                        imageProgressView.setProgress(progress);
+                                        imageProgressText.setText(progress + "%");
                                     }
                                 });
                             }
@@ -0,0 +1,21 @@
+package android.graphics;
+
+/**
+ * A JVM stand-in for the framework's Bitmap. The benchmarked code only needs {@link Config} to be
+ * loadable, it never creates a Bitmap.
+ */
+public final class Bitmap {
+  private Bitmap() {
+    // Never instantiated.
+  }
+
+  public enum Config {
+    ALPHA_8,
+    RGB_565,
+    @Deprecated
+    ARGB_4444,
+    ARGB_8888,
+    RGBA_F16,
+    HARDWARE
+  }
+}
@@ -0,0 +1,86 @@
+package com.bumptech.glide.disklrucache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures {@link DiskLruCache#get(String)} hits and {@link DiskLruCache#edit(String)} commits
+ * with each journal format, using keys shaped like the ones Glide writes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DiskLruCacheBenchmark {
+  private static final int ENTRY_COUNT = 512;
+  private static final int VALUE_SIZE = 16 * 1024;
+  private static final long MAX_SIZE = 1024L * 1024 * 1024;
+
+  @Param({"TEXT", "BINARY"})
+  public JournalOptions.Format format;
+
+  private File directory;
+  private DiskLruCache cache;
+  private String[] keys;
+  private byte[] value;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("disk-lru-cache-benchmark").toFile();
+    cache = DiskLruCache.open(directory, 1 /*appVersion*/, 1 /*valueCount*/, MAX_SIZE,
+        new JournalOptions.Builder().setFormat(format).build());
+    value = new byte[VALUE_SIZE];
+    keys = new String[ENTRY_COUNT];
+    for (int i = 0; i < ENTRY_COUNT; i++) {
+      keys[i] = String.format("%064x", i);
+      write(keys[i]);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    cache.delete();
+    directory.delete();
+  }
+
+  @Benchmark
+  public File get() throws IOException {
+    DiskLruCache.Value result = cache.get(keys[next++ % ENTRY_COUNT]);
+    return result.getFile(0);
+  }
+
+  @Benchmark
+  public String editAndCommit() throws IOException {
+    String key = keys[next++ % ENTRY_COUNT];
+    write(key);
+    return key;
+  }
+
+  private void write(String key) throws IOException {
+    DiskLruCache.Editor editor = cache.edit(key);
+    try {
+      FileOutputStream os = new FileOutputStream(editor.getFile(0));
+      try {
+        os.write(value);
+      } finally {
+        os.close();
+      }
+      editor.commit();
+    } finally {
+      editor.abortUnlessCommitted();
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package com.bumptech.glide.gifdecoder;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import javax.imageio.ImageIO;
+
+/**
+ * The GIFs the GIF benchmarks run over.
+ *
+ * <p>Every {@code .gif} file in the directory named by the {@code glide.benchmark.gifCorpus}
+ * system property is used if it's set, pass {@code -PgifCorpus=<dir>} to Gradle to set it.
+ * Otherwise a fixed set of GIFs is generated that covers the extremes of LZW decoding: noise,
+ * which barely compresses, a gradient and large flat areas, which compress very well.
+ */
+final class GifCorpus {
+  static final String CORPUS_PROPERTY = "glide.benchmark.gifCorpus";
+
+  private GifCorpus() {
+    // Utility class.
+  }
+
+  static List<byte[]> load() throws IOException {
+    String corpusDirectory = System.getProperty(CORPUS_PROPERTY);
+    if (corpusDirectory == null) {
+      return generate();
+    }
+    File[] files = new File(corpusDirectory).listFiles();
+    if (files == null) {
+      throw new IOException("Not a directory: " + corpusDirectory);
+    }
+    Arrays.sort(files);
+    List<byte[]> result = new ArrayList<>();
+    for (File file : files) {
+      if (file.getName().toLowerCase().endsWith(".gif")) {
+        result.add(Files.readAllBytes(file.toPath()));
+      }
+    }
+    if (result.isEmpty()) {
+      throw new IOException("No GIFs in: " + corpusDirectory);
+    }
+    return result;
+  }
+
+  private static List<byte[]> generate() throws IOException {
+    Random random = new Random(0);
+    List<byte[]> result = new ArrayList<>();
+
+    BufferedImage noise = newIndexedImage(256, 256);
+    for (int y = 0; y < noise.getHeight(); y++) {
+      for (int x = 0; x < noise.getWidth(); x++) {
+        noise.getRaster().setSample(x, y, 0, random.nextInt(256));
+      }
+    }
+    result.add(encode(noise));
+
+    BufferedImage gradient = newIndexedImage(480, 270);
+    for (int y = 0; y < gradient.getHeight(); y++) {
+      for (int x = 0; x < gradient.getWidth(); x++) {
+        gradient.getRaster().setSample(x, y, 0, (x + y) * 255 / (480 + 270));
+      }
+    }
+    result.add(encode(gradient));
+
+    BufferedImage flat = newIndexedImage(500, 500);
+    for (int y = 0; y < flat.getHeight(); y++) {
+      for (int x = 0; x < flat.getWidth(); x++) {
+        flat.getRaster().setSample(x, y, 0, (x / 100 + y / 100) % 4);
+      }
+    }
+    result.add(encode(flat));
+    return result;
+  }
+
+  private static BufferedImage newIndexedImage(int width, int height) {
+    byte[] red = new byte[256];
+    byte[] green = new byte[256];
+    byte[] blue = new byte[256];
+    for (int i = 0; i < 256; i++) {
+      red[i] = (byte) i;
+      green[i] = (byte) (255 - i);
+      blue[i] = (byte) (i * 7);
+    }
+    return new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED,
+        new IndexColorModel(8, 256, red, green, blue));
+  }
+
+  private static byte[] encode(BufferedImage image) throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    if (!ImageIO.write(image, "gif", os)) {
+      throw new IOException("No GIF writer available");
+    }
+    return os.toByteArray();
+  }
+}
@@ -0,0 +1,35 @@
+package com.bumptech.glide.gifdecoder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Measures {@link GifHeaderParser#parseHeader()} over every GIF in the {@link GifCorpus}. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GifHeaderParserBenchmark {
+  private final GifHeaderParser parser = new GifHeaderParser();
+  private List<byte[]> corpus;
+
+  @Setup
+  public void setUp() throws IOException {
+    corpus = GifCorpus.load();
+  }
+
+  @Benchmark
+  public void parseHeader(Blackhole blackhole) {
+    for (byte[] gif : corpus) {
+      blackhole.consume(parser.setData(gif).parseHeader());
+    }
+    parser.clear();
+  }
+}
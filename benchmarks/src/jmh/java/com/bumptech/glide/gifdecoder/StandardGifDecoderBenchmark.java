@@ -0,0 +1,86 @@
+package com.bumptech.glide.gifdecoder;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link StandardGifDecoder#decodeBitmapData(GifFrame)}, the LZW decoder, for every
+ * frame of every GIF in the {@link GifCorpus}. Converting the decoded indices into a
+ * {@link Bitmap} needs the framework and isn't covered.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StandardGifDecoderBenchmark {
+  private final List<StandardGifDecoder> decoders = new ArrayList<>();
+  private final List<GifHeader> headers = new ArrayList<>();
+
+  @Setup
+  public void setUp() throws IOException {
+    BitmapProvider bitmapProvider = new BitmapProvider();
+    for (byte[] gif : GifCorpus.load()) {
+      GifHeader header = new GifHeaderParser().setData(gif).parseHeader();
+      headers.add(header);
+      decoders.add(new StandardGifDecoder(bitmapProvider, header, ByteBuffer.wrap(gif)));
+    }
+  }
+
+  @Benchmark
+  public void decodeBitmapData(Blackhole blackhole) {
+    for (int i = 0; i < decoders.size(); i++) {
+      StandardGifDecoder decoder = decoders.get(i);
+      for (GifFrame frame : headers.get(i).frames) {
+        decoder.decodeBitmapData(frame);
+      }
+      blackhole.consume(decoder);
+    }
+  }
+
+  private static final class BitmapProvider implements GifDecoder.BitmapProvider {
+    @NonNull
+    @Override
+    public Bitmap obtain(int width, int height, @NonNull Bitmap.Config config) {
+      throw new UnsupportedOperationException("Bitmaps can't be created on the JVM");
+    }
+
+    @Override
+    public void release(@NonNull Bitmap bitmap) {
+      // Never obtained.
+    }
+
+    @NonNull
+    @Override
+    public byte[] obtainByteArray(int size) {
+      return new byte[size];
+    }
+
+    @Override
+    public void release(@NonNull byte[] bytes) {
+      // Left to the garbage collector.
+    }
+
+    @NonNull
+    @Override
+    public int[] obtainIntArray(int size) {
+      return new int[size];
+    }
+
+    @Override
+    public void release(@NonNull int[] array) {
+      // Left to the garbage collector.
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package com.bumptech.glide.load.engine;
+
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.Transformation;
+import com.bumptech.glide.signature.ObjectKey;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures building an {@link EngineKey} and looking it up, which {@link Engine#load} does for
+ * every request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EngineKeyBenchmark {
+  private static final String MODEL = "https://images.example.com/photos/large/1234.jpg";
+
+  private final Map<Class<?>, Transformation<?>> transformations = Collections.emptyMap();
+  private final Options options = new Options();
+  private ObjectKey signature;
+  private EngineKey key;
+  private EngineKey equalKey;
+
+  @Setup
+  public void setUp() {
+    signature = new ObjectKey("signature");
+    key = newKey();
+    equalKey = newKey();
+  }
+
+  private EngineKey newKey() {
+    return new EngineKey(MODEL, signature, 1080, 720, transformations, Object.class, Object.class,
+        options);
+  }
+
+  @Benchmark
+  public int newKeyHashCode() {
+    return newKey().hashCode();
+  }
+
+  @Benchmark
+  public boolean equalKeysEquals() {
+    return key.equals(equalKey);
+  }
+}
@@ -0,0 +1,55 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Measures borrowing and returning the buffers a decode uses, a 64KB stream buffer and a small
+ * EXIF/GIF block buffer, from {@link LruArrayPool} and {@link ThreadCachingArrayPool}, with one
+ * thread and with contending threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ArrayPoolBenchmark {
+  private static final int POOL_SIZE = 4 * 1024 * 1024;
+
+  @Param({"lru", "threadCaching"})
+  public String pool;
+
+  private ArrayPool arrayPool;
+
+  @Setup
+  public void setUp() {
+    LruArrayPool lruArrayPool = new LruArrayPool(POOL_SIZE);
+    arrayPool = "lru".equals(pool) ? lruArrayPool : new ThreadCachingArrayPool(lruArrayPool);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public byte[] borrowDecodeBuffers() {
+    return borrow();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public byte[] borrowDecodeBuffersContended() {
+    return borrow();
+  }
+
+  private byte[] borrow() {
+    byte[] streamBuffer = arrayPool.get(ArrayPool.STANDARD_BUFFER_SIZE_BYTES, byte[].class);
+    byte[] blockBuffer = arrayPool.getExact(255, byte[].class);
+    arrayPool.put(blockBuffer);
+    arrayPool.put(streamBuffer);
+    return streamBuffer;
+  }
+}
@@ -0,0 +1,91 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures a get and put pair on {@link GroupedLinkedMap}, the LRU structure behind
+ * {@link LruArrayPool} and the {@link LruPoolStrategy}s.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GroupedLinkedMapBenchmark {
+  @Param({"8", "64"})
+  public int groupCount;
+
+  private final Key.KeyPool keyPool = new Key.KeyPool();
+  private GroupedLinkedMap<Key, Object> map;
+  private Object[] values;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    map = new GroupedLinkedMap<>();
+    values = new Object[groupCount];
+    for (int i = 0; i < groupCount; i++) {
+      values[i] = new Object();
+      map.put(keyPool.get(i), values[i]);
+      map.put(keyPool.get(i), new Object());
+    }
+  }
+
+  @Benchmark
+  public Object getAndPut() {
+    int group = next++ % groupCount;
+    Object result = map.get(keyPool.get(group));
+    map.put(keyPool.get(group), result);
+    return result;
+  }
+
+  @Benchmark
+  public Object removeLastAndPut() {
+    Object result = map.removeLast();
+    map.put(keyPool.get(next++ % groupCount), result);
+    return result;
+  }
+
+  static final class Key implements Poolable {
+    private final KeyPool pool;
+    private int group;
+
+    Key(KeyPool pool) {
+      this.pool = pool;
+    }
+
+    @Override
+    public void offer() {
+      pool.offer(this);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key && ((Key) o).group == group;
+    }
+
+    @Override
+    public int hashCode() {
+      return group;
+    }
+
+    static final class KeyPool extends BaseKeyPool<Key> {
+      Key get(int group) {
+        Key result = get();
+        result.group = group;
+        return result;
+      }
+
+      @Override
+      protected Key create() {
+        return new Key(this);
+      }
+    }
+  }
+}
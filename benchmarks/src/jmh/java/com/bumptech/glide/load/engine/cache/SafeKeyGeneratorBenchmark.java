@@ -0,0 +1,44 @@
+package com.bumptech.glide.load.engine.cache;
+
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.signature.ObjectKey;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures {@link SafeKeyGenerator#getSafeKey(Key)} for keys it has already hashed and for new
+ * keys, which have to be digested.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SafeKeyGeneratorBenchmark {
+  private static final String URL_PREFIX = "https://images.example.com/photos/large/";
+
+  private SafeKeyGenerator safeKeyGenerator;
+  private Key cachedKey;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    safeKeyGenerator = new SafeKeyGenerator();
+    cachedKey = new ObjectKey(URL_PREFIX + "cached.jpg");
+    safeKeyGenerator.getSafeKey(cachedKey);
+  }
+
+  @Benchmark
+  public String getSafeKeyCached() {
+    return safeKeyGenerator.getSafeKey(cachedKey);
+  }
+
+  @Benchmark
+  public String getSafeKeyUncached() {
+    return safeKeyGenerator.getSafeKey(new ObjectKey(URL_PREFIX + next++ + ".jpg"));
+  }
+}
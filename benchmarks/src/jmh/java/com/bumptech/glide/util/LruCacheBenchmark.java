@@ -0,0 +1,52 @@
+package com.bumptech.glide.util;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures {@link LruCache} lookups and inserts with a working set that's larger than the cache,
+ * so that some lookups miss and inserts evict.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LruCacheBenchmark {
+  private static final int CACHE_SIZE = 1000;
+
+  @Param({"500", "2000"})
+  public int workingSetSize;
+
+  private LruCache<Integer, Object> cache;
+  private Integer[] keys;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    cache = new LruCache<>(CACHE_SIZE);
+    keys = new Integer[workingSetSize];
+    for (int i = 0; i < workingSetSize; i++) {
+      keys[i] = i;
+      cache.put(keys[i], new Object());
+    }
+  }
+
+  @Benchmark
+  public Object getOrPut() {
+    // Stride by a prime so consecutive lookups don't follow the cache's LRU order.
+    next = (next + 7919) % workingSetSize;
+    Integer key = keys[next];
+    Object result = cache.get(key);
+    if (result == null) {
+      result = new Object();
+      cache.put(key, result);
+    }
+    return result;
+  }
+}
@@ -27,8 +27,10 @@ import com.bumptech.glide.load.data.InputStreamRewinder;
 import com.bumptech.glide.load.engine.Engine;
 import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
 import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.engine.cache.AdaptiveMemorySizer;
 import com.bumptech.glide.load.engine.cache.MemoryCache;
 import com.bumptech.glide.load.engine.prefill.BitmapPreFiller;
+import com.bumptech.glide.load.engine.prefill.PreFillHistogram;
 import com.bumptech.glide.load.engine.prefill.PreFillType;
 import com.bumptech.glide.load.model.AssetUriLoader;
 import com.bumptech.glide.load.model.ByteArrayLoader;
@@ -64,6 +66,7 @@ import com.bumptech.glide.load.resource.bytes.ByteBufferRewinder;
 import com.bumptech.glide.load.resource.drawable.ResourceDrawableDecoder;
 import com.bumptech.glide.load.resource.drawable.UnitDrawableDecoder;
 import com.bumptech.glide.load.resource.file.FileDecoder;
+import com.bumptech.glide.load.resource.gif.AnimationScheduler;
 import com.bumptech.glide.load.resource.gif.ByteBufferGifDecoder;
 import com.bumptech.glide.load.resource.gif.GifDrawable;
 import com.bumptech.glide.load.resource.gif.GifDrawableEncoder;
@@ -108,6 +111,12 @@ public class Glide implements ComponentCallbacks2 {
   private final BitmapPool bitmapPool;
   private final MemoryCache memoryCache;
   private final BitmapPreFiller bitmapPreFiller;
+  @Nullable
+  private final AdaptiveMemorySizer adaptiveMemorySizer;
+  @Nullable
+  private final PreFillHistogram preFillHistogram;
+  @Nullable
+  private final AnimationScheduler animationScheduler;
   private final GlideContext glideContext;
   private final Registry registry;
   private final ArrayPool arrayPool;
@@ -216,6 +225,9 @@ public class Glide implements ComponentCallbacks2 {
           .getApplicationContext()
           .unregisterComponentCallbacks(glide);
       glide.engine.shutdown();
+      if (glide.adaptiveMemorySizer != null) {
+        glide.adaptiveMemorySizer.stop();
+      }
     }
     glide = null;
   }
@@ -340,17 +352,36 @@ public class Glide implements ComponentCallbacks2 {
       @NonNull ConnectivityMonitorFactory connectivityMonitorFactory,
       int logLevel,
       @NonNull RequestOptions defaultRequestOptions,
-      @NonNull Map<Class<?>, TransitionOptions<?, ?>> defaultTransitionOptions) {
+      @NonNull Map<Class<?>, TransitionOptions<?, ?>> defaultTransitionOptions,
+      @Nullable AdaptiveMemorySizer adaptiveMemorySizer,
+      @Nullable final PreFillHistogram preFillHistogram,
+      @Nullable AnimationScheduler animationScheduler) {
     this.engine = engine;
     this.bitmapPool = bitmapPool;
     this.arrayPool = arrayPool;
     this.memoryCache = memoryCache;
     this.requestManagerRetriever = requestManagerRetriever;
     this.connectivityMonitorFactory = connectivityMonitorFactory;
+    this.animationScheduler = animationScheduler;
 
     DecodeFormat decodeFormat = defaultRequestOptions.getOptions().get(Downsampler.DECODE_FORMAT);
     bitmapPreFiller = new BitmapPreFiller(memoryCache, bitmapPool, decodeFormat);
 
+    this.adaptiveMemorySizer = adaptiveMemorySizer;
+    if (adaptiveMemorySizer != null) {
+      adaptiveMemorySizer.start();
+    }
+
+    this.preFillHistogram = preFillHistogram;
+    if (preFillHistogram != null) {
+      preFillHistogram.load(new Runnable() {
+        @Override
+        public void run() {
+          bitmapPreFiller.preFillWhenIdle(preFillHistogram);
+        }
+      });
+    }
+
     final Resources resources = context.getResources();
 
     registry = new Registry();
@@ -533,6 +564,7 @@ public class Glide implements ComponentCallbacks2 {
         new GlideContext(
             context,
             arrayPool,
+            bitmapPool,
             registry,
             imageViewTargetFactory,
             defaultRequestOptions,
@@ -570,6 +602,15 @@ public class Glide implements ComponentCallbacks2 {
     return arrayPool;
   }
 
+  /**
+   * Returns the scheduler for frames of animated GIFs, or {@code null} if frames are decoded as
+   * soon as each animation needs them.
+   */
+  @Nullable
+  public AnimationScheduler getAnimationScheduler() {
+    return animationScheduler;
+  }
+
   /**
    * @return The context associated with this instance.
    */
@@ -626,6 +667,8 @@ public class Glide implements ComponentCallbacks2 {
   public void clearMemory() {
     // Engine asserts this anyway when removing resources, fail faster and consistently
     Util.assertMainThread();
+    // Pending disk cache writes hold resources that can only be recycled once they're dropped.
+    engine.clearMemory();
     // memory cache needs to be cleared before bitmap pool to clear re-pooled Bitmaps too. See #687.
     memoryCache.clearMemory();
     bitmapPool.clearMemory();
@@ -640,6 +683,11 @@ public class Glide implements ComponentCallbacks2 {
   public void trimMemory(int level) {
     // Engine asserts this anyway when removing resources, fail faster and consistently
     Util.assertMainThread();
+    engine.trimMemory(level);
+    if (preFillHistogram != null && level >= TRIM_MEMORY_UI_HIDDEN) {
+      // The app is in the background and this session's misses may be its last.
+      preFillHistogram.save();
+    }
     // memory cache needs to be trimmed before bitmap pool to trim re-pooled Bitmaps too. See #687.
     memoryCache.trimMemory(level);
     bitmapPool.trimMemory(level);
@@ -685,9 +733,13 @@ public class Glide implements ComponentCallbacks2 {
   public MemoryCategory setMemoryCategory(@NonNull MemoryCategory memoryCategory) {
     // Engine asserts this anyway when removing resources, fail faster and consistently
     Util.assertMainThread();
-    // memory cache needs to be trimmed before bitmap pool to trim re-pooled Bitmaps too. See #687.
-    memoryCache.setSizeMultiplier(memoryCategory.getMultiplier());
-    bitmapPool.setSizeMultiplier(memoryCategory.getMultiplier());
+    if (adaptiveMemorySizer != null) {
+      adaptiveMemorySizer.setSizeMultiplier(memoryCategory.getMultiplier());
+    } else {
+      // memory cache needs to be trimmed before bitmap pool to trim re-pooled Bitmaps too. See #687.
+      memoryCache.setSizeMultiplier(memoryCategory.getMultiplier());
+      bitmapPool.setSizeMultiplier(memoryCategory.getMultiplier());
+    }
     MemoryCategory oldCategory = this.memoryCategory;
     this.memoryCategory = memoryCategory;
     return oldCategory;
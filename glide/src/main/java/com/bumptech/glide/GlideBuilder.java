@@ -7,29 +7,38 @@ import android.support.annotation.Nullable;
 import android.support.v4.util.ArrayMap;
 import android.util.Log;
 import com.bumptech.glide.load.engine.Engine;
+import com.bumptech.glide.load.engine.ResourceCacheWriteQueue;
 import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
 import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
 import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPoolAdapter;
 import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
 import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.StripedBitmapPool;
+import com.bumptech.glide.load.engine.cache.AdaptiveMemorySizer;
 import com.bumptech.glide.load.engine.cache.DiskCache;
 import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
 import com.bumptech.glide.load.engine.cache.LruResourceCache;
 import com.bumptech.glide.load.engine.cache.MemoryCache;
 import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
 import com.bumptech.glide.load.engine.executor.GlideExecutor;
+import com.bumptech.glide.load.engine.metrics.LoadEventListener;
+import com.bumptech.glide.load.engine.prefill.PreFillHistogram;
+import com.bumptech.glide.load.resource.gif.AnimationScheduler;
 import com.bumptech.glide.manager.ConnectivityMonitorFactory;
 import com.bumptech.glide.manager.DefaultConnectivityMonitorFactory;
 import com.bumptech.glide.manager.RequestManagerRetriever;
 import com.bumptech.glide.manager.RequestManagerRetriever.RequestManagerFactory;
 import com.bumptech.glide.request.RequestOptions;
 import com.bumptech.glide.request.target.Target;
+import java.io.File;
 import java.util.Map;
 
 /**
  * A builder class for setting default structural classes for Glide to use.
  */
 public final class GlideBuilder {
+  private static final String DEFAULT_PRE_FILL_HISTOGRAM_NAME = "glide_pre_fill_histogram";
+  private static final String PRE_FILL_HISTOGRAM_EXECUTOR_NAME = "pre-fill-histogram";
   private final Map<Class<?>, TransitionOptions<?, ?>> defaultTransitionOptions = new ArrayMap<>();
   private Engine engine;
   private BitmapPool bitmapPool;
@@ -45,7 +54,15 @@ public final class GlideBuilder {
   @Nullable
   private RequestManagerFactory requestManagerFactory;
   private GlideExecutor animationExecutor;
+  private GlideExecutor decodeExecutor;
+  private ResourceCacheWriteQueue resourceCacheWriteQueue;
   private boolean isActiveResourceRetentionAllowed;
+  private boolean isAdaptiveMemorySizingEnabled;
+  private boolean isAutomaticPreFillEnabled;
+  @Nullable
+  private AnimationScheduler animationScheduler;
+  @Nullable
+  private LoadEventListener loadEventListener;
 
   /**
    * Sets the {@link com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool} implementation to use
@@ -172,6 +189,116 @@ public final class GlideBuilder {
     return this;
   }
 
+  /**
+   * Sets the {@link GlideExecutor} used to decode and transform data once it has been retrieved
+   * by the source or disk cache executors.
+   *
+   * <p>Moving the CPU bound work to this executor lets the source executor be sized for blocking
+   * I/O, for example with {@link GlideExecutor#newSourceExecutor(int, String,
+   * GlideExecutor.UncaughtThrowableStrategy)}, without oversubscribing the CPU.
+   *
+   * <p>Only data read from the disk cache or already held entirely in memory or in a file is
+   * handed off. Streams that are still being read from the source are decoded on the thread that
+   * fetched them.
+   *
+   * <p>Defaults to one thread per core, up to four, see {@link GlideExecutor#newDecodeExecutor()}.
+   *
+   * @param service The {@link GlideExecutor} to use.
+   * @return This builder.
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  @NonNull
+  public GlideBuilder setDecodeExecutor(@Nullable GlideExecutor service) {
+    this.decodeExecutor = service;
+    return this;
+  }
+
+  /**
+   * Sets the {@link ResourceCacheWriteQueue} used to write transformed resources to the disk cache
+   * after they've been delivered to their targets.
+   *
+   * <p>The queue holds the resources it's waiting to write in memory, so it's opt in. Use
+   * {@link ResourceCacheWriteQueue#ResourceCacheWriteQueue()} for a queue with a single thread.
+   *
+   * <p>Defaults to {@code null}, resources are written on the thread that decoded them before
+   * their jobs finish.
+   *
+   * @param queue The {@link ResourceCacheWriteQueue} to use, or {@code null} to write resources
+   *              on the decoding thread.
+   * @return This builder.
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  @NonNull
+  public GlideBuilder setResourceCacheWriteQueue(@Nullable ResourceCacheWriteQueue queue) {
+    this.resourceCacheWriteQueue = queue;
+    return this;
+  }
+
+  /**
+   * Sets whether the sizes of the memory cache and bitmap pool are adjusted while the app runs,
+   * moving memory to whichever of the two would have avoided more decodes and allocations, see
+   * {@link AdaptiveMemorySizer}.
+   *
+   * <p>Only applies if both use their default implementations, {@link LruResourceCache} and
+   * {@link LruBitmapPool}. Their combined size never exceeds the sizes they're created with.
+   *
+   * <p>Defaults to {@code false}.
+   *
+   * @param isEnabled {@code true} to adjust sizes.
+   * @return This builder.
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  @NonNull
+  public GlideBuilder setAdaptiveMemorySizing(boolean isEnabled) {
+    this.isAdaptiveMemorySizingEnabled = isEnabled;
+    return this;
+  }
+
+  /**
+   * Sets whether the sizes of {@link android.graphics.Bitmap}s missing from the bitmap pool are
+   * recorded across sessions and used to pre-fill the pool when the main thread is first idle
+   * after Glide starts, see {@link PreFillHistogram}.
+   *
+   * <p>Only applies if the bitmap pool is an {@link LruBitmapPool}. Pre-filled
+   * {@link android.graphics.Bitmap}s use memory that may otherwise go unused for a while, leave
+   * this disabled if the first screen doesn't load images.
+   *
+   * <p>Defaults to {@code false}.
+   *
+   * @param isEnabled {@code true} to record sizes and pre-fill.
+   * @return This builder.
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  @NonNull
+  public GlideBuilder setAutomaticPreFill(boolean isEnabled) {
+    this.isAutomaticPreFillEnabled = isEnabled;
+    return this;
+  }
+
+  /**
+   * Sets the {@link AnimationScheduler} that decides when frames of
+   * {@link com.bumptech.glide.load.resource.gif.GifDrawable}s are decoded, so that many animations
+   * running at once share the animation executor and slow down evenly if it can't keep up.
+   *
+   * <p>The scheduler should allow as many concurrent decodes as the animation executor has threads.
+   *
+   * <p>Defaults to {@code null}, each animation decodes its frames as soon as it can.
+   *
+   * @param animationScheduler The scheduler to use, or {@code null} to decode frames immediately.
+   * @return This builder.
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  @NonNull
+  public GlideBuilder setAnimationScheduler(@Nullable AnimationScheduler animationScheduler) {
+    this.animationScheduler = animationScheduler;
+    return this;
+  }
+
   /**
    * Sets the {@link GlideExecutor} to use when loading frames of animated images and particularly
    * of {@link com.bumptech.glide.load.resource.gif.GifDrawable}s.
@@ -372,6 +499,27 @@ public final class GlideBuilder {
     return this;
   }
 
+  /**
+   * Sets a {@link LoadEventListener} to be told about the memory cache, disk cache, fetch, decode
+   * and transformation stages of every load, for example a
+   * {@link com.bumptech.glide.load.engine.metrics.LoadMetrics} to aggregate timings across loads.
+   *
+   * <p>{@link Bitmap} reuse is also reported if the {@link BitmapPool} is an {@link LruBitmapPool}
+   * or a {@link StripedBitmapPool}, which includes the default pool.
+   *
+   * <p>Defaults to {@code null}, in which case nothing is measured.
+   *
+   * @param listener The listener to use.
+   * @return This builder.
+   */
+  // Public API.
+  @SuppressWarnings("unused")
+  @NonNull
+  public GlideBuilder setLoadEventListener(@Nullable LoadEventListener listener) {
+    this.loadEventListener = listener;
+    return this;
+  }
+
   void setRequestManagerFactory(@Nullable RequestManagerFactory factory) {
     this.requestManagerFactory = factory;
   }
@@ -402,6 +550,11 @@ public final class GlideBuilder {
       animationExecutor = GlideExecutor.newAnimationExecutor();
     }
 
+    //解码执行器，解码和变换获取到的数据
+    if (decodeExecutor == null) {
+      decodeExecutor = GlideExecutor.newDecodeExecutor();
+    }
+
     //根据设备的参数计算需要设置的缓存大小
     if (memorySizeCalculator == null) {
       memorySizeCalculator = new MemorySizeCalculator.Builder(context).build();
@@ -424,6 +577,12 @@ public final class GlideBuilder {
       }
     }
 
+    if (bitmapPool instanceof LruBitmapPool) {
+      ((LruBitmapPool) bitmapPool).setLoadEventListener(loadEventListener);
+    } else if (bitmapPool instanceof StripedBitmapPool) {
+      ((StripedBitmapPool) bitmapPool).setLoadEventListener(loadEventListener);
+    }
+
     //一个固定大小的数组池，使用LRU策略，让池保持在最大字节下
     if (arrayPool == null) {
       arrayPool = new LruArrayPool(memorySizeCalculator.getArrayPoolSizeInBytes());
@@ -449,7 +608,29 @@ public final class GlideBuilder {
               sourceExecutor,
               GlideExecutor.newUnlimitedSourceExecutor(),
               GlideExecutor.newAnimationExecutor(),
-              isActiveResourceRetentionAllowed);
+              decodeExecutor,
+              resourceCacheWriteQueue,
+              isActiveResourceRetentionAllowed,
+              loadEventListener);
+    }
+
+    //根据命中率在内存缓存和Bitmap缓存池之间动态分配内存
+    AdaptiveMemorySizer adaptiveMemorySizer = null;
+    if (isAdaptiveMemorySizingEnabled && memoryCache instanceof LruResourceCache
+        && bitmapPool instanceof LruBitmapPool) {
+      adaptiveMemorySizer =
+          new AdaptiveMemorySizer((LruResourceCache) memoryCache, (LruBitmapPool) bitmapPool);
+    }
+
+    //记录Bitmap缓存池未命中的尺寸，下次启动时预填充
+    PreFillHistogram preFillHistogram = null;
+    if (isAutomaticPreFillEnabled && bitmapPool instanceof LruBitmapPool) {
+      // The disk cache executor's queue only orders DecodeJobs, the histogram has its own thread.
+      preFillHistogram = new PreFillHistogram(
+          new File(context.getCacheDir(), DEFAULT_PRE_FILL_HISTOGRAM_NAME),
+          GlideExecutor.newDiskCacheExecutor(1, PRE_FILL_HISTOGRAM_EXECUTOR_NAME,
+              GlideExecutor.UncaughtThrowableStrategy.DEFAULT));
+      ((LruBitmapPool) bitmapPool).setMissListener(preFillHistogram);
     }
 
     //创建RequestManagerRetriever对象，getRetriever()方法返回该实例
@@ -467,6 +648,9 @@ public final class GlideBuilder {
         connectivityMonitorFactory,
         logLevel,
         defaultRequestOptions.lock(),
-        defaultTransitionOptions);
+        defaultTransitionOptions,
+        adaptiveMemorySizer,
+        preFillHistogram,
+        animationScheduler);
   }
 }
@@ -9,6 +9,7 @@ import android.support.annotation.VisibleForTesting;
 import android.widget.ImageView;
 import com.bumptech.glide.load.engine.Engine;
 import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
 import com.bumptech.glide.request.RequestOptions;
 import com.bumptech.glide.request.target.ImageViewTargetFactory;
 import com.bumptech.glide.request.target.ViewTarget;
@@ -25,6 +26,7 @@ public class GlideContext extends ContextWrapper {
       new GenericTransitionOptions<>();
   private final Handler mainHandler;
   private final ArrayPool arrayPool;
+  private final BitmapPool bitmapPool;
   private final Registry registry;
   private final ImageViewTargetFactory imageViewTargetFactory;
   private final RequestOptions defaultRequestOptions;
@@ -35,6 +37,7 @@ public class GlideContext extends ContextWrapper {
   public GlideContext(
       @NonNull Context context,
       @NonNull ArrayPool arrayPool,
+      @NonNull BitmapPool bitmapPool,
       @NonNull Registry registry,
       @NonNull ImageViewTargetFactory imageViewTargetFactory,
       @NonNull RequestOptions defaultRequestOptions,
@@ -43,6 +46,7 @@ public class GlideContext extends ContextWrapper {
       int logLevel) {
     super(context.getApplicationContext());
     this.arrayPool = arrayPool;
+    this.bitmapPool = bitmapPool;
     this.registry = registry;
     this.imageViewTargetFactory = imageViewTargetFactory;
     this.defaultRequestOptions = defaultRequestOptions;
@@ -106,4 +110,9 @@ public class GlideContext extends ContextWrapper {
   public ArrayPool getArrayPool() {
     return arrayPool;
   }
+
+  @NonNull
+  public BitmapPool getBitmapPool() {
+    return bitmapPool;
+  }
 }
@@ -0,0 +1,262 @@
+package com.bumptech.glide.disklrucache;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * The binary journal format used by {@link DiskLruCache} for {@link JournalOptions.Format#BINARY}.
+ *
+ * <p>The journal starts with a fixed 16 byte header: a magic int, the format version, the
+ * application's version and the value count, all big endian. It is followed by records:
+ * <pre>
+ *     record  = op key [lengths]
+ *     op      = one byte, CLEAN, DIRTY, REMOVE or READ, ORed with DIGEST_KEY for digest keys
+ *     key     = 32 raw bytes if DIGEST_KEY is set, otherwise a varint length and ASCII bytes
+ *     lengths = valueCount varints, CLEAN records only
+ * </pre>
+ *
+ * <p>Keys produced by Glide are 64 character lowercase hex digests, so DIRTY, REMOVE and READ
+ * records are a fixed 33 bytes each. Replaying the journal reads records straight out of a
+ * memory mapped buffer, the only per-record allocation is the key itself.
+ */
+final class BinaryJournal {
+    static final String JOURNAL_FILE = "journal.bin";
+    static final String JOURNAL_FILE_TEMP = "journal.bin.tmp";
+    static final String JOURNAL_FILE_BACKUP = "journal.bin.bkp";
+
+    /** "GLDJ". */
+    static final int MAGIC = 0x474c444a;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+
+    static final byte CLEAN = 1;
+    static final byte DIRTY = 2;
+    static final byte REMOVE = 3;
+    static final byte READ = 4;
+    static final byte DIGEST_KEY = (byte) 0x80;
+    static final byte OP_MASK = 0x7f;
+
+    static final int DIGEST_BYTES = 32;
+    static final int DIGEST_CHARS = DIGEST_BYTES * 2;
+
+    private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+
+    private BinaryJournal() {
+        // Utility class.
+    }
+
+    /**
+     * Reads and validates the header at the buffer's position.
+     *
+     * @throws IOException if the header doesn't match the given versions.
+     */
+    static void readHeader(ByteBuffer buffer, int appVersion, int valueCount) throws IOException {
+        if (buffer.remaining() < HEADER_SIZE) {
+            throw new IOException("truncated journal header");
+        }
+        int magic = buffer.getInt();
+        int version = buffer.getInt();
+        int journalAppVersion = buffer.getInt();
+        int journalValueCount = buffer.getInt();
+        if (magic != MAGIC
+                || version != VERSION
+                || journalAppVersion != appVersion
+                || journalValueCount != valueCount) {
+            throw new IOException("unexpected journal header: [" + Integer.toHexString(magic) + ", "
+                    + version + ", " + journalAppVersion + ", " + journalValueCount + "]");
+        }
+    }
+
+    /**
+     * Reads a key written by {@link Writer} at the buffer's position.
+     *
+     * <p>Throws {@link BufferUnderflowException} if the journal ends part way through the key.
+     *
+     * @param op The op byte the key was written with.
+     * @param scratch A reusable buffer of at least {@link #DIGEST_CHARS} chars.
+     */
+    static String readKey(ByteBuffer buffer, byte op, char[] scratch) throws IOException {
+        if ((op & DIGEST_KEY) != 0) {
+            for (int i = 0; i < DIGEST_BYTES; i++) {
+                int b = buffer.get() & 0xff;
+                scratch[i * 2] = HEX_CHARS[b >>> 4];
+                scratch[i * 2 + 1] = HEX_CHARS[b & 0x0f];
+            }
+            return new String(scratch, 0, DIGEST_CHARS);
+        }
+        long length = readVarLong(buffer);
+        if (length <= 0 || length > Integer.MAX_VALUE) {
+            throw new IOException("unexpected key length: " + length);
+        } else if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[(int) length];
+        buffer.get(bytes);
+        return new String(bytes, Util.US_ASCII);
+    }
+
+    static long readVarLong(ByteBuffer buffer) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            result |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+
+    /** Returns true if {@code key} is a 64 character lowercase hex string. */
+    static boolean isDigestKey(String key) {
+        if (key.length() != DIGEST_CHARS) {
+            return false;
+        }
+        for (int i = 0; i < DIGEST_CHARS; i++) {
+            if (hexValue(key.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        return -1;
+    }
+
+    /** Appends binary records to a journal file. */
+    static final class Writer implements JournalWriter {
+        private final FileOutputStream fileOutputStream;
+        private final OutputStream os;
+        // Large enough for an op, a 120 character key with its length and two lengths.
+        private final byte[] record = new byte[256];
+        private final int valueCount;
+
+        private Writer(FileOutputStream fileOutputStream, int valueCount, int bufferSize) {
+            this.fileOutputStream = fileOutputStream;
+            this.os = new BufferedOutputStream(fileOutputStream, bufferSize);
+            this.valueCount = valueCount;
+        }
+
+        /** Opens {@code file} for appending records after an existing header. */
+        static Writer append(File file, int valueCount, int bufferSize) throws IOException {
+            return new Writer(new FileOutputStream(file, true), valueCount, bufferSize);
+        }
+
+        /** Creates {@code file}, replacing any existing contents, and writes the header. */
+        static Writer create(File file, int appVersion, int valueCount, int bufferSize)
+                throws IOException {
+            Writer result = new Writer(new FileOutputStream(file), valueCount, bufferSize);
+            try {
+                int offset = putInt(result.record, 0, MAGIC);
+                offset = putInt(result.record, offset, VERSION);
+                offset = putInt(result.record, offset, appVersion);
+                offset = putInt(result.record, offset, valueCount);
+                result.os.write(result.record, 0, offset);
+            } catch (IOException e) {
+                Util.closeQuietly(result);
+                throw e;
+            }
+            return result;
+        }
+
+        @Override
+        public void writeClean(String key, long[] lengths) throws IOException {
+            byte[] buffer = record;
+            int maxSize = 1 + 5 + key.length() + 10 * valueCount;
+            if (maxSize > buffer.length) {
+                buffer = new byte[maxSize];
+            }
+            int offset = putKey(buffer, CLEAN, key);
+            for (long length : lengths) {
+                offset = putVarLong(buffer, offset, length);
+            }
+            os.write(buffer, 0, offset);
+        }
+
+        @Override
+        public void writeDirty(String key) throws IOException {
+            writeKeyRecord(DIRTY, key);
+        }
+
+        @Override
+        public void writeRemove(String key) throws IOException {
+            writeKeyRecord(REMOVE, key);
+        }
+
+        @Override
+        public void writeRead(String key) throws IOException {
+            writeKeyRecord(READ, key);
+        }
+
+        private void writeKeyRecord(byte op, String key) throws IOException {
+            byte[] buffer = record;
+            int maxSize = 1 + 5 + key.length();
+            if (maxSize > buffer.length) {
+                buffer = new byte[maxSize];
+            }
+            os.write(buffer, 0, putKey(buffer, op, key));
+        }
+
+        @Override
+        public void flush() throws IOException {
+            os.flush();
+        }
+
+        @Override
+        public void sync() throws IOException {
+            os.flush();
+            fileOutputStream.getFD().sync();
+        }
+
+        @Override
+        public void close() throws IOException {
+            os.close();
+        }
+
+        private static int putKey(byte[] buffer, byte op, String key) {
+            int offset = 0;
+            if (isDigestKey(key)) {
+                buffer[offset++] = (byte) (op | DIGEST_KEY);
+                for (int i = 0; i < DIGEST_BYTES; i++) {
+                    buffer[offset++] = (byte) ((hexValue(key.charAt(i * 2)) << 4)
+                            | hexValue(key.charAt(i * 2 + 1)));
+                }
+            } else {
+                buffer[offset++] = op;
+                offset = putVarLong(buffer, offset, key.length());
+                for (int i = 0; i < key.length(); i++) {
+                    buffer[offset++] = (byte) key.charAt(i);
+                }
+            }
+            return offset;
+        }
+
+        private static int putInt(byte[] buffer, int offset, int value) {
+            buffer[offset] = (byte) (value >>> 24);
+            buffer[offset + 1] = (byte) (value >>> 16);
+            buffer[offset + 2] = (byte) (value >>> 8);
+            buffer[offset + 3] = (byte) value;
+            return offset + 4;
+        }
+
+        private static int putVarLong(byte[] buffer, int offset, long value) {
+            while ((value & ~0x7fL) != 0) {
+                buffer[offset++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            buffer[offset++] = (byte) value;
+            return offset;
+        }
+    }
+}
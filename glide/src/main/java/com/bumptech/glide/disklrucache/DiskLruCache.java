@@ -17,7 +17,6 @@
 package com.bumptech.glide.disklrucache;
 
 
-import java.io.BufferedWriter;
 import java.io.Closeable;
 import java.io.EOFException;
 import java.io.File;
@@ -30,12 +29,21 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -88,6 +96,14 @@ public final class DiskLruCache implements Closeable {
     static final String JOURNAL_FILE = "journal";
     static final String JOURNAL_FILE_TEMP = "journal.tmp";
     static final String JOURNAL_FILE_BACKUP = "journal.bkp";
+    /**
+     * Exists while the journal may have been written without syncing every commit, see
+     * {@link #deleteUnreferencedFiles()}.
+     */
+    static final String JOURNAL_FILE_UNSYNCED = "journal.unsynced";
+    /** Matches the names of value files, clean {@code <key>.<n>} or dirty {@code <key>.<n>.tmp}. */
+    private static final Pattern VALUE_FILE_PATTERN =
+            Pattern.compile("[a-z0-9_-]{1,120}\\.(\\d{1,9})(\\.tmp)?");
     static final String MAGIC = "libcore.io.DiskLruCache";
     static final String VERSION_1 = "1";
     static final long ANY_SEQUENCE_NUMBER = -1;
@@ -134,6 +150,9 @@ public final class DiskLruCache implements Closeable {
      * occasionally be compacted by dropping redundant lines. A temporary file named
      * "journal.tmp" will be used during compaction; that file should be deleted if
      * it exists when the cache is opened.
+     *
+     * With JournalOptions.Format.BINARY the same records are written to
+     * "journal.bin" in the encoding described by BinaryJournal.
      */
 
     private final File directory;
@@ -143,8 +162,9 @@ public final class DiskLruCache implements Closeable {
     private final int appVersion;
     private long maxSize;
     private final int valueCount;
+    private final JournalOptions options;
     private long size = 0;
-    private Writer journalWriter;
+    private JournalWriter journalWriter;
     private final LinkedHashMap<String, Entry> lruEntries =
             new LinkedHashMap<String, Entry>(0, 0.75f, true);
     private int redundantOpCount;
@@ -156,10 +176,15 @@ public final class DiskLruCache implements Closeable {
      */
     private long nextSequenceNumber = 0;
 
-    /** This cache uses a single background thread to evict entries. */
-    final ThreadPoolExecutor executorService =
-            new ThreadPoolExecutor(0, 1, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
-                    new DiskLruCacheThreadFactory());
+    /**
+     * This cache uses a single background thread to evict entries and, if the journal options
+     * require it, to write out and sync the journal.
+     */
+    final ThreadPoolExecutor executorService;
+    /** Non-null if the journal options require delayed writes on {@link #executorService}. */
+    private final ScheduledThreadPoolExecutor scheduledExecutorService;
+    private boolean journalFlushScheduled;
+    private boolean journalSyncScheduled;
     private final Callable<Void> cleanupCallable = new Callable<Void>() {
         public Void call() throws Exception {
             synchronized (DiskLruCache.this) {
@@ -175,15 +200,56 @@ public final class DiskLruCache implements Closeable {
             return null;
         }
     };
+    private final Callable<Void> journalFlushCallable = new Callable<Void>() {
+        public Void call() throws Exception {
+            synchronized (DiskLruCache.this) {
+                journalFlushScheduled = false;
+                if (journalWriter != null) {
+                    journalWriter.flush();
+                }
+            }
+            return null;
+        }
+    };
+    private final Callable<Void> journalSyncCallable = new Callable<Void>() {
+        public Void call() throws Exception {
+            synchronized (DiskLruCache.this) {
+                journalSyncScheduled = false;
+                if (journalWriter != null) {
+                    journalWriter.sync();
+                }
+            }
+            return null;
+        }
+    };
 
-    private DiskLruCache(File directory, int appVersion, int valueCount, long maxSize) {
+    private DiskLruCache(File directory, int appVersion, int valueCount, long maxSize,
+            JournalOptions options) {
         this.directory = directory;
         this.appVersion = appVersion;
-        this.journalFile = new File(directory, JOURNAL_FILE);
-        this.journalFileTmp = new File(directory, JOURNAL_FILE_TEMP);
-        this.journalFileBackup = new File(directory, JOURNAL_FILE_BACKUP);
+        if (options.format == JournalOptions.Format.BINARY) {
+            this.journalFile = new File(directory, BinaryJournal.JOURNAL_FILE);
+            this.journalFileTmp = new File(directory, BinaryJournal.JOURNAL_FILE_TEMP);
+            this.journalFileBackup = new File(directory, BinaryJournal.JOURNAL_FILE_BACKUP);
+        } else {
+            this.journalFile = new File(directory, JOURNAL_FILE);
+            this.journalFileTmp = new File(directory, JOURNAL_FILE_TEMP);
+            this.journalFileBackup = new File(directory, JOURNAL_FILE_BACKUP);
+        }
         this.valueCount = valueCount;
         this.maxSize = maxSize;
+        this.options = options;
+        if (options.requiresScheduledWrites()) {
+            scheduledExecutorService =
+                    new ScheduledThreadPoolExecutor(1, new DiskLruCacheThreadFactory());
+            scheduledExecutorService.setKeepAliveTime(60L, TimeUnit.SECONDS);
+            scheduledExecutorService.allowCoreThreadTimeOut(true);
+            executorService = scheduledExecutorService;
+        } else {
+            scheduledExecutorService = null;
+            executorService = new ThreadPoolExecutor(0, 1, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new DiskLruCacheThreadFactory());
+        }
     }
 
     /**
@@ -197,6 +263,21 @@ public final class DiskLruCache implements Closeable {
      */
     public static DiskLruCache open(File directory, int appVersion, int valueCount, long maxSize)
             throws IOException {
+        return open(directory, appVersion, valueCount, maxSize, JournalOptions.DEFAULT);
+    }
+
+    /**
+     * Opens the cache in {@code directory}, creating a cache if none exists
+     * there.
+     *
+     * @param directory a writable directory
+     * @param valueCount the number of values per cache entry. Must be positive.
+     * @param maxSize the maximum number of bytes this cache should use to store
+     * @param options controls the format of the journal
+     * @throws IOException if reading or writing the cache directory fails
+     */
+    public static DiskLruCache open(File directory, int appVersion, int valueCount, long maxSize,
+            JournalOptions options) throws IOException {
         if (maxSize <= 0) {
             throw new IllegalArgumentException("maxSize <= 0");
         }
@@ -205,44 +286,137 @@ public final class DiskLruCache implements Closeable {
         }
 
         // If a bkp file exists, use it instead.
-        File backupFile = new File(directory, JOURNAL_FILE_BACKUP);
-        if (backupFile.exists()) {
-            File journalFile = new File(directory, JOURNAL_FILE);
-            // If journal file also exists just delete backup file.
-            if (journalFile.exists()) {
-                backupFile.delete();
-            } else {
-                renameTo(backupFile, journalFile, false);
-            }
-        }
+        restoreBackup(directory, JOURNAL_FILE, JOURNAL_FILE_BACKUP);
+        restoreBackup(directory, BinaryJournal.JOURNAL_FILE, BinaryJournal.JOURNAL_FILE_BACKUP);
 
         // Prefer to pick up where we left off.
-        DiskLruCache cache = new DiskLruCache(directory, appVersion, valueCount, maxSize);
+        DiskLruCache cache = new DiskLruCache(directory, appVersion, valueCount, maxSize, options);
+        File textJournalFile = new File(directory, JOURNAL_FILE);
+        File binaryJournalFile = new File(directory, BinaryJournal.JOURNAL_FILE);
         if (cache.journalFile.exists()) {
             try {
                 cache.readJournal();
                 cache.processJournal();
+                cache.updateUnsyncedMarker();
+                return cache;
+            } catch (IOException journalIsCorrupt) {
+                logCorrupt(directory, journalIsCorrupt);
+                cache.delete();
+            }
+        } else if (options.format == JournalOptions.Format.BINARY && textJournalFile.exists()) {
+            try {
+                cache.migrateTextJournal(textJournalFile);
+                cache.updateUnsyncedMarker();
                 return cache;
             } catch (IOException journalIsCorrupt) {
-                System.out
-                        .println("DiskLruCache "
-                                + directory
-                                + " is corrupt: "
-                                + journalIsCorrupt.getMessage()
-                                + ", removing");
+                logCorrupt(directory, journalIsCorrupt);
                 cache.delete();
             }
+        } else if (options.format == JournalOptions.Format.TEXT && binaryJournalFile.exists()) {
+            // Migration from the binary journal isn't supported, start over.
+            cache.delete();
         }
 
         // Create a new empty cache.
         directory.mkdirs();
-        cache = new DiskLruCache(directory, appVersion, valueCount, maxSize);
+        cache = new DiskLruCache(directory, appVersion, valueCount, maxSize, options);
         cache.rebuildJournal();
+        cache.updateUnsyncedMarker();
         return cache;
     }
 
+    private static void restoreBackup(File directory, String journalName, String backupName)
+            throws IOException {
+        File backupFile = new File(directory, backupName);
+        if (backupFile.exists()) {
+            File journalFile = new File(directory, journalName);
+            // If journal file also exists just delete backup file.
+            if (journalFile.exists()) {
+                backupFile.delete();
+            } else {
+                renameTo(backupFile, journalFile, false);
+            }
+        }
+    }
+
+    private static void logCorrupt(File directory, IOException journalIsCorrupt) {
+        System.out
+                .println("DiskLruCache "
+                        + directory
+                        + " is corrupt: "
+                        + journalIsCorrupt.getMessage()
+                        + ", removing");
+    }
+
     private void readJournal() throws IOException {
-        StrictLineReader reader = new StrictLineReader(new FileInputStream(journalFile), Util.US_ASCII);
+        boolean truncated;
+        if (options.format == JournalOptions.Format.BINARY) {
+            truncated = readBinaryJournal(journalFile);
+        } else {
+            truncated = readTextJournal(journalFile);
+        }
+
+        // If we ended on a truncated record, rebuild the journal before appending to it.
+        if (truncated) {
+            rebuildJournal();
+        } else {
+            journalWriter = newAppendingJournalWriter();
+        }
+    }
+
+    /**
+     * Replays a text journal written by an earlier version, rewrites it in the binary format and
+     * removes the text journal. There is no way back, the text journal is gone once this returns.
+     */
+    private void migrateTextJournal(File textJournalFile) throws IOException {
+        readTextJournal(textJournalFile);
+        processJournal();
+        rebuildJournal();
+        deleteIfExists(textJournalFile);
+        deleteIfExists(new File(directory, JOURNAL_FILE_TEMP));
+    }
+
+    private JournalWriter newAppendingJournalWriter() throws IOException {
+        if (options.format == JournalOptions.Format.BINARY) {
+            return BinaryJournal.Writer.append(journalFile, valueCount, options.getBufferSize());
+        }
+        return TextJournalWriter.append(journalFile, options.getBufferSize());
+    }
+
+    /**
+     * Writes out records appended by an edit or a commit. By default the journal is flushed
+     * immediately, with group commit the flush is deferred and batched with other records.
+     */
+    private void flushJournalForEdit(boolean commit) throws IOException {
+        if (commit && options.durability == JournalOptions.Durability.ON_COMMIT) {
+            journalWriter.sync();
+        } else if (options.isGroupCommitEnabled()) {
+            scheduleJournalWrite();
+        } else {
+            journalWriter.flush();
+        }
+        if (options.durability == JournalOptions.Durability.PERIODIC) {
+            scheduleJournalWrite();
+        }
+    }
+
+    /** Makes sure records that were just appended are eventually flushed and synced. */
+    private void scheduleJournalWrite() {
+        if (options.isGroupCommitEnabled() && !journalFlushScheduled) {
+            journalFlushScheduled = true;
+            scheduledExecutorService.schedule(journalFlushCallable,
+                    options.groupCommitDelayMillis, TimeUnit.MILLISECONDS);
+        }
+        if (options.durability == JournalOptions.Durability.PERIODIC && !journalSyncScheduled) {
+            journalSyncScheduled = true;
+            scheduledExecutorService.schedule(journalSyncCallable,
+                    options.syncIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Returns true if the journal ended on a truncated line. */
+    private boolean readTextJournal(File file) throws IOException {
+        StrictLineReader reader = new StrictLineReader(new FileInputStream(file), Util.US_ASCII);
         try {
             String magic = reader.readLine();
             String version = reader.readLine();
@@ -268,17 +442,80 @@ public final class DiskLruCache implements Closeable {
                 }
             }
             redundantOpCount = lineCount - lruEntries.size();
+            return reader.hasUnterminatedLine();
+        } finally {
+            Util.closeQuietly(reader);
+        }
+    }
 
-            // If we ended on a truncated line, rebuild the journal before appending to it.
-            if (reader.hasUnterminatedLine()) {
-                rebuildJournal();
-            } else {
-                journalWriter = new BufferedWriter(new OutputStreamWriter(
-                        new FileOutputStream(journalFile, true), Util.US_ASCII));
+    /**
+     * Replays a binary journal from a memory mapped buffer. Returns true if the journal ended on a
+     * truncated record.
+     */
+    private boolean readBinaryJournal(File file) throws IOException {
+        FileInputStream is = new FileInputStream(file);
+        try {
+            FileChannel channel = is.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            BinaryJournal.readHeader(buffer, appVersion, valueCount);
+
+            char[] keyScratch = new char[BinaryJournal.DIGEST_CHARS];
+            int recordCount = 0;
+            boolean truncated = false;
+            while (buffer.hasRemaining()) {
+                try {
+                    readBinaryJournalRecord(buffer, keyScratch);
+                    recordCount++;
+                } catch (BufferUnderflowException endOfJournal) {
+                    truncated = true;
+                    break;
+                }
             }
+            redundantOpCount = recordCount - lruEntries.size();
+            return truncated;
         } finally {
-            Util.closeQuietly(reader);
+            Util.closeQuietly(is);
+        }
+    }
+
+    private void readBinaryJournalRecord(ByteBuffer buffer, char[] keyScratch) throws IOException {
+        byte op = buffer.get();
+        String key = BinaryJournal.readKey(buffer, op, keyScratch);
+        switch (op & BinaryJournal.OP_MASK) {
+            case BinaryJournal.REMOVE:
+                lruEntries.remove(key);
+                return;
+            case BinaryJournal.CLEAN:
+                // Read the lengths before touching the map so a truncated record has no effect.
+                long[] lengths = new long[valueCount];
+                for (int i = 0; i < valueCount; i++) {
+                    lengths[i] = BinaryJournal.readVarLong(buffer);
+                }
+                Entry entry = getOrCreateEntry(key);
+                entry.readable = true;
+                entry.currentEditor = null;
+                System.arraycopy(lengths, 0, entry.lengths, 0, valueCount);
+                return;
+            case BinaryJournal.DIRTY:
+                Entry dirty = getOrCreateEntry(key);
+                dirty.currentEditor = new Editor(dirty);
+                return;
+            case BinaryJournal.READ:
+                // Moves the entry to the head of the access order.
+                getOrCreateEntry(key);
+                return;
+            default:
+                throw new IOException("unexpected journal record: " + op);
+        }
+    }
+
+    private Entry getOrCreateEntry(String key) {
+        Entry entry = lruEntries.get(key);
+        if (entry == null) {
+            entry = new Entry(key);
+            lruEntries.put(key, entry);
         }
+        return entry;
     }
 
     private void readJournalLine(String line) throws IOException {
@@ -300,11 +537,7 @@ public final class DiskLruCache implements Closeable {
             key = line.substring(keyBegin, secondSpace);
         }
 
-        Entry entry = lruEntries.get(key);
-        if (entry == null) {
-            entry = new Entry(key);
-            lruEntries.put(key, entry);
-        }
+        Entry entry = getOrCreateEntry(key);
 
         if (secondSpace != -1 && firstSpace == CLEAN.length() && line.startsWith(CLEAN)) {
             String[] parts = line.substring(secondSpace + 1).split(" ");
@@ -341,6 +574,61 @@ public final class DiskLruCache implements Closeable {
                 i.remove();
             }
         }
+        if (isUnsynced(options) || new File(directory, JOURNAL_FILE_UNSYNCED).exists()) {
+            deleteUnreferencedFiles();
+        }
+    }
+
+    private static boolean isUnsynced(JournalOptions options) {
+        return options.isGroupCommitEnabled()
+                || options.durability != JournalOptions.Durability.ON_COMMIT;
+    }
+
+    /**
+     * Creates the marker for {@link #deleteUnreferencedFiles()} while this cache's options don't
+     * sync every commit, and removes it once a cache that does has cleaned up after them.
+     */
+    private void updateUnsyncedMarker() throws IOException {
+        File marker = new File(directory, JOURNAL_FILE_UNSYNCED);
+        if (!isUnsynced(options)) {
+            deleteIfExists(marker);
+        } else if (!marker.exists() && !marker.createNewFile() && !marker.exists()) {
+            throw new IOException("Failed to create " + marker);
+        }
+    }
+
+    /**
+     * With group commit or without syncing, DIRTY and CLEAN records may not
+     * have reached the journal before the process or device died, even though
+     * their files were written and renamed. The journal doesn't know those
+     * files, so they'd never be counted, evicted or deleted. Nothing is being
+     * edited while the cache is opened, so value files of this cache that
+     * don't belong to a replayed entry are garbage. Only names this cache
+     * could have written are deleted, the directory may be shared with other
+     * files, for example an app's cache directory.
+     */
+    private void deleteUnreferencedFiles() throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Set<String> referenced = new HashSet<String>();
+        for (Entry entry : lruEntries.values()) {
+            for (int t = 0; t < valueCount; t++) {
+                referenced.add(entry.getCleanFile(t).getName());
+            }
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (file.isFile() && !referenced.contains(name) && isValueFileName(name)) {
+                deleteIfExists(file);
+            }
+        }
+    }
+
+    private boolean isValueFileName(String name) {
+        Matcher matcher = VALUE_FILE_PATTERN.matcher(name);
+        return matcher.matches() && Integer.parseInt(matcher.group(1)) < valueCount;
     }
 
     /**
@@ -352,26 +640,25 @@ public final class DiskLruCache implements Closeable {
             journalWriter.close();
         }
 
-        Writer writer = new BufferedWriter(
-                new OutputStreamWriter(new FileOutputStream(journalFileTmp), Util.US_ASCII));
+        JournalWriter writer;
+        if (options.format == JournalOptions.Format.BINARY) {
+            writer = BinaryJournal.Writer.create(
+                    journalFileTmp, appVersion, valueCount, options.getBufferSize());
+        } else {
+            writer = TextJournalWriter.create(
+                    journalFileTmp, appVersion, valueCount, options.getBufferSize());
+        }
         try {
-            writer.write(MAGIC);
-            writer.write("\n");
-            writer.write(VERSION_1);
-            writer.write("\n");
-            writer.write(Integer.toString(appVersion));
-            writer.write("\n");
-            writer.write(Integer.toString(valueCount));
-            writer.write("\n");
-            writer.write("\n");
-
             for (Entry entry : lruEntries.values()) {
                 if (entry.currentEditor != null) {
-                    writer.write(DIRTY + ' ' + entry.key + '\n');
+                    writer.writeDirty(entry.key);
                 } else {
-                    writer.write(CLEAN + ' ' + entry.key + entry.getLengths() + '\n');
+                    writer.writeClean(entry.key, entry.lengths);
                 }
             }
+            if (options.durability != JournalOptions.Durability.NEVER) {
+                writer.sync();
+            }
         } finally {
             writer.close();
         }
@@ -382,8 +669,7 @@ public final class DiskLruCache implements Closeable {
         renameTo(journalFileTmp, journalFile, false);
         journalFileBackup.delete();
 
-        journalWriter = new BufferedWriter(
-                new OutputStreamWriter(new FileOutputStream(journalFile, true), Util.US_ASCII));
+        journalWriter = newAppendingJournalWriter();
     }
 
     private static void deleteIfExists(File file) throws IOException {
@@ -424,11 +710,15 @@ public final class DiskLruCache implements Closeable {
             }
         }
 
+        // Without READ records the access order only lives in lruEntries and is
+        // persisted by rebuilding the journal, so reads still count as redundant ops.
         redundantOpCount++;
-        journalWriter.append(READ);
-        journalWriter.append(' ');
-        journalWriter.append(key);
-        journalWriter.append('\n');
+        if (options.recordReads) {
+            journalWriter.writeRead(key);
+            if (options.requiresScheduledWrites()) {
+                scheduleJournalWrite();
+            }
+        }
         if (journalRebuildRequired()) {
             executorService.submit(cleanupCallable);
         }
@@ -462,11 +752,8 @@ public final class DiskLruCache implements Closeable {
         entry.currentEditor = editor;
 
         // Flush the journal before creating files to prevent file leaks.
-        journalWriter.append(DIRTY);
-        journalWriter.append(' ');
-        journalWriter.append(key);
-        journalWriter.append('\n');
-        journalWriter.flush();
+        journalWriter.writeDirty(key);
+        flushJournalForEdit(false);
         return editor;
     }
 
@@ -541,23 +828,16 @@ public final class DiskLruCache implements Closeable {
         entry.currentEditor = null;
         if (entry.readable | success) {
             entry.readable = true;
-            journalWriter.append(CLEAN);
-            journalWriter.append(' ');
-            journalWriter.append(entry.key);
-            journalWriter.append(entry.getLengths());
-            journalWriter.append('\n');
+            journalWriter.writeClean(entry.key, entry.lengths);
 
             if (success) {
                 entry.sequenceNumber = nextSequenceNumber++;
             }
         } else {
             lruEntries.remove(entry.key);
-            journalWriter.append(REMOVE);
-            journalWriter.append(' ');
-            journalWriter.append(entry.key);
-            journalWriter.append('\n');
+            journalWriter.writeRemove(entry.key);
         }
-        journalWriter.flush();
+        flushJournalForEdit(success);
 
         if (size > maxSize || journalRebuildRequired()) {
             executorService.submit(cleanupCallable);
@@ -597,10 +877,10 @@ public final class DiskLruCache implements Closeable {
         }
 
         redundantOpCount++;
-        journalWriter.append(REMOVE);
-        journalWriter.append(' ');
-        journalWriter.append(key);
-        journalWriter.append('\n');
+        journalWriter.writeRemove(key);
+        if (options.requiresScheduledWrites()) {
+            scheduleJournalWrite();
+        }
 
         lruEntries.remove(key);
 
@@ -626,7 +906,11 @@ public final class DiskLruCache implements Closeable {
     public synchronized void flush() throws IOException {
         checkNotClosed();
         trimToSize();
-        journalWriter.flush();
+        if (options.durability == JournalOptions.Durability.NEVER) {
+            journalWriter.flush();
+        } else {
+            journalWriter.sync();
+        }
     }
 
     /** Closes this cache. Stored values will remain on the filesystem. */
@@ -640,6 +924,12 @@ public final class DiskLruCache implements Closeable {
             }
         }
         trimToSize();
+        if (!options.recordReads && redundantOpCount > 0) {
+            // Persist the in-memory access order.
+            rebuildJournal();
+        } else if (options.durability != JournalOptions.Durability.NEVER) {
+            journalWriter.sync();
+        }
         journalWriter.close();
         journalWriter = null;
     }
@@ -840,14 +1130,6 @@ public final class DiskLruCache implements Closeable {
             }
         }
 
-        public String getLengths() throws IOException {
-            StringBuilder result = new StringBuilder();
-            for (long size : lengths) {
-                result.append(' ').append(size);
-            }
-            return result.toString();
-        }
-
         /** Set lengths using decimal numbers like "10123". */
         private void setLengths(String[] strings) throws IOException {
             if (strings.length != valueCount) {
@@ -0,0 +1,167 @@
+package com.bumptech.glide.disklrucache;
+
+/**
+ * Options controlling how a {@link DiskLruCache} records its journal.
+ */
+public final class JournalOptions {
+    /**
+     * Options matching the behavior of earlier versions: a text journal that records every read,
+     * is flushed after every edit and is never explicitly synced.
+     */
+    public static final JournalOptions DEFAULT = new Builder().build();
+    static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /** The on-disk encoding of the journal. */
+    public enum Format {
+        /**
+         * The original line based journal in a file named "journal". Human readable, but
+         * replaying it parses and allocates a string per line.
+         */
+        TEXT,
+        /**
+         * A compact, append-only binary journal in a file named "journal.bin". Keys that are 64
+         * character lowercase hex digests are stored as 32 raw bytes and lengths as varints.
+         * Compaction rewrites the journal as a snapshot of clean entries that is memory mapped and
+         * replayed without per-line parsing on the next open.
+         *
+         * <p>Opening an existing text journal with this format migrates it in place. The migration
+         * is one way: opening a binary journal with {@link #TEXT} clears the cache.
+         */
+        BINARY
+    }
+
+    /** Controls when journal writes are forced to the storage device with {@code fsync}. */
+    public enum Durability {
+        /**
+         * Never sync, rely on the OS to write the journal out eventually. A power loss may lose
+         * recent records, the affected entries are dropped the next time the cache is opened.
+         */
+        NEVER,
+        /** Flush and sync the journal before every {@link DiskLruCache.Editor#commit} returns. */
+        ON_COMMIT,
+        /**
+         * Sync the journal in the background at most once per {@link
+         * Builder#setPeriodicSyncInterval(long) interval}, and only if it was written to.
+         */
+        PERIODIC
+    }
+
+    final Format format;
+    final Durability durability;
+    final long syncIntervalMillis;
+    final int groupCommitBytes;
+    final long groupCommitDelayMillis;
+    final boolean recordReads;
+
+    private JournalOptions(Builder builder) {
+        this.format = builder.format;
+        this.durability = builder.durability;
+        this.syncIntervalMillis = builder.syncIntervalMillis;
+        this.groupCommitBytes = builder.groupCommitBytes;
+        this.groupCommitDelayMillis = builder.groupCommitDelayMillis;
+        this.recordReads = builder.recordReads;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    /** Returns true if journal records are buffered and written in batches. */
+    public boolean isGroupCommitEnabled() {
+        return groupCommitBytes > 0;
+    }
+
+    /** Returns true if every read is appended to the journal. */
+    public boolean isRecordReads() {
+        return recordReads;
+    }
+
+    /** Returns true if this cache needs a scheduled background thread to write its journal. */
+    boolean requiresScheduledWrites() {
+        return isGroupCommitEnabled() || durability == Durability.PERIODIC;
+    }
+
+    int getBufferSize() {
+        return isGroupCommitEnabled() ? groupCommitBytes : DEFAULT_BUFFER_SIZE;
+    }
+
+    /** Builds {@link JournalOptions}. */
+    public static final class Builder {
+        private static final long DEFAULT_SYNC_INTERVAL_MILLIS = 5000;
+
+        private Format format = Format.TEXT;
+        private Durability durability = Durability.NEVER;
+        private long syncIntervalMillis = DEFAULT_SYNC_INTERVAL_MILLIS;
+        private int groupCommitBytes;
+        private long groupCommitDelayMillis;
+        private boolean recordReads = true;
+
+        public Builder setFormat(Format format) {
+            if (format == null) {
+                throw new NullPointerException("format == null");
+            }
+            this.format = format;
+            return this;
+        }
+
+        public Builder setDurability(Durability durability) {
+            if (durability == null) {
+                throw new NullPointerException("durability == null");
+            }
+            this.durability = durability;
+            return this;
+        }
+
+        /** Sets how often the journal is synced with {@link Durability#PERIODIC}. */
+        public Builder setPeriodicSyncInterval(long intervalMillis) {
+            if (intervalMillis <= 0) {
+                throw new IllegalArgumentException("intervalMillis <= 0");
+            }
+            this.syncIntervalMillis = intervalMillis;
+            return this;
+        }
+
+        /**
+         * Buffers journal records in memory instead of flushing them after every edit. The buffer
+         * is written out when it holds {@code maxBufferedBytes} or when the oldest buffered record
+         * is {@code maxDelayMillis} old, whichever comes first.
+         *
+         * <p>Records that haven't been written when the process dies are lost, including the
+         * DIRTY records that normally guard against leaking files. Value files the journal doesn't
+         * know, temporary or already committed, are deleted when the cache is next opened instead.
+         * The same applies to durabilities other than {@link Durability#ON_COMMIT}.
+         */
+        public Builder setGroupCommit(int maxBufferedBytes, long maxDelayMillis) {
+            if (maxBufferedBytes <= 0) {
+                throw new IllegalArgumentException("maxBufferedBytes <= 0");
+            }
+            if (maxDelayMillis <= 0) {
+                throw new IllegalArgumentException("maxDelayMillis <= 0");
+            }
+            this.groupCommitBytes = maxBufferedBytes;
+            this.groupCommitDelayMillis = maxDelayMillis;
+            return this;
+        }
+
+        /**
+         * Sets whether every read is appended to the journal, {@code true} by default.
+         *
+         * <p>If {@code false} the access order is only kept in memory and is written out when the
+         * journal is compacted, so the order of reads since the last compaction is lost if the
+         * process dies. Reads still count towards the compaction threshold so the persisted order
+         * is refreshed about as often as the journal would have been compacted anyway.
+         */
+        public Builder setRecordReads(boolean recordReads) {
+            this.recordReads = recordReads;
+            return this;
+        }
+
+        public JournalOptions build() {
+            return new JournalOptions(this);
+        }
+    }
+}
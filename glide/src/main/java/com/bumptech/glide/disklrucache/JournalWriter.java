@@ -0,0 +1,21 @@
+package com.bumptech.glide.disklrucache;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * Appends records to a {@link DiskLruCache} journal in a particular {@link JournalOptions.Format}.
+ */
+interface JournalWriter extends Closeable, Flushable {
+    void writeClean(String key, long[] lengths) throws IOException;
+
+    void writeDirty(String key) throws IOException;
+
+    void writeRemove(String key) throws IOException;
+
+    void writeRead(String key) throws IOException;
+
+    /** Flushes buffered records and forces them to the storage device. */
+    void sync() throws IOException;
+}
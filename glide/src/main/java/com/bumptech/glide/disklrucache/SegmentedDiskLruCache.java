@@ -0,0 +1,245 @@
+package com.bumptech.glide.disklrucache;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * A {@link DiskLruCache} that is split into a fixed number of independent segments. Keys are
+ * hashed to a segment and each segment has its own journal, size budget and lock, so reads and
+ * writes of keys in different segments never contend with each other.
+ *
+ * <p>With a single segment the cache uses {@code directory} directly and is file-for-file
+ * compatible with a plain {@link DiskLruCache}. With more than one segment each segment lives in
+ * its own {@code segment-<index>} sub directory and the segment count is recorded in a
+ * {@code segments} file. If the layout on disk doesn't match the requested segment count, the
+ * directory is cleared and the cache starts empty.
+ *
+ * <p>The LRU order is per segment, so eviction is only approximately least recently used across
+ * the whole cache. Because keys are spread uniformly, each segment is given an equal share of the
+ * total size budget.
+ */
+public final class SegmentedDiskLruCache implements Closeable {
+    static final String SEGMENTS_FILE = "segments";
+    static final String SEGMENT_DIRECTORY_PREFIX = "segment-";
+
+    private final File directory;
+    private final DiskLruCache[] segments;
+
+    private SegmentedDiskLruCache(File directory, DiskLruCache[] segments) {
+        this.directory = directory;
+        this.segments = segments;
+    }
+
+    /**
+     * Opens the cache in {@code directory}, creating a cache if none exists there.
+     *
+     * @param directory a writable directory
+     * @param valueCount the number of values per cache entry. Must be positive.
+     * @param maxSize the maximum number of bytes this cache should use to store, split evenly
+     *     across segments
+     * @param segmentCount the number of independent segments. Must be positive.
+     * @throws IOException if reading or writing the cache directory fails
+     */
+    public static SegmentedDiskLruCache open(File directory, int appVersion, int valueCount,
+            long maxSize, int segmentCount) throws IOException {
+        return open(directory, appVersion, valueCount, maxSize, segmentCount,
+                JournalOptions.DEFAULT);
+    }
+
+    /**
+     * Opens the cache in {@code directory}, creating a cache if none exists there.
+     *
+     * @param directory a writable directory
+     * @param valueCount the number of values per cache entry. Must be positive.
+     * @param maxSize the maximum number of bytes this cache should use to store, split evenly
+     *     across segments
+     * @param segmentCount the number of independent segments. Must be positive.
+     * @param options controls the journal of every segment
+     * @throws IOException if reading or writing the cache directory fails
+     */
+    public static SegmentedDiskLruCache open(File directory, int appVersion, int valueCount,
+            long maxSize, int segmentCount, JournalOptions options) throws IOException {
+        if (segmentCount <= 0) {
+            throw new IllegalArgumentException("segmentCount <= 0");
+        }
+        if (maxSize < segmentCount) {
+            throw new IllegalArgumentException("maxSize < segmentCount");
+        }
+
+        if (segmentCount == 1) {
+            if (new File(directory, SEGMENTS_FILE).exists()) {
+                Util.deleteContents(directory);
+            }
+            return new SegmentedDiskLruCache(directory, new DiskLruCache[] {
+                    DiskLruCache.open(directory, appVersion, valueCount, maxSize, options)
+            });
+        }
+
+        directory.mkdirs();
+        if (readSegmentCount(directory) != segmentCount) {
+            Util.deleteContents(directory);
+            writeSegmentCount(directory, segmentCount);
+        }
+
+        DiskLruCache[] segments = new DiskLruCache[segmentCount];
+        long[] segmentSizes = splitSize(maxSize, segmentCount);
+        try {
+            for (int i = 0; i < segmentCount; i++) {
+                segments[i] = DiskLruCache.open(getSegmentDirectory(directory, i), appVersion,
+                        valueCount, segmentSizes[i], options);
+            }
+        } catch (IOException e) {
+            for (DiskLruCache segment : segments) {
+                Util.closeQuietly(segment);
+            }
+            throw e;
+        }
+        return new SegmentedDiskLruCache(directory, segments);
+    }
+
+    private static File getSegmentDirectory(File directory, int index) {
+        return new File(directory, SEGMENT_DIRECTORY_PREFIX + index);
+    }
+
+    private static long[] splitSize(long maxSize, int segmentCount) {
+        long[] result = new long[segmentCount];
+        long share = maxSize / segmentCount;
+        for (int i = 0; i < segmentCount; i++) {
+            result[i] = share;
+        }
+        result[0] += maxSize % segmentCount;
+        return result;
+    }
+
+    /** Returns the segment count recorded in {@code directory}, or -1 if there isn't one. */
+    private static int readSegmentCount(File directory) {
+        File segmentsFile = new File(directory, SEGMENTS_FILE);
+        if (!segmentsFile.exists()) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(Util.readFully(
+                    new InputStreamReader(new FileInputStream(segmentsFile), Util.US_ASCII)).trim());
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void writeSegmentCount(File directory, int segmentCount) throws IOException {
+        Writer writer = new OutputStreamWriter(
+                new FileOutputStream(new File(directory, SEGMENTS_FILE)), Util.US_ASCII);
+        try {
+            writer.write(Integer.toString(segmentCount));
+            writer.write("\n");
+        } finally {
+            writer.close();
+        }
+    }
+
+    private DiskLruCache segmentFor(String key) {
+        if (segments.length == 1) {
+            return segments[0];
+        }
+        // Spread the high bits down so keys that only differ in their upper bits still land in
+        // different segments.
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return segments[(hash & Integer.MAX_VALUE) % segments.length];
+    }
+
+    /** Returns the number of segments in this cache. */
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    /** Returns the directory where this cache stores its data. */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /** See {@link DiskLruCache#get(String)}. Only the segment owning {@code key} is locked. */
+    public DiskLruCache.Value get(String key) throws IOException {
+        return segmentFor(key).get(key);
+    }
+
+    /** See {@link DiskLruCache#edit(String)}. Only the segment owning {@code key} is locked. */
+    public DiskLruCache.Editor edit(String key) throws IOException {
+        return segmentFor(key).edit(key);
+    }
+
+    /** See {@link DiskLruCache#remove(String)}. Only the segment owning {@code key} is locked. */
+    public boolean remove(String key) throws IOException {
+        return segmentFor(key).remove(key);
+    }
+
+    /** Returns the total maximum number of bytes across all segments. */
+    public long getMaxSize() {
+        long result = 0;
+        for (DiskLruCache segment : segments) {
+            result += segment.getMaxSize();
+        }
+        return result;
+    }
+
+    /** Splits {@code maxSize} evenly across segments and trims each segment if necessary. */
+    public void setMaxSize(long maxSize) {
+        long[] segmentSizes = splitSize(maxSize, segments.length);
+        for (int i = 0; i < segments.length; i++) {
+            segments[i].setMaxSize(segmentSizes[i]);
+        }
+    }
+
+    /** Returns the number of bytes currently used to store values across all segments. */
+    public long size() {
+        long result = 0;
+        for (DiskLruCache segment : segments) {
+            result += segment.size();
+        }
+        return result;
+    }
+
+    /** Returns true if this cache has been closed. */
+    public boolean isClosed() {
+        return segments[0].isClosed();
+    }
+
+    /** Force buffered operations in every segment to the filesystem. */
+    public void flush() throws IOException {
+        for (DiskLruCache segment : segments) {
+            segment.flush();
+        }
+    }
+
+    /** Closes every segment. Stored values will remain on the filesystem. */
+    @Override
+    public void close() throws IOException {
+        IOException firstFailure = null;
+        for (DiskLruCache segment : segments) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                if (firstFailure == null) {
+                    firstFailure = e;
+                }
+            }
+        }
+        if (firstFailure != null) {
+            throw firstFailure;
+        }
+    }
+
+    /**
+     * Closes the cache and deletes all of its stored values. This will delete all files in the
+     * cache directory including files that weren't created by the cache.
+     */
+    public void delete() throws IOException {
+        close();
+        Util.deleteContents(directory);
+    }
+}
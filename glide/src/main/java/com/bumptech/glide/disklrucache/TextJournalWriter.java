@@ -0,0 +1,100 @@
+package com.bumptech.glide.disklrucache;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/** Writes the original line based journal, see {@link DiskLruCache}. */
+final class TextJournalWriter implements JournalWriter {
+    static final String CLEAN = "CLEAN";
+    static final String DIRTY = "DIRTY";
+    static final String REMOVE = "REMOVE";
+    static final String READ = "READ";
+
+    private final FileOutputStream os;
+    private final Writer writer;
+
+    private TextJournalWriter(FileOutputStream os, int bufferSize) {
+        this.os = os;
+        this.writer = new BufferedWriter(new OutputStreamWriter(os, Util.US_ASCII), bufferSize);
+    }
+
+    /** Opens {@code file} for appending records after an existing header. */
+    static TextJournalWriter append(File file, int bufferSize) throws IOException {
+        return new TextJournalWriter(new FileOutputStream(file, true), bufferSize);
+    }
+
+    /** Creates {@code file}, replacing any existing contents, and writes the journal header. */
+    static TextJournalWriter create(File file, int appVersion, int valueCount, int bufferSize)
+            throws IOException {
+        TextJournalWriter result = new TextJournalWriter(new FileOutputStream(file), bufferSize);
+        try {
+            result.writer.write(DiskLruCache.MAGIC);
+            result.writer.write("\n");
+            result.writer.write(DiskLruCache.VERSION_1);
+            result.writer.write("\n");
+            result.writer.write(Integer.toString(appVersion));
+            result.writer.write("\n");
+            result.writer.write(Integer.toString(valueCount));
+            result.writer.write("\n");
+            result.writer.write("\n");
+        } catch (IOException e) {
+            Util.closeQuietly(result);
+            throw e;
+        }
+        return result;
+    }
+
+    @Override
+    public void writeClean(String key, long[] lengths) throws IOException {
+        writer.append(CLEAN);
+        writer.append(' ');
+        writer.append(key);
+        for (long length : lengths) {
+            writer.append(' ');
+            writer.append(Long.toString(length));
+        }
+        writer.append('\n');
+    }
+
+    @Override
+    public void writeDirty(String key) throws IOException {
+        writeKeyLine(DIRTY, key);
+    }
+
+    @Override
+    public void writeRemove(String key) throws IOException {
+        writeKeyLine(REMOVE, key);
+    }
+
+    @Override
+    public void writeRead(String key) throws IOException {
+        writeKeyLine(READ, key);
+    }
+
+    private void writeKeyLine(String state, String key) throws IOException {
+        writer.append(state);
+        writer.append(' ');
+        writer.append(key);
+        writer.append('\n');
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void sync() throws IOException {
+        writer.flush();
+        os.getFD().sync();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -78,6 +78,15 @@ class GifFrame {
    * Index in the raw buffer where we need to start reading to decode.
    */
   int bufferFrameStart;
+  /**
+   * Index in the raw buffer of the Image Descriptor, starting with its Image Separator.
+   */
+  int descriptorStart;
+  /**
+   * Index in the raw buffer of the Graphic Control Extension's block size, or -1 if the frame has
+   * no Graphic Control Extension.
+   */
+  int controlStart = -1;
   /**
    * Local Color Table.
    */
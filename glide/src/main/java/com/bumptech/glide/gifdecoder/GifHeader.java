@@ -1,6 +1,8 @@
 package com.bumptech.glide.gifdecoder;
 
 import android.support.annotation.ColorInt;
+import android.support.annotation.NonNull;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -18,6 +20,14 @@ public class GifHeader {
   public static final int NETSCAPE_LOOP_COUNT_FOREVER = 0;
   /** Indicates that this header has no "Netscape" loop count. */
   public static final int NETSCAPE_LOOP_COUNT_DOES_NOT_EXIST = -1;
+  private static final int IMAGE_SEPARATOR = 0x2C;
+  // The Image Separator and the frame's position and size.
+  private static final int DESCRIPTOR_SIZE = 9;
+  // The Logical Screen Descriptor follows the 6 byte signature, the Global Color Table follows it.
+  private static final int LSD_START = 6;
+  private static final int GCT_START = 13;
+  private static final int DESCRIPTOR_MASK_LCT_FLAG = 0b10000000;
+  private static final int DESCRIPTOR_MASK_LCT_SIZE = 0b00000111;
 
   @ColorInt
   int[] gct = null;
@@ -49,6 +59,8 @@ public class GifHeader {
   @ColorInt
   int bgColor;
   int loopCount = NETSCAPE_LOOP_COUNT_DOES_NOT_EXIST;
+  /** The length of the data this header was parsed from. */
+  int dataLength;
 
   public int getHeight() {
     return height;
@@ -69,4 +81,83 @@ public class GifHeader {
   public int getStatus() {
     return status;
   }
+
+  /**
+   * Returns {@code true} if the given data has the same length as the data this header was parsed
+   * from and, at the same indices, the same screen size, Global Color Table and, for every frame,
+   * the same Image Descriptor, Local Color Table, delay and transparent color index. A check that a
+   * header can be reused for data that's likely the same GIF without parsing the data again. It
+   * reads the parts of the data the header was parsed from, but not the image data.
+   */
+  public boolean isParsedFrom(@NonNull ByteBuffer data) {
+    if (data.limit() != dataLength || dataLength < GCT_START
+        || readShort(data, LSD_START) != width
+        || readShort(data, LSD_START + 2) != height) {
+      return false;
+    }
+    if (gctFlag && gct != null && !isColorTableAt(data, GCT_START, gct, gctSize)) {
+      return false;
+    }
+    for (GifFrame frame : frames) {
+      if (!isFrameAt(data, frame)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isFrameAt(ByteBuffer data, GifFrame frame) {
+    int start = frame.descriptorStart;
+    // The descriptor ends with its packed field.
+    if (start < 0 || start + DESCRIPTOR_SIZE + 1 > dataLength
+        || data.get(start) != IMAGE_SEPARATOR
+        || readShort(data, start + 1) != frame.ix
+        || readShort(data, start + 3) != frame.iy
+        || readShort(data, start + 5) != frame.iw
+        || readShort(data, start + 7) != frame.ih) {
+      return false;
+    }
+    int packed = data.get(start + DESCRIPTOR_SIZE);
+    boolean lctFlag = (packed & DESCRIPTOR_MASK_LCT_FLAG) != 0;
+    if (lctFlag != (frame.lct != null)
+        || (lctFlag && !isColorTableAt(data, start + DESCRIPTOR_SIZE + 1, frame.lct,
+            2 << (packed & DESCRIPTOR_MASK_LCT_SIZE)))) {
+      return false;
+    }
+    int control = frame.controlStart;
+    if (control < 0) {
+      return true;
+    }
+    // Block size, packed field, delay and transparent color index.
+    if (control + 5 > dataLength) {
+      return false;
+    }
+    int delay = readShort(data, control + 2);
+    if (delay < GifHeaderParser.MIN_FRAME_DELAY) {
+      delay = GifHeaderParser.DEFAULT_FRAME_DELAY;
+    }
+    return delay * 10 == frame.delay && (data.get(control + 4) & 0xFF) == frame.transIndex;
+  }
+
+  // Matches GifHeaderParser, which reads colors as opaque RGB triplets.
+  private boolean isColorTableAt(ByteBuffer data, int start, int[] table, int size) {
+    if (start + 3 * size > dataLength || size > table.length) {
+      return false;
+    }
+    for (int i = 0, j = start; i < size; i++, j += 3) {
+      int color = 0xFF000000
+          | ((data.get(j) & 0xFF) << 16)
+          | ((data.get(j + 1) & 0xFF) << 8)
+          | (data.get(j + 2) & 0xFF);
+      if (color != table[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // Matches GifHeaderParser, which reads signed little endian shorts.
+  private static int readShort(ByteBuffer data, int index) {
+    return (short) ((data.get(index) & 0xFF) | (data.get(index + 1) << 8));
+  }
 }
@@ -163,6 +163,7 @@ public class GifHeaderParser {
       return header;
     }
 
+    header.dataLength = rawData.limit();
     readHeader();
     if (!err()) {
       readContents();
@@ -210,6 +211,7 @@ public class GifHeaderParser {
           if (header.currentFrame == null) {
             header.currentFrame = new GifFrame();
           }
+          header.currentFrame.descriptorStart = rawData.position() - 1;
           readBitmap();
           break;
         case EXTENSION_INTRODUCER:
@@ -260,6 +262,7 @@ public class GifHeaderParser {
    * Reads Graphic Control Extension values.
    */
   private void readGraphicControlExt() {
+    header.currentFrame.controlStart = rawData.position();
     // Block size.
     read();
     /*
@@ -33,6 +33,7 @@ import android.graphics.Bitmap.Config;
 import android.support.annotation.ColorInt;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
 import android.util.Log;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -62,9 +63,12 @@ import java.util.Arrays;
 public class StandardGifDecoder implements GifDecoder {
   private static final String TAG = StandardGifDecoder.class.getSimpleName();
 
-  /** Maximum pixel stack size for decoding LZW compressed data. */
+  /** Maximum string table size for decoding LZW compressed data. */
   private static final int MAX_STACK_SIZE = 4 * 1024;
 
+  /** The size of a single data block, the minimum size of the LZW data array. */
+  private static final int MIN_BLOCK_SIZE = 255;
+
   private static final int NULL_CODE = -1;
 
   private static final int INITIAL_FRAME_POINTER = -1;
@@ -92,15 +96,14 @@ public class StandardGifDecoder implements GifDecoder {
   /** Raw GIF data from input source. */
   private ByteBuffer rawData;
 
-  /** Raw data read working array. */
+  /** The current frame's LZW data, without the sizes of the blocks it was split into. */
   private byte[] block;
 
   private GifHeaderParser parser;
 
-  // LZW decoder working arrays.
-  private short[] prefix;
-  private byte[] suffix;
-  private byte[] pixelStack;
+  // LZW decoder working arrays, the offset in mainPixels and length of each code's string.
+  private int[] stringOffsets;
+  private short[] stringLengths;
   private byte[] mainPixels;
   @ColorInt
   private int[] mainScratch;
@@ -248,10 +251,6 @@ public class StandardGifDecoder implements GifDecoder {
     }
     status = STATUS_OK;
 
-    if (block == null) {
-      block = bitmapProvider.obtainByteArray(255);
-    }
-
     GifFrame currentFrame = header.frames.get(framePointer);
     GifFrame previousFrame = null;
     int previousIndex = framePointer - 1;
@@ -687,134 +686,128 @@ public class StandardGifDecoder implements GifDecoder {
 
   /**
    * Decodes LZW image data into pixel array. Adapted from John Cristy's BitmapMagick.
+   *
+   * <p>The frame's data sub-blocks are copied into a single array up front, so codes are read
+   * from a wide bit buffer without checking for the end of a block after every byte. Rather than
+   * as a prefix and suffix chain that has to be unwound through a pixel stack, each code's string
+   * is kept as the offset and length of a copy of it already written to the pixel array, so
+   * strings are emitted with a single array copy.
    */
-  private void decodeBitmapData(GifFrame frame) {
+  @VisibleForTesting
+  void decodeBitmapData(GifFrame frame) {
     if (frame != null) {
       // Jump to the frame start position.
       rawData.position(frame.bufferFrameStart);
     }
 
     int npix = (frame == null) ? header.width * header.height : frame.iw * frame.ih;
-    int available, clear, codeMask, codeSize, endOfInformation, inCode, oldCode, bits, code, count,
-        i, datum, dataSize, first, top, bi, pi;
 
     if (mainPixels == null || mainPixels.length < npix) {
       // Allocate new pixel array.
       mainPixels = bitmapProvider.obtainByteArray(npix);
     }
     byte[] mainPixels = this.mainPixels;
-    if (prefix == null) {
-      prefix = new short[MAX_STACK_SIZE];
+    if (stringOffsets == null) {
+      stringOffsets = new int[MAX_STACK_SIZE];
     }
-    short[] prefix = this.prefix;
-    if (suffix == null) {
-      suffix = new byte[MAX_STACK_SIZE];
+    int[] stringOffsets = this.stringOffsets;
+    if (stringLengths == null) {
+      stringLengths = new short[MAX_STACK_SIZE];
     }
-    byte[] suffix = this.suffix;
-    if (pixelStack == null) {
-      pixelStack = new byte[MAX_STACK_SIZE + 1];
-    }
-    byte[] pixelStack = this.pixelStack;
+    short[] stringLengths = this.stringLengths;
 
     // Initialize GIF data stream decoder.
-    dataSize = readByte();
-    clear = 1 << dataSize;
-    endOfInformation = clear + 1;
-    available = clear + 2;
-    oldCode = NULL_CODE;
-    codeSize = dataSize + 1;
-    codeMask = (1 << codeSize) - 1;
-
-    for (code = 0; code < clear; code++) {
-      // XXX ArrayIndexOutOfBoundsException.
-      prefix[code] = 0;
-      suffix[code] = (byte) code;
-    }
-    byte[] block = this.block;
+    int dataSize = readByte();
+    int dataLength = readDataBlocks();
+    byte[] data = this.block;
+    int clear = 1 << dataSize;
+    int endOfInformation = clear + 1;
+    int available = clear + 2;
+    int oldCode = NULL_CODE;
+    int oldOffset = 0;
+    int oldLength = 0;
+    int codeSize = dataSize + 1;
+    int codeMask = (1 << codeSize) - 1;
+    if (available > MAX_STACK_SIZE) {
+      // The string table can't hold the codes, the data is corrupt.
+      dataLength = 0;
+    }
+
     // Decode GIF pixel stream.
-    i = datum = bits = count = first = top = pi = bi = 0;
-    while (i < npix) {
-      // Read a new data block.
-      if (count == 0) {
-        count = readBlock();
-        if (count <= 0) {
-          status = STATUS_PARTIAL_DECODE;
-          break;
-        }
-        bi = 0;
+    int datum = 0;
+    int bits = 0;
+    int di = 0;
+    int pi = 0;
+    while (pi < npix) {
+      // Top up the bit buffer, codes are at most 12 bits so up to 3 bytes fit at once.
+      while (bits <= Integer.SIZE - 8 && di < dataLength) {
+        datum |= (((int) data[di]) & MASK_INT_LOWEST_BYTE) << bits;
+        bits += 8;
+        ++di;
+      }
+      if (bits < codeSize) {
+        break;
       }
 
-      datum += (((int) block[bi]) & MASK_INT_LOWEST_BYTE) << bits;
-      bits += 8;
-      ++bi;
-      --count;
-
-      while (bits >= codeSize) {
-        // Get the next code.
-        code = datum & codeMask;
-        datum >>= codeSize;
-        bits -= codeSize;
-
-        // Interpret the code.
-        if (code == clear) {
-          // Reset decoder.
-          codeSize = dataSize + 1;
-          codeMask = (1 << codeSize) - 1;
-          available = clear + 2;
-          oldCode = NULL_CODE;
-          continue;
-        } else if (code == endOfInformation) {
-          break;
-        } else if (oldCode == NULL_CODE) {
-          mainPixels[pi] = suffix[code];
-          ++pi;
-          ++i;
-          oldCode = code;
-          first = code;
-          continue;
-        }
-
-        inCode = code;
-        if (code >= available) {
-          pixelStack[top] = (byte) first;
-          ++top;
-          code = oldCode;
-        }
-
-        while (code >= clear) {
-          pixelStack[top] = suffix[code];
-          ++top;
-          code = prefix[code];
-        }
-        first = ((int) suffix[code]) & MASK_INT_LOWEST_BYTE;
-
-        mainPixels[pi] = (byte) first;
-        ++pi;
-        ++i;
+      // Get the next code.
+      int code = datum & codeMask;
+      datum >>>= codeSize;
+      bits -= codeSize;
+
+      // Interpret the code.
+      if (code == clear) {
+        // Reset decoder.
+        codeSize = dataSize + 1;
+        codeMask = (1 << codeSize) - 1;
+        available = clear + 2;
+        oldCode = NULL_CODE;
+        continue;
+      } else if (code == endOfInformation) {
+        break;
+      }
 
-        while (top > 0) {
-          // Pop a pixel off the pixel stack.
-          mainPixels[pi] = pixelStack[--top];
-          ++pi;
-          ++i;
+      int length;
+      if (code < clear) {
+        // A single color index.
+        mainPixels[pi] = (byte) code;
+        length = 1;
+      } else if (code < available) {
+        length = Math.min(stringLengths[code], npix - pi);
+        System.arraycopy(mainPixels, stringOffsets[code], mainPixels, pi, length);
+      } else if (oldCode != NULL_CODE) {
+        // The code being added to the table, the previous string followed by its first index.
+        length = Math.min(oldLength + 1, npix - pi);
+        System.arraycopy(mainPixels, oldOffset, mainPixels, pi, Math.min(oldLength, length));
+        if (length > oldLength) {
+          mainPixels[pi + oldLength] = mainPixels[oldOffset];
         }
+      } else {
+        // A code that isn't in the table yet with no previous string to build it from.
+        break;
+      }
 
-        // Add a new string to the string table.
-        if (available < MAX_STACK_SIZE) {
-          prefix[available] = (short) oldCode;
-          suffix[available] = (byte) first;
-          ++available;
-          if (((available & codeMask) == 0) && (available < MAX_STACK_SIZE)) {
-            ++codeSize;
-            codeMask += available;
-          }
+      // Add a new string to the string table, the previous string followed by the first index of
+      // this one. It directly precedes this one in the pixel array, so it can be referenced there.
+      if (oldCode != NULL_CODE && available < MAX_STACK_SIZE) {
+        stringOffsets[available] = oldOffset;
+        stringLengths[available] = (short) (oldLength + 1);
+        ++available;
+        if (((available & codeMask) == 0) && (available < MAX_STACK_SIZE)) {
+          ++codeSize;
+          codeMask += available;
         }
-        oldCode = inCode;
       }
+      oldCode = code;
+      oldOffset = pi;
+      oldLength = length;
+      pi += length;
     }
 
-    // Clear missing pixels.
-    Arrays.fill(mainPixels, pi, npix, (byte) COLOR_TRANSPARENT_BLACK);
+    if (pi < npix) {
+      status = STATUS_PARTIAL_DECODE;
+      // Clear missing pixels.
+      Arrays.fill(mainPixels, pi, npix, (byte) COLOR_TRANSPARENT_BLACK);
+    }
   }
 
   /**
@@ -825,17 +818,38 @@ public class StandardGifDecoder implements GifDecoder {
   }
 
   /**
-   * Reads next variable length block from input.
+   * Copies the data of the variable length blocks that follow in the input into {@link #block},
+   * without their size bytes.
    *
-   * @return number of bytes stored in "buffer".
+   * @return number of bytes stored in {@link #block}.
    */
-  private int readBlock() {
-    int blockSize = readByte();
-    if (blockSize <= 0) {
-      return blockSize;
+  private int readDataBlocks() {
+    ByteBuffer rawData = this.rawData;
+    int limit = rawData.limit();
+    int total = 0;
+    int position = rawData.position();
+    while (position < limit) {
+      int blockSize = rawData.get(position) & MASK_INT_LOWEST_BYTE;
+      if (blockSize == 0) {
+        break;
+      }
+      total += Math.min(blockSize, limit - position - 1);
+      position += blockSize + 1;
+    }
+
+    if (block == null || block.length < total) {
+      if (block != null) {
+        bitmapProvider.release(block);
+      }
+      block = bitmapProvider.obtainByteArray(Math.max(total, MIN_BLOCK_SIZE));
+    }
+    int read = 0;
+    while (read < total) {
+      int blockSize = Math.min(readByte(), total - read);
+      rawData.get(block, read, blockSize);
+      read += blockSize;
     }
-    rawData.get(block, 0, Math.min(blockSize, rawData.remaining()));
-    return blockSize;
+    return total;
   }
 
   private Bitmap getNextBitmap() {
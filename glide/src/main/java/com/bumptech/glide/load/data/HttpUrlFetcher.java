@@ -13,6 +13,7 @@ import com.bumptech.glide.util.LogTime;
 import com.bumptech.glide.util.Synthetic;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.net.HttpURLConnection;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -20,8 +21,11 @@ import java.util.Map;
 
 /**
  * A DataFetcher that retrieves an {@link java.io.InputStream} for a Url.
+ *
+ * <p>Connections are limited and ordered by a {@link NetworkScheduler}, the fetcher's thread waits
+ * until its request may start.
  */
-public class HttpUrlFetcher implements DataFetcher<InputStream> {
+public class HttpUrlFetcher implements DataFetcher<InputStream>, Reprioritizable {
   private static final String TAG = "HttpUrlFetcher";
   private static final int MAXIMUM_REDIRECTS = 5;
   @VisibleForTesting
@@ -35,20 +39,32 @@ public class HttpUrlFetcher implements DataFetcher<InputStream> {
   private final GlideUrl glideUrl;
   private final int timeout;
   private final HttpUrlConnectionFactory connectionFactory;
+  private final NetworkScheduler networkScheduler;
 
   private HttpURLConnection urlConnection;
   private InputStream stream;
+  private volatile NetworkScheduler.Ticket ticket;
   private volatile boolean isCancelled;
 
   public HttpUrlFetcher(GlideUrl glideUrl, int timeout) {
-    this(glideUrl, timeout, DEFAULT_CONNECTION_FACTORY);
+    this(glideUrl, timeout, NetworkScheduler.getDefault());
+  }
+
+  public HttpUrlFetcher(GlideUrl glideUrl, int timeout, NetworkScheduler networkScheduler) {
+    this(glideUrl, timeout, DEFAULT_CONNECTION_FACTORY, networkScheduler);
   }
 
   @VisibleForTesting
   HttpUrlFetcher(GlideUrl glideUrl, int timeout, HttpUrlConnectionFactory connectionFactory) {
+    this(glideUrl, timeout, connectionFactory, NetworkScheduler.getDefault());
+  }
+
+  private HttpUrlFetcher(GlideUrl glideUrl, int timeout,
+      HttpUrlConnectionFactory connectionFactory, NetworkScheduler networkScheduler) {
     this.glideUrl = glideUrl;
     this.timeout = timeout;
     this.connectionFactory = connectionFactory;
+    this.networkScheduler = networkScheduler;
   }
 
   @Override
@@ -56,8 +72,19 @@ public class HttpUrlFetcher implements DataFetcher<InputStream> {
       @NonNull DataCallback<? super InputStream> callback) {
     long startTime = LogTime.getLogTime();
     try {
+      URL url = glideUrl.toURL();
+      // Redirects are followed within the same slot, counted against the original host.
+      NetworkScheduler.Ticket local = networkScheduler.enqueue(url.getHost(), priority);
+      ticket = local;
+      if (isCancelled) {
+        local.finish();
+      }
+      if (!awaitStart(local) || isCancelled) {
+        callback.onDataReady(null);
+        return;
+      }
       //通过loadDataWithRedirects()，请求回来的数据转换为InputStream，回调给callback
-      InputStream result = loadDataWithRedirects(glideUrl.toURL(), 0, null, glideUrl.getHeaders());
+      InputStream result = loadDataWithRedirects(url, 0, null, glideUrl.getHeaders());
       //回调onDataReady()
       callback.onDataReady(result);
     } catch (IOException e) {
@@ -72,6 +99,15 @@ public class HttpUrlFetcher implements DataFetcher<InputStream> {
     }
   }
 
+  private static boolean awaitStart(NetworkScheduler.Ticket ticket) throws IOException {
+    try {
+      return ticket.awaitStart();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting to connect");
+    }
+  }
+
   /**
    * 请求数据，通过HttpURLConnection
    */
@@ -123,7 +159,7 @@ public class HttpUrlFetcher implements DataFetcher<InputStream> {
       URL redirectUrl = new URL(url, redirectUrlString);
       // Closing the stream specifically is required to avoid leaking ResponseBodys in addition
       // to disconnecting the url connection below. See #2352.
-      cleanup();
+      closeConnection();
       return loadDataWithRedirects(redirectUrl, redirects + 1, url, headers);
     } else if (statusCode == INVALID_STATUS_CODE) {
       throw new HttpException(statusCode);
@@ -158,6 +194,14 @@ public class HttpUrlFetcher implements DataFetcher<InputStream> {
 
   @Override
   public void cleanup() {
+    closeConnection();
+    NetworkScheduler.Ticket local = ticket;
+    if (local != null) {
+      local.finish();
+    }
+  }
+
+  private void closeConnection() {
     if (stream != null) {
       try {
         stream.close();
@@ -176,6 +220,19 @@ public class HttpUrlFetcher implements DataFetcher<InputStream> {
     // TODO: we should consider disconnecting the url connection here, but we can't do so
     // directly because cancel is often called on the main thread.
     isCancelled = true;
+    // Gives up the request's place in the queue if it hasn't started yet.
+    NetworkScheduler.Ticket local = ticket;
+    if (local != null && !local.isStarted()) {
+      local.finish();
+    }
+  }
+
+  @Override
+  public void setPriority(@NonNull Priority priority) {
+    NetworkScheduler.Ticket local = ticket;
+    if (local != null) {
+      local.setPriority(priority);
+    }
   }
 
   @NonNull
@@ -0,0 +1,289 @@
+package com.bumptech.glide.load.data;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.util.Preconditions;
+import com.bumptech.glide.util.Synthetic;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Limits the number of network requests made by {@link DataFetcher}s at once, both in total and
+ * per host, and decides which waiting request starts next when a request finishes.
+ *
+ * <p>Waiting requests start in order of their {@link Priority}, oldest first within a priority.
+ * To avoid starving low priority requests, every {@link #DEFAULT_AGING_MILLIS} a request waits
+ * counts as one step up in priority. A request's priority can be raised or lowered while it waits,
+ * see {@link Ticket#setPriority(Priority)}.
+ *
+ * <p>Asynchronous fetchers use {@link #enqueue(String, Priority, Runnable)}, blocking fetchers use
+ * {@link #enqueue(String, Priority)} and {@link Ticket#awaitStart()}. Either way, the fetcher must
+ * call {@link Ticket#finish()} once it's done with the connection, or to give up its place in the
+ * queue if it's cancelled.
+ *
+ * <p>This class is thread safe. The limits of the {@link #getDefault() default scheduler} match
+ * those of OkHttp's dispatcher, so the fetchers Glide provides share one budget.
+ */
+public final class NetworkScheduler {
+  public static final int DEFAULT_MAX_REQUESTS = 64;
+  public static final int DEFAULT_MAX_REQUESTS_PER_HOST = 5;
+  public static final long DEFAULT_AGING_MILLIS = 1000;
+
+  private static volatile NetworkScheduler defaultScheduler;
+
+  private final int maxRequests;
+  private final int maxRequestsPerHost;
+  private final long agingMillis;
+  private final List<Ticket> waiting = new ArrayList<>();
+  private final Map<String, Integer> runningPerHost = new HashMap<>();
+  private int running;
+  private long nextSequence;
+
+  /**
+   * Returns the scheduler used by fetchers that aren't given one explicitly.
+   */
+  @NonNull
+  public static NetworkScheduler getDefault() {
+    if (defaultScheduler == null) {
+      synchronized (NetworkScheduler.class) {
+        if (defaultScheduler == null) {
+          defaultScheduler = new NetworkScheduler(
+              DEFAULT_MAX_REQUESTS, DEFAULT_MAX_REQUESTS_PER_HOST, DEFAULT_AGING_MILLIS);
+        }
+      }
+    }
+    return defaultScheduler;
+  }
+
+  /**
+   * @param maxRequests        The maximum number of requests to run at once.
+   * @param maxRequestsPerHost The maximum number of requests to run at once to any one host.
+   * @param agingMillis        The time a request waits before being treated as the next higher
+   *                           {@link Priority}, or {@code 0} to never change the order of waiting
+   *                           requests by age.
+   */
+  public NetworkScheduler(int maxRequests, int maxRequestsPerHost, long agingMillis) {
+    Preconditions.checkArgument(maxRequests > 0, "maxRequests must be > 0");
+    Preconditions.checkArgument(maxRequestsPerHost > 0, "maxRequestsPerHost must be > 0");
+    Preconditions.checkArgument(agingMillis >= 0, "agingMillis must be >= 0");
+    this.maxRequests = maxRequests;
+    this.maxRequestsPerHost = maxRequestsPerHost;
+    this.agingMillis = agingMillis;
+  }
+
+  /**
+   * Runs the given {@link Runnable} once a request to the given host may start, either
+   * immediately on the calling thread, or later on the thread that finishes another request.
+   *
+   * <p>The {@link Runnable} should only start the request, for example by enqueueing an OkHttp
+   * call, and must not block.
+   */
+  @NonNull
+  public Ticket enqueue(@NonNull String host, @NonNull Priority priority,
+      @NonNull Runnable onStart) {
+    Ticket ticket = new Ticket(host, priority, onStart);
+    schedule(ticket);
+    return ticket;
+  }
+
+  /**
+   * Queues a request to the given host for a fetcher that blocks its thread while it loads, the
+   * fetcher should call {@link Ticket#awaitStart()} before it connects.
+   */
+  @NonNull
+  public Ticket enqueue(@NonNull String host, @NonNull Priority priority) {
+    final CountDownLatch latch = new CountDownLatch(1);
+    Ticket ticket = new Ticket(host, priority, new Runnable() {
+      @Override
+      public void run() {
+        latch.countDown();
+      }
+    });
+    ticket.latch = latch;
+    schedule(ticket);
+    return ticket;
+  }
+
+  private void schedule(Ticket ticket) {
+    synchronized (this) {
+      ticket.sequence = nextSequence++;
+      ticket.enqueuedMillis = SystemClock.elapsedRealtime();
+      waiting.add(ticket);
+    }
+    startReady();
+  }
+
+  /**
+   * Returns the number of requests that are waiting to start.
+   */
+  public synchronized int getWaitingCount() {
+    return waiting.size();
+  }
+
+  /**
+   * Returns the number of requests that have started and not yet finished.
+   */
+  public synchronized int getRunningCount() {
+    return running;
+  }
+
+  // Starts tickets outside of the lock, starting a ticket may run arbitrary code.
+  @Synthetic
+  void startReady() {
+    List<Ticket> toStart = null;
+    synchronized (this) {
+      Ticket next;
+      while (running < maxRequests && (next = pollNext()) != null) {
+        running++;
+        Integer hostCount = runningPerHost.get(next.host);
+        runningPerHost.put(next.host, hostCount == null ? 1 : hostCount + 1);
+        next.state = Ticket.STATE_RUNNING;
+        next.isStarted = true;
+        if (toStart == null) {
+          toStart = new ArrayList<>(1);
+        }
+        toStart.add(next);
+      }
+    }
+    if (toStart != null) {
+      for (Ticket ticket : toStart) {
+        ticket.onStart.run();
+      }
+    }
+  }
+
+  // Waiting lists are expected to be short, at most a few hundred requests, so a scan is cheaper
+  // than keeping a queue ordered by a rank that changes with time.
+  @Nullable
+  private Ticket pollNext() {
+    long now = SystemClock.elapsedRealtime();
+    int bestIndex = -1;
+    long bestRank = Long.MAX_VALUE;
+    long bestSequence = Long.MAX_VALUE;
+    for (int i = 0; i < waiting.size(); i++) {
+      Ticket ticket = waiting.get(i);
+      Integer hostCount = runningPerHost.get(ticket.host);
+      if (hostCount != null && hostCount >= maxRequestsPerHost) {
+        continue;
+      }
+      long rank = getRank(ticket, now);
+      if (rank < bestRank || (rank == bestRank && ticket.sequence < bestSequence)) {
+        bestIndex = i;
+        bestRank = rank;
+        bestSequence = ticket.sequence;
+      }
+    }
+    return bestIndex == -1 ? null : waiting.remove(bestIndex);
+  }
+
+  // Lower ranks start first.
+  private long getRank(Ticket ticket, long now) {
+    long rank = ticket.priority.ordinal();
+    if (agingMillis > 0) {
+      rank -= (now - ticket.enqueuedMillis) / agingMillis;
+    }
+    return Math.max(0, rank);
+  }
+
+  @Synthetic
+  void release(Ticket ticket) {
+    synchronized (this) {
+      if (ticket.state == Ticket.STATE_FINISHED) {
+        return;
+      } else if (ticket.state == Ticket.STATE_WAITING) {
+        waiting.remove(ticket);
+      } else if (ticket.state == Ticket.STATE_RUNNING) {
+        running--;
+        Integer hostCount = runningPerHost.get(ticket.host);
+        if (hostCount == null || hostCount <= 1) {
+          runningPerHost.remove(ticket.host);
+        } else {
+          runningPerHost.put(ticket.host, hostCount - 1);
+        }
+      }
+      ticket.state = Ticket.STATE_FINISHED;
+    }
+    if (ticket.latch != null) {
+      // Wakes a fetcher blocked in awaitStart if the ticket was finished, for example cancelled,
+      // while waiting.
+      ticket.latch.countDown();
+    }
+    startReady();
+  }
+
+  /**
+   * A single request, either waiting to start or running.
+   */
+  public final class Ticket {
+    @Synthetic static final int STATE_WAITING = 0;
+    @Synthetic static final int STATE_RUNNING = 1;
+    @Synthetic static final int STATE_FINISHED = 2;
+
+    @Synthetic final String host;
+    @Synthetic final Runnable onStart;
+    // All other fields are guarded by the scheduler's lock.
+    @Synthetic Priority priority;
+    @Synthetic long sequence;
+    @Synthetic long enqueuedMillis;
+    @Synthetic int state = STATE_WAITING;
+    @Synthetic boolean isStarted;
+    // Only set for blocking tickets, before the ticket is scheduled.
+    @Synthetic CountDownLatch latch;
+
+    @Synthetic
+    Ticket(String host, Priority priority, Runnable onStart) {
+      this.host = host;
+      this.priority = priority;
+      this.onStart = onStart;
+    }
+
+    /**
+     * Changes the priority used to order this request among waiting requests. Has no effect if
+     * the request has already started.
+     */
+    public void setPriority(@NonNull Priority priority) {
+      synchronized (NetworkScheduler.this) {
+        this.priority = priority;
+      }
+    }
+
+    /**
+     * Returns {@code true} if the request has started, even if it has since finished.
+     */
+    public boolean isStarted() {
+      synchronized (NetworkScheduler.this) {
+        return isStarted;
+      }
+    }
+
+    /**
+     * Blocks until the request may start and returns {@code true}, or returns {@code false} if
+     * the request was finished, for example cancelled, before it started.
+     *
+     * <p>Only for tickets from {@link NetworkScheduler#enqueue(String, Priority)}.
+     */
+    public boolean awaitStart() throws InterruptedException {
+      Preconditions.checkArgument(latch != null, "Only blocking tickets can be awaited");
+      try {
+        latch.await();
+      } catch (InterruptedException e) {
+        finish();
+        throw e;
+      }
+      return isStarted();
+    }
+
+    /**
+     * Releases the request's place in the limits if it started, or removes it from the queue if
+     * it hasn't. Safe to call more than once and from any thread.
+     */
+    public void finish() {
+      release(this);
+    }
+  }
+}
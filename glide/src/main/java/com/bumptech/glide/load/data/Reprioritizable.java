@@ -0,0 +1,17 @@
+package com.bumptech.glide.load.data;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.Priority;
+
+/**
+ * Optionally implemented by {@link DataFetcher}s that can reorder a load that has already been
+ * started, for example when a request with a higher priority joins a load started for a prefetch.
+ */
+public interface Reprioritizable {
+
+  /**
+   * Called with the new priority of the load, on any thread, at any time after
+   * {@link DataFetcher#loadData(com.bumptech.glide.Priority, DataFetcher.DataCallback)}.
+   */
+  void setPriority(@NonNull Priority priority);
+}
@@ -7,6 +7,7 @@ import com.bumptech.glide.load.data.DataFetcher;
 import com.bumptech.glide.load.model.ModelLoader;
 import com.bumptech.glide.load.model.ModelLoader.LoadData;
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 /**
@@ -24,7 +25,11 @@ class DataCacheGenerator implements DataFetcherGenerator,
   private Key sourceKey;
   private List<ModelLoader<File, ?>> modelLoaders;
   private int modelLoaderIndex;
-  private volatile LoadData<?> loadData;
+  private volatile DataFetcher<?> fetcher;
+  // True while a memory mapped entry is being decoded, so that if decoding it fails we can fall
+  // back to the model loaders for the entry's File.
+  private boolean isMappedPending;
+  private boolean skipByteBufferLoaders;
   // PMD is wrong here, this File must be an instance variable because it may be used across
   // multiple calls to startNext.
   @SuppressWarnings("PMD.SingularField")
@@ -46,6 +51,14 @@ class DataCacheGenerator implements DataFetcherGenerator,
   public boolean startNext() {
     //如果能从缓存中获取文件，能找到就返回，否则进去到下一个Generator，下一个是SourceGenerator
     while (modelLoaders == null || !hasNextModelLoader()) {
+      if (isMappedPending) {
+        // The mapped data couldn't be decoded, try the other model loaders for the same entry.
+        isMappedPending = false;
+        skipByteBufferLoaders = true;
+        modelLoaders = helper.getModelLoaders(cacheFile);
+        modelLoaderIndex = 0;
+        continue;
+      }
       sourceIdIndex++;
       if (sourceIdIndex >= cacheKeys.size()) {
         return false;
@@ -54,50 +67,64 @@ class DataCacheGenerator implements DataFetcherGenerator,
       Key sourceId = cacheKeys.get(sourceIdIndex);
       // PMD.AvoidInstantiatingObjectsInLoops The loop iterates a limited number of times
       // and the actions it performs are much more expensive than a single allocation.
-      @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
-      Key originalKey = new DataCacheKey(sourceId, helper.getSignature());
+      Key originalKey = new DataCacheKey(sourceId, helper.getSignature()); // NOPMD
+      this.sourceKey = sourceId;
+      skipByteBufferLoaders = false;
       cacheFile = helper.getDiskCache().get(originalKey);
       if (cacheFile != null) {
-        this.sourceKey = sourceId;
+        MappedCacheFetcher mappedFetcher = MappedCacheFetcher.open(helper, cacheFile);
+        if (mappedFetcher != null) {
+          isMappedPending = true;
+          fetcher = mappedFetcher;
+          mappedFetcher.loadData(helper.getPriority(), this);
+          return true;
+        }
         modelLoaders = helper.getModelLoaders(cacheFile);
         modelLoaderIndex = 0;
       }
     }
 
-    loadData = null;
+    fetcher = null;
     boolean started = false;
     while (!started && hasNextModelLoader()) {
       ModelLoader<File, ?> modelLoader = modelLoaders.get(modelLoaderIndex++);
-      loadData =
+      LoadData<?> loadData =
           modelLoader.buildLoadData(cacheFile, helper.getWidth(), helper.getHeight(),
               helper.getOptions());
-      if (loadData != null && helper.hasLoadPath(loadData.fetcher.getDataClass())) {
+      if (loadData != null && isLoadable(loadData.fetcher.getDataClass())) {
         started = true;
+        fetcher = loadData.fetcher;
         loadData.fetcher.loadData(helper.getPriority(), this);
       }
     }
     return started;
   }
 
+  private boolean isLoadable(Class<?> dataClass) {
+    // The mapped data was already handed to the ByteBuffer decoders.
+    return helper.hasLoadPath(dataClass)
+        && !(skipByteBufferLoaders && ByteBuffer.class.equals(dataClass));
+  }
+
   private boolean hasNextModelLoader() {
     return modelLoaderIndex < modelLoaders.size();
   }
 
   @Override
   public void cancel() {
-    LoadData<?> local = loadData;
+    DataFetcher<?> local = fetcher;
     if (local != null) {
-      local.fetcher.cancel();
+      local.cancel();
     }
   }
 
   @Override
   public void onDataReady(Object data) {
-    cb.onDataFetcherReady(sourceKey, data, loadData.fetcher, DataSource.DATA_DISK_CACHE, sourceKey);
+    cb.onDataFetcherReady(sourceKey, data, fetcher, DataSource.DATA_DISK_CACHE, sourceKey);
   }
 
   @Override
   public void onLoadFailed(@NonNull Exception e) {
-    cb.onDataFetcherFailed(sourceKey, e, loadData.fetcher, DataSource.DATA_DISK_CACHE);
+    cb.onDataFetcherFailed(sourceKey, e, fetcher, DataSource.DATA_DISK_CACHE);
   }
 }
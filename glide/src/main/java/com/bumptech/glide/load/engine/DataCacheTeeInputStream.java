@@ -0,0 +1,215 @@
+package com.bumptech.glide.load.engine;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.load.data.BufferedOutputStream;
+import com.bumptech.glide.load.engine.bitmap_recycle.ArrayPool;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * An {@link InputStream} that writes every byte read from the source to a disk cache
+ * {@link DiskCache.StreamingWriter.Edit}, so that source data can be decoded and written to the
+ * disk cache in a single pass rather than written first and read back from the cache file.
+ *
+ * <p>The edit is committed by {@link #finish(boolean)} only if the data was decoded and every byte
+ * was written. Mark and reset aren't supported, decoders buffer the stream themselves.
+ */
+final class DataCacheTeeInputStream extends FilterInputStream {
+  private static final String TAG = "DataCacheTee";
+
+  private final DiskCache.StreamingWriter.Edit edit;
+  private final ArrayPool arrayPool;
+  private final Listener listener;
+  @Nullable
+  private OutputStream out;
+  private boolean isFinished;
+
+  private DataCacheTeeInputStream(InputStream in, DiskCache.StreamingWriter.Edit edit,
+      OutputStream out, ArrayPool arrayPool, Listener listener) {
+    super(in);
+    this.edit = edit;
+    this.out = out;
+    this.arrayPool = arrayPool;
+    this.listener = listener;
+  }
+
+  /**
+   * Returns a stream that writes the given stream to the given edit, or {@code null} and aborts
+   * the edit if the edit's file can't be opened.
+   */
+  @Nullable
+  static DataCacheTeeInputStream obtain(InputStream in, DiskCache.StreamingWriter.Edit edit,
+      ArrayPool arrayPool, Listener listener) {
+    OutputStream out;
+    try {
+      out = new BufferedOutputStream(new FileOutputStream(edit.getFile()), arrayPool);
+    } catch (FileNotFoundException e) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Failed to open data cache file", e);
+      }
+      edit.abortUnlessCommitted();
+      return null;
+    }
+    return new DataCacheTeeInputStream(in, edit, out, arrayPool, listener);
+  }
+
+  @Override
+  public synchronized int read() throws IOException {
+    int result = super.read();
+    if (result != -1) {
+      OutputStream local = out;
+      if (local != null) {
+        try {
+          local.write(result);
+        } catch (IOException e) {
+          onWriteFailed(e);
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public int read(@NonNull byte[] buffer) throws IOException {
+    return read(buffer, 0, buffer.length);
+  }
+
+  @Override
+  public synchronized int read(@NonNull byte[] buffer, int offset, int length)
+      throws IOException {
+    int read = super.read(buffer, offset, length);
+    write(buffer, offset, read);
+    return read;
+  }
+
+  @Override
+  public synchronized long skip(long byteCount) throws IOException {
+    // Skipped bytes still belong in the cache file, so read them rather than skipping the source.
+    if (out == null) {
+      return super.skip(byteCount);
+    }
+    byte[] buffer = arrayPool.get(ArrayPool.STANDARD_BUFFER_SIZE_BYTES, byte[].class);
+    try {
+      long skipped = 0;
+      while (skipped < byteCount) {
+        int read = super.read(
+            buffer, 0, (int) Math.min(buffer.length, byteCount - skipped));
+        if (read == -1) {
+          break;
+        }
+        write(buffer, 0, read);
+        skipped += read;
+      }
+      return skipped;
+    } finally {
+      arrayPool.put(buffer);
+    }
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  @Override
+  public void mark(int readLimit) {
+    // Not supported.
+  }
+
+  @Override
+  public void reset() throws IOException {
+    throw new IOException("Mark is not supported");
+  }
+
+  /**
+   * Completes the edit, committing it if {@code isDecoded} is {@code true} and all of the source
+   * data, including any the decoder didn't read, was written, otherwise aborting it.
+   *
+   * <p>Does nothing if called more than once.
+   */
+  synchronized void finish(boolean isDecoded) {
+    if (isFinished) {
+      return;
+    }
+    isFinished = true;
+    boolean isCommitted = false;
+    try {
+      if (isDecoded && out != null) {
+        drain();
+      }
+      OutputStream local = out;
+      out = null;
+      if (local != null) {
+        local.close();
+        isCommitted = isDecoded && edit.commit();
+      }
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Failed to write data cache file", e);
+      }
+    } finally {
+      closeOutput();
+      edit.abortUnlessCommitted();
+      listener.onDataCacheTeeComplete(isCommitted);
+    }
+  }
+
+  private void drain() throws IOException {
+    byte[] buffer = arrayPool.get(ArrayPool.STANDARD_BUFFER_SIZE_BYTES, byte[].class);
+    try {
+      while (out != null && read(buffer, 0, buffer.length) != -1) {
+        // Keep reading.
+      }
+    } finally {
+      arrayPool.put(buffer);
+    }
+  }
+
+  private void write(byte[] buffer, int offset, int length) {
+    OutputStream local = out;
+    if (local == null || length <= 0) {
+      return;
+    }
+    try {
+      local.write(buffer, offset, length);
+    } catch (IOException e) {
+      onWriteFailed(e);
+    }
+  }
+
+  private void onWriteFailed(IOException e) {
+    if (Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, "Failed to write data cache file, continuing without caching", e);
+    }
+    // The decode can still succeed, but the cache file is incomplete and must not be committed.
+    closeOutput();
+  }
+
+  private void closeOutput() {
+    OutputStream local = out;
+    out = null;
+    if (local != null) {
+      try {
+        local.close();
+      } catch (IOException e) {
+        // Ignored.
+      }
+    }
+  }
+
+  interface Listener {
+    /**
+     * Called once the edit has been committed or aborted.
+     *
+     * @param isCommitted {@code true} if the data was written to the disk cache.
+     */
+    void onDataCacheTeeComplete(boolean isCommitted);
+  }
+}
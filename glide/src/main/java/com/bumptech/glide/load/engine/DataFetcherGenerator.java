@@ -43,6 +43,18 @@ interface DataFetcherGenerator {
      */
     void onDataFetcherFailed(Key attemptedKey, Exception e, DataFetcher<?> fetcher,
         DataSource dataSource);
+
+    /**
+     * Notifies the callback that data has been retrieved from the original source, which may be
+     * some time before {@link #onDataFetcherReady} is called if the data is written to the disk
+     * cache first.
+     *
+     * @param data The retrieved data.
+     * @param dataSource The data source the data was retrieved from.
+     * @param fetchStartNanos The {@link android.os.SystemClock#elapsedRealtimeNanos()} at which the
+     *                        fetcher was started.
+     */
+    void onSourceDataFetched(Object data, DataSource dataSource, long fetchStartNanos);
   }
 
   /**
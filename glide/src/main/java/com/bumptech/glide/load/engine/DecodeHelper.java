@@ -37,7 +37,8 @@ final class DecodeHelper<Transcode> {
   private boolean isLoadDataSet;
   private boolean isCacheKeysSet;
   private Key signature;
-  private Priority priority;
+  // May be raised on the main thread while the job runs, see DecodeJob#raisePriority.
+  private volatile Priority priority;
   private DiskCacheStrategy diskCacheStrategy;
   private boolean isTransformationRequired;
   private boolean isScaleOnlyOrNoTransform;
@@ -104,6 +105,10 @@ final class DecodeHelper<Transcode> {
     return priority;
   }
 
+  void setPriority(Priority priority) {
+    this.priority = priority;
+  }
+
   Options getOptions() {
     return options;
   }
@@ -1,7 +1,9 @@
 package com.bumptech.glide.load.engine;
 
 import android.os.Build;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v4.util.Pools;
 import android.util.Log;
 import com.bumptech.glide.GlideContext;
@@ -16,12 +18,17 @@ import com.bumptech.glide.load.Transformation;
 import com.bumptech.glide.load.data.DataFetcher;
 import com.bumptech.glide.load.data.DataRewinder;
 import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.load.engine.metrics.LoadEventListener;
+import com.bumptech.glide.load.engine.metrics.LoadEventListener.LoadStage;
 import com.bumptech.glide.load.resource.bitmap.Downsampler;
+import com.bumptech.glide.util.ContentLengthInputStream;
 import com.bumptech.glide.util.LogTime;
 import com.bumptech.glide.util.Synthetic;
 import com.bumptech.glide.util.pool.FactoryPools.Poolable;
 import com.bumptech.glide.util.pool.GlideTrace;
 import com.bumptech.glide.util.pool.StateVerifier;
+import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -48,6 +55,9 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
   private final Pools.Pool<DecodeJob<?>> pool;
   private final DeferredEncodeManager<?> deferredEncodeManager = new DeferredEncodeManager<>();
   private final ReleaseManager releaseManager = new ReleaseManager();
+  @Nullable private final LoadEventListener loadEventListener;
+  private final SourceFetchCoalescer sourceFetchCoalescer;
+  @Nullable private final ResourceCacheWriteQueue resourceCacheWriteQueue;
 
   private GlideContext glideContext;
   private Key signature;
@@ -62,8 +72,14 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
   private Stage stage;
   private RunReason runReason;
   private long startFetchTime;
+  private long stageStartNanos;
+  private long fetchStartNanos;
+  private long transformationNanos;
   private boolean onlyRetrieveFromCache;
   private Object model;
+  // The same image in memory at a larger size that's scaled down instead of loading, if any.
+  private Resource<?> residentSource;
+  private float residentScale;
 
   private Thread currentThread;
   private Key currentSourceKey;
@@ -75,10 +91,18 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
   private volatile DataFetcherGenerator currentGenerator;
   private volatile boolean isCallbackNotified;
   private volatile boolean isCancelled;
+  // True while retrieved data is being decoded on the callback's decode executor rather than on
+  // the thread that retrieved it.
+  private volatile boolean isDecodeHandedOff;
 
-  DecodeJob(DiskCacheProvider diskCacheProvider, Pools.Pool<DecodeJob<?>> pool) {
+  DecodeJob(DiskCacheProvider diskCacheProvider, Pools.Pool<DecodeJob<?>> pool,
+      @Nullable LoadEventListener loadEventListener, SourceFetchCoalescer sourceFetchCoalescer,
+      @Nullable ResourceCacheWriteQueue resourceCacheWriteQueue) {
     this.diskCacheProvider = diskCacheProvider;
     this.pool = pool;
+    this.loadEventListener = loadEventListener;
+    this.sourceFetchCoalescer = sourceFetchCoalescer;
+    this.resourceCacheWriteQueue = resourceCacheWriteQueue;
   }
 
   DecodeJob<R> init(
@@ -142,6 +166,18 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     return firstStage == Stage.RESOURCE_CACHE || firstStage == Stage.DATA_CACHE;
   }
 
+  /**
+   * Makes this job scale the given resource down by the given factor when it's run, rather than
+   * loading. If the resource can't be scaled, the job loads normally instead.
+   *
+   * <p>The caller must keep the resource acquired until this job is released.
+   */
+  void scaleFrom(Resource<?> resource, float scale) {
+    residentSource = resource;
+    residentScale = scale;
+    runReason = RunReason.SCALE_RESIDENT_RESOURCE;
+  }
+
   /**
    * Called when this object is no longer in use externally.
    *
@@ -191,12 +227,22 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     currentGenerator = null;
     currentThread = null;
     currentSourceKey = null;
+    if (currentData instanceof DataCacheTeeInputStream) {
+      // Retrieved data that was never decoded, for example if the job was removed from its queue.
+      ((DataCacheTeeInputStream) currentData).finish(false /*isDecoded*/);
+    }
     currentData = null;
     currentDataSource = null;
     currentFetcher = null;
     startFetchTime = 0L;
+    stageStartNanos = 0L;
+    fetchStartNanos = 0L;
+    transformationNanos = 0L;
     isCancelled = false;
+    isDecodeHandedOff = false;
     model = null;
+    residentSource = null;
+    residentScale = 0f;
     throwables.clear();
     pool.release(this);
   }
@@ -214,6 +260,23 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     return priority.ordinal();
   }
 
+  /**
+   * Raises the priority used for this job's fetches, including one in progress, when a load with a
+   * higher priority joins the job. The priority this job is ordered by in its executor doesn't
+   * change.
+   */
+  void raisePriority(Priority newPriority) {
+    Priority current = decodeHelper.getPriority();
+    if (current == null || newPriority.ordinal() >= current.ordinal()) {
+      return;
+    }
+    decodeHelper.setPriority(newPriority);
+    DataFetcherGenerator local = currentGenerator;
+    if (local instanceof SourceGenerator) {
+      ((SourceGenerator) local).setPriority(newPriority);
+    }
+  }
+
   public void cancel() {
     isCancelled = true;
     DataFetcherGenerator local = currentGenerator;
@@ -231,6 +294,7 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     // Methods in the try statement can invalidate currentFetcher, so set a local variable here to
     // ensure that the fetcher is cleaned up either way.
     DataFetcher<?> localFetcher = currentFetcher;
+    Object localData = currentData;
     try {
       //如果已经取消，则回调失败
       if (isCancelled) {
@@ -262,6 +326,10 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     } finally {
       // Keeping track of the fetcher here and calling cleanup is excessively paranoid, we call
       // close in all cases anyway.
+      if (localData instanceof DataCacheTeeInputStream) {
+        // Aborts the cache edit if the data wasn't decoded, does nothing otherwise.
+        ((DataCacheTeeInputStream) localData).finish(false /*isDecoded*/);
+      }
       if (localFetcher != null) {
         localFetcher.cleanup();
       }
@@ -278,6 +346,7 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
       case INITIALIZE:
         //获取下一个阶段的状态，返回 RESOURCE_CACHE
         stage = getNextStage(Stage.INITIALIZE);
+        stageStartNanos = SystemClock.elapsedRealtimeNanos();
         //根据下一个阶段的状态，判断出是哪一个Generator来执行，因为是RESOURCE_CACHE，那么这里返回的是ResourceCacheGenerator
         currentGenerator = getNextGenerator();
         //执行Generator
@@ -291,11 +360,36 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
         //解码原数据，也就是去加载资源
         decodeFromRetrievedData();
         break;
+      case SCALE_RESIDENT_RESOURCE:
+        scaleResidentResource();
+        break;
       default:
         throw new IllegalStateException("Unrecognized run reason: " + runReason);
     }
   }
 
+  private void scaleResidentResource() {
+    long startTime = LogTime.getLogTime();
+    Resource<?> scaled = ResidentResourceScaler.scaleDown(glideContext.getResources(),
+        glideContext.getBitmapPool(), residentSource, residentScale);
+    residentSource = null;
+    if (scaled == null) {
+      // Load normally, reading the disk cache on the source executor rather than the decode one.
+      runReason = RunReason.INITIALIZE;
+      callback.reschedule(this);
+      return;
+    }
+    if (Log.isLoggable(TAG, Log.VERBOSE)) {
+      logWithTimeAndKey("Scaled resident resource " + scaled, startTime);
+    }
+    // The resource has the same type as the larger one, which was loaded for an equal key but for
+    // its size.
+    @SuppressWarnings("unchecked")
+    Resource<R> result = (Resource<R>) scaled;
+    notifyComplete(result, DataSource.MEMORY_CACHE);
+    onEncodeComplete();
+  }
+
   /**
    * 获取下一个DataFetcherGenerator
    */
@@ -310,7 +404,7 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
         return new DataCacheGenerator(decodeHelper, this);
       case SOURCE:
         //上面2个缓存Generator都没有命中，则通过SourceGenerator，那么Http请求获取资源，资源请求回来之后先写入磁盘缓存，再返回到Target
-        return new SourceGenerator(decodeHelper, this);
+        return new SourceGenerator(decodeHelper, this, sourceFetchCoalescer);
       case FINISHED:
         return null;
       default:
@@ -324,12 +418,16 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
   private void runGenerators() {
     currentThread = Thread.currentThread();
     startFetchTime = LogTime.getLogTime();
+    fetchStartNanos = SystemClock.elapsedRealtimeNanos();
     boolean isStarted = false;
     while (!isCancelled && currentGenerator != null
             //执行Generator的startNext，这里Generator是ResourceCacheGenerator
             //如果获取不到，则去DataCacheGenerator，从缓存中查找，也找不到则去SourceGenerator
         && !(isStarted = currentGenerator.startNext())) {
+      notifyStageFinished(false /*isResourceLoaded*/);
       stage = getNextStage(stage);
+      stageStartNanos = SystemClock.elapsedRealtimeNanos();
+      fetchStartNanos = stageStartNanos;
       currentGenerator = getNextGenerator();
 
       //只有循环到为Stage.SOURCE，才会结束循环
@@ -400,16 +498,44 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     callback.reschedule(this);
   }
 
+  @Override
+  public void onSourceDataFetched(Object data, DataSource dataSource, long fetchStartNanos) {
+    if (loadEventListener != null) {
+      loadEventListener.onDataFetched(loadKey, LoadStage.SOURCE, dataSource, getByteCount(data),
+          SystemClock.elapsedRealtimeNanos() - fetchStartNanos);
+    }
+  }
+
   @Override
   public void onDataFetcherReady(Key sourceKey, Object data, DataFetcher<?> fetcher,
       DataSource dataSource, Key attemptedKey) {
+    // Data from the source is reported by SourceGenerator as soon as it's retrieved, before it's
+    // written to and read back from the disk cache.
+    if (loadEventListener != null && data != null && stage != Stage.SOURCE) {
+      LoadStage loadStage = getLoadStage(stage);
+      if (loadStage != null) {
+        loadEventListener.onDataFetched(loadKey, loadStage, dataSource, getByteCount(data),
+            SystemClock.elapsedRealtimeNanos() - fetchStartNanos);
+      }
+    }
     this.currentSourceKey = sourceKey;
     this.currentData = data;
     this.currentFetcher = fetcher;
     this.currentDataSource = dataSource;
     this.currentAttemptingKey = attemptedKey;
+    // Decoding is CPU bound, keep it off the threads that wait on the network and disk. Data that's
+    // still being read, for example a network stream being tee'd into the disk cache, is decoded
+    // here, otherwise the decode threads would block on I/O and the full decode queue would push
+    // decodes back onto the retrieving threads anyway.
+    runReason = RunReason.DECODE_DATA;
+    if (isRetrieved(data)) {
+      isDecodeHandedOff = true;
+      if (callback.handOffDecode(this)) {
+        return;
+      }
+      isDecodeHandedOff = false;
+    }
     if (Thread.currentThread() != currentThread) {
-      runReason = RunReason.DECODE_DATA;
       callback.reschedule(this);
     } else {
       GlideTrace.beginSection("DecodeJob.decodeFromRetrievedData");
@@ -422,6 +548,18 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     }
   }
 
+  /**
+   * Returns {@code true} if decoding the given data won't wait on the network, either because it
+   * was read from the disk cache or because it's already entirely in memory or on disk.
+   */
+  private boolean isRetrieved(Object data) {
+    return stage == Stage.RESOURCE_CACHE
+        || stage == Stage.DATA_CACHE
+        || data instanceof ByteBuffer
+        || data instanceof File
+        || data instanceof byte[];
+  }
+
   @Override
   public void onDataFetcherFailed(Key attemptedKey, Exception e, DataFetcher<?> fetcher,
       DataSource dataSource) {
@@ -457,7 +595,12 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     }
     //解析完成，通知下去
     if (resource != null) {
+      notifyStageFinished(true /*isResourceLoaded*/);
       notifyEncodeAndRelease(resource, currentDataSource);
+    } else if (isDecodeHandedOff) {
+      // Trying the next source means more I/O, go back to the source executor to do it.
+      isDecodeHandedOff = false;
+      reschedule();
     } else {
       runGenerators();
     }
@@ -482,6 +625,20 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     notifyComplete(result, dataSource);
 
     stage = Stage.ENCODE;
+    if (resourceCacheWriteQueue != null && deferredEncodeManager.hasResourceToEncode()) {
+      // The resources stay locked until the queue has written or dropped them, this job is free
+      // to be released and reused immediately.
+      final LockedResource<R> toUnlock = lockedResource;
+      deferredEncodeManager.enqueue(resourceCacheWriteQueue, diskCacheProvider, options,
+          new Runnable() {
+            @Override
+            public void run() {
+              toUnlock.unlock();
+            }
+          });
+      onEncodeComplete();
+      return;
+    }
     try {
       if (deferredEncodeManager.hasResourceToEncode()) {
         deferredEncodeManager.encode(diskCacheProvider, options);
@@ -502,17 +659,28 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
    */
   private <Data> Resource<R> decodeFromData(DataFetcher<?> fetcher, Data data,
       DataSource dataSource) throws GlideException {
+    Resource<R> result = null;
     try {
       if (data == null) {
         return null;
       }
       long startTime = LogTime.getLogTime();
-      Resource<R> result = decodeFromFetcher(data, dataSource);
+      long startNanos = SystemClock.elapsedRealtimeNanos();
+      transformationNanos = 0L;
+      result = decodeFromFetcher(data, dataSource);
       if (Log.isLoggable(TAG, Log.VERBOSE)) {
         logWithTimeAndKey("Decoded result " + result, startTime);
       }
+      if (loadEventListener != null && result != null) {
+        loadEventListener.onDecoded(loadKey, dataSource,
+            SystemClock.elapsedRealtimeNanos() - startNanos - transformationNanos);
+      }
       return result;
     } finally {
+      if (data instanceof DataCacheTeeInputStream) {
+        // Source data is only written to the disk cache if it could be decoded.
+        ((DataCacheTeeInputStream) data).finish(result != null /*isDecoded*/);
+      }
       fetcher.cleanup();
     }
   }
@@ -566,6 +734,47 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     }
   }
 
+  private void notifyStageFinished(boolean isResourceLoaded) {
+    if (loadEventListener == null) {
+      return;
+    }
+    LoadStage loadStage = getLoadStage(stage);
+    if (loadStage != null) {
+      loadEventListener.onStageFinished(loadKey, loadStage, isResourceLoaded,
+          SystemClock.elapsedRealtimeNanos() - stageStartNanos);
+    }
+  }
+
+  @Nullable
+  private static LoadStage getLoadStage(Stage stage) {
+    switch (stage) {
+      case RESOURCE_CACHE:
+        return LoadStage.RESOURCE_CACHE;
+      case DATA_CACHE:
+        return LoadStage.DATA_CACHE;
+      case SOURCE:
+        return LoadStage.SOURCE;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Returns the size of the given data in bytes if it can be determined without reading it, or -1.
+   */
+  private static long getByteCount(Object data) {
+    if (data instanceof ByteBuffer) {
+      return ((ByteBuffer) data).remaining();
+    } else if (data instanceof byte[]) {
+      return ((byte[]) data).length;
+    } else if (data instanceof File) {
+      return ((File) data).length();
+    } else if (data instanceof ContentLengthInputStream) {
+      return ((ContentLengthInputStream) data).getContentLength();
+    }
+    return -1;
+  }
+
   private void logWithTimeAndKey(String message, long startTime) {
     logWithTimeAndKey(message, startTime, null /*extraArgs*/);
   }
@@ -592,7 +801,13 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     Resource<Z> transformed = decoded;
     if (dataSource != DataSource.RESOURCE_DISK_CACHE) {
       appliedTransformation = decodeHelper.getTransformation(resourceSubClass);
+      long startNanos = SystemClock.elapsedRealtimeNanos();
       transformed = appliedTransformation.transform(glideContext, decoded, width, height);
+      if (loadEventListener != null) {
+        long durationNanos = SystemClock.elapsedRealtimeNanos() - startNanos;
+        transformationNanos += durationNanos;
+        loadEventListener.onTransformed(loadKey, appliedTransformation, durationNanos);
+      }
     }
     // TODO: Make this the responsibility of the Transformation.
     if (!decoded.equals(transformed)) {
@@ -728,6 +943,23 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
       }
     }
 
+    /**
+     * Hands the encode off to the given queue, {@code onComplete} is called once the resource
+     * has been written or the write was dropped.
+     */
+    void enqueue(ResourceCacheWriteQueue queue, DiskCacheProvider diskCacheProvider,
+        Options options, final Runnable onComplete) {
+      final LockedResource<Z> locked = toEncode;
+      queue.enqueue(diskCacheProvider, key, new DataCacheWriter<>(encoder, locked, options),
+          new Runnable() {
+            @Override
+            public void run() {
+              locked.unlock();
+              onComplete.run();
+            }
+          });
+    }
+
     boolean hasResourceToEncode() {
       return toEncode != null;
     }
@@ -746,6 +978,12 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
     void onLoadFailed(GlideException e);
 
     void reschedule(DecodeJob<?> job);
+
+    /**
+     * Runs the given job on an executor for decoding, if there is one, and returns {@code true},
+     * or returns {@code false} if the job should decode on the thread that retrieved its data.
+     */
+    boolean handOffDecode(DecodeJob<?> job);
   }
 
   interface DiskCacheProvider {
@@ -770,6 +1008,8 @@ class DecodeJob<R> implements DataFetcherGenerator.FetcherReadyCallback,
      * 解码原数据，也就是去加载资源
      */
     DECODE_DATA,
+    /** We were given a larger resource in memory to scale down instead of loading. */
+    SCALE_RESIDENT_RESOURCE,
   }
 
   /**
@@ -15,6 +15,8 @@ import com.bumptech.glide.load.engine.cache.DiskCache;
 import com.bumptech.glide.load.engine.cache.DiskCacheAdapter;
 import com.bumptech.glide.load.engine.cache.MemoryCache;
 import com.bumptech.glide.load.engine.executor.GlideExecutor;
+import com.bumptech.glide.load.engine.metrics.LoadEventListener;
+import com.bumptech.glide.load.engine.metrics.LoadEventListener.MemoryCacheResult;
 import com.bumptech.glide.request.ResourceCallback;
 import com.bumptech.glide.util.LogTime;
 import com.bumptech.glide.util.Preconditions;
@@ -42,6 +44,9 @@ public class Engine implements EngineJobListener,
   private final LazyDiskCacheProvider diskCacheProvider;
   private final DecodeJobFactory decodeJobFactory;
   private final ActiveResources activeResources;
+  private final ResidentSizeIndex residentSizes = new ResidentSizeIndex();
+  @Nullable private final LoadEventListener loadEventListener;
+  @Nullable private final ResourceCacheWriteQueue resourceCacheWriteQueue;
 
   public Engine(
       MemoryCache memoryCache,
@@ -58,13 +63,68 @@ public class Engine implements EngineJobListener,
         sourceExecutor,
         sourceUnlimitedExecutor,
         animationExecutor,
+        isActiveResourceRetentionAllowed,
+        /*loadEventListener=*/ null);
+  }
+
+  public Engine(
+      MemoryCache memoryCache,
+      DiskCache.Factory diskCacheFactory,
+      GlideExecutor diskCacheExecutor,
+      GlideExecutor sourceExecutor,
+      GlideExecutor sourceUnlimitedExecutor,
+      GlideExecutor animationExecutor,
+      boolean isActiveResourceRetentionAllowed,
+      @Nullable LoadEventListener loadEventListener) {
+    this(
+        memoryCache,
+        diskCacheFactory,
+        diskCacheExecutor,
+        sourceExecutor,
+        sourceUnlimitedExecutor,
+        animationExecutor,
+        /*decodeExecutor=*/ null,
+        /*resourceCacheWriteQueue=*/ null,
+        isActiveResourceRetentionAllowed,
+        loadEventListener);
+  }
+
+  /**
+   * @param decodeExecutor Decodes and transforms data once it has been retrieved on the disk
+   *                       cache or source executors, or {@code null} to decode on the thread that
+   *                       retrieved the data.
+   * @param resourceCacheWriteQueue Writes transformed resources to the disk cache after they've
+   *                                been delivered, or {@code null} to write them on the thread
+   *                                that decoded them before the load completes.
+   */
+  public Engine(
+      MemoryCache memoryCache,
+      DiskCache.Factory diskCacheFactory,
+      GlideExecutor diskCacheExecutor,
+      GlideExecutor sourceExecutor,
+      GlideExecutor sourceUnlimitedExecutor,
+      GlideExecutor animationExecutor,
+      @Nullable GlideExecutor decodeExecutor,
+      @Nullable ResourceCacheWriteQueue resourceCacheWriteQueue,
+      boolean isActiveResourceRetentionAllowed,
+      @Nullable LoadEventListener loadEventListener) {
+    this(
+        memoryCache,
+        diskCacheFactory,
+        diskCacheExecutor,
+        sourceExecutor,
+        sourceUnlimitedExecutor,
+        animationExecutor,
+        decodeExecutor,
+        resourceCacheWriteQueue,
         /*jobs=*/ null,
         /*keyFactory=*/ null,
         /*activeResources=*/ null,
         /*engineJobFactory=*/ null,
         /*decodeJobFactory=*/ null,
         /*resourceRecycler=*/ null,
-        isActiveResourceRetentionAllowed);
+        isActiveResourceRetentionAllowed,
+        loadEventListener);
   }
 
   @VisibleForTesting
@@ -74,14 +134,19 @@ public class Engine implements EngineJobListener,
       GlideExecutor sourceExecutor,
       GlideExecutor sourceUnlimitedExecutor,
       GlideExecutor animationExecutor,
+      @Nullable GlideExecutor decodeExecutor,
+      @Nullable ResourceCacheWriteQueue resourceCacheWriteQueue,
       Jobs jobs,
       EngineKeyFactory keyFactory,
       ActiveResources activeResources,
       EngineJobFactory engineJobFactory,
       DecodeJobFactory decodeJobFactory,
       ResourceRecycler resourceRecycler,
-      boolean isActiveResourceRetentionAllowed) {
+      boolean isActiveResourceRetentionAllowed,
+      @Nullable LoadEventListener loadEventListener) {
     this.cache = cache;
+    this.loadEventListener = loadEventListener;
+    this.resourceCacheWriteQueue = resourceCacheWriteQueue;
     this.diskCacheProvider = new LazyDiskCacheProvider(diskCacheFactory);
 
     if (activeResources == null) {
@@ -103,12 +168,18 @@ public class Engine implements EngineJobListener,
     if (engineJobFactory == null) {
       engineJobFactory =
           new EngineJobFactory(
-              diskCacheExecutor, sourceExecutor, sourceUnlimitedExecutor, animationExecutor, this);
+              diskCacheExecutor,
+              sourceExecutor,
+              sourceUnlimitedExecutor,
+              animationExecutor,
+              decodeExecutor,
+              this);
     }
     this.engineJobFactory = engineJobFactory;
 
     if (decodeJobFactory == null) {
-      decodeJobFactory = new DecodeJobFactory(diskCacheProvider);
+      decodeJobFactory = new DecodeJobFactory(
+          diskCacheProvider, loadEventListener, resourceCacheWriteQueue);
     }
     this.decodeJobFactory = decodeJobFactory;
 
@@ -132,6 +203,8 @@ public class Engine implements EngineJobListener,
    *   <li>Check the memory cache and provide the cached resource if present.</li>
    *   <li>Check the current set of in progress loads and add the cb to the in progress load if
    *   one is present.</li>
+   *   <li>Check for the same transformed image in memory at a larger size with the same aspect
+   *   ratio and start scaling it down in the background if present.</li>
    *   <li>Start a new load.</li>
    * </ul>
    *
@@ -169,27 +242,48 @@ public class Engine implements EngineJobListener,
     long startTime = VERBOSE_IS_LOGGABLE ? LogTime.getLogTime() : 0;
 
     //生成缓存Key，通过这个key，在缓存中查找
-    EngineKey key = keyFactory.buildKey(model, signature, width, height, transformations,
-        resourceClass, transcodeClass, options);
+    // Memory hits are looked up with a reused probe key so that they don't allocate, a key is only
+    // built for loads that miss. Listeners may keep the keys they're given, so always get a built
+    // key.
+    boolean isProbe = isMemoryCacheable && loadEventListener == null;
+    EngineKey key = isProbe
+        ? null
+        : keyFactory.buildKey(model, signature, width, height, transformations,
+            resourceClass, transcodeClass, options);
+    Key lookupKey = isProbe
+        ? keyFactory.obtainProbeKey(model, signature, width, height, transformations,
+            resourceClass, transcodeClass, options)
+        : key;
 
     //先从活动缓存中找
-    EngineResource<?> active = loadFromActiveResources(key, isMemoryCacheable);
+    EngineResource<?> active = loadFromActiveResources(lookupKey, isMemoryCacheable);
+    //活动缓存中没有，则从内存缓存中招
+    EngineResource<?> cached = active == null ? loadFromCache(lookupKey, isMemoryCacheable) : null;
+    if (isProbe) {
+      // Release the probe key before calling back, callbacks may start other loads.
+      keyFactory.releaseProbeKey();
+      key = active != null || cached != null
+          ? null
+          : keyFactory.buildKey(model, signature, width, height, transformations,
+              resourceClass, transcodeClass, options);
+    }
+
     if (active != null) {
       //找到了，直接返回
       cb.onResourceReady(active, DataSource.MEMORY_CACHE);
+      notifyMemoryCacheLookup(key, MemoryCacheResult.ACTIVE);
       if (VERBOSE_IS_LOGGABLE) {
-        logWithTimeAndKey("Loaded resource from active resources", startTime, key);
+        logWithTimeAndKey("Loaded resource from active resources", startTime, active.getKey());
       }
       return null;
     }
 
-    //活动缓存中没有，则从内存缓存中招
-    EngineResource<?> cached = loadFromCache(key, isMemoryCacheable);
     if (cached != null) {
       //找到了，直接返回
       cb.onResourceReady(cached, DataSource.MEMORY_CACHE);
+      notifyMemoryCacheLookup(key, MemoryCacheResult.CACHE);
       if (VERBOSE_IS_LOGGABLE) {
-        logWithTimeAndKey("Loaded resource from cache", startTime, key);
+        logWithTimeAndKey("Loaded resource from cache", startTime, cached.getKey());
       }
       return null;
     }
@@ -197,7 +291,10 @@ public class Engine implements EngineJobListener,
     //2个内存缓存都没有，那么从缓存中，获取一个加载它的EngineJob
     EngineJob<?> current = jobs.get(key, onlyRetrieveFromCache);
     if (current != null) {
+      notifyMemoryCacheLookup(
+          key, isMemoryCacheable ? MemoryCacheResult.MISS : MemoryCacheResult.SKIPPED);
       current.addCallback(cb);
+      current.raisePriority(priority);
       if (VERBOSE_IS_LOGGABLE) {
         logWithTimeAndKey("Added to existing load", startTime, key);
       }
@@ -237,6 +334,16 @@ public class Engine implements EngineJobListener,
     jobs.put(key, engineJob);
 
     engineJob.addCallback(cb);
+    if (isMemoryCacheable && startFromLargerResource(key, engineJob, decodeJob)) {
+      notifyMemoryCacheLookup(key, MemoryCacheResult.SCALED);
+      if (VERBOSE_IS_LOGGABLE) {
+        logWithTimeAndKey("Started scaling a larger resource in memory", startTime, key);
+      }
+      return new LoadStatus(cb, engineJob);
+    }
+
+    notifyMemoryCacheLookup(
+        key, isMemoryCacheable ? MemoryCacheResult.MISS : MemoryCacheResult.SKIPPED);
     //把DecodeJob交给EngineJob
     engineJob.start(decodeJob);
 
@@ -250,6 +357,12 @@ public class Engine implements EngineJobListener,
     Log.v(TAG, log + " in " + LogTime.getElapsedMillis(startTime) + "ms, key: " + key);
   }
 
+  private void notifyMemoryCacheLookup(Key key, MemoryCacheResult result) {
+    if (loadEventListener != null) {
+      loadEventListener.onMemoryCacheLookup(key, result);
+    }
+  }
+
   /**
    * 从活动缓存中招
    */
@@ -281,12 +394,49 @@ public class Engine implements EngineJobListener,
     if (cached != null) {
       //引用计数 + 1
       cached.acquire();
+      // The given key may be a probe key that mustn't be kept, cached resources already have an
+      // equal key of their own.
+      Key activeKey = cached.getKey() != null
+          ? cached.getKey()
+          : key instanceof EngineKeyProbe ? ((EngineKeyProbe) key).toEngineKey() : key;
       //转移到ActivityCache中
-      activeResources.activate(key, cached);
+      activeResources.activate(activeKey, cached);
     }
     return cached;
   }
 
+  /**
+   * Starts the given jobs scaling the same image in memory at a larger size down for the given key
+   * and returns {@code true}, or returns {@code false} if there isn't one.
+   *
+   * <p>The larger resource is acquired until the jobs are done, so that it's neither recycled nor
+   * evicted while it's scaled on another thread, and then released back to wherever it was. The
+   * scaled resource is made active like any other loaded resource.
+   */
+  private <R> boolean startFromLargerResource(
+      EngineKey key, EngineJob<R> engineJob, DecodeJob<R> decodeJob) {
+    for (EngineKey largerKey : residentSizes.getLargerKeys(key)) {
+      EngineResource<?> larger = loadFromActiveResources(largerKey, true /*isMemoryCacheable*/);
+      if (larger == null) {
+        larger = loadFromCache(largerKey, true /*isMemoryCacheable*/);
+      }
+      if (larger == null) {
+        residentSizes.remove(largerKey);
+        continue;
+      }
+
+      float scale = key.getWidth() / (float) largerKey.getWidth();
+      if (!ResidentResourceScaler.canScaleDown(larger, scale)) {
+        larger.release();
+        // Every size of the same image has the same type, if one can't be scaled none can.
+        return false;
+      }
+      engineJob.startScaling(decodeJob, larger, scale);
+      return true;
+    }
+    return false;
+  }
+
   /**
    * 从MemoryCache中查找
    */
@@ -325,6 +475,9 @@ public class Engine implements EngineJobListener,
 
       if (resource.isCacheable()) {
         activeResources.activate(key, resource);
+        if (key instanceof EngineKey) {
+          residentSizes.add((EngineKey) key);
+        }
       }
     }
 
@@ -341,6 +494,12 @@ public class Engine implements EngineJobListener,
   @Override
   public void onResourceRemoved(@NonNull final Resource<?> resource) {
     Util.assertMainThread();
+    if (resource instanceof EngineResource) {
+      Key key = ((EngineResource<?>) resource).getKey();
+      if (key instanceof EngineKey) {
+        residentSizes.remove((EngineKey) key);
+      }
+    }
     resourceRecycler.recycle(resource);
   }
 
@@ -352,6 +511,9 @@ public class Engine implements EngineJobListener,
     if (resource.isCacheable()) {
       cache.put(cacheKey, resource);
     } else {
+      if (cacheKey instanceof EngineKey) {
+        residentSizes.remove((EngineKey) cacheKey);
+      }
       resourceRecycler.recycle(resource);
     }
   }
@@ -360,9 +522,32 @@ public class Engine implements EngineJobListener,
     diskCacheProvider.getDiskCache().clear();
   }
 
+  /**
+   * Drops pending resource cache writes so that the resources they hold can be recycled.
+   */
+  public void clearMemory() {
+    if (resourceCacheWriteQueue != null) {
+      resourceCacheWriteQueue.clearMemory();
+    }
+  }
+
+  /**
+   * Drops some or all pending resource cache writes depending on the given level.
+   *
+   * @see android.content.ComponentCallbacks2#onTrimMemory(int)
+   */
+  public void trimMemory(int level) {
+    if (resourceCacheWriteQueue != null) {
+      resourceCacheWriteQueue.trimMemory(level);
+    }
+  }
+
   @VisibleForTesting
   public void shutdown() {
     engineJobFactory.shutdown();
+    if (resourceCacheWriteQueue != null) {
+      resourceCacheWriteQueue.shutdown();
+    }
     diskCacheProvider.clearDiskCacheIfCreated();
     activeResources.shutdown();
   }
@@ -420,18 +605,26 @@ public class Engine implements EngineJobListener,
   @VisibleForTesting
   static class DecodeJobFactory {
     @Synthetic final DecodeJob.DiskCacheProvider diskCacheProvider;
+    @Synthetic @Nullable final LoadEventListener loadEventListener;
+    @Synthetic @Nullable final ResourceCacheWriteQueue resourceCacheWriteQueue;
+    @Synthetic final SourceFetchCoalescer sourceFetchCoalescer = new SourceFetchCoalescer();
     @Synthetic final Pools.Pool<DecodeJob<?>> pool =
         FactoryPools.simple(JOB_POOL_SIZE,
             new FactoryPools.Factory<DecodeJob<?>>() {
           @Override
           public DecodeJob<?> create() {
-            return new DecodeJob<>(diskCacheProvider, pool);
+            return new DecodeJob<>(diskCacheProvider, pool, loadEventListener,
+                sourceFetchCoalescer, resourceCacheWriteQueue);
           }
         });
     private int creationOrder;
 
-    DecodeJobFactory(DecodeJob.DiskCacheProvider diskCacheProvider) {
+    DecodeJobFactory(DecodeJob.DiskCacheProvider diskCacheProvider,
+        @Nullable LoadEventListener loadEventListener,
+        @Nullable ResourceCacheWriteQueue resourceCacheWriteQueue) {
       this.diskCacheProvider = diskCacheProvider;
+      this.loadEventListener = loadEventListener;
+      this.resourceCacheWriteQueue = resourceCacheWriteQueue;
     }
 
     @SuppressWarnings("unchecked")
@@ -479,6 +672,7 @@ public class Engine implements EngineJobListener,
     @Synthetic final GlideExecutor sourceExecutor;
     @Synthetic final GlideExecutor sourceUnlimitedExecutor;
     @Synthetic final GlideExecutor animationExecutor;
+    @Synthetic @Nullable final GlideExecutor decodeExecutor;
     @Synthetic final EngineJobListener listener;
     @Synthetic final Pools.Pool<EngineJob<?>> pool =
         FactoryPools.simple(
@@ -491,6 +685,7 @@ public class Engine implements EngineJobListener,
                     sourceExecutor,
                     sourceUnlimitedExecutor,
                     animationExecutor,
+                    decodeExecutor,
                     listener,
                     pool);
               }
@@ -501,11 +696,13 @@ public class Engine implements EngineJobListener,
         GlideExecutor sourceExecutor,
         GlideExecutor sourceUnlimitedExecutor,
         GlideExecutor animationExecutor,
+        @Nullable GlideExecutor decodeExecutor,
         EngineJobListener listener) {
       this.diskCacheExecutor = diskCacheExecutor;
       this.sourceExecutor = sourceExecutor;
       this.sourceUnlimitedExecutor = sourceUnlimitedExecutor;
       this.animationExecutor = animationExecutor;
+      this.decodeExecutor = decodeExecutor;
       this.listener = listener;
     }
 
@@ -515,6 +712,9 @@ public class Engine implements EngineJobListener,
       shutdownAndAwaitTermination(sourceExecutor);
       shutdownAndAwaitTermination(sourceUnlimitedExecutor);
       shutdownAndAwaitTermination(animationExecutor);
+      if (decodeExecutor != null) {
+        shutdownAndAwaitTermination(decodeExecutor);
+      }
     }
 
     @SuppressWarnings("unchecked")
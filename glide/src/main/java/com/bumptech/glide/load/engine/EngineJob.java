@@ -4,8 +4,10 @@ import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 import android.support.v4.util.Pools;
+import com.bumptech.glide.Priority;
 import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.engine.executor.GlideExecutor;
@@ -42,6 +44,8 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
   private final GlideExecutor sourceExecutor;
   private final GlideExecutor sourceUnlimitedExecutor;
   private final GlideExecutor animationExecutor;
+  // Decodes data retrieved on the other executors, or null to decode on the retrieving thread.
+  @Nullable private final GlideExecutor decodeExecutor;
 
   private Key key;
   private boolean isCacheable;
@@ -58,6 +62,8 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
   private List<ResourceCallback> ignoredCallbacks;
   private EngineResource<?> engineResource;
   private DecodeJob<R> decodeJob;
+  // A larger resource the decode job scales down, acquired until this job is released.
+  @Nullable private EngineResource<?> residentSource;
 
   // Checked primarily on the main thread, but also on other threads in reschedule.
   private volatile boolean isCancelled;
@@ -67,6 +73,7 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
       GlideExecutor sourceExecutor,
       GlideExecutor sourceUnlimitedExecutor,
       GlideExecutor animationExecutor,
+      @Nullable GlideExecutor decodeExecutor,
       EngineJobListener listener,
       Pools.Pool<EngineJob<?>> pool) {
     this(
@@ -74,6 +81,7 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
         sourceExecutor,
         sourceUnlimitedExecutor,
         animationExecutor,
+        decodeExecutor,
         listener,
         pool,
         DEFAULT_FACTORY);
@@ -85,6 +93,7 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
       GlideExecutor sourceExecutor,
       GlideExecutor sourceUnlimitedExecutor,
       GlideExecutor animationExecutor,
+      @Nullable GlideExecutor decodeExecutor,
       EngineJobListener listener,
       Pools.Pool<EngineJob<?>> pool,
       EngineResourceFactory engineResourceFactory) {
@@ -92,6 +101,7 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
     this.sourceExecutor = sourceExecutor;
     this.sourceUnlimitedExecutor = sourceUnlimitedExecutor;
     this.animationExecutor = animationExecutor;
+    this.decodeExecutor = decodeExecutor;
     this.listener = listener;
     this.pool = pool;
     this.engineResourceFactory = engineResourceFactory;
@@ -127,6 +137,19 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
     executor.execute(decodeJob);
   }
 
+  /**
+   * Starts the given job scaling the given acquired resource down by the given factor, off the
+   * main thread. The resource is released once this job is.
+   */
+  void startScaling(DecodeJob<R> decodeJob, EngineResource<?> resource, float scale) {
+    this.decodeJob = decodeJob;
+    residentSource = resource;
+    decodeJob.scaleFrom(resource, scale);
+    // Without a decode executor, resources are decoded where cache hits are.
+    GlideExecutor executor = decodeExecutor != null ? decodeExecutor : diskCacheExecutor;
+    executor.execute(decodeJob);
+  }
+
   void addCallback(ResourceCallback cb) {
     Util.assertMainThread();
     stateVerifier.throwIfRecycled();
@@ -139,6 +162,16 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
     }
   }
 
+  /**
+   * Lets a load that joins this job with a higher priority speed up the job's network request.
+   */
+  void raisePriority(Priority priority) {
+    Util.assertMainThread();
+    if (decodeJob != null) {
+      decodeJob.raisePriority(priority);
+    }
+  }
+
   void removeCallback(ResourceCallback cb) {
     Util.assertMainThread();
     stateVerifier.throwIfRecycled();
@@ -257,6 +290,11 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
     hasResource = false;
     decodeJob.release(isRemovedFromQueue);
     decodeJob = null;
+    if (residentSource != null) {
+      // The decode job has notified us, so it's done reading the resource.
+      residentSource.release();
+      residentSource = null;
+    }
     exception = null;
     dataSource = null;
     pool.release(this);
@@ -283,6 +321,16 @@ class EngineJob<R> implements DecodeJob.Callback<R>,
     getActiveSourceExecutor().execute(job);
   }
 
+  @Override
+  public boolean handOffDecode(DecodeJob<?> job) {
+    // Animation frames have their own small pool, keep them off the shared decode threads.
+    if (decodeExecutor == null || useAnimationPool) {
+      return false;
+    }
+    decodeExecutor.execute(job);
+    return true;
+  }
+
   @Synthetic
   void handleExceptionOnMainThread() {
     stateVerifier.throwIfRecycled();
@@ -10,6 +10,9 @@ import java.util.Map;
 
 /**
  * An in memory only cache key used to multiplex loads.
+ *
+ * <p>Keys are equal to {@link EngineKeyProbe}s with the same values, so that probes can be used to
+ * look up resources stored under keys.
  */
 class EngineKey implements Key {
   private final Object model;
@@ -21,6 +24,7 @@ class EngineKey implements Key {
   private final Map<Class<?>, Transformation<?>> transformations;
   private final Options options;
   private int hashCode;
+  private EngineKey sizeIndependentKey;
 
   EngineKey(
       Object model,
@@ -43,18 +47,62 @@ class EngineKey implements Key {
     this.options = Preconditions.checkNotNull(options);
   }
 
+  int getWidth() {
+    return width;
+  }
+
+  int getHeight() {
+    return height;
+  }
+
+  Map<Class<?>, Transformation<?>> getTransformations() {
+    return transformations;
+  }
+
+  /**
+   * Returns a key that is equal to the keys of all loads that differ from this one only in their
+   * width and height.
+   */
+  EngineKey getSizeIndependentKey() {
+    if (sizeIndependentKey == null) {
+      sizeIndependentKey = width == 0 && height == 0
+          ? this
+          : new EngineKey(model, signature, 0 /*width*/, 0 /*height*/, transformations,
+              resourceClass, transcodeClass, options);
+    }
+    return sizeIndependentKey;
+  }
+
+  /**
+   * Returns {@code true} if this key has the given values.
+   */
+  boolean matches(
+      Object model,
+      Key signature,
+      int width,
+      int height,
+      Map<Class<?>, Transformation<?>> transformations,
+      Class<?> resourceClass,
+      Class<?> transcodeClass,
+      Options options) {
+    return this.model.equals(model)
+        && this.signature.equals(signature)
+        && this.height == height
+        && this.width == width
+        && this.transformations.equals(transformations)
+        && this.resourceClass.equals(resourceClass)
+        && this.transcodeClass.equals(transcodeClass)
+        && this.options.equals(options);
+  }
+
   @Override
   public boolean equals(Object o) {
     if (o instanceof EngineKey) {
       EngineKey other = (EngineKey) o;
-      return model.equals(other.model)
-          && signature.equals(other.signature)
-          && height == other.height
-          && width == other.width
-          && transformations.equals(other.transformations)
-          && resourceClass.equals(other.resourceClass)
-          && transcodeClass.equals(other.transcodeClass)
-          && options.equals(other.options);
+      return matches(other.model, other.signature, other.width, other.height,
+          other.transformations, other.resourceClass, other.transcodeClass, other.options);
+    } else if (o instanceof EngineKeyProbe) {
+      return o.equals(this);
     }
     return false;
   }
@@ -62,18 +110,35 @@ class EngineKey implements Key {
   @Override
   public int hashCode() {
     if (hashCode == 0) {
-      hashCode = model.hashCode();
-      hashCode = 31 * hashCode + signature.hashCode();
-      hashCode = 31 * hashCode + width;
-      hashCode = 31 * hashCode + height;
-      hashCode = 31 * hashCode + transformations.hashCode();
-      hashCode = 31 * hashCode + resourceClass.hashCode();
-      hashCode = 31 * hashCode + transcodeClass.hashCode();
-      hashCode = 31 * hashCode + options.hashCode();
+      hashCode = computeHashCode(model, signature, width, height, transformations, resourceClass,
+          transcodeClass, options);
     }
     return hashCode;
   }
 
+  /**
+   * Returns the hash code of a key with the given values, shared with {@link EngineKeyProbe}.
+   */
+  static int computeHashCode(
+      Object model,
+      Key signature,
+      int width,
+      int height,
+      Map<Class<?>, Transformation<?>> transformations,
+      Class<?> resourceClass,
+      Class<?> transcodeClass,
+      Options options) {
+    int result = model.hashCode();
+    result = 31 * result + signature.hashCode();
+    result = 31 * result + width;
+    result = 31 * result + height;
+    result = 31 * result + transformations.hashCode();
+    result = 31 * result + resourceClass.hashCode();
+    result = 31 * result + transcodeClass.hashCode();
+    result = 31 * result + options.hashCode();
+    return result;
+  }
+
   @Override
   public String toString() {
     return "EngineKey{"
@@ -10,6 +10,9 @@ import java.util.Map;
  * EngineKey，缓存Key工厂
  */
 class EngineKeyFactory {
+    // 仅在主线程中使用，见obtainProbeKey()
+    private final EngineKeyProbe probeKey = new EngineKeyProbe();
+
     /**
      * 生产缓存Key
      *
@@ -30,4 +33,25 @@ class EngineKeyFactory {
         return new EngineKey(model, signature, width, height, transformations, resourceClass,
                 transcodeClass, options);
     }
+
+    /**
+     * 返回一个复用的Key，和参数相同的EngineKey相等，只用于在活动缓存和内存缓存中查找，
+     * 避免每次加载都创建Key。返回的Key不能被保存，用完后需要调用releaseProbeKey()。只能在主线程中调用。
+     *
+     * @see #buildKey(Object, Key, int, int, Map, Class, Class, Options)
+     */
+    EngineKeyProbe obtainProbeKey(Object model, Key signature, int width, int height,
+                             Map<Class<?>, Transformation<?>> transformations, Class<?> resourceClass,
+                             Class<?> transcodeClass, Options options) {
+        probeKey.set(model, signature, width, height, transformations, resourceClass,
+                transcodeClass, options);
+        return probeKey;
+    }
+
+    /**
+     * 释放复用的Key对参数的引用
+     */
+    void releaseProbeKey() {
+        probeKey.clear();
+    }
 }
\ No newline at end of file
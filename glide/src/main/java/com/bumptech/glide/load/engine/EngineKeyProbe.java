@@ -0,0 +1,113 @@
+package com.bumptech.glide.load.engine;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.Transformation;
+import com.bumptech.glide.util.Preconditions;
+import java.security.MessageDigest;
+import java.util.Map;
+
+/**
+ * A mutable stand in for an {@link EngineKey}, reused by {@link EngineKeyFactory} to look up
+ * resources in memory without allocating a key for every load.
+ *
+ * <p>A probe is equal to, and has the same hash code as, any {@link EngineKey} with the same
+ * values. Probes must never be stored, use {@link #toEngineKey()} to get a key that can be.
+ */
+final class EngineKeyProbe implements Key {
+  private Object model;
+  private int width;
+  private int height;
+  private Class<?> resourceClass;
+  private Class<?> transcodeClass;
+  private Key signature;
+  private Map<Class<?>, Transformation<?>> transformations;
+  private Options options;
+  private int hashCode;
+
+  /**
+   * Replaces all of this probe's values.
+   */
+  void set(
+      Object model,
+      Key signature,
+      int width,
+      int height,
+      Map<Class<?>, Transformation<?>> transformations,
+      Class<?> resourceClass,
+      Class<?> transcodeClass,
+      Options options) {
+    this.model = Preconditions.checkNotNull(model);
+    this.signature = Preconditions.checkNotNull(signature, "Signature must not be null");
+    this.width = width;
+    this.height = height;
+    this.transformations = Preconditions.checkNotNull(transformations);
+    this.resourceClass =
+        Preconditions.checkNotNull(resourceClass, "Resource class must not be null");
+    this.transcodeClass =
+        Preconditions.checkNotNull(transcodeClass, "Transcode class must not be null");
+    this.options = Preconditions.checkNotNull(options);
+    hashCode = 0;
+  }
+
+  /**
+   * Drops this probe's references to its values so that it doesn't keep them from being collected
+   * while it's unused.
+   */
+  void clear() {
+    model = null;
+    signature = null;
+    transformations = null;
+    resourceClass = null;
+    transcodeClass = null;
+    options = null;
+    hashCode = 0;
+  }
+
+  /**
+   * Returns a new key equal to this probe.
+   */
+  EngineKey toEngineKey() {
+    return new EngineKey(
+        model, signature, width, height, transformations, resourceClass, transcodeClass, options);
+  }
+
+  // Probes are never stored, so they're only compared to each other by identity.
+  @Override
+  public boolean equals(Object o) {
+    if (o instanceof EngineKey) {
+      return ((EngineKey) o).matches(
+          model, signature, width, height, transformations, resourceClass, transcodeClass, options);
+    }
+    return o == this;
+  }
+
+  @Override
+  public int hashCode() {
+    if (hashCode == 0) {
+      hashCode = EngineKey.computeHashCode(model, signature, width, height, transformations,
+          resourceClass, transcodeClass, options);
+    }
+    return hashCode;
+  }
+
+  @Override
+  public String toString() {
+    return "EngineKeyProbe{"
+        + "model=" + model
+        + ", width=" + width
+        + ", height=" + height
+        + ", resourceClass=" + resourceClass
+        + ", transcodeClass=" + transcodeClass
+        + ", signature=" + signature
+        + ", transformations=" + transformations
+        + ", options=" + options
+        + '}';
+  }
+
+  @Override
+  public void updateDiskCacheKey(@NonNull MessageDigest messageDigest) {
+    throw new UnsupportedOperationException();
+  }
+}
@@ -41,6 +41,10 @@ class EngineResource<Z> implements Resource<Z> {
     this.listener = listener;
   }
 
+  Key getKey() {
+    return key;
+  }
+
   Resource<Z> getResource() {
     return resource;
   }
@@ -0,0 +1,68 @@
+package com.bumptech.glide.load.engine;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import java.io.File;
+import java.nio.ByteBuffer;
+
+/**
+ * Hands a disk cache entry that was memory mapped by a {@link DiskCache.MappedReader} to the
+ * {@link java.nio.ByteBuffer} decoders.
+ */
+final class MappedCacheFetcher implements DataFetcher<ByteBuffer> {
+  private final ByteBuffer buffer;
+
+  private MappedCacheFetcher(ByteBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  /**
+   * Returns a fetcher for the mapped contents of the given disk cache entry, or {@code null} if
+   * the disk cache can't map entries, the entry can't be mapped or nothing can decode a {@link
+   * ByteBuffer} for the current load.
+   *
+   * @param cacheFile The entry's {@link File}, as returned by {@link DiskCache#get(Key)}.
+   */
+  @Nullable
+  static MappedCacheFetcher open(DecodeHelper<?> helper, File cacheFile) {
+    DiskCache diskCache = helper.getDiskCache();
+    if (!(diskCache instanceof DiskCache.MappedReader) || !helper.hasLoadPath(ByteBuffer.class)) {
+      return null;
+    }
+    ByteBuffer buffer = ((DiskCache.MappedReader) diskCache).map(cacheFile);
+    return buffer != null ? new MappedCacheFetcher(buffer) : null;
+  }
+
+  @Override
+  public void loadData(@NonNull Priority priority,
+      @NonNull DataCallback<? super ByteBuffer> callback) {
+    callback.onDataReady(buffer);
+  }
+
+  @Override
+  public void cleanup() {
+    // Do nothing, the mapping is released when the buffer is garbage collected.
+  }
+
+  @Override
+  public void cancel() {
+    // Do nothing.
+  }
+
+  @NonNull
+  @Override
+  public Class<ByteBuffer> getDataClass() {
+    return ByteBuffer.class;
+  }
+
+  @NonNull
+  @Override
+  public DataSource getDataSource() {
+    return DataSource.LOCAL;
+  }
+}
@@ -0,0 +1,88 @@
+package com.bumptech.glide.load.engine;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.os.Build;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.resource.bitmap.BitmapResource;
+import com.bumptech.glide.load.resource.bitmap.LazyBitmapDrawableResource;
+import com.bumptech.glide.load.resource.bitmap.TransformationUtils;
+
+/**
+ * Scales {@link Bitmap} and {@link BitmapDrawable} resources that are already in memory down into
+ * new resources, using {@link Bitmap}s from the {@link BitmapPool}.
+ */
+final class ResidentResourceScaler {
+
+  private ResidentResourceScaler() {
+    // Utility class.
+  }
+
+  /**
+   * Returns {@code true} if {@link #scaleDown(Resources, BitmapPool, Resource, float)} can scale
+   * the given resource by the given factor, without reading its pixels.
+   *
+   * @param scale A factor less than one.
+   */
+  static boolean canScaleDown(Resource<?> resource, float scale) {
+    Bitmap source = getScalableBitmap(resource.get());
+    return source != null && isSmaller(source, scale);
+  }
+
+  /**
+   * Returns a new resource of the same type as the given resource with its {@link Bitmap} scaled
+   * by the given factor, or {@code null} if the resource can't be scaled.
+   *
+   * <p>Draws the whole {@link Bitmap}, so it must not be called on the main thread. The given
+   * resource must be acquired until this method returns.
+   *
+   * @param scale A factor less than one.
+   */
+  @Nullable
+  static Resource<?> scaleDown(
+      Resources resources, BitmapPool bitmapPool, Resource<?> resource, float scale) {
+    Object value = resource.get();
+    Bitmap source = getScalableBitmap(value);
+    if (source == null || !isSmaller(source, scale)) {
+      return null;
+    }
+
+    Bitmap scaled = TransformationUtils.fitCenter(bitmapPool, source,
+        Math.round(source.getWidth() * scale), Math.round(source.getHeight() * scale));
+    if (scaled == source) {
+      return null;
+    }
+    Resource<Bitmap> result = BitmapResource.obtain(scaled, bitmapPool);
+    return value instanceof BitmapDrawable
+        ? LazyBitmapDrawableResource.obtain(resources, result) : result;
+  }
+
+  @Nullable
+  private static Bitmap getScalableBitmap(Object value) {
+    Bitmap source;
+    if (value instanceof Bitmap) {
+      source = (Bitmap) value;
+    } else if (value instanceof BitmapDrawable) {
+      source = ((BitmapDrawable) value).getBitmap();
+    } else {
+      return null;
+    }
+    return source != null && !source.isRecycled() && isDrawable(source) ? source : null;
+  }
+
+  private static boolean isSmaller(Bitmap source, float scale) {
+    int width = Math.round(source.getWidth() * scale);
+    int height = Math.round(source.getHeight() * scale);
+    return width > 0 && height > 0
+        && (width < source.getWidth() || height < source.getHeight());
+  }
+
+  private static boolean isDrawable(Bitmap bitmap) {
+    // Hardware Bitmaps can't be drawn into the software Canvas used to scale.
+    return bitmap.getConfig() != null
+        && (Build.VERSION.SDK_INT < Build.VERSION_CODES.O
+            || bitmap.getConfig() != Bitmap.Config.HARDWARE);
+  }
+}
@@ -0,0 +1,144 @@
+package com.bumptech.glide.load.engine;
+
+import android.graphics.Bitmap;
+import com.bumptech.glide.load.Transformation;
+import com.bumptech.glide.load.resource.bitmap.CenterCrop;
+import com.bumptech.glide.load.resource.bitmap.CircleCrop;
+import com.bumptech.glide.load.resource.bitmap.DrawableTransformation;
+import com.bumptech.glide.load.resource.bitmap.FitCenter;
+import com.bumptech.glide.load.resource.gif.GifDrawableTransformation;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indexes the keys of resources in memory, either active or in the memory cache, by everything
+ * but their size, so that a load that misses can find the same image at a larger size.
+ *
+ * <p>Only loads with a fixed size that are transformed by {@link CenterCrop}, {@link FitCenter} or
+ * {@link CircleCrop} are indexed. Their resources are the same image fit or cropped to the
+ * requested size, so scaling a larger one down by the ratio of the sizes gives what loading at the
+ * smaller size would have. Other transformations may not scale the image to the requested size,
+ * like {@link com.bumptech.glide.load.resource.bitmap.CenterInside}, or may depend on absolute
+ * sizes, like {@link com.bumptech.glide.load.resource.bitmap.RoundedCorners}.
+ *
+ * <p>Entries may be stale, callers must check that a resource is still in memory before using it.
+ */
+final class ResidentSizeIndex {
+  private static final Comparator<EngineKey> BY_AREA = new Comparator<EngineKey>() {
+    @Override
+    public int compare(EngineKey first, EngineKey second) {
+      long firstArea = (long) first.getWidth() * first.getHeight();
+      long secondArea = (long) second.getWidth() * second.getHeight();
+      return firstArea < secondArea ? -1 : (firstArea == secondArea ? 0 : 1);
+    }
+  };
+
+  private final Map<EngineKey, List<EngineKey>> sizes = new HashMap<>();
+
+  void add(EngineKey key) {
+    if (!isIndexable(key)) {
+      return;
+    }
+    EngineKey sizeIndependentKey = key.getSizeIndependentKey();
+    List<EngineKey> keys = sizes.get(sizeIndependentKey);
+    if (keys == null) {
+      keys = new ArrayList<>(2);
+      sizes.put(sizeIndependentKey, keys);
+    }
+    if (!keys.contains(key)) {
+      keys.add(key);
+    }
+  }
+
+  void remove(EngineKey key) {
+    if (!isIndexable(key)) {
+      return;
+    }
+    EngineKey sizeIndependentKey = key.getSizeIndependentKey();
+    List<EngineKey> keys = sizes.get(sizeIndependentKey);
+    if (keys != null && keys.remove(key) && keys.isEmpty()) {
+      sizes.remove(sizeIndependentKey);
+    }
+  }
+
+  /**
+   * Returns the keys of resources in memory that are larger than, but have the same aspect ratio
+   * as the given key, smallest first.
+   */
+  List<EngineKey> getLargerKeys(EngineKey key) {
+    if (!isIndexable(key)) {
+      return Collections.emptyList();
+    }
+    List<EngineKey> keys = sizes.get(key.getSizeIndependentKey());
+    if (keys == null) {
+      return Collections.emptyList();
+    }
+    List<EngineKey> result = null;
+    for (EngineKey candidate : keys) {
+      if (isLargerWithSameAspectRatio(candidate, key)) {
+        if (result == null) {
+          result = new ArrayList<>(keys.size());
+        }
+        result.add(candidate);
+      }
+    }
+    if (result == null) {
+      return Collections.emptyList();
+    }
+    Collections.sort(result, BY_AREA);
+    return result;
+  }
+
+  private static boolean isIndexable(EngineKey key) {
+    return key.getWidth() > 0 && key.getHeight() > 0 && isScalable(key.getTransformations());
+  }
+
+  private static boolean isScalable(Map<Class<?>, Transformation<?>> transformations) {
+    Transformation<?> bitmapTransformation = transformations.get(Bitmap.class);
+    if (bitmapTransformation == null || !isScalable(bitmapTransformation)) {
+      return false;
+    }
+    @SuppressWarnings("unchecked")
+    Transformation<Bitmap> wrapped = (Transformation<Bitmap>) bitmapTransformation;
+    // The transformations of other resource classes must apply the same Bitmap transformation.
+    for (Transformation<?> transformation : transformations.values()) {
+      if (transformation == bitmapTransformation) {
+        continue;
+      }
+      Transformation<?> expected;
+      if (transformation instanceof DrawableTransformation) {
+        expected = new DrawableTransformation(wrapped, false /*isRequired*/);
+      } else if (transformation instanceof GifDrawableTransformation) {
+        expected = new GifDrawableTransformation(wrapped);
+      } else {
+        return false;
+      }
+      if (!transformation.equals(expected)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // Subclasses may transform differently, so only the exact classes are known to scale.
+  private static boolean isScalable(Transformation<?> transformation) {
+    Class<?> transformationClass = transformation.getClass();
+    return transformationClass == CenterCrop.class
+        || transformationClass == FitCenter.class
+        || transformationClass == CircleCrop.class;
+  }
+
+  private static boolean isLargerWithSameAspectRatio(EngineKey larger, EngineKey smaller) {
+    if (larger.getWidth() <= smaller.getWidth() || larger.getHeight() < smaller.getHeight()) {
+      return false;
+    }
+    // Sizes are rounded to whole pixels, so allow the smaller size to be a pixel off.
+    long difference = Math.abs((long) larger.getWidth() * smaller.getHeight()
+        - (long) smaller.getWidth() * larger.getHeight());
+    return difference <= Math.max(larger.getWidth(), larger.getHeight());
+  }
+}
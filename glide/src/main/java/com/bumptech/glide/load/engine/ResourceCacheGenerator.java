@@ -8,6 +8,7 @@ import com.bumptech.glide.load.data.DataFetcher;
 import com.bumptech.glide.load.model.ModelLoader;
 import com.bumptech.glide.load.model.ModelLoader.LoadData;
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 /**
@@ -25,7 +26,11 @@ class ResourceCacheGenerator implements DataFetcherGenerator,
   private Key sourceKey;
   private List<ModelLoader<File, ?>> modelLoaders;
   private int modelLoaderIndex;
-  private volatile LoadData<?> loadData;
+  private volatile DataFetcher<?> fetcher;
+  // True while a memory mapped entry is being decoded, so that if decoding it fails we can fall
+  // back to the model loaders for the entry's File.
+  private boolean isMappedPending;
+  private boolean skipByteBufferLoaders;
   // PMD is wrong here, this File must be an instance variable because it may be used across
   // multiple calls to startNext.
   @SuppressWarnings("PMD.SingularField")
@@ -60,6 +65,14 @@ class ResourceCacheGenerator implements DataFetcherGenerator,
       //        + helper.getTranscodeClass());
     }
     while (modelLoaders == null || !hasNextModelLoader()) {
+      if (isMappedPending) {
+        // The mapped data couldn't be decoded, try the other model loaders for the same entry.
+        isMappedPending = false;
+        skipByteBufferLoaders = true;
+        modelLoaders = helper.getModelLoaders(cacheFile);
+        modelLoaderIndex = 0;
+        continue;
+      }
       resourceClassIndex++;
       if (resourceClassIndex >= resourceClasses.size()) {
         sourceIdIndex++;
@@ -86,22 +99,31 @@ class ResourceCacheGenerator implements DataFetcherGenerator,
               transformation,
               resourceClass,
               helper.getOptions());
+      skipByteBufferLoaders = false;
       cacheFile = helper.getDiskCache().get(currentKey);
       if (cacheFile != null) {
         sourceKey = sourceId;
+        MappedCacheFetcher mappedFetcher = MappedCacheFetcher.open(helper, cacheFile);
+        if (mappedFetcher != null) {
+          isMappedPending = true;
+          fetcher = mappedFetcher;
+          mappedFetcher.loadData(helper.getPriority(), this);
+          return true;
+        }
         modelLoaders = helper.getModelLoaders(cacheFile);
         modelLoaderIndex = 0;
       }
     }
 
-    loadData = null;
+    fetcher = null;
     boolean started = false;
     while (!started && hasNextModelLoader()) {
       ModelLoader<File, ?> modelLoader = modelLoaders.get(modelLoaderIndex++);
-      loadData = modelLoader.buildLoadData(cacheFile,
+      LoadData<?> loadData = modelLoader.buildLoadData(cacheFile,
           helper.getWidth(), helper.getHeight(), helper.getOptions());
-      if (loadData != null && helper.hasLoadPath(loadData.fetcher.getDataClass())) {
+      if (loadData != null && isLoadable(loadData.fetcher.getDataClass())) {
         started = true;
+        fetcher = loadData.fetcher;
         loadData.fetcher.loadData(helper.getPriority(), this);
       }
     }
@@ -109,26 +131,31 @@ class ResourceCacheGenerator implements DataFetcherGenerator,
     return started;
   }
 
+  private boolean isLoadable(Class<?> dataClass) {
+    // The mapped data was already handed to the ByteBuffer decoders.
+    return helper.hasLoadPath(dataClass)
+        && !(skipByteBufferLoaders && ByteBuffer.class.equals(dataClass));
+  }
+
   private boolean hasNextModelLoader() {
     return modelLoaderIndex < modelLoaders.size();
   }
 
   @Override
   public void cancel() {
-    LoadData<?> local = loadData;
+    DataFetcher<?> local = fetcher;
     if (local != null) {
-      local.fetcher.cancel();
+      local.cancel();
     }
   }
 
   @Override
   public void onDataReady(Object data) {
-    cb.onDataFetcherReady(sourceKey, data, loadData.fetcher, DataSource.RESOURCE_DISK_CACHE,
-        currentKey);
+    cb.onDataFetcherReady(sourceKey, data, fetcher, DataSource.RESOURCE_DISK_CACHE, currentKey);
   }
 
   @Override
   public void onLoadFailed(@NonNull Exception e) {
-    cb.onDataFetcherFailed(currentKey, e, loadData.fetcher, DataSource.RESOURCE_DISK_CACHE);
+    cb.onDataFetcherFailed(currentKey, e, fetcher, DataSource.RESOURCE_DISK_CACHE);
   }
 }
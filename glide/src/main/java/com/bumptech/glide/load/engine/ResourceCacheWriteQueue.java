@@ -0,0 +1,259 @@
+package com.bumptech.glide.load.engine;
+
+import android.content.ComponentCallbacks2;
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.cache.DiskCache;
+import com.bumptech.glide.load.engine.executor.GlideExecutor;
+import com.bumptech.glide.util.Preconditions;
+import com.bumptech.glide.util.Synthetic;
+import com.bumptech.glide.util.pool.GlideTrace;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes transformed resources to the disk cache on a background thread after they've been
+ * delivered, so that compressing them doesn't delay the load or occupy a decode thread.
+ *
+ * <p>A write for a key that is already queued or being written is skipped, the resource would be
+ * the same. Each queued write keeps its resource from being recycled, so the queue is bounded. Once
+ * it's full, further writes are made on the calling thread, which slows down decoding until the
+ * queue drains. Writes that haven't started are only dropped when memory is low, see
+ * {@link #trimMemory(int)} and {@link #clearMemory()}. Dropped writes only cost a later load the
+ * time to decode and transform the resource again.
+ *
+ * <p>This class is thread safe.
+ */
+public final class ResourceCacheWriteQueue {
+  private static final String TAG = "ResourceCacheWrites";
+  private static final String DEFAULT_EXECUTOR_NAME = "resource-cache-write";
+  /** The default maximum number of writes waiting for the executor. */
+  public static final int DEFAULT_MAX_QUEUED_WRITES = 16;
+
+  private final GlideExecutor executor;
+  private final int maxQueuedWrites;
+  private final ArrayDeque<Write> queued = new ArrayDeque<>();
+  // Keys that are queued or being written.
+  private final Set<Key> keys = new HashSet<>();
+  private long writtenCount;
+  private long coalescedCount;
+  private long inlineCount;
+  private long droppedCount;
+
+  /**
+   * Creates a queue that writes on a single background thread and holds at most
+   * {@link #DEFAULT_MAX_QUEUED_WRITES} writes.
+   */
+  public ResourceCacheWriteQueue() {
+    this(GlideExecutor.newDiskCacheExecutor(
+            1, DEFAULT_EXECUTOR_NAME, GlideExecutor.UncaughtThrowableStrategy.DEFAULT),
+        DEFAULT_MAX_QUEUED_WRITES);
+  }
+
+  /**
+   * @param executor        The executor to write on, typically with a single thread.
+   * @param maxQueuedWrites The maximum number of writes waiting for the executor, further writes
+   *                        are made on the calling thread until the queue drains.
+   */
+  public ResourceCacheWriteQueue(@NonNull GlideExecutor executor, int maxQueuedWrites) {
+    Preconditions.checkArgument(maxQueuedWrites > 0, "maxQueuedWrites must be > 0");
+    this.executor = executor;
+    this.maxQueuedWrites = maxQueuedWrites;
+  }
+
+  /**
+   * Queues a write and returns {@code true}, or returns {@code false} after releasing it
+   * immediately if it's a duplicate, or after writing it on the calling thread if the queue is
+   * full.
+   *
+   * @param onComplete Releases the resource being written, called exactly once on any thread.
+   */
+  boolean enqueue(DecodeJob.DiskCacheProvider diskCacheProvider, Key key, DiskCache.Writer writer,
+      Runnable onComplete) {
+    Write write = new Write(diskCacheProvider, key, writer, onComplete);
+    boolean isQueued = false;
+    synchronized (this) {
+      if (keys.contains(key)) {
+        coalescedCount++;
+        write = null;
+      } else if (queued.size() >= maxQueuedWrites) {
+        keys.add(key);
+        inlineCount++;
+      } else {
+        keys.add(key);
+        queued.add(write);
+        isQueued = true;
+      }
+    }
+    if (write == null) {
+      if (Log.isLoggable(TAG, Log.VERBOSE)) {
+        Log.v(TAG, "Skipped duplicate resource cache write for: " + key);
+      }
+      onComplete.run();
+      return false;
+    } else if (!isQueued) {
+      write(write);
+      return false;
+    }
+    executor.execute(new WriteRunner());
+    return true;
+  }
+
+  @Synthetic
+  void writeNext() {
+    Write write;
+    synchronized (this) {
+      write = queued.poll();
+    }
+    // The write was dropped, see trimMemory.
+    if (write != null) {
+      write(write);
+    }
+  }
+
+  private void write(Write write) {
+    GlideTrace.beginSection("ResourceCacheWriteQueue.write");
+    try {
+      write.diskCacheProvider.getDiskCache().put(write.key, write.writer);
+    } finally {
+      write.onComplete.run();
+      synchronized (this) {
+        keys.remove(write.key);
+        writtenCount++;
+      }
+      GlideTrace.endSection();
+    }
+  }
+
+  /**
+   * Drops all writes that haven't started yet so that their resources can be recycled.
+   */
+  public void clearMemory() {
+    drop(0);
+  }
+
+  /**
+   * Drops writes that haven't started yet, all of them if the app is in the background.
+   *
+   * @see android.content.ComponentCallbacks2#onTrimMemory(int)
+   */
+  public void trimMemory(int level) {
+    if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+      drop(0);
+    } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+        || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+      drop(maxQueuedWrites / 2);
+    }
+  }
+
+  // Drops the oldest writes first, newer resources are more likely to be loaded again.
+  private void drop(int remaining) {
+    List<Write> dropped = null;
+    synchronized (this) {
+      while (queued.size() > remaining) {
+        Write write = queued.poll();
+        keys.remove(write.key);
+        droppedCount++;
+        if (dropped == null) {
+          dropped = new ArrayList<>();
+        }
+        dropped.add(write);
+      }
+    }
+    if (dropped != null) {
+      for (Write write : dropped) {
+        write.onComplete.run();
+      }
+    }
+  }
+
+  /**
+   * Returns the number of writes waiting to start.
+   */
+  public synchronized int getQueueDepth() {
+    return queued.size();
+  }
+
+  /**
+   * Returns the number of writes that have been attempted.
+   */
+  public synchronized long getWrittenCount() {
+    return writtenCount;
+  }
+
+  /**
+   * Returns the number of writes skipped because the same key was already queued or being
+   * written.
+   */
+  public synchronized long getCoalescedCount() {
+    return coalescedCount;
+  }
+
+  /**
+   * Returns the number of writes made on the calling thread because the queue was full.
+   */
+  public synchronized long getInlineCount() {
+    return inlineCount;
+  }
+
+  /**
+   * Returns the number of writes dropped because memory was low.
+   */
+  public synchronized long getDroppedCount() {
+    return droppedCount;
+  }
+
+  @VisibleForTesting
+  void shutdown() {
+    clearMemory();
+    executor.shutdown();
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "ResourceCacheWriteQueue{"
+        + "queueDepth=" + queued.size()
+        + ", written=" + writtenCount
+        + ", coalesced=" + coalescedCount
+        + ", inline=" + inlineCount
+        + ", dropped=" + droppedCount
+        + "}";
+  }
+
+  private static final class Write {
+    @Synthetic final DecodeJob.DiskCacheProvider diskCacheProvider;
+    @Synthetic final Key key;
+    @Synthetic final DiskCache.Writer writer;
+    @Synthetic final Runnable onComplete;
+
+    Write(DecodeJob.DiskCacheProvider diskCacheProvider, Key key, DiskCache.Writer writer,
+        Runnable onComplete) {
+      this.diskCacheProvider = diskCacheProvider;
+      this.key = key;
+      this.writer = writer;
+      this.onComplete = onComplete;
+    }
+  }
+
+  // GlideExecutor's queue is ordered, but writes are ordered by the deque, so every runner is
+  // equal and just writes whatever is next.
+  private final class WriteRunner implements Runnable, Comparable<WriteRunner> {
+    @Synthetic
+    WriteRunner() { }
+
+    @Override
+    public void run() {
+      writeNext();
+    }
+
+    @Override
+    public int compareTo(@NonNull WriteRunner other) {
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package com.bumptech.glide.load.engine;
+
+import com.bumptech.glide.load.Key;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tracks source fetches in progress by their {@link DataCacheKey} so that loads of the same data for
+ * different sizes, transformations or resource classes, which don't share an {@link EngineJob},
+ * share a single fetch.
+ *
+ * <p>The first {@link SourceGenerator} to fetch a key leads, later ones wait. Once the leader has
+ * written the data to the disk cache, each waiter is told to decode the data from the cache. If the
+ * leader fails, is cancelled or can't write to the cache, waiters are told to fetch the data
+ * themselves.
+ */
+final class SourceFetchCoalescer {
+  private final Map<Key, InFlightFetch> fetches = new HashMap<>();
+
+  /**
+   * Makes the given waiter the leader responsible for fetching the given key and returns
+   * {@code true} if no one is fetching it yet, otherwise adds the waiter to the fetch already in
+   * progress and returns {@code false}.
+   */
+  synchronized boolean leadOrWait(Key key, Waiter waiter) {
+    InFlightFetch fetch = fetches.get(key);
+    if (fetch == null) {
+      fetches.put(key, new InFlightFetch(waiter));
+      return true;
+    }
+    fetch.waiters.add(waiter);
+    return false;
+  }
+
+  /**
+   * Notifies the waiters of the given leader's fetch that it is complete, does nothing if the
+   * leader isn't fetching the key (any longer).
+   *
+   * @param isDataCached {@code true} if the data was written to the disk cache.
+   */
+  void complete(Key key, Waiter leader, boolean isDataCached) {
+    List<Waiter> waiters;
+    synchronized (this) {
+      InFlightFetch fetch = fetches.get(key);
+      if (fetch == null || fetch.leader != leader) {
+        return;
+      }
+      fetches.remove(key);
+      waiters = fetch.waiters;
+    }
+    for (Waiter waiter : waiters) {
+      waiter.onCoalescedFetchComplete(isDataCached);
+    }
+  }
+
+  /**
+   * Stops the given waiter from being notified, for example because its load was cancelled, and
+   * returns {@code true} if it was waiting.
+   */
+  synchronized boolean stopWaiting(Key key, Waiter waiter) {
+    InFlightFetch fetch = fetches.get(key);
+    return fetch != null && fetch.waiters.remove(waiter);
+  }
+
+  interface Waiter {
+    /**
+     * Called on the leader's thread once the fetch being waited on is complete.
+     *
+     * @param isDataCached {@code true} if the data can be read from the disk cache.
+     */
+    void onCoalescedFetchComplete(boolean isDataCached);
+  }
+
+  private static final class InFlightFetch {
+    final Waiter leader;
+    final List<Waiter> waiters = new ArrayList<>(1);
+
+    InFlightFetch(Waiter leader) {
+      this.leader = leader;
+    }
+  }
+}
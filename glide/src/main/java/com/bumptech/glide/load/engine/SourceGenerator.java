@@ -1,14 +1,22 @@
 package com.bumptech.glide.load.engine;
 
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.util.Log;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.Registry;
 import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.Encoder;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.data.Reprioritizable;
+import com.bumptech.glide.load.engine.cache.DiskCache;
 import com.bumptech.glide.load.model.ModelLoader;
 import com.bumptech.glide.load.model.ModelLoader.LoadData;
+import com.bumptech.glide.load.model.StreamEncoder;
 import com.bumptech.glide.util.LogTime;
+import java.io.InputStream;
 import java.util.Collections;
 
 /**
@@ -18,24 +26,47 @@ import java.util.Collections;
  *
  * <p> Depending on the disk cache strategy, source data may first be written to disk and then
  * loaded from the cache file rather than returned directly. </p>
+ *
+ * <p> When source data will be written to disk, only one load at a time fetches it, other loads
+ * for the same data wait for that fetch and then load the data from the cache file. </p>
+ *
+ * <p> Streams that would be written to disk unchanged are instead decoded directly and written to
+ * the disk cache as they're read, if the disk cache supports it. The cache entry is only committed
+ * if the data is decoded successfully. </p>
  */
 class SourceGenerator implements DataFetcherGenerator,
     DataFetcher.DataCallback<Object>,
-    DataFetcherGenerator.FetcherReadyCallback {
+    DataFetcherGenerator.FetcherReadyCallback,
+    SourceFetchCoalescer.Waiter,
+    DataCacheTeeInputStream.Listener {
   private static final String TAG = "SourceGenerator";
 
   private final DecodeHelper<?> helper;
   private final FetcherReadyCallback cb;
+  @Nullable private final SourceFetchCoalescer coalescer;
 
   private int loadDataListIndex;
   private DataCacheGenerator sourceCacheGenerator;
   private Object dataToCache;
   private volatile ModelLoader.LoadData<?> loadData;
   private DataCacheKey originalKey;
+  private long fetchStartNanos;
+  // The key of the fetch this generator is leading or waiting for, if any.
+  private volatile DataCacheKey coalescedKey;
+  private boolean skipCoalescing;
+  // Hands the load over from the thread registering this generator as a waiter to the thread that
+  // ends the wait, so that the load isn't run again while the registering thread is still in
+  // startNext().
+  private final Object waitLock = new Object();
+  private boolean isRegisteringWaiter;
+  private boolean isWaitEndedWhileRegistering;
+  private volatile boolean isCancelled;
 
-  SourceGenerator(DecodeHelper<?> helper, FetcherReadyCallback cb) {
+  SourceGenerator(DecodeHelper<?> helper, FetcherReadyCallback cb,
+      @Nullable SourceFetchCoalescer coalescer) {
     this.helper = helper;
     this.cb = cb;
+    this.coalescer = coalescer;
   }
 
   @Override
@@ -60,6 +91,15 @@ class SourceGenerator implements DataFetcherGenerator,
           && (helper.getDiskCacheStrategy().isDataCacheable(loadData.fetcher.getDataSource())
           || helper.hasLoadPath(loadData.fetcher.getDataClass()))) {
         started = true;
+        if (!leadOrWait()) {
+          if (!finishRegisteringWaiter()) {
+            return true;
+          }
+          // The wait ended before this thread finished registering, so nothing rescheduled the
+          // load. Carry on here instead.
+          return !isCancelled && startNext();
+        }
+        fetchStartNanos = SystemClock.elapsedRealtimeNanos();
         //fetcher是HttpUrlFetcher，通过它来请求数据，同时设置回调callback为自身，回调到自身实现的onDataReady()
         loadData.fetcher.loadData(helper.getPriority(), this);
       }
@@ -67,18 +107,92 @@ class SourceGenerator implements DataFetcherGenerator,
     return started;
   }
 
+  /**
+   * Returns {@code true} if this generator should fetch the current data itself, or {@code false}
+   * if it waits for another load fetching the same data, see {@link #finishRegisteringWaiter()}.
+   */
+  private boolean leadOrWait() {
+    if (coalescer == null || skipCoalescing
+        || !helper.getDiskCacheStrategy().isDataCacheable(loadData.fetcher.getDataSource())) {
+      skipCoalescing = false;
+      return true;
+    }
+    DataCacheKey key = new DataCacheKey(loadData.sourceKey, helper.getSignature());
+    coalescedKey = key;
+    // The wait may end on another thread as soon as this generator is registered, so first leave
+    // it ready to retry this model loader if the data didn't make it into the disk cache.
+    loadDataListIndex--;
+    synchronized (waitLock) {
+      isRegisteringWaiter = true;
+      isWaitEndedWhileRegistering = false;
+    }
+    if (coalescer.leadOrWait(key, this)) {
+      loadDataListIndex++;
+      synchronized (waitLock) {
+        isRegisteringWaiter = false;
+      }
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Returns {@code true} if the wait registered by {@link #leadOrWait()} already ended, in which
+   * case the calling thread must continue the load, otherwise the load is rescheduled when it ends.
+   */
+  private boolean finishRegisteringWaiter() {
+    synchronized (waitLock) {
+      isRegisteringWaiter = false;
+      return isWaitEndedWhileRegistering;
+    }
+  }
+
+  /**
+   * Reschedules the load once a wait has ended, unless the thread that registered the wait is still
+   * in {@link #startNext()} and will continue the load itself.
+   */
+  private void onWaitEnded() {
+    synchronized (waitLock) {
+      if (isRegisteringWaiter) {
+        isWaitEndedWhileRegistering = true;
+        return;
+      }
+    }
+    cb.reschedule();
+  }
+
+  private void completeCoalescedFetch(boolean isDataCached) {
+    DataCacheKey key = coalescedKey;
+    if (key != null) {
+      // Does nothing unless this generator is still leading the fetch.
+      coalescer.complete(key, this, isDataCached);
+    }
+  }
+
+  @Override
+  public void onCoalescedFetchComplete(boolean isDataCached) {
+    skipCoalescing = true;
+    if (isDataCached) {
+      sourceCacheGenerator =
+          new DataCacheGenerator(Collections.singletonList(loadData.sourceKey), helper, this);
+    }
+    onWaitEnded();
+  }
+
   private boolean hasNextModelLoader() {
     return loadDataListIndex < helper.getLoadData().size();
   }
 
   private void cacheData(Object dataToCache) {
     long startTime = LogTime.getLogTime();
+    boolean isDataCached = false;
     try {
       Encoder<Object> encoder = helper.getSourceEncoder(dataToCache);
       DataCacheWriter<Object> writer =
           new DataCacheWriter<>(encoder, dataToCache, helper.getOptions());
       originalKey = new DataCacheKey(loadData.sourceKey, helper.getSignature());
       helper.getDiskCache().put(originalKey, writer);
+      isDataCached = true;
       if (Log.isLoggable(TAG, Log.VERBOSE)) {
         Log.v(TAG, "Finished encoding source to cache"
             + ", key: " + originalKey
@@ -88,14 +202,79 @@ class SourceGenerator implements DataFetcherGenerator,
       }
     } finally {
       loadData.fetcher.cleanup();
+      completeCoalescedFetch(isDataCached);
     }
 
     sourceCacheGenerator =
         new DataCacheGenerator(Collections.singletonList(loadData.sourceKey), helper, this);
   }
 
+  /**
+   * Returns a stream that decodes and caches the given data in one pass, or {@code null} if the
+   * data should be written to the disk cache before it's decoded.
+   */
+  @Nullable
+  private DataCacheTeeInputStream startDataCacheTee(Object data) {
+    if (!(data instanceof InputStream)) {
+      return null;
+    }
+    DiskCache diskCache = helper.getDiskCache();
+    if (!(diskCache instanceof DiskCache.StreamingWriter)) {
+      return null;
+    }
+    try {
+      // Other encoders may transform the data, so the cache file wouldn't match the decoded bytes.
+      Encoder<?> encoder = helper.getSourceEncoder(data);
+      if (!(encoder instanceof StreamEncoder)) {
+        return null;
+      }
+    } catch (Registry.NoSourceEncoderAvailableException e) {
+      return null;
+    }
+    DataCacheKey key = new DataCacheKey(loadData.sourceKey, helper.getSignature());
+    DiskCache.StreamingWriter.Edit edit = ((DiskCache.StreamingWriter) diskCache).startEdit(key);
+    if (edit == null) {
+      return null;
+    }
+    DataCacheTeeInputStream result =
+        DataCacheTeeInputStream.obtain((InputStream) data, edit, helper.getArrayPool(), this);
+    if (result != null) {
+      originalKey = key;
+    }
+    return result;
+  }
+
+  @Override
+  public void onDataCacheTeeComplete(boolean isCommitted) {
+    if (Log.isLoggable(TAG, Log.VERBOSE)) {
+      Log.v(TAG, "Finished streaming source to cache"
+          + ", key: " + originalKey
+          + ", committed: " + isCommitted);
+    }
+    completeCoalescedFetch(isCommitted);
+  }
+
+  /**
+   * Passes a raised priority on to the fetcher in progress, if it can be reprioritized.
+   */
+  void setPriority(Priority priority) {
+    LoadData<?> local = loadData;
+    if (local != null && local.fetcher instanceof Reprioritizable) {
+      ((Reprioritizable) local.fetcher).setPriority(priority);
+    }
+  }
+
   @Override
   public void cancel() {
+    isCancelled = true;
+    DataCacheKey key = coalescedKey;
+    if (key != null) {
+      if (coalescer.stopWaiting(key, this)) {
+        // Nothing else will run the cancelled load again, so let it fail now.
+        onWaitEnded();
+      }
+      completeCoalescedFetch(false /*isDataCached*/);
+    }
     LoadData<?> local = loadData;
     if (local != null) {
       local.fetcher.cancel();
@@ -106,13 +285,27 @@ class SourceGenerator implements DataFetcherGenerator,
   public void onDataReady(Object data) {
     //获取缓存策略，判断一下是否可以缓存
     DiskCacheStrategy diskCacheStrategy = helper.getDiskCacheStrategy();
+    if (data != null) {
+      cb.onSourceDataFetched(data, loadData.fetcher.getDataSource(), fetchStartNanos);
+    }
+    DataCacheTeeInputStream tee = null;
     if (data != null && diskCacheStrategy.isDataCacheable(loadData.fetcher.getDataSource())) {
+      tee = startDataCacheTee(data);
+    }
+    if (tee != null) {
+      // The edit is committed or aborted by DecodeJob once the data has been decoded, or aborted
+      // when DecodeJob cleans up the fetcher if the data is never decoded.
+      cb.onDataFetcherReady(loadData.sourceKey, tee, loadData.fetcher,
+          loadData.fetcher.getDataSource(), originalKey);
+    } else if (data != null
+        && diskCacheStrategy.isDataCacheable(loadData.fetcher.getDataSource())) {
       dataToCache = data;
       // We might be being called back on someone else's thread. Before doing anything, we should
       // reschedule to get back onto Glide's thread.
       //可以则调用reschedule()
       cb.reschedule();
     } else {
+      completeCoalescedFetch(false /*isDataCached*/);
       //没有配置缓存策略，走这里，回调到DecodeJob的onDataFetcherReady()
       cb.onDataFetcherReady(loadData.sourceKey, data, loadData.fetcher,
           loadData.fetcher.getDataSource(), originalKey);
@@ -121,6 +314,7 @@ class SourceGenerator implements DataFetcherGenerator,
 
   @Override
   public void onLoadFailed(@NonNull Exception e) {
+    completeCoalescedFetch(false /*isDataCached*/);
     cb.onDataFetcherFailed(originalKey, e, loadData.fetcher, loadData.fetcher.getDataSource());
   }
 
@@ -131,6 +325,12 @@ class SourceGenerator implements DataFetcherGenerator,
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public void onSourceDataFetched(Object data, DataSource dataSource, long fetchStartNanos) {
+    // Only called by SourceGenerator itself, the source cache generator loads from the disk cache.
+    throw new UnsupportedOperationException();
+  }
+
   // Called from source cache generator.
   @Override
   public void onDataFetcherReady(Key sourceKey, Object data, DataFetcher<?> fetcher,
@@ -93,6 +93,56 @@ public final class LruArrayPool implements ArrayPool {
     return getForKey(key, arrayClass);
   }
 
+  /**
+   * Removes up to {@code out.length} pooled arrays of the same length that satisfy
+   * {@link #get(int, Class)}, or {@link #getExact(int, Class)} if {@code exact} is true, while
+   * holding the lock once. If no such array is pooled, a single new array is allocated.
+   *
+   * @return The number of arrays written to the start of {@code out}, always at least one.
+   */
+  synchronized <T> int getBatch(int size, Class<T> arrayClass, boolean exact, Object[] out) {
+    ArrayAdapterInterface<T> arrayAdapter = getAdapterFromType(arrayClass);
+    int count = 0;
+    int length = size;
+    while (count < out.length) {
+      final Key key;
+      Integer possibleSize = null;
+      if (count == 0 && !exact) {
+        possibleSize = getSizesForAdapter(arrayClass).ceilingKey(size);
+      }
+      if (mayFillRequest(size, possibleSize)) {
+        key = keyPool.get(possibleSize, arrayClass);
+      } else {
+        key = keyPool.get(length, arrayClass);
+      }
+      T result = getArrayForKey(key);
+      if (result == null) {
+        break;
+      }
+      length = arrayAdapter.getArrayLength(result);
+      currentSize -= length * arrayAdapter.getElementSizeInBytes();
+      decrementArrayOfSize(length, arrayClass);
+      out[count++] = result;
+    }
+
+    if (count == 0) {
+      if (Log.isLoggable(arrayAdapter.getTag(), Log.VERBOSE)) {
+        Log.v(arrayAdapter.getTag(), "Allocated " + size + " bytes");
+      }
+      out[count++] = arrayAdapter.newArray(size);
+    }
+    return count;
+  }
+
+  /**
+   * Adds the first {@code count} arrays in {@code arrays} to the pool while holding the lock once.
+   */
+  synchronized void putBatch(Object[] arrays, int count) {
+    for (int i = 0; i < count; i++) {
+      put(arrays[i]);
+    }
+  }
+
   private <T> T getForKey(Key key, Class<T> arrayClass) {
     ArrayAdapterInterface<T> arrayAdapter = getAdapterFromType(arrayClass);
     T result = getArrayForKey(key);
@@ -8,7 +8,10 @@ import android.os.Build;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.util.Log;
+import com.bumptech.glide.load.engine.metrics.LoadEventListener;
+import com.bumptech.glide.util.GhostEntries;
 import com.bumptech.glide.util.Synthetic;
+import com.bumptech.glide.util.Util;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
@@ -35,6 +38,10 @@ public class LruBitmapPool implements BitmapPool {
   private int misses;
   private int puts;
   private int evictions;
+  private final GhostEntries ghosts = new GhostEntries();
+  private long ghostHits;
+  @Nullable private volatile LoadEventListener loadEventListener;
+  @Nullable private volatile MissListener missListener;
 
   // Exposed for testing only.
   LruBitmapPool(long maxSize, LruPoolStrategy strategy, Set<Bitmap.Config> allowedConfigs) {
@@ -68,6 +75,22 @@ public class LruBitmapPool implements BitmapPool {
     this(maxSize, getDefaultStrategy(), allowedConfigs);
   }
 
+  /**
+   * Sets a listener that is told whether each requested {@link Bitmap} was reused from this pool,
+   * or {@code null} to stop reporting.
+   */
+  public void setLoadEventListener(@Nullable LoadEventListener loadEventListener) {
+    this.loadEventListener = loadEventListener;
+  }
+
+  /**
+   * Sets a listener that is told the size and config of each requested {@link Bitmap} that
+   * wasn't in this pool, or {@code null} to stop reporting.
+   */
+  public void setMissListener(@Nullable MissListener missListener) {
+    this.missListener = missListener;
+  }
+
   @Override
   public long getMaxSize() {
     return maxSize;
@@ -122,6 +145,7 @@ public class LruBitmapPool implements BitmapPool {
   @NonNull
   public Bitmap get(int width, int height, Bitmap.Config config) {
     Bitmap result = getDirtyOrNull(width, height, config);
+    notifyGet(width, height, config, result != null);
     if (result != null) {
       // Bitmaps in the pool contain random data that in some cases must be cleared for an image
       // to be rendered correctly. we shouldn't force all consumers to independently erase the
@@ -138,19 +162,31 @@ public class LruBitmapPool implements BitmapPool {
   @Override
   public Bitmap getDirty(int width, int height, Bitmap.Config config) {
     Bitmap result = getDirtyOrNull(width, height, config);
+    notifyGet(width, height, config, result != null);
     if (result == null) {
       result = createBitmap(width, height, config);
     }
     return result;
   }
 
+  private void notifyGet(int width, int height, @Nullable Bitmap.Config config, boolean isHit) {
+    LoadEventListener listener = loadEventListener;
+    if (listener != null) {
+      listener.onBitmapPoolGet(width, height, config, isHit);
+    }
+    MissListener localMissListener = missListener;
+    if (!isHit && localMissListener != null) {
+      localMissListener.onMiss(width, height, config != null ? config : DEFAULT_CONFIG);
+    }
+  }
+
   @NonNull
   private static Bitmap createBitmap(int width, int height, @Nullable Bitmap.Config config) {
     return Bitmap.createBitmap(width, height, config != null ? config : DEFAULT_CONFIG);
   }
 
   @TargetApi(Build.VERSION_CODES.O)
-  private static void assertNotHardwareConfig(Bitmap.Config config) {
+  static void assertNotHardwareConfig(Bitmap.Config config) {
     // Avoid short circuiting on sdk int since it breaks on some versions of Android.
     if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
       return;
@@ -175,6 +211,9 @@ public class LruBitmapPool implements BitmapPool {
         Log.d(TAG, "Missing bitmap=" + strategy.logBitmap(width, height, config));
       }
       misses++;
+      if (ghosts.remove(getGhostHash(width, height, config))) {
+        ghostHits++;
+      }
     } else {
       hits++;
       currentSize -= strategy.getSize(result);
@@ -191,7 +230,7 @@ public class LruBitmapPool implements BitmapPool {
 
   // Setting these two values provides Bitmaps that are essentially equivalent to those returned
   // from Bitmap.createBitmap.
-  private static void normalize(Bitmap bitmap) {
+  static void normalize(Bitmap bitmap) {
     bitmap.setHasAlpha(true);
     maybeSetPreMultiplied(bitmap);
   }
@@ -209,6 +248,32 @@ public class LruBitmapPool implements BitmapPool {
       Log.d(TAG, "clearMemory");
     }
     trimToSize(0);
+    // Bitmaps cleared to free memory aren't evidence that the pool is too small.
+    synchronized (this) {
+      ghosts.clear();
+    }
+  }
+
+  /**
+   * Sets the total size in bytes of recently evicted {@link Bitmap}s to remember, so that
+   * {@link #getGhostHitCount()} estimates the hits the pool would gain by growing by that much.
+   * Defaults to {@code 0}, which disables the estimate.
+   */
+  public synchronized void setGhostSize(long size) {
+    ghosts.setMaxSize(size);
+  }
+
+  /**
+   * Returns the number of misses for {@link Bitmap}s with the size and config of one evicted
+   * within the last {@link #setGhostSize(long) ghost size} bytes of evictions.
+   */
+  public synchronized long getGhostHitCount() {
+    return ghostHits;
+  }
+
+  private static int getGhostHash(int width, int height, @Nullable Bitmap.Config config) {
+    Bitmap.Config nonNullConfig = config != null ? config : DEFAULT_CONFIG;
+    return 31 * Util.getBitmapByteSize(width, height, nonNullConfig) + nonNullConfig.ordinal();
   }
 
   @SuppressLint("InlinedApi")
@@ -240,6 +305,8 @@ public class LruBitmapPool implements BitmapPool {
       tracker.remove(removed);
       currentSize -= strategy.getSize(removed);
       evictions++;
+      ghosts.add(getGhostHash(removed.getWidth(), removed.getHeight(), removed.getConfig()),
+          strategy.getSize(removed));
       if (Log.isLoggable(TAG, Log.DEBUG)) {
         Log.d(TAG, "Evicting bitmap=" + strategy.logBitmap(removed));
       }
@@ -259,7 +326,7 @@ public class LruBitmapPool implements BitmapPool {
         + ", currentSize=" + currentSize + ", maxSize=" + maxSize + "\nStrategy=" + strategy);
   }
 
-  private static LruPoolStrategy getDefaultStrategy() {
+  static LruPoolStrategy getDefaultStrategy() {
     final LruPoolStrategy strategy;
     if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
       strategy = new SizeConfigStrategy();
@@ -270,7 +337,7 @@ public class LruBitmapPool implements BitmapPool {
   }
 
   @TargetApi(Build.VERSION_CODES.O)
-  private static Set<Bitmap.Config> getDefaultAllowedConfigs() {
+  static Set<Bitmap.Config> getDefaultAllowedConfigs() {
     Set<Bitmap.Config> configs = new HashSet<>(Arrays.asList(Bitmap.Config.values()));
     if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
       // GIFs, among other types, end up with a native Bitmap config that doesn't map to a java
@@ -284,6 +351,16 @@ public class LruBitmapPool implements BitmapPool {
     return Collections.unmodifiableSet(configs);
   }
 
+  /**
+   * Told about requests for {@link Bitmap}s that weren't in the pool and had to be allocated.
+   */
+  public interface MissListener {
+    /**
+     * Called on the thread that requested the {@link Bitmap}, which may be any thread.
+     */
+    void onMiss(int width, int height, @NonNull Bitmap.Config config);
+  }
+
   private interface BitmapTracker {
     void add(Bitmap bitmap);
 
@@ -0,0 +1,399 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import android.annotation.SuppressLint;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.load.engine.metrics.LoadEventListener;
+import com.bumptech.glide.util.Synthetic;
+import com.bumptech.glide.util.Util;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A {@link BitmapPool} for many concurrent decode threads.
+ *
+ * <p>{@link LruBitmapPool} guards a single {@link LruPoolStrategy} with one lock, so every
+ * {@link #get(int, int, Bitmap.Config)} and {@link #put(Bitmap)} from every decode thread
+ * contends on it. This pool instead splits {@link Bitmap}s into stripes by config and by size
+ * class, the power of two below their byte size, and gives each stripe its own
+ * {@link LruPoolStrategy} and lock. Requests for different configs or very different sizes never
+ * contend.
+ *
+ * <p>The total size of the pool is tracked with atomic counters. When a
+ * {@link #put(Bitmap)} takes the pool over its maximum size, at most one caller at a time evicts,
+ * outside of any stripe's lock, and it evicts down to a low water mark below the maximum so that
+ * the cost of eviction is spread over many subsequent puts. Eviction is least recently used
+ * across stripes and within each stripe's strategy, so it only approximates the order used by
+ * {@link LruBitmapPool}.
+ */
+public class StripedBitmapPool implements BitmapPool {
+  private static final String TAG = "StripedBitmapPool";
+  private static final Bitmap.Config DEFAULT_CONFIG = Bitmap.Config.ARGB_8888;
+  // SizeConfigStrategy will return Bitmaps up to 8 times larger than requested, 3 size classes.
+  private static final int MAX_SIZE_CLASS_DISTANCE = 3;
+  private static final int SIZE_CLASS_COUNT = 32;
+  private static final int CONFIG_GROUP_COUNT = 5;
+  // Evict to 15/16ths of the maximum size so that puts don't evict one Bitmap at a time.
+  private static final int LOW_WATER_MARK_SHIFT = 4;
+
+  private final AtomicReferenceArray<Stripe> stripes =
+      new AtomicReferenceArray<>(CONFIG_GROUP_COUNT * SIZE_CLASS_COUNT);
+  private final AtomicLong currentSize = new AtomicLong();
+  private final AtomicLong accessClock = new AtomicLong();
+  private final AtomicBoolean isEvicting = new AtomicBoolean();
+  private final Set<Bitmap.Config> allowedConfigs;
+  private final boolean isSizeStrategy;
+  private final long initialMaxSize;
+
+  private volatile long maxSize;
+  @Nullable private volatile LoadEventListener loadEventListener;
+
+  /**
+   * Constructor for StripedBitmapPool.
+   *
+   * @param maxSize The initial maximum size of the pool in bytes.
+   */
+  public StripedBitmapPool(long maxSize) {
+    this(maxSize, LruBitmapPool.getDefaultAllowedConfigs());
+  }
+
+  /**
+   * Constructor for StripedBitmapPool.
+   *
+   * @param maxSize        The initial maximum size of the pool in bytes.
+   * @param allowedConfigs A white listed set of {@link android.graphics.Bitmap.Config} that are
+   *                       allowed to be put into the pool. Configs not in the allowed set will be
+   *                       rejected.
+   */
+  public StripedBitmapPool(long maxSize, Set<Bitmap.Config> allowedConfigs) {
+    this.initialMaxSize = maxSize;
+    this.maxSize = maxSize;
+    this.allowedConfigs = allowedConfigs;
+    this.isSizeStrategy = Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT;
+  }
+
+  /**
+   * Sets a listener that is told whether each requested {@link Bitmap} was reused from this pool,
+   * or {@code null} to stop reporting.
+   */
+  public void setLoadEventListener(@Nullable LoadEventListener loadEventListener) {
+    this.loadEventListener = loadEventListener;
+  }
+
+  @Override
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  /** Returns the sum of the sizes of all {@link Bitmap}s in the pool. */
+  public long getCurrentSize() {
+    return currentSize.get();
+  }
+
+  /** Returns the number of calls to get or getDirty that were satisfied from the pool. */
+  public long getHitCount() {
+    long result = 0;
+    for (int i = 0; i < stripes.length(); i++) {
+      Stripe stripe = stripes.get(i);
+      if (stripe != null) {
+        synchronized (stripe) {
+          result += stripe.hits;
+        }
+      }
+    }
+    return result;
+  }
+
+  /** Returns the number of calls to get or getDirty that had to allocate a new {@link Bitmap}. */
+  public long getMissCount() {
+    long result = 0;
+    for (int i = 0; i < stripes.length(); i++) {
+      Stripe stripe = stripes.get(i);
+      if (stripe != null) {
+        synchronized (stripe) {
+          result += stripe.misses;
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public void setSizeMultiplier(float sizeMultiplier) {
+    maxSize = Math.round(initialMaxSize * sizeMultiplier);
+    trimToSize(maxSize);
+  }
+
+  @Override
+  public void put(Bitmap bitmap) {
+    if (bitmap == null) {
+      throw new NullPointerException("Bitmap must not be null");
+    }
+    if (bitmap.isRecycled()) {
+      throw new IllegalStateException("Cannot pool recycled bitmap");
+    }
+    int size = Util.getBitmapByteSize(bitmap);
+    if (!bitmap.isMutable() || size > maxSize || !allowedConfigs.contains(bitmap.getConfig())) {
+      if (Log.isLoggable(TAG, Log.VERBOSE)) {
+        Log.v(TAG, "Reject bitmap from pool"
+                + ", bitmap: " + size + "(" + bitmap.getConfig() + ")"
+                + ", is mutable: " + bitmap.isMutable()
+                + ", is allowed config: " + allowedConfigs.contains(bitmap.getConfig()));
+      }
+      bitmap.recycle();
+      return;
+    }
+
+    Stripe stripe = getOrCreateStripe(getStripeIndex(bitmap.getConfig(), size));
+    synchronized (stripe) {
+      stripe.strategy.put(bitmap);
+      stripe.size += size;
+    }
+    if (currentSize.addAndGet(size) > maxSize) {
+      evict();
+    }
+  }
+
+  /**
+   * Evicts down to the low water mark if no other thread is already evicting. Puts that race with
+   * an eviction may briefly leave the pool over its maximum size, which the next put corrects.
+   */
+  private void evict() {
+    while (currentSize.get() > maxSize && isEvicting.compareAndSet(false, true)) {
+      try {
+        long size = maxSize;
+        trimToSize(size - (size >> LOW_WATER_MARK_SHIFT));
+      } finally {
+        isEvicting.set(false);
+      }
+    }
+  }
+
+  @Override
+  @NonNull
+  public Bitmap get(int width, int height, Bitmap.Config config) {
+    Bitmap result = getDirtyOrNull(width, height, config);
+    notifyGet(width, height, config, result != null);
+    if (result != null) {
+      // Bitmaps in the pool contain random data that in some cases must be cleared for an image
+      // to be rendered correctly. See LruBitmapPool#get.
+      result.eraseColor(Color.TRANSPARENT);
+    } else {
+      result = createBitmap(width, height, config);
+    }
+    return result;
+  }
+
+  @NonNull
+  @Override
+  public Bitmap getDirty(int width, int height, Bitmap.Config config) {
+    Bitmap result = getDirtyOrNull(width, height, config);
+    notifyGet(width, height, config, result != null);
+    if (result == null) {
+      result = createBitmap(width, height, config);
+    }
+    return result;
+  }
+
+  private void notifyGet(int width, int height, @Nullable Bitmap.Config config, boolean isHit) {
+    LoadEventListener listener = loadEventListener;
+    if (listener != null) {
+      listener.onBitmapPoolGet(width, height, config, isHit);
+    }
+  }
+
+  @NonNull
+  private static Bitmap createBitmap(int width, int height, @Nullable Bitmap.Config config) {
+    return Bitmap.createBitmap(width, height, config != null ? config : DEFAULT_CONFIG);
+  }
+
+  @Nullable
+  private Bitmap getDirtyOrNull(int width, int height, @Nullable Bitmap.Config config) {
+    LruBitmapPool.assertNotHardwareConfig(config);
+    // Config will be null for non public config types, see LruBitmapPool#getDirtyOrNull.
+    Bitmap.Config requestedConfig = config != null ? config : DEFAULT_CONFIG;
+    int size = Util.getBitmapByteSize(width, height, requestedConfig);
+    int configGroup = getConfigGroup(requestedConfig);
+    int sizeClass = getSizeClass(size);
+    int maxSizeClass = isSizeStrategy
+        ? Math.min(SIZE_CLASS_COUNT - 1, sizeClass + MAX_SIZE_CLASS_DISTANCE) : sizeClass;
+    long accessTime = accessClock.incrementAndGet();
+
+    Bitmap result = null;
+    for (int i = sizeClass; i <= maxSizeClass && result == null; i++) {
+      Stripe stripe = stripes.get(configGroup * SIZE_CLASS_COUNT + i);
+      if (stripe == null) {
+        continue;
+      }
+      synchronized (stripe) {
+        stripe.lastAccessTime = accessTime;
+        if (stripe.size == 0) {
+          continue;
+        }
+        result = stripe.strategy.get(width, height, requestedConfig);
+        if (result != null) {
+          // Reconfiguring doesn't change the allocation size the Bitmap was added with.
+          int removedSize = stripe.strategy.getSize(result);
+          stripe.size -= removedSize;
+          stripe.hits++;
+          currentSize.addAndGet(-removedSize);
+        }
+      }
+    }
+
+    if (result == null) {
+      Stripe stripe = getOrCreateStripe(configGroup * SIZE_CLASS_COUNT + sizeClass);
+      synchronized (stripe) {
+        stripe.misses++;
+      }
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Missing bitmap=" + size + "(" + config + ")");
+      }
+    } else {
+      LruBitmapPool.normalize(result);
+    }
+    return result;
+  }
+
+  @Override
+  public void clearMemory() {
+    if (Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, "clearMemory");
+    }
+    trimToSize(0);
+  }
+
+  @SuppressLint("InlinedApi")
+  @Override
+  public void trimMemory(int level) {
+    if (Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, "trimMemory, level=" + level);
+    }
+    if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+      clearMemory();
+    } else if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+        || level == android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+      trimToSize(getMaxSize() / 2);
+    }
+  }
+
+  /**
+   * Evicts from the least recently accessed stripes until the pool is no larger than the given
+   * size. Each removal holds only its stripe's lock, and Bitmaps are recycled without any lock.
+   */
+  private void trimToSize(long size) {
+    while (currentSize.get() > size) {
+      Stripe victim = findLeastRecentlyUsedStripe();
+      if (victim == null) {
+        return;
+      }
+      Bitmap removed;
+      synchronized (victim) {
+        removed = victim.strategy.removeLast();
+        if (removed == null) {
+          // The stripe's size doesn't match its strategy, see LruBitmapPool#trimToSize.
+          if (Log.isLoggable(TAG, Log.WARN)) {
+            Log.w(TAG, "Size mismatch, resetting stripe");
+          }
+          currentSize.addAndGet(-victim.size);
+          victim.size = 0;
+          continue;
+        }
+        int removedSize = victim.strategy.getSize(removed);
+        victim.size -= removedSize;
+        currentSize.addAndGet(-removedSize);
+      }
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Evicting bitmap=" + removed.getByteCount() + "(" + removed.getConfig() + ")");
+      }
+      removed.recycle();
+    }
+  }
+
+  @Nullable
+  private Stripe findLeastRecentlyUsedStripe() {
+    Stripe result = null;
+    long resultAccessTime = Long.MAX_VALUE;
+    for (int i = 0; i < stripes.length(); i++) {
+      Stripe stripe = stripes.get(i);
+      if (stripe != null) {
+        synchronized (stripe) {
+          if (stripe.size > 0 && stripe.lastAccessTime < resultAccessTime) {
+            result = stripe;
+            resultAccessTime = stripe.lastAccessTime;
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  private Stripe getOrCreateStripe(int index) {
+    Stripe result = stripes.get(index);
+    if (result == null) {
+      Stripe created = new Stripe(LruBitmapPool.getDefaultStrategy());
+      if (stripes.compareAndSet(index, null, created)) {
+        result = created;
+      } else {
+        result = stripes.get(index);
+      }
+    }
+    return result;
+  }
+
+  private static int getStripeIndex(@Nullable Bitmap.Config config, int size) {
+    return getConfigGroup(config) * SIZE_CLASS_COUNT + getSizeClass(size);
+  }
+
+  private static int getSizeClass(int size) {
+    return size <= 0 ? 0 : 31 - Integer.numberOfLeadingZeros(size);
+  }
+
+  /**
+   * Groups configs that {@link SizeConfigStrategy} allows to be reused for each other, so that a
+   * request only ever has to look in one config group.
+   */
+  private static int getConfigGroup(@Nullable Bitmap.Config config) {
+    if (config == null) {
+      return 0;
+    }
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+      if (Bitmap.Config.RGBA_F16.equals(config)) { // NOPMD - Avoid short circuiting sdk checks.
+        return 0;
+      }
+    }
+    switch (config) {
+      case ARGB_8888:
+        return 0;
+      case RGB_565:
+        return 1;
+      case ARGB_4444:
+        return 2;
+      case ALPHA_8:
+        return 3;
+      default:
+        return 4;
+    }
+  }
+
+  /**
+   * A strategy and its bookkeeping, guarded by the stripe's monitor.
+   */
+  private static final class Stripe {
+    @Synthetic final LruPoolStrategy strategy;
+    @Synthetic long size;
+    @Synthetic long lastAccessTime;
+    @Synthetic long hits;
+    @Synthetic long misses;
+
+    Stripe(LruPoolStrategy strategy) {
+      this.strategy = strategy;
+    }
+  }
+}
@@ -0,0 +1,367 @@
+package com.bumptech.glide.load.engine.bitmap_recycle;
+
+import com.bumptech.glide.util.Synthetic;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * An {@link ArrayPool} that keeps a small cache of arrays per thread in front of a shared
+ * {@link LruArrayPool}, so that most requests don't take the shared pool's lock.
+ *
+ * <p>Each thread has a few magazines, each holding up to {@link #MAGAZINE_CAPACITY} arrays of
+ * one type and length. Requests are served from the calling thread's magazines when they can be.
+ * Otherwise a batch of arrays of the best fitting length is taken from the shared pool at once, one
+ * is returned and the rest are kept in a magazine. When a magazine is full, half of it is
+ * returned to the shared pool at once. The bytes held by any one thread are capped at
+ * {@link #MAX_THREAD_CACHE_BYTES}, arrays that don't fit go straight to the shared pool.
+ *
+ * <p>{@link #clearMemory()} and {@link #trimMemory(int)} can't reach into other threads, so they
+ * invalidate every thread's magazines and each thread drops its arrays the next time it uses the
+ * pool.
+ */
+public final class ThreadCachingArrayPool implements ArrayPool {
+  /** The maximum number of arrays in a single magazine. */
+  public static final int MAGAZINE_CAPACITY = 4;
+  /** The maximum number of bytes a single thread holds in its magazines. */
+  public static final int MAX_THREAD_CACHE_BYTES = 4 * STANDARD_BUFFER_SIZE_BYTES;
+  private static final int MAGAZINES_PER_THREAD = 4;
+  private static final int BATCH_SIZE = MAGAZINE_CAPACITY / 2;
+
+  private final LruArrayPool sharedPool;
+  private final ThreadLocal<ThreadCache> threadCaches = new ThreadLocal<ThreadCache>() {
+    @Override
+    protected ThreadCache initialValue() {
+      return registerThreadCache();
+    }
+  };
+  private final List<ThreadCache> registeredCaches = new ArrayList<>();
+
+  private volatile int generation;
+  // Counts from threads that have since died, guarded by registeredCaches.
+  private long retiredLocalHits;
+  private long retiredSharedRequests;
+  private long retiredLocalPuts;
+  private long retiredSharedPuts;
+
+  /**
+   * Constructor for ThreadCachingArrayPool.
+   *
+   * @param sharedPool The pool that backs every thread's cache.
+   */
+  public ThreadCachingArrayPool(LruArrayPool sharedPool) {
+    this.sharedPool = sharedPool;
+  }
+
+  @Deprecated
+  @Override
+  public <T> void put(T array, Class<T> arrayClass) {
+    put(array);
+  }
+
+  @Override
+  public <T> void put(T array) {
+    ThreadCache cache = getThreadCache();
+    if (cache.offer(array)) {
+      cache.localPuts++;
+    } else {
+      cache.sharedPuts++;
+      sharedPool.put(array);
+    }
+  }
+
+  @Override
+  public <T> T get(int size, Class<T> arrayClass) {
+    return get(size, arrayClass, false /*exact*/);
+  }
+
+  @Override
+  public <T> T getExact(int size, Class<T> arrayClass) {
+    return get(size, arrayClass, true /*exact*/);
+  }
+
+  private <T> T get(int size, Class<T> arrayClass, boolean exact) {
+    ThreadCache cache = getThreadCache();
+    int maxLength =
+        exact ? size : (int) Math.min(Integer.MAX_VALUE,
+            (long) size * LruArrayPool.MAX_OVER_SIZE_MULTIPLE);
+    Magazine magazine = cache.find(arrayClass, size, maxLength);
+    if (magazine != null) {
+      cache.localHits++;
+      return arrayClass.cast(cache.pop(magazine));
+    }
+
+    cache.sharedRequests++;
+    Object[] batch = cache.batch;
+    int count = sharedPool.getBatch(size, arrayClass, exact, batch);
+    T result = arrayClass.cast(batch[0]);
+    batch[0] = null;
+    for (int i = 1; i < count; i++) {
+      Object array = batch[i];
+      batch[i] = null;
+      if (!cache.offer(array)) {
+        sharedPool.put(array);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public void clearMemory() {
+    generation++;
+    sharedPool.clearMemory();
+  }
+
+  @Override
+  public void trimMemory(int level) {
+    generation++;
+    sharedPool.trimMemory(level);
+  }
+
+  /** Returns the number of get requests served from the calling threads' own caches. */
+  public long getLocalHitCount() {
+    synchronized (registeredCaches) {
+      long result = retiredLocalHits;
+      for (ThreadCache cache : registeredCaches) {
+        result += cache.localHits;
+      }
+      return result;
+    }
+  }
+
+  /** Returns the number of get requests that had to go to the shared pool. */
+  public long getSharedRequestCount() {
+    synchronized (registeredCaches) {
+      long result = retiredSharedRequests;
+      for (ThreadCache cache : registeredCaches) {
+        result += cache.sharedRequests;
+      }
+      return result;
+    }
+  }
+
+  /** Returns the number of arrays put into the calling threads' own caches. */
+  public long getLocalPutCount() {
+    synchronized (registeredCaches) {
+      long result = retiredLocalPuts;
+      for (ThreadCache cache : registeredCaches) {
+        result += cache.localPuts;
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Returns the number of arrays returned to the shared pool, either directly or flushed in
+   * batches from a full thread cache.
+   */
+  public long getSharedPutCount() {
+    synchronized (registeredCaches) {
+      long result = retiredSharedPuts;
+      for (ThreadCache cache : registeredCaches) {
+        result += cache.sharedPuts;
+      }
+      return result;
+    }
+  }
+
+  private ThreadCache getThreadCache() {
+    ThreadCache cache = threadCaches.get();
+    int currentGeneration = generation;
+    if (cache.generation != currentGeneration) {
+      cache.discard();
+      cache.generation = currentGeneration;
+    }
+    return cache;
+  }
+
+  @Synthetic
+  ThreadCache registerThreadCache() {
+    ThreadCache result = new ThreadCache(Thread.currentThread(), generation);
+    synchronized (registeredCaches) {
+      // Fold the counts of threads that have died into the totals so the list stays bounded.
+      Iterator<ThreadCache> iterator = registeredCaches.iterator();
+      while (iterator.hasNext()) {
+        ThreadCache cache = iterator.next();
+        if (cache.thread.get() == null) {
+          retiredLocalHits += cache.localHits;
+          retiredSharedRequests += cache.sharedRequests;
+          retiredLocalPuts += cache.localPuts;
+          retiredSharedPuts += cache.sharedPuts;
+          iterator.remove();
+        }
+      }
+      registeredCaches.add(result);
+    }
+    return result;
+  }
+
+  private static int getLength(Object array) {
+    if (array instanceof byte[]) {
+      return ((byte[]) array).length;
+    } else if (array instanceof int[]) {
+      return ((int[]) array).length;
+    }
+    throw new IllegalArgumentException("No array pool found for: "
+        + array.getClass().getSimpleName());
+  }
+
+  private static int getElementSizeInBytes(Class<?> arrayClass) {
+    return arrayClass.equals(int[].class) ? 4 : 1;
+  }
+
+  /**
+   * One thread's magazines. Only the owning thread touches the arrays, the counters are read by
+   * other threads for statistics only.
+   */
+  private final class ThreadCache {
+    @Synthetic final WeakReference<Thread> thread;
+    @Synthetic final Object[] batch = new Object[BATCH_SIZE + 1];
+    private final Magazine[] magazines = new Magazine[MAGAZINES_PER_THREAD];
+    @Synthetic int generation;
+    @Synthetic int bytes;
+    private long useClock;
+
+    @Synthetic volatile long localHits;
+    @Synthetic volatile long sharedRequests;
+    @Synthetic volatile long localPuts;
+    @Synthetic volatile long sharedPuts;
+
+    ThreadCache(Thread thread, int generation) {
+      this.thread = new WeakReference<>(thread);
+      this.generation = generation;
+      for (int i = 0; i < magazines.length; i++) {
+        magazines[i] = new Magazine();
+      }
+    }
+
+    /**
+     * Adds the array to its magazine, flushing to the shared pool as needed to make room, or
+     * returns false if the array is too large to be cached by a single thread.
+     */
+    boolean offer(Object array) {
+      int length = getLength(array);
+      int arrayBytes = length * getElementSizeInBytes(array.getClass());
+      if (arrayBytes > MAX_THREAD_CACHE_BYTES - bytes && !flushFor(arrayBytes)) {
+        return false;
+      }
+      Magazine magazine = getOrCreate(array.getClass(), length);
+      if (magazine.count == MAGAZINE_CAPACITY) {
+        flush(magazine, BATCH_SIZE);
+      }
+      magazine.arrays[magazine.count++] = array;
+      bytes += arrayBytes;
+      return true;
+    }
+
+    /**
+     * Returns the non-empty magazine of the given type with the smallest length between the
+     * given bounds, or null.
+     */
+    Magazine find(Class<?> arrayClass, int minLength, int maxLength) {
+      Magazine result = null;
+      for (Magazine magazine : magazines) {
+        if (magazine.count > 0
+            && magazine.arrayClass == arrayClass
+            && magazine.length >= minLength
+            && magazine.length <= maxLength
+            && (result == null || magazine.length < result.length)) {
+          result = magazine;
+        }
+      }
+      if (result != null) {
+        result.lastUsed = ++useClock;
+      }
+      return result;
+    }
+
+    /**
+     * Returns the magazine for the given type and length, taking over the least recently used
+     * magazine and returning its arrays to the shared pool if there isn't one.
+     */
+    Magazine getOrCreate(Class<?> arrayClass, int length) {
+      Magazine leastRecentlyUsed = null;
+      for (Magazine magazine : magazines) {
+        if (magazine.arrayClass == arrayClass && magazine.length == length) {
+          magazine.lastUsed = ++useClock;
+          return magazine;
+        }
+        if (leastRecentlyUsed == null || magazine.count == 0
+            || (leastRecentlyUsed.count > 0 && magazine.lastUsed < leastRecentlyUsed.lastUsed)) {
+          leastRecentlyUsed = magazine;
+        }
+      }
+      flush(leastRecentlyUsed, leastRecentlyUsed.count);
+      leastRecentlyUsed.arrayClass = arrayClass;
+      leastRecentlyUsed.length = length;
+      leastRecentlyUsed.lastUsed = ++useClock;
+      return leastRecentlyUsed;
+    }
+
+    Object pop(Magazine magazine) {
+      Object result = magazine.arrays[--magazine.count];
+      magazine.arrays[magazine.count] = null;
+      bytes -= magazine.length * getElementSizeInBytes(magazine.arrayClass);
+      return result;
+    }
+
+    /**
+     * Flushes least recently used magazines until {@code arrayBytes} more fit in this cache,
+     * returning false if they can't fit even in an empty cache.
+     */
+    boolean flushFor(int arrayBytes) {
+      if (arrayBytes > MAX_THREAD_CACHE_BYTES) {
+        return false;
+      }
+      while (arrayBytes > MAX_THREAD_CACHE_BYTES - bytes) {
+        Magazine leastRecentlyUsed = null;
+        for (Magazine magazine : magazines) {
+          if (magazine.count > 0
+              && (leastRecentlyUsed == null || magazine.lastUsed < leastRecentlyUsed.lastUsed)) {
+            leastRecentlyUsed = magazine;
+          }
+        }
+        flush(leastRecentlyUsed, leastRecentlyUsed.count);
+      }
+      return true;
+    }
+
+    /** Returns the oldest {@code count} arrays in the magazine to the shared pool at once. */
+    void flush(Magazine magazine, int count) {
+      if (count == 0) {
+        return;
+      }
+      sharedPool.putBatch(magazine.arrays, count);
+      System.arraycopy(magazine.arrays, count, magazine.arrays, 0, magazine.count - count);
+      for (int i = magazine.count - count; i < magazine.count; i++) {
+        magazine.arrays[i] = null;
+      }
+      magazine.count -= count;
+      bytes -= count * magazine.length * getElementSizeInBytes(magazine.arrayClass);
+      sharedPuts += count;
+    }
+
+    /** Drops every array without returning them to the shared pool. */
+    void discard() {
+      for (Magazine magazine : magazines) {
+        for (int i = 0; i < magazine.count; i++) {
+          magazine.arrays[i] = null;
+        }
+        magazine.count = 0;
+      }
+      bytes = 0;
+    }
+  }
+
+  private static final class Magazine {
+    @Synthetic final Object[] arrays = new Object[MAGAZINE_CAPACITY];
+    @Synthetic Class<?> arrayClass;
+    @Synthetic int length;
+    @Synthetic int count;
+    @Synthetic long lastUsed;
+
+    @Synthetic
+    Magazine() { }
+  }
+}
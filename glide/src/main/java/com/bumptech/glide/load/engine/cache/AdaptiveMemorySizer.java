@@ -0,0 +1,213 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.util.Preconditions;
+import com.bumptech.glide.util.Synthetic;
+import com.bumptech.glide.util.Util;
+
+/**
+ * Periodically moves memory between an {@link LruResourceCache} and an {@link LruBitmapPool},
+ * keeping their combined size within the sizes they were created with.
+ *
+ * <p>Each structure remembers the entries it evicted in its last step's worth of memory, see
+ * {@link LruResourceCache#setGhostSize(long)}. A miss for one of those is a hit the structure
+ * would have had if it were one step larger. Every interval, a step moves to whichever structure
+ * would have saved more work, counting a memory cache hit, which saves a decode, as worth
+ * {@link #CACHE_HIT_WEIGHT} bitmap pool hits, which only save an allocation. Neither structure
+ * shrinks below {@link #MIN_SHARE} of the total.
+ *
+ * <p>Before Android O, {@link android.graphics.Bitmap}s are allocated on the Java heap, so the
+ * total is also reduced while the heap is nearly full and restored once there's room again.
+ *
+ * <p>Sizes are adjusted on the main thread. The sizes are scaled by
+ * {@link #setSizeMultiplier(float)}, which replaces calls to the structures' own
+ * {@code setSizeMultiplier} methods while this class is in use.
+ */
+public final class AdaptiveMemorySizer {
+  private static final String TAG = "AdaptiveMemorySizer";
+  /** The default time between adjustments. */
+  public static final long DEFAULT_INTERVAL_MILLIS = 5000;
+  @VisibleForTesting
+  static final int CACHE_HIT_WEIGHT = 4;
+  @VisibleForTesting
+  static final float MIN_SHARE = 0.2f;
+  // The fraction of the total moved per adjustment, and the size of each structure's ghosts.
+  private static final float STEP_FRACTION = 0.1f;
+  // Fewer weighted ghost hits than this per interval aren't worth moving memory for.
+  private static final int MIN_GHOST_HITS = 4;
+  // Below this fraction of free Java heap the total shrinks, above twice this it grows back.
+  private static final float LOW_HEAP_HEADROOM = 0.1f;
+  private static final float MIN_HEAP_MULTIPLIER = 0.5f;
+
+  private final LruResourceCache memoryCache;
+  private final LruBitmapPool bitmapPool;
+  private final long initialMemoryCacheSize;
+  private final long initialBitmapPoolSize;
+  private final long totalSize;
+  private final long stepSize;
+  private final long intervalMillis;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Runnable adjustRunnable = new Runnable() {
+    @Override
+    public void run() {
+      adjust();
+    }
+  };
+
+  private long memoryCacheSize;
+  private float sizeMultiplier = 1f;
+  private float heapMultiplier = 1f;
+  private long lastCacheGhostHits;
+  private long lastPoolGhostHits;
+  private boolean isStarted;
+
+  /**
+   * @param memoryCache A memory cache at its initial size.
+   * @param bitmapPool  A bitmap pool at its initial size.
+   */
+  public AdaptiveMemorySizer(@NonNull LruResourceCache memoryCache,
+      @NonNull LruBitmapPool bitmapPool) {
+    this(memoryCache, bitmapPool, DEFAULT_INTERVAL_MILLIS);
+  }
+
+  /**
+   * @param memoryCache    A memory cache at its initial size.
+   * @param bitmapPool     A bitmap pool at its initial size.
+   * @param intervalMillis The time between adjustments.
+   */
+  public AdaptiveMemorySizer(@NonNull LruResourceCache memoryCache,
+      @NonNull LruBitmapPool bitmapPool, long intervalMillis) {
+    Preconditions.checkArgument(intervalMillis > 0, "intervalMillis must be > 0");
+    this.memoryCache = Preconditions.checkNotNull(memoryCache);
+    this.bitmapPool = Preconditions.checkNotNull(bitmapPool);
+    this.intervalMillis = intervalMillis;
+    initialMemoryCacheSize = memoryCache.getMaxSize();
+    initialBitmapPoolSize = bitmapPool.getMaxSize();
+    totalSize = initialMemoryCacheSize + initialBitmapPoolSize;
+    stepSize = (long) (totalSize * STEP_FRACTION);
+    memoryCacheSize = initialMemoryCacheSize;
+  }
+
+  /**
+   * Starts adjusting sizes every interval, may be called on any thread.
+   */
+  public synchronized void start() {
+    if (isStarted || initialMemoryCacheSize == 0 || initialBitmapPoolSize == 0) {
+      return;
+    }
+    isStarted = true;
+    memoryCache.setGhostSize(stepSize);
+    bitmapPool.setGhostSize(stepSize);
+    lastCacheGhostHits = memoryCache.getGhostHitCount();
+    lastPoolGhostHits = bitmapPool.getGhostHitCount();
+    handler.postDelayed(adjustRunnable, intervalMillis);
+  }
+
+  /**
+   * Stops adjusting sizes, the current sizes are kept. May be called on any thread.
+   */
+  public synchronized void stop() {
+    if (!isStarted) {
+      return;
+    }
+    isStarted = false;
+    handler.removeCallbacks(adjustRunnable);
+    memoryCache.setGhostSize(0);
+    bitmapPool.setGhostSize(0);
+  }
+
+  /**
+   * Scales the combined size of the memory cache and bitmap pool, for example by a
+   * {@link com.bumptech.glide.MemoryCategory}'s multiplier.
+   */
+  public synchronized void setSizeMultiplier(float multiplier) {
+    Util.assertMainThread();
+    Preconditions.checkArgument(multiplier >= 0, "Multiplier must be >= 0");
+    sizeMultiplier = multiplier;
+    apply();
+  }
+
+  /**
+   * Returns the current maximum size of the memory cache before the size multiplier, which is
+   * the total less the bitmap pool's share.
+   */
+  public synchronized long getMemoryCacheSize() {
+    return memoryCacheSize;
+  }
+
+  @Synthetic
+  synchronized void adjust() {
+    // Checked under the lock, stop may have been called on another thread after this was posted.
+    if (!isStarted) {
+      return;
+    }
+    handler.postDelayed(adjustRunnable, intervalMillis);
+
+    long cacheGhostHits = memoryCache.getGhostHitCount();
+    long poolGhostHits = bitmapPool.getGhostHitCount();
+    long cacheBenefit = (cacheGhostHits - lastCacheGhostHits) * CACHE_HIT_WEIGHT;
+    long poolBenefit = poolGhostHits - lastPoolGhostHits;
+    lastCacheGhostHits = cacheGhostHits;
+    lastPoolGhostHits = poolGhostHits;
+
+    long minSize = (long) (totalSize * MIN_SHARE);
+    long targetCacheSize = memoryCacheSize;
+    if (cacheBenefit > poolBenefit && cacheBenefit >= MIN_GHOST_HITS) {
+      targetCacheSize += stepSize;
+    } else if (poolBenefit > cacheBenefit && poolBenefit >= MIN_GHOST_HITS) {
+      targetCacheSize -= stepSize;
+    }
+    targetCacheSize = Math.max(minSize, Math.min(totalSize - minSize, targetCacheSize));
+
+    float targetHeapMultiplier = getTargetHeapMultiplier();
+    if (targetCacheSize == memoryCacheSize && targetHeapMultiplier == heapMultiplier) {
+      return;
+    }
+    memoryCacheSize = targetCacheSize;
+    heapMultiplier = targetHeapMultiplier;
+    if (Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, "Resized, memory cache: " + memoryCacheSize
+          + ", bitmap pool: " + (totalSize - memoryCacheSize)
+          + ", heap multiplier: " + heapMultiplier
+          + ", weighted ghost hits, memory cache: " + cacheBenefit
+          + ", bitmap pool: " + poolBenefit);
+    }
+    apply();
+  }
+
+  private float getTargetHeapMultiplier() {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+      // Bitmaps are allocated natively, trimMemory callbacks already cover memory pressure.
+      return 1f;
+    }
+    Runtime runtime = Runtime.getRuntime();
+    long maxMemory = runtime.maxMemory();
+    long freeMemory = maxMemory - (runtime.totalMemory() - runtime.freeMemory());
+    float headroom = (float) freeMemory / maxMemory;
+    if (headroom < LOW_HEAP_HEADROOM) {
+      return Math.max(MIN_HEAP_MULTIPLIER, heapMultiplier - STEP_FRACTION);
+    } else if (headroom > 2 * LOW_HEAP_HEADROOM) {
+      return Math.min(1f, heapMultiplier + STEP_FRACTION);
+    }
+    return heapMultiplier;
+  }
+
+  private void apply() {
+    if (initialMemoryCacheSize == 0 || initialBitmapPoolSize == 0) {
+      memoryCache.setSizeMultiplier(sizeMultiplier);
+      bitmapPool.setSizeMultiplier(sizeMultiplier);
+      return;
+    }
+    float multiplier = sizeMultiplier * heapMultiplier;
+    // memory cache needs to be trimmed before bitmap pool to trim re-pooled Bitmaps too. See #687.
+    memoryCache.setSizeMultiplier(multiplier * memoryCacheSize / initialMemoryCacheSize);
+    bitmapPool.setSizeMultiplier(
+        multiplier * (totalSize - memoryCacheSize) / initialBitmapPoolSize);
+  }
+}
@@ -4,6 +4,7 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import com.bumptech.glide.load.Key;
 import java.io.File;
+import java.nio.ByteBuffer;
 
 /**
  * An interface for writing to and reading from a disk cache.
@@ -36,6 +37,61 @@ public interface DiskCache {
     boolean write(@NonNull File file);
   }
 
+  /**
+   * Optionally implemented by {@link DiskCache}s that can hand back the contents of an entry as a
+   * read only, memory mapped {@link ByteBuffer}.
+   *
+   * <p>Disk cache hits are then decoded straight from the mapping, without looking up and
+   * building {@link com.bumptech.glide.load.model.ModelLoader}s for the entry's {@link File}.
+   */
+  interface MappedReader {
+    /**
+     * Returns a read only buffer mapping the given value, or {@code null} if it can't be mapped.
+     *
+     * <p>The mapping remains valid even if the entry is evicted or overwritten afterwards.
+     *
+     * @param file A value returned by {@link DiskCache#get(Key)}, so that hits are looked up once.
+     */
+    @Nullable
+    ByteBuffer map(@NonNull File file);
+  }
+
+  /**
+   * Optionally implemented by {@link DiskCache}s that can keep an entry open for writing while its
+   * data is produced elsewhere, for example while it's being read from the network and decoded.
+   *
+   * <p>Unlike {@link #put(Key, Writer)}, the write may span threads and any amount of time, so
+   * callers must always either commit or abort the {@link Edit}.
+   */
+  interface StreamingWriter {
+    /**
+     * Returns an edit for the value at the given key, or {@code null} if the key already has a
+     * value, is being written or can't be written.
+     *
+     * @param key The key to write to.
+     */
+    @Nullable
+    Edit startEdit(Key key);
+
+    /**
+     * An in progress write to a single key.
+     */
+    interface Edit {
+      /** Returns the file to write the value to. */
+      @NonNull
+      File getFile();
+
+      /**
+       * Makes the data written to the file the value for the key, returning {@code true} if it
+       * was committed.
+       */
+      boolean commit();
+
+      /** Discards the data written to the file unless the edit has already been committed. */
+      void abortUnlessCommitted();
+    }
+  }
+
   /**
    * Get the cache for the value at the given key.
    *
@@ -1,5 +1,7 @@
 package com.bumptech.glide.load.engine.cache;
 
+import com.bumptech.glide.disklrucache.JournalOptions;
+import com.bumptech.glide.util.Preconditions;
 import java.io.File;
 
 /**
@@ -13,6 +15,9 @@ import java.io.File;
 @SuppressWarnings("unused")
 public class DiskLruCacheFactory implements DiskCache.Factory {
   private final long diskCacheSize;
+  private final int segmentCount;
+  private final JournalOptions journalOptions;
+  private final SafeKeyStrategy keyStrategy;
   private final CacheDirectoryGetter cacheDirectoryGetter;
 
   /**
@@ -51,7 +56,69 @@ public class DiskLruCacheFactory implements DiskCache.Factory {
   // Public API.
   @SuppressWarnings("WeakerAccess")
   public DiskLruCacheFactory(CacheDirectoryGetter cacheDirectoryGetter, long diskCacheSize) {
+    this(cacheDirectoryGetter, diskCacheSize, DiskLruCacheWrapper.DEFAULT_SEGMENT_COUNT);
+  }
+
+  /**
+   * Creates a factory for a disk cache that is split into {@code segmentCount} independently
+   * locked segments, each with its own journal and an equal share of {@code diskCacheSize}.
+   *
+   * <p>Use more than one segment when several threads read from the disk cache concurrently, cache
+   * hits on keys in different segments never contend.
+   *
+   * @param cacheDirectoryGetter Interface called out of UI thread to get the cache folder.
+   * @param diskCacheSize        Desired max bytes size for the LRU disk cache.
+   * @param segmentCount         The number of segments, {@code 1} uses a single journal.
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public DiskLruCacheFactory(CacheDirectoryGetter cacheDirectoryGetter, long diskCacheSize,
+      int segmentCount) {
+    this(cacheDirectoryGetter, diskCacheSize, segmentCount, JournalOptions.DEFAULT);
+  }
+
+  /**
+   * Creates a factory for a segmented disk cache whose journals are written according to {@code
+   * journalOptions}.
+   *
+   * @param cacheDirectoryGetter Interface called out of UI thread to get the cache folder.
+   * @param diskCacheSize        Desired max bytes size for the LRU disk cache.
+   * @param segmentCount         The number of segments, {@code 1} uses a single journal.
+   * @param journalOptions       The format and write policy of the journal.
+   * @see DiskLruCacheWrapper#create(File, long, int, JournalOptions)
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public DiskLruCacheFactory(CacheDirectoryGetter cacheDirectoryGetter, long diskCacheSize,
+      int segmentCount, JournalOptions journalOptions) {
+    this(cacheDirectoryGetter, diskCacheSize, segmentCount, journalOptions,
+        SafeKeyStrategy.SHA_256);
+  }
+
+  /**
+   * Creates a factory for a segmented disk cache that names its entries with {@code keyStrategy}.
+   *
+   * <p>Entries written by previous versions, which always used {@link SafeKeyStrategy#SHA_256},
+   * are still read until they're evicted.
+   *
+   * @param cacheDirectoryGetter Interface called out of UI thread to get the cache folder.
+   * @param diskCacheSize        Desired max bytes size for the LRU disk cache.
+   * @param segmentCount         The number of segments, {@code 1} uses a single journal.
+   * @param journalOptions       The format and write policy of the journal.
+   * @param keyStrategy          Names entries in the cache, for example
+   *                             {@link SafeKeyStrategy#MURMUR3_128}.
+   * @see DiskLruCacheWrapper#create(File, long, int, JournalOptions, SafeKeyStrategy,
+   * SafeKeyStrategy)
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public DiskLruCacheFactory(CacheDirectoryGetter cacheDirectoryGetter, long diskCacheSize,
+      int segmentCount, JournalOptions journalOptions, SafeKeyStrategy keyStrategy) {
+    Preconditions.checkArgument(segmentCount > 0, "segmentCount must be > 0");
     this.diskCacheSize = diskCacheSize;
+    this.segmentCount = segmentCount;
+    this.journalOptions = Preconditions.checkNotNull(journalOptions);
+    this.keyStrategy = Preconditions.checkNotNull(keyStrategy);
     this.cacheDirectoryGetter = cacheDirectoryGetter;
   }
 
@@ -67,6 +134,7 @@ public class DiskLruCacheFactory implements DiskCache.Factory {
       return null;
     }
 
-    return DiskLruCacheWrapper.create(cacheDir, diskCacheSize);
+    return DiskLruCacheWrapper.create(cacheDir, diskCacheSize, segmentCount, journalOptions,
+        keyStrategy, SafeKeyStrategy.SHA_256);
   }
 }
@@ -4,12 +4,19 @@
 
 package com.bumptech.glide.load.engine.cache;
 
+import android.support.annotation.Nullable;
 import android.util.Log;
 import com.bumptech.glide.disklrucache.DiskLruCache;
 import com.bumptech.glide.disklrucache.DiskLruCache.Value;
+import com.bumptech.glide.disklrucache.JournalOptions;
+import com.bumptech.glide.disklrucache.SegmentedDiskLruCache;
 import com.bumptech.glide.load.Key;
+import com.bumptech.glide.util.ByteBufferUtil;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * The default DiskCache implementation. There must be no more than one active instance for a given
@@ -17,18 +24,29 @@ import java.io.IOException;
  *
  * @see #get(java.io.File, long)
  */
-public class DiskLruCacheWrapper implements DiskCache {
+public class DiskLruCacheWrapper
+    implements DiskCache, DiskCache.MappedReader, DiskCache.StreamingWriter {
   private static final String TAG = "DiskLruCacheWrapper";
 
   private static final int APP_VERSION = 1;
   private static final int VALUE_COUNT = 1;
+  /** The default number of segments, which keeps the single journal layout of previous versions. */
+  static final int DEFAULT_SEGMENT_COUNT = 1;
   private static DiskLruCacheWrapper wrapper;
 
   private final SafeKeyGenerator safeKeyGenerator;
+  // Names entries written before the key strategy changed, only used to read and delete them.
+  @Nullable
+  private final SafeKeyGenerator previousKeyGenerator;
   private final File directory;
   private final long maxSize;
+  private final int segmentCount;
+  private final JournalOptions journalOptions;
   private final DiskCacheWriteLocker writeLocker = new DiskCacheWriteLocker();
-  private DiskLruCache diskLruCache;
+  // Keys with a streaming edit in progress, which doesn't hold the write lock because it may be
+  // committed on a different thread than the one it was started on.
+  private final Set<String> streamingKeys = new HashSet<>();
+  private volatile SegmentedDiskLruCache diskLruCache;
 
   /**
    * Get a DiskCache in the given directory and size. If a disk cache has already been created with
@@ -64,6 +82,68 @@ public class DiskLruCacheWrapper implements DiskCache {
     return new DiskLruCacheWrapper(directory, maxSize);
   }
 
+  /**
+   * Create a new DiskCache in the given directory with a specified max size that is split into
+   * {@code segmentCount} independent segments.
+   *
+   * <p>Each segment has its own journal, size budget and lock, so concurrent reads and writes of
+   * keys that hash to different segments don't contend. The max size is split evenly across
+   * segments. Changing the segment count for an existing directory clears the cache.
+   *
+   * @param directory    The directory for the disk cache
+   * @param maxSize      The max size for the disk cache
+   * @param segmentCount The number of segments, {@code 1} uses a single journal.
+   * @return The new disk cache with the given arguments
+   */
+  public static DiskCache create(File directory, long maxSize, int segmentCount) {
+    return create(directory, maxSize, segmentCount, JournalOptions.DEFAULT);
+  }
+
+  /**
+   * Create a new segmented DiskCache whose journals are written according to {@code
+   * journalOptions}.
+   *
+   * <p>Use {@link JournalOptions.Format#BINARY} for large caches to reduce the time it takes to
+   * open the cache on the first load after the process starts. Existing text journals are migrated
+   * to the binary format, but not back again.
+   *
+   * @param directory      The directory for the disk cache
+   * @param maxSize        The max size for the disk cache
+   * @param segmentCount   The number of segments, {@code 1} uses a single journal.
+   * @param journalOptions The options for the journal of each segment.
+   * @return The new disk cache with the given arguments
+   * @see #create(File, long, int)
+   */
+  public static DiskCache create(File directory, long maxSize, int segmentCount,
+      JournalOptions journalOptions) {
+    return new DiskLruCacheWrapper(directory, maxSize, segmentCount, journalOptions,
+        SafeKeyStrategy.SHA_256, /*previousKeyStrategy=*/ null);
+  }
+
+  /**
+   * Create a new segmented DiskCache that names its entries with {@code keyStrategy}.
+   *
+   * <p>If {@code previousKeyStrategy} is given, entries named with it are still found when there's
+   * no entry for the new name, so that the existing cache stays valid after switching strategies.
+   * New entries are only written with {@code keyStrategy}, old entries are evicted as usual. Each
+   * miss costs a second lookup while the previous strategy is set.
+   *
+   * @param directory           The directory for the disk cache
+   * @param maxSize             The max size for the disk cache
+   * @param segmentCount        The number of segments, {@code 1} uses a single journal.
+   * @param journalOptions      The options for the journal of each segment.
+   * @param keyStrategy         Names new entries.
+   * @param previousKeyStrategy Names entries written by a previous version of the app, or {@code
+   *                            null} if the strategy hasn't changed.
+   * @return The new disk cache with the given arguments
+   */
+  public static DiskCache create(File directory, long maxSize, int segmentCount,
+      JournalOptions journalOptions, SafeKeyStrategy keyStrategy,
+      @Nullable SafeKeyStrategy previousKeyStrategy) {
+    return new DiskLruCacheWrapper(
+        directory, maxSize, segmentCount, journalOptions, keyStrategy, previousKeyStrategy);
+  }
+
   /**
    * @deprecated Do not extend this class.
    */
@@ -71,16 +151,37 @@ public class DiskLruCacheWrapper implements DiskCache {
   // Deprecated public API.
   @SuppressWarnings({"WeakerAccess", "DeprecatedIsStillUsed"})
   protected DiskLruCacheWrapper(File directory, long maxSize) {
+    this(directory, maxSize, DEFAULT_SEGMENT_COUNT, JournalOptions.DEFAULT,
+        SafeKeyStrategy.SHA_256, /*previousKeyStrategy=*/ null);
+  }
+
+  private DiskLruCacheWrapper(File directory, long maxSize, int segmentCount,
+      JournalOptions journalOptions, SafeKeyStrategy keyStrategy,
+      @Nullable SafeKeyStrategy previousKeyStrategy) {
     this.directory = directory;
     this.maxSize = maxSize;
-    this.safeKeyGenerator = new SafeKeyGenerator();
+    this.segmentCount = segmentCount;
+    this.journalOptions = journalOptions;
+    this.safeKeyGenerator = new SafeKeyGenerator(keyStrategy);
+    this.previousKeyGenerator = previousKeyStrategy == null || previousKeyStrategy == keyStrategy
+        ? null : new SafeKeyGenerator(previousKeyStrategy);
   }
 
-  private synchronized DiskLruCache getDiskCache() throws IOException {
-    if (diskLruCache == null) {
-      diskLruCache = DiskLruCache.open(directory, APP_VERSION, VALUE_COUNT, maxSize);
+  private SegmentedDiskLruCache getDiskCache() throws IOException {
+    // Avoid taking the wrapper's lock once the cache is open so that gets for keys in different
+    // segments don't contend here.
+    SegmentedDiskLruCache result = diskLruCache;
+    if (result == null) {
+      synchronized (this) {
+        result = diskLruCache;
+        if (result == null) {
+          result = SegmentedDiskLruCache.open(
+              directory, APP_VERSION, VALUE_COUNT, maxSize, segmentCount, journalOptions);
+          diskLruCache = result;
+        }
+      }
     }
-    return diskLruCache;
+    return result;
   }
 
   @Override
@@ -94,7 +195,7 @@ public class DiskLruCacheWrapper implements DiskCache {
       // It is possible that the there will be a put in between these two gets. If so that shouldn't
       // be a problem because we will always put the same value at the same key so our input streams
       // will still represent the same data.
-      final DiskLruCache.Value value = getDiskCache().get(safeKey);
+      final DiskLruCache.Value value = getValue(getDiskCache(), key, safeKey);
       if (value != null) {
         result = value.getFile(0);
       }
@@ -106,6 +207,21 @@ public class DiskLruCacheWrapper implements DiskCache {
     return result;
   }
 
+  @Override
+  public ByteBuffer map(File file) {
+    ByteBuffer result = null;
+    try {
+      // Any later put replaces the file with a rename, so the mapping keeps seeing the bytes it
+      // was created from.
+      result = ByteBufferUtil.fromFile(file);
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to map from disk cache", e);
+      }
+    }
+    return result;
+  }
+
   @Override
   public void put(Key key, Writer writer) {
     // We want to make sure that puts block so that data is available when put completes. We may
@@ -119,15 +235,20 @@ public class DiskLruCacheWrapper implements DiskCache {
       try {
         // We assume we only need to put once, so if data was written while we were trying to get
         // the lock, we can simply abort.
-        DiskLruCache diskCache = getDiskCache();
-        Value current = diskCache.get(safeKey);
+        SegmentedDiskLruCache diskCache = getDiskCache();
+        Value current = getValue(diskCache, key, safeKey);
         if (current != null) {
           return;
         }
 
         DiskLruCache.Editor editor = diskCache.edit(safeKey);
         if (editor == null) {
-          throw new IllegalStateException("Had two simultaneous puts for: " + safeKey);
+          // Puts hold the write lock, so a streaming edit is writing the same data and will commit
+          // or abort on its own, or has just done so.
+          if (Log.isLoggable(TAG, Log.VERBOSE)) {
+            Log.v(TAG, "Put: Skipped, entry is being edited: " + safeKey);
+          }
+          return;
         }
         try {
           File file = editor.getFile(0);
@@ -147,11 +268,78 @@ public class DiskLruCacheWrapper implements DiskCache {
     }
   }
 
+  @Override
+  public Edit startEdit(Key key) {
+    String safeKey = safeKeyGenerator.getSafeKey(key);
+    if (Log.isLoggable(TAG, Log.VERBOSE)) {
+      Log.v(TAG, "StartEdit: Obtained: " + safeKey + " for for Key: " + key);
+    }
+    try {
+      SegmentedDiskLruCache diskCache = getDiskCache();
+      if (getValue(diskCache, key, safeKey) != null) {
+        return null;
+      }
+      // Only one streaming edit per key, later loads of the same data write it with put instead.
+      if (!startStreaming(safeKey)) {
+        return null;
+      }
+      StreamingEdit result = null;
+      DiskLruCache.Editor editor = null;
+      try {
+        // Returns null rather than waiting if a put is in progress.
+        editor = diskCache.edit(safeKey);
+        if (editor != null) {
+          result = new StreamingEdit(safeKey, editor, editor.getFile(0));
+        }
+      } finally {
+        if (result == null) {
+          if (editor != null) {
+            editor.abortUnlessCommitted();
+          }
+          finishStreaming(safeKey);
+        }
+      }
+      return result;
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.WARN)) {
+        Log.w(TAG, "Unable to start edit in disk cache", e);
+      }
+      return null;
+    }
+  }
+
+  // Falls back to the entry named by the previous key strategy, if there is one.
+  @Nullable
+  private Value getValue(SegmentedDiskLruCache diskCache, Key key, String safeKey)
+      throws IOException {
+    Value result = diskCache.get(safeKey);
+    if (result == null && previousKeyGenerator != null) {
+      result = diskCache.get(previousKeyGenerator.getSafeKey(key));
+    }
+    return result;
+  }
+
+  private boolean startStreaming(String safeKey) {
+    synchronized (streamingKeys) {
+      return streamingKeys.add(safeKey);
+    }
+  }
+
+  private void finishStreaming(String safeKey) {
+    synchronized (streamingKeys) {
+      streamingKeys.remove(safeKey);
+    }
+  }
+
   @Override
   public void delete(Key key) {
     String safeKey = safeKeyGenerator.getSafeKey(key);
     try {
-      getDiskCache().remove(safeKey);
+      SegmentedDiskLruCache diskCache = getDiskCache();
+      diskCache.remove(safeKey);
+      if (previousKeyGenerator != null) {
+        diskCache.remove(previousKeyGenerator.getSafeKey(key));
+      }
     } catch (IOException e) {
       if (Log.isLoggable(TAG, Log.WARN)) {
         Log.w(TAG, "Unable to delete from disk cache", e);
@@ -178,4 +366,42 @@ public class DiskLruCacheWrapper implements DiskCache {
   private synchronized void resetDiskCache() {
     diskLruCache = null;
   }
+
+  private final class StreamingEdit implements Edit {
+    private final String safeKey;
+    private final DiskLruCache.Editor editor;
+    private final File file;
+
+    StreamingEdit(String safeKey, DiskLruCache.Editor editor, File file) {
+      this.safeKey = safeKey;
+      this.editor = editor;
+      this.file = file;
+    }
+
+    @Override
+    public File getFile() {
+      return file;
+    }
+
+    @Override
+    public boolean commit() {
+      try {
+        editor.commit();
+        return true;
+      } catch (IOException e) {
+        if (Log.isLoggable(TAG, Log.WARN)) {
+          Log.w(TAG, "Unable to commit edit to disk cache", e);
+        }
+        return false;
+      } finally {
+        abortUnlessCommitted();
+      }
+    }
+
+    @Override
+    public void abortUnlessCommitted() {
+      editor.abortUnlessCommitted();
+      finishStreaming(safeKey);
+    }
+  }
 }
@@ -0,0 +1,121 @@
+package com.bumptech.glide.load.engine.cache;
+
+/**
+ * A count-min sketch that estimates how often a key has been seen, used by
+ * {@link TinyLfuResourceCache} to decide which entries to admit.
+ *
+ * <p>Counters are four bits wide, sixteen to a {@code long}. Each key maps to four counters in
+ * four different {@code long}s and its frequency is the smallest of them. Once the number of
+ * increments reaches the sample size every counter is halved so that the sketch favors keys that
+ * have been popular recently over keys that were popular a long time ago.
+ *
+ * <p>This class is not thread safe.
+ */
+final class FrequencySketch {
+  private static final long[] SEEDS = new long[] {
+      0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final long ONE_MASK = 0x1111111111111111L;
+  private static final int MAX_COUNT = 15;
+  private static final int MIN_CAPACITY = 16;
+
+  private long[] table;
+  private int tableMask;
+  private int sampleSize;
+  private int size;
+
+  FrequencySketch() {
+    ensureCapacity(MIN_CAPACITY);
+  }
+
+  /**
+   * Grows the sketch so that it can track roughly {@code expectedEntries} keys with a low error
+   * rate. Growing discards all existing counts.
+   */
+  void ensureCapacity(int expectedEntries) {
+    int capacity = ceilingPowerOfTwo(Math.max(MIN_CAPACITY, expectedEntries));
+    if (table != null && table.length >= capacity) {
+      return;
+    }
+    table = new long[capacity];
+    tableMask = capacity - 1;
+    sampleSize = 10 * capacity;
+    size = 0;
+  }
+
+  /** Returns the number of keys the sketch is currently sized for. */
+  int getCapacity() {
+    return table.length;
+  }
+
+  /** Returns the estimated number of times the key with the given hash code has been seen. */
+  int frequency(int hashCode) {
+    int hash = spread(hashCode);
+    int start = (hash & 3) << 2;
+    int frequency = MAX_COUNT;
+    for (int i = 0; i < 4; i++) {
+      int index = indexOf(hash, i);
+      int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  /** Records one occurrence of the key with the given hash code. */
+  void increment(int hashCode) {
+    int hash = spread(hashCode);
+    int start = (hash & 3) << 2;
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      added |= incrementAt(indexOf(hash, i), start + i);
+    }
+    if (added && ++size >= sampleSize) {
+      reset();
+    }
+  }
+
+  /** Discards all counts. */
+  void clear() {
+    for (int i = 0; i < table.length; i++) {
+      table[i] = 0;
+    }
+    size = 0;
+  }
+
+  private boolean incrementAt(int index, int counter) {
+    int offset = counter << 2;
+    long mask = 0xfL << offset;
+    if ((table[index] & mask) != mask) {
+      table[index] += 1L << offset;
+      return true;
+    }
+    return false;
+  }
+
+  /** Halves every counter, aging out keys that are no longer being requested. */
+  private void reset() {
+    int oddCounts = 0;
+    for (int i = 0; i < table.length; i++) {
+      oddCounts += Long.bitCount(table[i] & ONE_MASK);
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    size = (size >>> 1) - (oddCounts >>> 2);
+  }
+
+  private int indexOf(int hash, int i) {
+    long result = (hash + SEEDS[i]) * SEEDS[i];
+    result += result >>> 32;
+    return (int) result & tableMask;
+  }
+
+  /** Keys like EngineKey have cheap, poorly distributed hash codes, so mix them first. */
+  private static int spread(int hashCode) {
+    int result = ((hashCode >>> 16) ^ hashCode) * 0x45d9f3b;
+    result = ((result >>> 16) ^ result) * 0x45d9f3b;
+    return (result >>> 16) ^ result;
+  }
+
+  private static int ceilingPowerOfTwo(int value) {
+    return 1 << -Integer.numberOfLeadingZeros(value - 1);
+  }
+}
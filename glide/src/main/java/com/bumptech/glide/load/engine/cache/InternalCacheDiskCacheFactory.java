@@ -1,6 +1,7 @@
 package com.bumptech.glide.load.engine.cache;
 
 import android.content.Context;
+import com.bumptech.glide.disklrucache.JournalOptions;
 import java.io.File;
 
 /**
@@ -22,6 +23,26 @@ public final class InternalCacheDiskCacheFactory extends DiskLruCacheFactory {
 
   public InternalCacheDiskCacheFactory(final Context context, final String diskCacheName,
                                        long diskCacheSize) {
+    this(context, diskCacheName, diskCacheSize, DiskLruCacheWrapper.DEFAULT_SEGMENT_COUNT);
+  }
+
+  /**
+   * @param segmentCount The number of independently locked segments to split the cache into.
+   * @see DiskLruCacheFactory#DiskLruCacheFactory(CacheDirectoryGetter, long, int)
+   */
+  public InternalCacheDiskCacheFactory(final Context context, final String diskCacheName,
+                                       long diskCacheSize, int segmentCount) {
+    this(context, diskCacheName, diskCacheSize, segmentCount, JournalOptions.DEFAULT);
+  }
+
+  /**
+   * @param segmentCount   The number of independently locked segments to split the cache into.
+   * @param journalOptions The format and write policy of the journal.
+   * @see DiskLruCacheFactory#DiskLruCacheFactory(CacheDirectoryGetter, long, int, JournalOptions)
+   */
+  public InternalCacheDiskCacheFactory(final Context context, final String diskCacheName,
+                                       long diskCacheSize, int segmentCount,
+                                       JournalOptions journalOptions) {
     super(new CacheDirectoryGetter() {
       @Override
       public File getCacheDirectory() {
@@ -34,6 +55,6 @@ public final class InternalCacheDiskCacheFactory extends DiskLruCacheFactory {
         }
         return cacheDirectory;
       }
-    }, diskCacheSize);
+    }, diskCacheSize, segmentCount, journalOptions);
   }
 }
@@ -5,6 +5,7 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import com.bumptech.glide.load.Key;
 import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.util.GhostEntries;
 import com.bumptech.glide.util.LruCache;
 
 /**
@@ -12,6 +13,10 @@ import com.bumptech.glide.util.LruCache;
  */
 public class LruResourceCache extends LruCache<Key, Resource<?>> implements MemoryCache {
   private ResourceRemovedListener listener;
+  private long hitCount;
+  private long missCount;
+  private final GhostEntries ghosts = new GhostEntries();
+  private long ghostHitCount;
 
   /**
    * Constructor for LruResourceCache.
@@ -27,8 +32,73 @@ public class LruResourceCache extends LruCache<Key, Resource<?>> implements Memo
     this.listener = listener;
   }
 
+  @Nullable
+  @Override
+  public synchronized Resource<?> remove(@NonNull Key key) {
+    Resource<?> result = super.remove(key);
+    if (result == null) {
+      missCount++;
+      if (ghosts.remove(key.hashCode())) {
+        ghostHitCount++;
+      }
+    } else {
+      hitCount++;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the ratio of calls to {@link #remove(Key)} that found a {@link Resource} to all calls
+   * to {@link #remove(Key)}, or 0 if there haven't been any.
+   *
+   * <p>The {@link com.bumptech.glide.load.engine.Engine} removes {@link Resource}s from the memory
+   * cache when they're requested, so this is the cache's hit rate. Comparable to
+   * {@link TinyLfuResourceCache#getHitRate()}.
+   */
+  public synchronized float getHitRate() {
+    long requestCount = hitCount + missCount;
+    return requestCount == 0 ? 0f : (float) hitCount / requestCount;
+  }
+
+  /** Returns the number of calls to {@link #remove(Key)} that found a {@link Resource}. */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  /** Returns the number of calls to {@link #remove(Key)} that didn't find a {@link Resource}. */
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * Sets the total size in bytes of recently evicted {@link Resource}s to remember, so that
+   * {@link #getGhostHitCount()} estimates the hits the cache would gain by growing by that much.
+   * Defaults to {@code 0}, which disables the estimate.
+   */
+  public synchronized void setGhostSize(long size) {
+    ghosts.setMaxSize(size);
+  }
+
+  /**
+   * Returns the number of misses for {@link Resource}s that were evicted within the last
+   * {@link #setGhostSize(long) ghost size} bytes of evictions.
+   */
+  public synchronized long getGhostHitCount() {
+    return ghostHitCount;
+  }
+
+  @Override
+  public void clearMemory() {
+    super.clearMemory();
+    // Resources cleared to free memory aren't evidence that the cache is too small.
+    synchronized (this) {
+      ghosts.clear();
+    }
+  }
+
   @Override
   protected void onItemEvicted(@NonNull Key key, @Nullable Resource<?> item) {
+    ghosts.add(key.hashCode(), getSize(item));
     if (listener != null && item != null) {
       listener.onResourceRemoved(item);
     }
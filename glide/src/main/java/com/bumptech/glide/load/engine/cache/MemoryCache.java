@@ -40,6 +40,9 @@ public interface MemoryCache {
   /**
    * Removes the value for the given key and returns it if present or null otherwise.
    *
+   * <p>The given key may be reused for other lookups once this method returns and must not be
+   * kept, keep the key the value was put with instead.
+   *
    * @param key The key.
    */
   @Nullable
@@ -0,0 +1,168 @@
+package com.bumptech.glide.load.engine.cache;
+
+import java.security.MessageDigest;
+
+/**
+ * A {@link MessageDigest} that computes the 128 bit, x64 variant of MurmurHash3 with a seed of
+ * zero.
+ *
+ * <p>Not suitable for anything that needs a cryptographic hash. Used to name disk cache entries,
+ * where it's several times faster than SHA-256 and collisions only cost a cache miss.
+ *
+ * <p>Input is hashed in 16 byte blocks as it's received, so only a single block is buffered no
+ * matter how much data {@link com.bumptech.glide.load.Key#updateDiskCacheKey(MessageDigest)}
+ * writes. Instances are not thread safe and are meant to be pooled and reused.
+ */
+final class Murmur3MessageDigest extends MessageDigest {
+  private static final String ALGORITHM = "MURMUR3-128";
+  private static final int BLOCK_SIZE = 16;
+  private static final long C1 = 0x87c37b91114253d5L;
+  private static final long C2 = 0x4cf5ad432745937fL;
+
+  private final byte[] block = new byte[BLOCK_SIZE];
+  private int blockLength;
+  private long length;
+  private long h1;
+  private long h2;
+
+  Murmur3MessageDigest() {
+    super(ALGORITHM);
+  }
+
+  @Override
+  protected int engineGetDigestLength() {
+    return BLOCK_SIZE;
+  }
+
+  @Override
+  protected void engineUpdate(byte input) {
+    block[blockLength++] = input;
+    length++;
+    if (blockLength == BLOCK_SIZE) {
+      mixBlock(block, 0);
+      blockLength = 0;
+    }
+  }
+
+  @Override
+  protected void engineUpdate(byte[] input, int offset, int len) {
+    length += len;
+    int end = offset + len;
+    // Fill a partially filled block first.
+    if (blockLength > 0) {
+      int count = Math.min(BLOCK_SIZE - blockLength, len);
+      System.arraycopy(input, offset, block, blockLength, count);
+      blockLength += count;
+      offset += count;
+      if (blockLength < BLOCK_SIZE) {
+        return;
+      }
+      mixBlock(block, 0);
+      blockLength = 0;
+    }
+    // Then mix whole blocks directly from the input without copying them.
+    while (end - offset >= BLOCK_SIZE) {
+      mixBlock(input, offset);
+      offset += BLOCK_SIZE;
+    }
+    blockLength = end - offset;
+    System.arraycopy(input, offset, block, 0, blockLength);
+  }
+
+  @Override
+  protected byte[] engineDigest() {
+    mixTail();
+    h1 ^= length;
+    h2 ^= length;
+    h1 += h2;
+    h2 += h1;
+    h1 = fmix(h1);
+    h2 = fmix(h2);
+    h1 += h2;
+    h2 += h1;
+
+    byte[] result = new byte[BLOCK_SIZE];
+    putLongLittleEndian(result, 0, h1);
+    putLongLittleEndian(result, 8, h2);
+    engineReset();
+    return result;
+  }
+
+  @Override
+  protected void engineReset() {
+    blockLength = 0;
+    length = 0;
+    h1 = 0;
+    h2 = 0;
+  }
+
+  private void mixBlock(byte[] bytes, int offset) {
+    long k1 = getLongLittleEndian(bytes, offset);
+    long k2 = getLongLittleEndian(bytes, offset + 8);
+
+    h1 ^= mixK1(k1);
+    h1 = Long.rotateLeft(h1, 27);
+    h1 += h2;
+    h1 = h1 * 5 + 0x52dce729;
+
+    h2 ^= mixK2(k2);
+    h2 = Long.rotateLeft(h2, 31);
+    h2 += h1;
+    h2 = h2 * 5 + 0x38495ab5;
+  }
+
+  private void mixTail() {
+    if (blockLength == 0) {
+      return;
+    }
+    long k1 = 0;
+    long k2 = 0;
+    for (int i = blockLength - 1; i >= 8; i--) {
+      k2 = (k2 << 8) | (block[i] & 0xFFL);
+    }
+    for (int i = Math.min(blockLength, 8) - 1; i >= 0; i--) {
+      k1 = (k1 << 8) | (block[i] & 0xFFL);
+    }
+    if (blockLength > 8) {
+      h2 ^= mixK2(k2);
+    }
+    h1 ^= mixK1(k1);
+  }
+
+  private static long mixK1(long k1) {
+    k1 *= C1;
+    k1 = Long.rotateLeft(k1, 31);
+    k1 *= C2;
+    return k1;
+  }
+
+  private static long mixK2(long k2) {
+    k2 *= C2;
+    k2 = Long.rotateLeft(k2, 33);
+    k2 *= C1;
+    return k2;
+  }
+
+  private static long fmix(long k) {
+    k ^= k >>> 33;
+    k *= 0xff51afd7ed558ccdL;
+    k ^= k >>> 33;
+    k *= 0xc4ceb9fe1a85ec53L;
+    k ^= k >>> 33;
+    return k;
+  }
+
+  private static long getLongLittleEndian(byte[] bytes, int offset) {
+    long result = 0;
+    for (int i = 7; i >= 0; i--) {
+      result = (result << 8) | (bytes[offset + i] & 0xFFL);
+    }
+    return result;
+  }
+
+  private static void putLongLittleEndian(byte[] bytes, int offset, long value) {
+    for (int i = 0; i < 8; i++) {
+      bytes[offset + i] = (byte) (value >>> (8 * i));
+    }
+  }
+}
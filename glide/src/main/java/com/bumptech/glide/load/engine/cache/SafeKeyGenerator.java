@@ -6,11 +6,9 @@ import com.bumptech.glide.load.Key;
 import com.bumptech.glide.util.LruCache;
 import com.bumptech.glide.util.Preconditions;
 import com.bumptech.glide.util.Synthetic;
-import com.bumptech.glide.util.Util;
 import com.bumptech.glide.util.pool.FactoryPools;
 import com.bumptech.glide.util.pool.StateVerifier;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 
 /**
  * A class that generates and caches safe and unique string file names from {@link
@@ -20,17 +18,31 @@ import java.security.NoSuchAlgorithmException;
 @SuppressWarnings("WeakerAccess")
 public class SafeKeyGenerator {
   private final LruCache<Key, String> loadIdToSafeHash = new LruCache<>(1000);
-  private final Pools.Pool<PoolableDigestContainer> digestPool = FactoryPools.threadSafe(10,
-      new FactoryPools.Factory<PoolableDigestContainer>() {
-        @Override
-        public PoolableDigestContainer create() {
-          try {
-            return new PoolableDigestContainer(MessageDigest.getInstance("SHA-256"));
-          } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
+  private final SafeKeyStrategy strategy;
+  private final Pools.Pool<PoolableDigestContainer> digestPool;
+
+  /**
+   * Creates a generator that uses {@link SafeKeyStrategy#SHA_256}.
+   */
+  public SafeKeyGenerator() {
+    this(SafeKeyStrategy.SHA_256);
+  }
+
+  public SafeKeyGenerator(@NonNull final SafeKeyStrategy strategy) {
+    this.strategy = Preconditions.checkNotNull(strategy);
+    digestPool = FactoryPools.threadSafe(10,
+        new FactoryPools.Factory<PoolableDigestContainer>() {
+          @Override
+          public PoolableDigestContainer create() {
+            return new PoolableDigestContainer(strategy.createDigest());
           }
-        }
-      });
+        });
+  }
+
+  @NonNull
+  public SafeKeyStrategy getStrategy() {
+    return strategy;
+  }
 
   public String getSafeKey(Key key) {
     String safeKey;
@@ -51,7 +63,7 @@ public class SafeKeyGenerator {
     try {
       key.updateDiskCacheKey(container.messageDigest);
       // calling digest() will automatically reset()
-      return Util.sha256BytesToHex(container.messageDigest.digest());
+      return strategy.encode(container.messageDigest.digest());
     } finally {
       digestPool.release(container);
     }
@@ -0,0 +1,109 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.support.annotation.NonNull;
+import com.bumptech.glide.util.Util;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Set of available strategies for turning {@link com.bumptech.glide.load.Key}s into disk cache
+ * file names, used by {@link SafeKeyGenerator}.
+ *
+ * <p>Each strategy names the same {@link com.bumptech.glide.load.Key} differently, so entries
+ * written with one strategy can't be found with another. To switch strategies without losing an
+ * existing cache, pass the old strategy as the previous strategy to
+ * {@link DiskLruCacheWrapper#create(java.io.File, long, int,
+ * com.bumptech.glide.disklrucache.JournalOptions, SafeKeyStrategy, SafeKeyStrategy)}.
+ */
+public abstract class SafeKeyStrategy {
+
+  /**
+   * Names entries with the hex encoded SHA-256 digest of their keys, the strategy used by
+   * previous versions.
+   */
+  public static final SafeKeyStrategy SHA_256 = new SafeKeyStrategy() {
+    @NonNull
+    @Override
+    public MessageDigest createDigest() {
+      try {
+        return MessageDigest.getInstance("SHA-256");
+      } catch (NoSuchAlgorithmException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @NonNull
+    @Override
+    public String encode(@NonNull byte[] digest) {
+      return Util.sha256BytesToHex(digest);
+    }
+
+    @Override
+    public String toString() {
+      return "SHA_256";
+    }
+  };
+
+  /**
+   * Names entries with the base32 encoded, 128 bit MurmurHash3 of their keys.
+   *
+   * <p>Hashing is several times faster than {@link #SHA_256} and names are 26 rather than 64
+   * characters, which shrinks the journal. The hash isn't cryptographic, don't use this strategy
+   * if the disk cache may be written by code that isn't trusted.
+   */
+  public static final SafeKeyStrategy MURMUR3_128 = new SafeKeyStrategy() {
+    @NonNull
+    @Override
+    public MessageDigest createDigest() {
+      return new Murmur3MessageDigest();
+    }
+
+    @NonNull
+    @Override
+    public String encode(@NonNull byte[] digest) {
+      return toBase32(digest);
+    }
+
+    @Override
+    public String toString() {
+      return "MURMUR3_128";
+    }
+  };
+
+  // Lower case RFC 4648 base32 so that names are valid file names on case insensitive file systems.
+  private static final char[] BASE32_CHARS = "abcdefghijklmnopqrstuvwxyz234567".toCharArray();
+
+  /**
+   * Returns a new {@link MessageDigest} for {@link com.bumptech.glide.load.Key}s to be written to.
+   * Digests are pooled and reused, so creating them may be expensive.
+   */
+  @NonNull
+  public abstract MessageDigest createDigest();
+
+  /**
+   * Returns a file name made up only of lower case letters, digits, {@code -} and {@code _} for
+   * the given digest.
+   */
+  @NonNull
+  public abstract String encode(@NonNull byte[] digest);
+
+  @NonNull
+  static String toBase32(@NonNull byte[] bytes) {
+    char[] result = new char[(bytes.length * 8 + 4) / 5];
+    int index = 0;
+    int buffer = 0;
+    int bitCount = 0;
+    for (byte b : bytes) {
+      buffer = (buffer << 8) | (b & 0xFF);
+      bitCount += 8;
+      while (bitCount >= 5) {
+        bitCount -= 5;
+        result[index++] = BASE32_CHARS[(buffer >>> bitCount) & 0x1F];
+      }
+    }
+    if (bitCount > 0) {
+      result[index] = BASE32_CHARS[(buffer << (5 - bitCount)) & 0x1F];
+    }
+    return new String(result);
+  }
+}
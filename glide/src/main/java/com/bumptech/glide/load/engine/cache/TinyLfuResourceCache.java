@@ -0,0 +1,406 @@
+package com.bumptech.glide.load.engine.cache;
+
+import android.annotation.SuppressLint;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.Resource;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An in memory cache for {@link com.bumptech.glide.load.engine.Resource}s that uses the W-TinyLFU
+ * policy instead of plain LRU, so that a burst of one off {@link Resource}s, like those loaded
+ * during a fast fling through a long list, doesn't push out {@link Resource}s that are reused
+ * frequently.
+ *
+ * <p>The cache is split into a small LRU admission window and a main region. The main region is
+ * itself split into a probation segment and a protected segment. New {@link Resource}s enter the
+ * window. When the window is full, its least recently used {@link Resource} is only admitted to
+ * the main region if it has been requested more often than the {@link Resource}s that would have
+ * to be evicted to make room for it. Request frequencies are estimated with a count-min sketch on
+ * the {@link Key}'s hash code, so keys are remembered even after their {@link Resource}s are
+ * evicted. {@link Resource}s that are requested again after being admitted are put back into the
+ * protected segment when they're released.
+ *
+ * <p>All sizes are in bytes as reported by {@link Resource#getSize()}.
+ *
+ * <p>Because the {@link com.bumptech.glide.load.engine.Engine} removes a {@link Resource} from the
+ * memory cache when it's requested and puts it back once it's released, every call to
+ * {@link #remove(Key)} is counted as a request for that key and its result is counted as a hit or
+ * a miss.
+ */
+public class TinyLfuResourceCache implements MemoryCache {
+  /** The default share of the total size used for the admission window. */
+  public static final float DEFAULT_WINDOW_FRACTION = 0.01f;
+  private static final float PROTECTED_FRACTION = 0.8f;
+  // Bounds the bookkeeping for Resources that are removed but never put back.
+  private static final int MAX_ACQUIRED_KEYS = 256;
+
+  private static final int WINDOW = 0;
+  private static final int PROBATION = 1;
+  private static final int PROTECTED = 2;
+
+  private final Map<Key, Node> entries = new HashMap<>();
+  private final Map<Key, Integer> acquiredSegments =
+      new LinkedHashMap<Key, Integer>(16, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Integer> eldest) {
+          return size() > MAX_ACQUIRED_KEYS;
+        }
+      };
+  private final FrequencySketch sketch = new FrequencySketch();
+  private final Node window = Node.newHead();
+  private final Node probation = Node.newHead();
+  private final Node protectedHead = Node.newHead();
+  private final long[] segmentSizes = new long[3];
+  private final long initialMaxSize;
+  private final float windowFraction;
+
+  private long maxSize;
+  private long windowMaxSize;
+  private long protectedMaxSize;
+  private ResourceRemovedListener listener;
+
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+  private long rejectionCount;
+
+  /**
+   * Constructor for TinyLfuResourceCache using {@link #DEFAULT_WINDOW_FRACTION}.
+   *
+   * @param size The maximum size in bytes the in memory cache can use.
+   */
+  public TinyLfuResourceCache(long size) {
+    this(size, DEFAULT_WINDOW_FRACTION);
+  }
+
+  /**
+   * Constructor for TinyLfuResourceCache.
+   *
+   * @param size The maximum size in bytes the in memory cache can use.
+   * @param windowFraction The share of {@code size} used for the admission window, between 0 and
+   *                       1. Larger windows favor recency, smaller windows favor frequency.
+   */
+  public TinyLfuResourceCache(long size, float windowFraction) {
+    if (windowFraction < 0 || windowFraction > 1) {
+      throw new IllegalArgumentException("Window fraction must be between 0 and 1");
+    }
+    this.initialMaxSize = size;
+    this.windowFraction = windowFraction;
+    setMaxSizeInternal(size);
+  }
+
+  @Override
+  public synchronized long getCurrentSize() {
+    return segmentSizes[WINDOW] + segmentSizes[PROBATION] + segmentSizes[PROTECTED];
+  }
+
+  @Override
+  public synchronized long getMaxSize() {
+    return maxSize;
+  }
+
+  @Override
+  public synchronized void setSizeMultiplier(float multiplier) {
+    if (multiplier < 0) {
+      throw new IllegalArgumentException("Multiplier must be >= 0");
+    }
+    setMaxSizeInternal(Math.round(initialMaxSize * multiplier));
+    evict();
+  }
+
+  private void setMaxSizeInternal(long size) {
+    maxSize = size;
+    windowMaxSize = (long) (size * windowFraction);
+    protectedMaxSize = (long) ((size - windowMaxSize) * PROTECTED_FRACTION);
+  }
+
+  @Override
+  public void setResourceRemovedListener(@NonNull ResourceRemovedListener listener) {
+    this.listener = listener;
+  }
+
+  @Nullable
+  @Override
+  public synchronized Resource<?> remove(@NonNull Key key) {
+    sketch.increment(key.hashCode());
+    Node node = entries.remove(key);
+    if (node == null) {
+      missCount++;
+      return null;
+    }
+    hitCount++;
+    acquiredSegments.put(node.key, node.segment);
+    unlink(node);
+    return node.resource;
+  }
+
+  @Nullable
+  @Override
+  public synchronized Resource<?> put(@NonNull Key key, @Nullable Resource<?> resource) {
+    if (resource == null) {
+      return null;
+    }
+    int size = resource.getSize();
+    if (size >= maxSize) {
+      notifyRemoved(resource);
+      return null;
+    }
+
+    Node old = entries.remove(key);
+    if (old != null) {
+      unlink(old);
+      if (!old.resource.equals(resource)) {
+        notifyRemoved(old.resource);
+      }
+    }
+
+    Node node = new Node(key, resource, size);
+    entries.put(key, node);
+    if (entries.size() > sketch.getCapacity()) {
+      sketch.ensureCapacity(2 * entries.size());
+    }
+    // A Resource that was in the main region when it was requested is being put back after a
+    // hit, which promotes it to the protected segment. Everything else enters the window.
+    Integer acquiredSegment = acquiredSegments.remove(key);
+    if (acquiredSegment != null && acquiredSegment != WINDOW && size <= protectedMaxSize) {
+      link(node, PROTECTED);
+    } else {
+      link(node, WINDOW);
+    }
+    evict();
+    return old != null ? old.resource : null;
+  }
+
+  @Override
+  public synchronized void clearMemory() {
+    acquiredSegments.clear();
+    trimToSize(0);
+  }
+
+  @SuppressLint("InlinedApi")
+  @Override
+  public void trimMemory(int level) {
+    if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+      // Entering list of cached background apps
+      // Evict our entire bitmap cache
+      clearMemory();
+    } else if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+        || level == android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+      // The app's UI is no longer visible, or app is in the foreground but system is running
+      // critically low on memory
+      // Evict the least valuable half of our bitmap cache
+      trimToSize(getMaxSize() / 2);
+    }
+  }
+
+  /** Returns the number of calls to {@link #remove(Key)} that found a {@link Resource}. */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  /** Returns the number of calls to {@link #remove(Key)} that didn't find a {@link Resource}. */
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * Returns the ratio of hits to requests since this cache was created, or 0 if there haven't been
+   * any requests.
+   */
+  public synchronized float getHitRate() {
+    long requestCount = hitCount + missCount;
+    return requestCount == 0 ? 0f : (float) hitCount / requestCount;
+  }
+
+  /** Returns the number of {@link Resource}s evicted to stay within the maximum size. */
+  public synchronized long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * Returns the number of {@link Resource}s that left the admission window but weren't admitted to
+   * the main region because they were requested less often than the {@link Resource}s they would
+   * have replaced.
+   */
+  public synchronized long getRejectionCount() {
+    return rejectionCount;
+  }
+
+  /** Resets the hit, miss, eviction and rejection counts to zero. */
+  public synchronized void resetStats() {
+    hitCount = 0;
+    missCount = 0;
+    evictionCount = 0;
+    rejectionCount = 0;
+  }
+
+  private void evict() {
+    // Move the window's overflow into the main region, subject to admission.
+    long mainMaxSize = maxSize - windowMaxSize;
+    while (segmentSizes[WINDOW] > windowMaxSize) {
+      Node candidate = window.next;
+      unlink(candidate);
+      if (admit(candidate, mainMaxSize)) {
+        link(candidate, PROBATION);
+      } else {
+        rejectionCount++;
+        evict(candidate);
+      }
+    }
+
+    // Demote the protected segment's overflow to probation, where it can be replaced.
+    while (segmentSizes[PROTECTED] > protectedMaxSize) {
+      Node demoted = protectedHead.next;
+      unlink(demoted);
+      link(demoted, PROBATION);
+    }
+
+    // Entries put straight into the protected segment bypass admission and may leave the cache
+    // over its maximum size.
+    trimToSizeInternal(maxSize);
+  }
+
+  /**
+   * Returns true if {@code candidate} fits in the main region, evicting the probation and then
+   * protected entries in its way if, and only if, each of them is requested less often than the
+   * candidate.
+   */
+  private boolean admit(Node candidate, long mainMaxSize) {
+    long excess = segmentSizes[PROBATION] + segmentSizes[PROTECTED] + candidate.size - mainMaxSize;
+    if (excess <= 0) {
+      return true;
+    }
+    int candidateFrequency = sketch.frequency(candidate.key.hashCode());
+    Node victim = firstVictim(null);
+    long reclaimed = 0;
+    while (victim != null && reclaimed < excess) {
+      if (sketch.frequency(victim.key.hashCode()) >= candidateFrequency) {
+        return false;
+      }
+      reclaimed += victim.size;
+      victim = firstVictim(victim);
+    }
+    if (reclaimed < excess) {
+      return false;
+    }
+    while (segmentSizes[PROBATION] + segmentSizes[PROTECTED] + candidate.size > mainMaxSize) {
+      evict(firstVictim(null));
+    }
+    return true;
+  }
+
+  /**
+   * Returns the main region entry after {@code previous} in eviction order, probation before
+   * protected and least recently used first, or null if there are no more entries.
+   */
+  @Nullable
+  private Node firstVictim(@Nullable Node previous) {
+    Node next;
+    if (previous == null) {
+      next = probation.next;
+    } else {
+      next = previous.next;
+    }
+    if (next == probation) {
+      next = protectedHead.next;
+    }
+    return next == protectedHead ? null : next;
+  }
+
+  private synchronized void trimToSize(long size) {
+    trimToSizeInternal(size);
+  }
+
+  private void trimToSizeInternal(long size) {
+    while (getCurrentSize() > size) {
+      Node victim;
+      if (probation.next != probation) {
+        victim = probation.next;
+      } else if (window.next != window) {
+        victim = window.next;
+      } else {
+        victim = protectedHead.next;
+      }
+      evict(victim);
+    }
+  }
+
+  private void evict(Node node) {
+    if (node.segment != -1) {
+      unlink(node);
+    }
+    entries.remove(node.key);
+    evictionCount++;
+    notifyRemoved(node.resource);
+  }
+
+  private void notifyRemoved(Resource<?> resource) {
+    if (listener != null) {
+      listener.onResourceRemoved(resource);
+    }
+  }
+
+  private Node headOf(int segment) {
+    switch (segment) {
+      case WINDOW:
+        return window;
+      case PROBATION:
+        return probation;
+      case PROTECTED:
+        return protectedHead;
+      default:
+        throw new IllegalArgumentException("Unknown segment: " + segment);
+    }
+  }
+
+  /** Adds {@code node} as the most recently used entry of {@code segment}. */
+  private void link(Node node, int segment) {
+    Node head = headOf(segment);
+    node.prev = head.prev;
+    node.next = head;
+    head.prev.next = node;
+    head.prev = node;
+    node.segment = segment;
+    segmentSizes[segment] += node.size;
+  }
+
+  private void unlink(Node node) {
+    node.prev.next = node.next;
+    node.next.prev = node.prev;
+    node.prev = null;
+    node.next = null;
+    segmentSizes[node.segment] -= node.size;
+    node.segment = -1;
+  }
+
+  /**
+   * An entry in one of the three circular, doubly linked segment lists. Each list has a sentinel
+   * head whose {@code next} is the least recently used entry and whose {@code prev} is the most
+   * recently used.
+   */
+  private static final class Node {
+    final Key key;
+    final Resource<?> resource;
+    final int size;
+    int segment = -1;
+    Node prev;
+    Node next;
+
+    Node(Key key, Resource<?> resource, int size) {
+      this.key = key;
+      this.resource = resource;
+      this.size = size;
+    }
+
+    static Node newHead() {
+      Node head = new Node(null, null, 0);
+      head.prev = head;
+      head.next = head;
+      return head;
+    }
+  }
+}
@@ -51,6 +51,18 @@ public final class GlideExecutor implements ExecutorService {
 
   private static final String ANIMATION_EXECUTOR_NAME = "animation";
 
+  /**
+   * The default thread name prefix for executors used to decode and transform data that has
+   * already been retrieved by the source or disk cache executors.
+   */
+  private static final String DEFAULT_DECODE_EXECUTOR_NAME = "decode";
+
+  /**
+   * The number of jobs per thread that may wait for a decode executor before jobs are decoded on
+   * the thread that retrieved their data instead.
+   */
+  private static final int DECODE_QUEUE_CAPACITY_PER_THREAD = 4;
+
   /**
    * The default keep alive time for threads in our cached thread pools in milliseconds.
    */
@@ -226,15 +238,8 @@ public final class GlideExecutor implements ExecutorService {
    * number of available cores to use when loading frames of animations.
    */
   public static GlideExecutor newAnimationExecutor() {
-    int bestThreadCount = calculateBestThreadCount();
-    // We don't want to add a ton of threads running animations in parallel with our source and
-    // disk cache executors. Doing so adds unnecessary CPU load and can also dramatically increase
-    // our maximum memory usage. Typically one thread is sufficient here, but for higher end devices
-    // with more cores, two threads can provide better performance if lots of GIFs are showing at
-    // once.
-    int maximumPoolSize = bestThreadCount >= 4 ? 2 : 1;
-
-    return newAnimationExecutor(maximumPoolSize, UncaughtThrowableStrategy.DEFAULT);
+    return newAnimationExecutor(
+        calculateBestAnimationThreadCount(), UncaughtThrowableStrategy.DEFAULT);
   }
 
   /**
@@ -258,6 +263,47 @@ public final class GlideExecutor implements ExecutorService {
                 true)));
   }
 
+  /**
+   * Returns a new fixed thread pool with the default thread count returned from
+   * {@link #calculateBestThreadCount()} and the {@link #DEFAULT_DECODE_EXECUTOR_NAME} thread name
+   * prefix for decoding and transforming data retrieved on other executors.
+   *
+   * <p>The pool's queue is bounded. Once it's full, jobs are decoded on the thread that handed them
+   * off, which slows down retrieving more data until the decode threads catch up.
+   *
+   * <p>Only data that has already been retrieved, from the disk cache or entirely into memory or a
+   * file, is handed off to decode executors, so their threads don't allow network operations.
+   */
+  public static GlideExecutor newDecodeExecutor() {
+    return newDecodeExecutor(
+        calculateBestThreadCount(),
+        DEFAULT_DECODE_EXECUTOR_NAME,
+        UncaughtThrowableStrategy.DEFAULT);
+  }
+
+  /**
+   * Returns a new fixed thread pool with the given thread count, thread name prefix, and
+   * {@link com.bumptech.glide.load.engine.executor.GlideExecutor.UncaughtThrowableStrategy} for
+   * decoding and transforming data retrieved on other executors.
+   *
+   * @see #newDecodeExecutor()
+   */
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public static GlideExecutor newDecodeExecutor(
+      int threadCount, String name, UncaughtThrowableStrategy uncaughtThrowableStrategy) {
+    return new GlideExecutor(
+        new ThreadPoolExecutor(
+            threadCount /* corePoolSize */,
+            threadCount /* maximumPoolSize */,
+            0 /* keepAliveTime */,
+            TimeUnit.MILLISECONDS,
+            new BoundedPriorityBlockingQueue<Runnable>(
+                threadCount * DECODE_QUEUE_CAPACITY_PER_THREAD),
+            new DefaultThreadFactory(name, uncaughtThrowableStrategy, true),
+            new ThreadPoolExecutor.CallerRunsPolicy()));
+  }
+
   @VisibleForTesting
   GlideExecutor(ExecutorService delegate) {
     this.delegate = delegate;
@@ -361,6 +407,19 @@ public final class GlideExecutor implements ExecutorService {
     return bestThreadCount;
   }
 
+  /**
+   * Determines the number of threads the default animation executor uses, see
+   * {@link #newAnimationExecutor()}.
+   */
+  public static int calculateBestAnimationThreadCount() {
+    // We don't want to add a ton of threads running animations in parallel with our source and
+    // disk cache executors. Doing so adds unnecessary CPU load and can also dramatically increase
+    // our maximum memory usage. Typically one thread is sufficient here, but for higher end devices
+    // with more cores, two threads can provide better performance if lots of GIFs are showing at
+    // once.
+    return calculateBestThreadCount() >= 4 ? 2 : 1;
+  }
+
   /**
    * A strategy for handling unexpected and uncaught {@link Throwable}s thrown by futures run on the
    * pool.
@@ -408,6 +467,29 @@ public final class GlideExecutor implements ExecutorService {
     void handle(Throwable t);
   }
 
+  /**
+   * A {@link PriorityBlockingQueue} that refuses new elements once it holds {@code capacity}, so
+   * that a {@link ThreadPoolExecutor} using it rejects work instead of queueing it indefinitely.
+   */
+  private static final class BoundedPriorityBlockingQueue<E> extends PriorityBlockingQueue<E> {
+    private final int capacity;
+
+    BoundedPriorityBlockingQueue(int capacity) {
+      this.capacity = capacity;
+    }
+
+    // The executor only enqueues with offer, put and add delegate to it.
+    @Override
+    public synchronized boolean offer(E e) {
+      return size() < capacity && super.offer(e);
+    }
+
+    @Override
+    public int remainingCapacity() {
+      return Math.max(0, capacity - size());
+    }
+  }
+
   /**
    * A {@link java.util.concurrent.ThreadFactory} that builds threads slightly above priority {@link
    * android.os.Process#THREAD_PRIORITY_BACKGROUND}.
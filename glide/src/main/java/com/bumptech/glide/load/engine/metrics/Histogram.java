@@ -0,0 +1,138 @@
+package com.bumptech.glide.load.engine.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size, lock free histogram of non-negative {@code long} values with a bounded relative
+ * error, suitable for recording latencies and sizes from many threads at once.
+ *
+ * <p>Values smaller than {@link #SUB_BUCKET_COUNT} are counted exactly. Larger values are counted
+ * in buckets that split each power of two range into {@link #SUB_BUCKET_COUNT} equal parts, so a
+ * percentile is reported as the middle of its bucket and is within about 6% of the recorded
+ * value. Values of {@code 2^48} or more, about three days in nanoseconds, share the last bucket.
+ *
+ * <p>Recording is a couple of atomic increments. Reads aren't atomic with respect to concurrent
+ * recording, so a percentile read while values are being recorded may include some of them but not
+ * others.
+ */
+public final class Histogram {
+  private static final int SUB_BUCKET_BITS = 3;
+  /** The number of buckets each power of two range is split into. */
+  public static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_EXPONENT = 47;
+  private static final int BUCKET_COUNT =
+      SUB_BUCKET_COUNT + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  /** Records a single value, treating negative values as zero. */
+  public void record(long value) {
+    long clamped = Math.max(0, value);
+    counts.incrementAndGet(getBucketIndex(clamped));
+    sum.addAndGet(clamped);
+    long currentMax;
+    do {
+      currentMax = max.get();
+    } while (clamped > currentMax && !max.compareAndSet(currentMax, clamped));
+  }
+
+  /** Returns the number of values recorded since this histogram was created or reset. */
+  public long getCount() {
+    long result = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      result += counts.get(i);
+    }
+    return result;
+  }
+
+  /** Returns the sum of all recorded values. */
+  public long getSum() {
+    return sum.get();
+  }
+
+  /** Returns the largest recorded value, or {@code 0} if nothing has been recorded. */
+  public long getMax() {
+    return max.get();
+  }
+
+  /** Returns the mean of all recorded values, or {@code 0} if nothing has been recorded. */
+  public double getMean() {
+    long count = getCount();
+    return count == 0 ? 0 : (double) getSum() / count;
+  }
+
+  /**
+   * Returns an estimate of the value below which the given percentage of recorded values fall, or
+   * {@code 0} if nothing has been recorded.
+   *
+   * @param percentile A percentile between 0 and 100, for example 50 for the median or 99 for the
+   *                   99th percentile.
+   */
+  public long getValueAtPercentile(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+    }
+    long[] snapshot = new long[BUCKET_COUNT];
+    long total = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      snapshot[i] = counts.get(i);
+      total += snapshot[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100d * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        // The last bucket is unbounded, the largest value is the best estimate available for it.
+        return i == BUCKET_COUNT - 1 ? getMax() : Math.min(getMax(), getBucketMidpoint(i));
+      }
+    }
+    return getMax();
+  }
+
+  /** Discards all recorded values. */
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts.set(i, 0);
+    }
+    sum.set(0);
+    max.set(0);
+  }
+
+  @Override
+  public String toString() {
+    return "Histogram{"
+        + "count=" + getCount()
+        + ", p50=" + getValueAtPercentile(50)
+        + ", p90=" + getValueAtPercentile(90)
+        + ", p99=" + getValueAtPercentile(99)
+        + ", max=" + getMax()
+        + '}';
+  }
+
+  private static int getBucketIndex(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    int exponent = Math.min(MAX_EXPONENT, 63 - Long.numberOfLeadingZeros(value));
+    int shift = exponent - SUB_BUCKET_BITS;
+    int subBucket = (int) Math.min(SUB_BUCKET_COUNT - 1, (value >>> shift) - SUB_BUCKET_COUNT);
+    return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  private static long getBucketMidpoint(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+    int subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+    long lowerBound = (long) (SUB_BUCKET_COUNT + subBucket) << shift;
+    return lowerBound + (((1L << shift) - 1) >> 1);
+  }
+}
@@ -0,0 +1,121 @@
+package com.bumptech.glide.load.engine.metrics;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Transformation;
+
+/**
+ * Receives timing and outcome events for each load started by the
+ * {@link com.bumptech.glide.load.engine.Engine}.
+ *
+ * <p>Events for a load are identified by the load's memory cache key, so events reported by
+ * different stages of the same load can be correlated. Durations are in nanoseconds.
+ *
+ * <p>Methods are called on the main thread and on Glide's executor threads, often concurrently, and
+ * in the middle of loads. Implementations must be thread safe and should return quickly. See
+ * {@link LoadMetrics} for an implementation that aggregates events into histograms.
+ */
+public interface LoadEventListener {
+
+  /**
+   * Called on the main thread once the memory caches have been checked for a load.
+   *
+   * @param key The key of the load.
+   * @param result Where, if anywhere, the resource was found in memory.
+   */
+  void onMemoryCacheLookup(@NonNull Key key, @NonNull MemoryCacheResult result);
+
+  /**
+   * Called when a load is done with a stage, either because the stage produced a resource or
+   * because it had nothing to offer and the load moved on.
+   *
+   * <p>The duration is measured from when the stage was entered, including any time spent waiting
+   * for an executor, to when the resource was decoded or the stage gave up.
+   *
+   * @param key The key of the load.
+   * @param stage The stage that finished.
+   * @param isResourceLoaded {@code true} if the stage produced the resource for the load.
+   * @param durationNanos The time spent in the stage.
+   */
+  void onStageFinished(
+      @NonNull Key key, @NonNull LoadStage stage, boolean isResourceLoaded, long durationNanos);
+
+  /**
+   * Called when a fetcher has retrieved data for a load, before the data is decoded.
+   *
+   * @param key The key of the load.
+   * @param stage The stage the data was retrieved in.
+   * @param dataSource Where the data came from.
+   * @param byteCount The size of the data, or {@code -1} if it isn't known before decoding, for
+   *                  example for streams without a content length.
+   * @param durationNanos The time from when the fetcher was started until the data was available.
+   */
+  void onDataFetched(@NonNull Key key, @NonNull LoadStage stage, @NonNull DataSource dataSource,
+      long byteCount, long durationNanos);
+
+  /**
+   * Called when data has been decoded into a resource, excluding the time spent applying
+   * transformations.
+   *
+   * @param key The key of the load.
+   * @param dataSource Where the decoded data came from.
+   * @param durationNanos The time spent decoding and transcoding.
+   */
+  void onDecoded(@NonNull Key key, @NonNull DataSource dataSource, long durationNanos);
+
+  /**
+   * Called when a transformation has been applied to a decoded resource.
+   *
+   * @param key The key of the load.
+   * @param transformation The transformation that was applied.
+   * @param durationNanos The time spent in the transformation.
+   */
+  void onTransformed(
+      @NonNull Key key, @NonNull Transformation<?> transformation, long durationNanos);
+
+  /**
+   * Called by {@link com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool} and
+   * {@link com.bumptech.glide.load.engine.bitmap_recycle.StripedBitmapPool} each time a
+   * {@link Bitmap} is requested.
+   *
+   * <p>Bitmap pools are shared by all loads, so these events aren't attributed to a load.
+   *
+   * @param isHit {@code true} if a pooled {@link Bitmap} was reused, {@code false} if a new one
+   *              had to be allocated.
+   */
+  void onBitmapPoolGet(int width, int height, @Nullable Bitmap.Config config, boolean isHit);
+
+  /**
+   * The possible outcomes of checking the memory caches for a load.
+   */
+  enum MemoryCacheResult {
+    /** The resource was in use by another request and was shared. */
+    ACTIVE,
+    /** The resource was in the {@link com.bumptech.glide.load.engine.cache.MemoryCache}. */
+    CACHE,
+    /**
+     * The resource will be scaled down in the background from the same image in memory at a larger
+     * size.
+     */
+    SCALED,
+    /** The resource wasn't in memory and will be loaded, or joins a load already in progress. */
+    MISS,
+    /** The load skips the memory caches. */
+    SKIPPED,
+  }
+
+  /**
+   * The stages a load goes through, in order, when its resource isn't in memory.
+   */
+  enum LoadStage {
+    /** Decoding a cached, transformed resource from the disk cache. */
+    RESOURCE_CACHE,
+    /** Decoding cached, untransformed source data from the disk cache. */
+    DATA_CACHE,
+    /** Retrieving and decoding data from the original source. */
+    SOURCE,
+  }
+}
@@ -0,0 +1,183 @@
+package com.bumptech.glide.load.engine.metrics;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.Transformation;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link LoadEventListener} that aggregates events from all loads into {@link Histogram}s and
+ * counters, so that percentiles per stage can be read and exported periodically.
+ *
+ * <p>Set with {@link com.bumptech.glide.GlideBuilder#setLoadEventListener(LoadEventListener)}.
+ * Recording is lock free and allocation free. Values accumulate until {@link #reset()} is called,
+ * typically right after they've been exported.
+ */
+public final class LoadMetrics implements LoadEventListener {
+  private static final LoadStage[] STAGES = LoadStage.values();
+  private static final MemoryCacheResult[] MEMORY_CACHE_RESULTS = MemoryCacheResult.values();
+
+  private final AtomicLongArray memoryCacheCounts =
+      new AtomicLongArray(MEMORY_CACHE_RESULTS.length);
+  private final AtomicLongArray stageResourceCounts = new AtomicLongArray(STAGES.length);
+  private final Histogram[] stageDurations = newHistograms(STAGES.length);
+  private final Histogram[] fetchDurations = newHistograms(STAGES.length);
+  private final Histogram[] fetchSizes = newHistograms(STAGES.length);
+  private final Histogram decodeDurations = new Histogram();
+  private final Histogram transformationDurations = new Histogram();
+  private final AtomicLong bitmapPoolHits = new AtomicLong();
+  private final AtomicLong bitmapPoolMisses = new AtomicLong();
+
+  @Override
+  public void onMemoryCacheLookup(@NonNull Key key, @NonNull MemoryCacheResult result) {
+    memoryCacheCounts.incrementAndGet(result.ordinal());
+  }
+
+  @Override
+  public void onStageFinished(
+      @NonNull Key key, @NonNull LoadStage stage, boolean isResourceLoaded, long durationNanos) {
+    stageDurations[stage.ordinal()].record(durationNanos);
+    if (isResourceLoaded) {
+      stageResourceCounts.incrementAndGet(stage.ordinal());
+    }
+  }
+
+  @Override
+  public void onDataFetched(@NonNull Key key, @NonNull LoadStage stage,
+      @NonNull DataSource dataSource, long byteCount, long durationNanos) {
+    fetchDurations[stage.ordinal()].record(durationNanos);
+    if (byteCount >= 0) {
+      fetchSizes[stage.ordinal()].record(byteCount);
+    }
+  }
+
+  @Override
+  public void onDecoded(@NonNull Key key, @NonNull DataSource dataSource, long durationNanos) {
+    decodeDurations.record(durationNanos);
+  }
+
+  @Override
+  public void onTransformed(
+      @NonNull Key key, @NonNull Transformation<?> transformation, long durationNanos) {
+    transformationDurations.record(durationNanos);
+  }
+
+  @Override
+  public void onBitmapPoolGet(
+      int width, int height, @Nullable Bitmap.Config config, boolean isHit) {
+    if (isHit) {
+      bitmapPoolHits.incrementAndGet();
+    } else {
+      bitmapPoolMisses.incrementAndGet();
+    }
+  }
+
+  /** Returns the number of loads whose memory cache lookup had the given result. */
+  public long getMemoryCacheCount(@NonNull MemoryCacheResult result) {
+    return memoryCacheCounts.get(result.ordinal());
+  }
+
+  /** Returns the number of loads whose resource was produced by the given stage. */
+  public long getStageResourceCount(@NonNull LoadStage stage) {
+    return stageResourceCounts.get(stage.ordinal());
+  }
+
+  /**
+   * Returns the time loads spent in the given stage, whether or not the stage produced the
+   * resource.
+   */
+  @NonNull
+  public Histogram getStageDurations(@NonNull LoadStage stage) {
+    return stageDurations[stage.ordinal()];
+  }
+
+  /** Returns the time fetchers took to retrieve data in the given stage. */
+  @NonNull
+  public Histogram getFetchDurations(@NonNull LoadStage stage) {
+    return fetchDurations[stage.ordinal()];
+  }
+
+  /** Returns the sizes in bytes of data retrieved in the given stage, where it was known. */
+  @NonNull
+  public Histogram getFetchSizes(@NonNull LoadStage stage) {
+    return fetchSizes[stage.ordinal()];
+  }
+
+  /** Returns the time spent decoding and transcoding data, excluding transformations. */
+  @NonNull
+  public Histogram getDecodeDurations() {
+    return decodeDurations;
+  }
+
+  /** Returns the time spent applying transformations. */
+  @NonNull
+  public Histogram getTransformationDurations() {
+    return transformationDurations;
+  }
+
+  /** Returns the number of {@link Bitmap}s reused from a bitmap pool. */
+  public long getBitmapPoolHitCount() {
+    return bitmapPoolHits.get();
+  }
+
+  /** Returns the number of {@link Bitmap}s a bitmap pool had to allocate. */
+  public long getBitmapPoolMissCount() {
+    return bitmapPoolMisses.get();
+  }
+
+  /** Discards everything recorded so far. */
+  public void reset() {
+    for (int i = 0; i < MEMORY_CACHE_RESULTS.length; i++) {
+      memoryCacheCounts.set(i, 0);
+    }
+    for (int i = 0; i < STAGES.length; i++) {
+      stageResourceCounts.set(i, 0);
+      stageDurations[i].reset();
+      fetchDurations[i].reset();
+      fetchSizes[i].reset();
+    }
+    decodeDurations.reset();
+    transformationDurations.reset();
+    bitmapPoolHits.set(0);
+    bitmapPoolMisses.set(0);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder("LoadMetrics{memoryCache={");
+    for (MemoryCacheResult memoryCacheResult : MEMORY_CACHE_RESULTS) {
+      if (memoryCacheResult.ordinal() > 0) {
+        result.append(", ");
+      }
+      result.append(memoryCacheResult).append('=').append(getMemoryCacheCount(memoryCacheResult));
+    }
+    result.append('}');
+    for (LoadStage stage : STAGES) {
+      result.append(", ").append(stage).append("={")
+          .append("resources=").append(getStageResourceCount(stage))
+          .append(", durationNanos=").append(getStageDurations(stage))
+          .append(", fetchNanos=").append(getFetchDurations(stage))
+          .append(", fetchBytes=").append(getFetchSizes(stage))
+          .append('}');
+    }
+    return result
+        .append(", decodeNanos=").append(decodeDurations)
+        .append(", transformationNanos=").append(transformationDurations)
+        .append(", bitmapPoolHits=").append(getBitmapPoolHitCount())
+        .append(", bitmapPoolMisses=").append(getBitmapPoolMissCount())
+        .append('}')
+        .toString();
+  }
+
+  private static Histogram[] newHistograms(int count) {
+    Histogram[] result = new Histogram[count];
+    for (int i = 0; i < count; i++) {
+      result[i] = new Histogram();
+    }
+    return result;
+  }
+}
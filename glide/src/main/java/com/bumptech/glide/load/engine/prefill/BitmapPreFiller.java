@@ -3,12 +3,16 @@ package com.bumptech.glide.load.engine.prefill;
 import android.graphics.Bitmap;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.annotation.NonNull;
 import android.support.annotation.VisibleForTesting;
 import com.bumptech.glide.load.DecodeFormat;
 import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
 import com.bumptech.glide.load.engine.cache.MemoryCache;
+import com.bumptech.glide.util.Synthetic;
 import com.bumptech.glide.util.Util;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -16,6 +20,8 @@ import java.util.Map;
  * {@link com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool}.
  */
 public final class BitmapPreFiller {
+  // The maximum number of sizes pre-filled from a histogram.
+  private static final int MAX_HISTOGRAM_TYPES = 8;
 
   private final MemoryCache memoryCache;
   private final BitmapPool bitmapPool;
@@ -53,6 +59,62 @@ public final class BitmapPreFiller {
     handler.post(current);
   }
 
+  /**
+   * Once the main thread is next idle, pre-fills the sizes the given histogram expects to be
+   * needed, as many {@link Bitmap}s of each size as were missed in an average session. Does
+   * nothing if {@link #preFill(PreFillType.Builder...)} has been called.
+   *
+   * <p>May be called on any thread.
+   */
+  public void preFillWhenIdle(@NonNull final PreFillHistogram histogram) {
+    handler.post(new Runnable() {
+      @Override
+      public void run() {
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+          @Override
+          public boolean queueIdle() {
+            preFillFromHistogram(histogram);
+            // Only once.
+            return false;
+          }
+        });
+      }
+    });
+  }
+
+  @Synthetic
+  void preFillFromHistogram(PreFillHistogram histogram) {
+    if (current != null) {
+      return;
+    }
+    List<PreFillType> types = histogram.getFrequentTypes(MAX_HISTOGRAM_TYPES);
+    if (types.isEmpty()) {
+      return;
+    }
+    current = new BitmapPreFillRunner(bitmapPool, memoryCache, generateAllocationOrder(types));
+    handler.post(current);
+  }
+
+  /**
+   * Allocates as many {@link Bitmap}s of each type as its weight, in order, until the free space
+   * in the memory cache and bitmap pool is used up.
+   */
+  @VisibleForTesting
+  PreFillQueue generateAllocationOrder(List<PreFillType> typesByPriority) {
+    long remainingSize =
+        memoryCache.getMaxSize() - memoryCache.getCurrentSize() + bitmapPool.getMaxSize();
+    Map<PreFillType, Integer> attributeToCount = new HashMap<>();
+    for (PreFillType type : typesByPriority) {
+      int bytesPerBitmap = getSizeInBytes(type);
+      int count = (int) Math.min(type.getWeight(), remainingSize / bytesPerBitmap);
+      if (count > 0) {
+        attributeToCount.put(type, count);
+        remainingSize -= (long) count * bytesPerBitmap;
+      }
+    }
+    return new PreFillQueue(attributeToCount);
+  }
+
   @VisibleForTesting
   PreFillQueue generateAllocationOrder(PreFillType... preFillSizes) {
     final long maxSize =
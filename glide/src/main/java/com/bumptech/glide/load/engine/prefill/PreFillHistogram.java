@@ -0,0 +1,277 @@
+package com.bumptech.glide.load.engine.prefill;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.util.Synthetic;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Counts the sizes and configs of {@link Bitmap}s that had to be allocated because they weren't
+ * in the {@link LruBitmapPool}, and keeps a per session average of the counts in a file, so that
+ * the next session can pre-fill the pool with the sizes it's likely to need.
+ *
+ * <p>Averages are exponentially weighted, so sizes the app stops using fade out after a few
+ * sessions. Sizes missed fewer than {@link #MIN_AVERAGE_MISSES} times per session aren't kept,
+ * which also drops the single miss a pre-fill itself causes for each size it allocates.
+ *
+ * <p>The file is read and written on the given {@link Executor}. This class is thread safe.
+ */
+public final class PreFillHistogram implements LruBitmapPool.MissListener {
+  private static final String TAG = "PreFillHistogram";
+  private static final int VERSION = 1;
+  /** The minimum average number of misses per session for a size to be pre-filled. */
+  public static final float MIN_AVERAGE_MISSES = 2f;
+  // The weight of the latest session in the average.
+  private static final float SESSION_WEIGHT = 0.5f;
+  // Bounds the memory and file size if an app requests many distinct sizes.
+  private static final int MAX_SIZES = 64;
+
+  private final File file;
+  private final Executor executor;
+  // Guarded by this.
+  private final Map<PreFillType, Integer> sessionCounts = new HashMap<>();
+  private final Map<PreFillType, Float> averages = new HashMap<>();
+  private boolean isLoaded;
+
+  /**
+   * @param file     The file to keep averages in, which doesn't need to exist.
+   * @param executor Reads and writes the file. Must not be shared with loads, Glide's executors
+   *                 order their queues by comparing {@code DecodeJob}s, so other tasks can't be
+   *                 queued with them.
+   */
+  public PreFillHistogram(@NonNull File file, @NonNull Executor executor) {
+    this.file = file;
+    this.executor = executor;
+  }
+
+  @Override
+  public void onMiss(int width, int height, @NonNull Bitmap.Config config) {
+    if (width <= 0 || height <= 0) {
+      return;
+    }
+    PreFillType type = new PreFillType(width, height, config, 1 /*weight*/);
+    synchronized (this) {
+      Integer count = sessionCounts.get(type);
+      if (count != null) {
+        sessionCounts.put(type, count + 1);
+      } else if (sessionCounts.size() < MAX_SIZES) {
+        sessionCounts.put(type, 1);
+      }
+    }
+  }
+
+  /**
+   * Reads the averages of previous sessions on the executor and then runs {@code onLoaded} on the
+   * executor's thread.
+   */
+  public void load(@Nullable final Runnable onLoaded) {
+    executor.execute(new FileTask() {
+      @Override
+      public void run() {
+        Map<PreFillType, Float> loaded = read();
+        synchronized (PreFillHistogram.this) {
+          averages.putAll(loaded);
+          isLoaded = true;
+        }
+        if (onLoaded != null) {
+          onLoaded.run();
+        }
+      }
+    });
+  }
+
+  /**
+   * Returns at most {@code maxSizes} of the most frequently missed sizes, most frequent first,
+   * each weighted by its average number of misses per session.
+   */
+  @NonNull
+  public synchronized List<PreFillType> getFrequentTypes(int maxSizes) {
+    List<PreFillType> result = new ArrayList<>();
+    for (Map.Entry<PreFillType, Float> entry : sortByAverage(averages)) {
+      if (result.size() >= maxSizes) {
+        break;
+      }
+      PreFillType type = entry.getKey();
+      result.add(new PreFillType(type.getWidth(), type.getHeight(), type.getConfig(),
+          Math.round(entry.getValue())));
+    }
+    return result;
+  }
+
+  /**
+   * Merges this session's counts into the averages and writes them on the executor, for example
+   * when the app moves to the background. Does nothing until {@link #load(Runnable)} completes, so
+   * that averages of previous sessions aren't overwritten.
+   */
+  public void save() {
+    executor.execute(new FileTask() {
+      @Override
+      public void run() {
+        Map<PreFillType, Float> toWrite;
+        synchronized (PreFillHistogram.this) {
+          if (!isLoaded) {
+            return;
+          }
+          toWrite = merge();
+        }
+        write(toWrite);
+      }
+    });
+  }
+
+  // Folds the session into the averages and starts a new session, so saving twice in a session
+  // doesn't count its misses twice.
+  @Synthetic
+  Map<PreFillType, Float> merge() {
+    Map<PreFillType, Float> merged = new HashMap<>();
+    for (Map.Entry<PreFillType, Float> entry : averages.entrySet()) {
+      Integer count = sessionCounts.get(entry.getKey());
+      merged.put(entry.getKey(), average(entry.getValue(), count == null ? 0 : count));
+    }
+    for (Map.Entry<PreFillType, Integer> entry : sessionCounts.entrySet()) {
+      if (!averages.containsKey(entry.getKey())) {
+        merged.put(entry.getKey(), average(0, entry.getValue()));
+      }
+    }
+    sessionCounts.clear();
+    averages.clear();
+    for (Map.Entry<PreFillType, Float> entry : sortByAverage(merged)) {
+      if (entry.getValue() < MIN_AVERAGE_MISSES || averages.size() >= MAX_SIZES) {
+        break;
+      }
+      averages.put(entry.getKey(), entry.getValue());
+    }
+    return new HashMap<>(averages);
+  }
+
+  private static float average(float previous, int count) {
+    return previous * (1 - SESSION_WEIGHT) + count * SESSION_WEIGHT;
+  }
+
+  private static List<Map.Entry<PreFillType, Float>> sortByAverage(Map<PreFillType, Float> map) {
+    List<Map.Entry<PreFillType, Float>> entries = new ArrayList<>(map.entrySet());
+    Collections.sort(entries, new Comparator<Map.Entry<PreFillType, Float>>() {
+      @Override
+      public int compare(Map.Entry<PreFillType, Float> first,
+          Map.Entry<PreFillType, Float> second) {
+        return Float.compare(second.getValue(), first.getValue());
+      }
+    });
+    return entries;
+  }
+
+  @Synthetic
+  Map<PreFillType, Float> read() {
+    Map<PreFillType, Float> result = new HashMap<>();
+    DataInputStream is = null;
+    try {
+      is = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      if (is.readInt() != VERSION) {
+        return result;
+      }
+      int count = Math.min(is.readInt(), MAX_SIZES);
+      for (int i = 0; i < count; i++) {
+        int width = is.readInt();
+        int height = is.readInt();
+        String configName = is.readUTF();
+        float average = is.readFloat();
+        Bitmap.Config config = getConfig(configName);
+        if (width > 0 && height > 0 && config != null) {
+          result.put(new PreFillType(width, height, config, 1 /*weight*/), average);
+        }
+      }
+    } catch (FileNotFoundException e) {
+      // No previous sessions.
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Failed to read pre-fill histogram, starting over", e);
+      }
+      result.clear();
+    } finally {
+      if (is != null) {
+        try {
+          is.close();
+        } catch (IOException e) {
+          // Ignored.
+        }
+      }
+    }
+    return result;
+  }
+
+  // Null if the config was written by a newer platform version.
+  @Nullable
+  private static Bitmap.Config getConfig(String name) {
+    try {
+      return Bitmap.Config.valueOf(name);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  @Synthetic
+  void write(Map<PreFillType, Float> toWrite) {
+    // Written to a temporary file and renamed so that a partial write can't corrupt the averages.
+    File temp = new File(file.getPath() + ".tmp");
+    DataOutputStream os = null;
+    boolean isWritten = false;
+    try {
+      os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+      os.writeInt(VERSION);
+      os.writeInt(toWrite.size());
+      for (Map.Entry<PreFillType, Float> entry : toWrite.entrySet()) {
+        PreFillType type = entry.getKey();
+        os.writeInt(type.getWidth());
+        os.writeInt(type.getHeight());
+        // Names rather than ordinals, which have changed between platform versions.
+        os.writeUTF(type.getConfig().name());
+        os.writeFloat(entry.getValue());
+      }
+      os.close();
+      os = null;
+      isWritten = temp.renameTo(file);
+    } catch (IOException e) {
+      if (Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Failed to write pre-fill histogram", e);
+      }
+    } finally {
+      if (os != null) {
+        try {
+          os.close();
+        } catch (IOException e) {
+          // Ignored.
+        }
+      }
+      if (!isWritten && temp.exists() && !temp.delete() && Log.isLoggable(TAG, Log.DEBUG)) {
+        Log.d(TAG, "Failed to delete " + temp);
+      }
+    }
+  }
+
+  // GlideExecutor's queues are ordered, file tasks are few and all equal. They're only ever queued
+  // with each other, see the constructor.
+  private abstract static class FileTask implements Runnable, Comparable<FileTask> {
+    @Override
+    public int compareTo(@NonNull FileTask other) {
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,272 @@
+package com.bumptech.glide.load.resource.gif;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+import com.bumptech.glide.load.engine.executor.GlideExecutor;
+import com.bumptech.glide.util.Preconditions;
+import com.bumptech.glide.util.Synthetic;
+import com.bumptech.glide.util.Util;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+
+/**
+ * Decides when the frames of all running GIF animations are decoded, so that many animations
+ * running at once share the animation executor evenly.
+ *
+ * <ul>
+ *   <li>At most as many frames as the animation executor has threads are decoded at once, the rest
+ *   wait here rather than in the executor's queue and are started in the order they're due to be
+ *   displayed.
+ *   <li>Animations spend at most the frame budget, a fraction of each frame's delay, decoding a
+ *   frame. Animations whose frames take longer to decode are slowed down until they fit.
+ *   <li>If frames are decoded after they were due to be displayed, every animation is slowed down
+ *   by the same factor until frames are decoded on time again.
+ *   <li>Animations that aren't on screen decode at most one frame every
+ *   {@link #OFF_SCREEN_INTERVAL_MILLIS}. Animations whose drawables aren't visible are already
+ *   stopped by {@link GifDrawable}.
+ * </ul>
+ *
+ * <p>Set with {@link com.bumptech.glide.GlideBuilder#setAnimationScheduler(AnimationScheduler)}.
+ * All methods other than the statistics must be called on the main thread.
+ */
+public final class AnimationScheduler {
+  private static final String TAG = "AnimationScheduler";
+  /** The default fraction of each frame's delay that may be spent decoding it. */
+  public static final float DEFAULT_FRAME_BUDGET = 0.5f;
+  @VisibleForTesting
+  static final long OFF_SCREEN_INTERVAL_MILLIS = 1000;
+  // Load is evaluated after this many decodes.
+  private static final int WINDOW_SIZE = 32;
+  // Above this fraction of missed deadlines in a window all animations slow down, below the low
+  // fraction they speed up again.
+  private static final float HIGH_MISSED_RATIO = 0.1f;
+  private static final float LOW_MISSED_RATIO = 0.02f;
+  private static final float DELAY_MULTIPLIER_STEP = 1.25f;
+  private static final float MAX_DELAY_MULTIPLIER = 4f;
+
+  private final int maxConcurrentDecodes;
+  private final float frameBudget;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  // Ordered by deadline.
+  private final PriorityQueue<DecodeRequest> readyRequests = new PriorityQueue<>();
+  // Throttled requests, ordered by the time they may start.
+  private final PriorityQueue<DecodeRequest> waitingRequests =
+      new PriorityQueue<>(11, new StartTimeComparator());
+  private final Runnable drainRunnable = new Runnable() {
+    @Override
+    public void run() {
+      drain();
+    }
+  };
+
+  private int activeDecodes;
+  private long order;
+  private int windowDecodes;
+  private int windowMissedDeadlines;
+  private volatile float delayMultiplier = 1f;
+  private volatile long decodeCount;
+  private volatile long missedDeadlineCount;
+
+  /**
+   * Creates a scheduler for the default animation executor, see
+   * {@link GlideExecutor#newAnimationExecutor()}.
+   */
+  public AnimationScheduler() {
+    this(GlideExecutor.calculateBestAnimationThreadCount(), DEFAULT_FRAME_BUDGET);
+  }
+
+  /**
+   * @param maxConcurrentDecodes The number of frames to decode at once, usually the number of
+   *                             threads in the animation executor.
+   * @param frameBudget          The fraction of a frame's delay that may be spent decoding it.
+   */
+  public AnimationScheduler(int maxConcurrentDecodes, float frameBudget) {
+    Preconditions.checkArgument(maxConcurrentDecodes > 0, "maxConcurrentDecodes must be > 0");
+    Preconditions.checkArgument(frameBudget > 0, "frameBudget must be > 0");
+    this.maxConcurrentDecodes = maxConcurrentDecodes;
+    this.frameBudget = frameBudget;
+  }
+
+  /**
+   * Returns the factor by which all animations are currently slowed down because of missed
+   * deadlines, {@code 1} if frames are decoded on time.
+   */
+  public float getDelayMultiplier() {
+    return delayMultiplier;
+  }
+
+  /**
+   * Returns the number of frames decoded.
+   */
+  public long getDecodeCount() {
+    return decodeCount;
+  }
+
+  /**
+   * Returns the number of frames decoded after the time they should have been displayed.
+   */
+  public long getMissedDeadlineCount() {
+    return missedDeadlineCount;
+  }
+
+  /**
+   * Returns the number of frames waiting to be decoded.
+   */
+  public int getQueueDepth() {
+    Util.assertMainThread();
+    return readyRequests.size() + waitingRequests.size();
+  }
+
+  /**
+   * Returns the time to display a frame with the given delay for before moving to the next frame,
+   * for an animation whose frames take the given time to decode.
+   */
+  long scaleDelay(int delay, long decodeMillis) {
+    long budgetedDelay = (long) (decodeMillis / frameBudget);
+    return Math.max((long) (delay * delayMultiplier), budgetedDelay);
+  }
+
+  /**
+   * Asks to decode the next frame of the given loader, which is started with
+   * {@link GifFrameLoader#startDecode(long)} once it's the loader's turn.
+   *
+   * @param deadline   The time the frame is due to be displayed.
+   * @param isOnScreen Whether any of the loader's drawables are on screen.
+   */
+  void requestDecode(@NonNull GifFrameLoader loader, long deadline, boolean isOnScreen) {
+    Util.assertMainThread();
+    long now = SystemClock.uptimeMillis();
+    DecodeRequest request = new DecodeRequest(loader, deadline, order++);
+    if (isOnScreen) {
+      readyRequests.add(request);
+    } else {
+      request.startTime = now + OFF_SCREEN_INTERVAL_MILLIS;
+      // Don't count the throttled frame as late.
+      request.deadline = Math.max(deadline, request.startTime);
+      waitingRequests.add(request);
+    }
+    drain();
+  }
+
+  /**
+   * Forgets a request that hasn't been started yet, returns {@code false} if the loader had none.
+   */
+  boolean cancel(@NonNull GifFrameLoader loader) {
+    Util.assertMainThread();
+    return remove(readyRequests, loader) || remove(waitingRequests, loader);
+  }
+
+  private static boolean remove(PriorityQueue<DecodeRequest> requests, GifFrameLoader loader) {
+    for (Iterator<DecodeRequest> iterator = requests.iterator(); iterator.hasNext(); ) {
+      if (iterator.next().loader == loader) {
+        iterator.remove();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Called when a decode started by {@link GifFrameLoader#startDecode(long)} fails or is
+   * cancelled.
+   */
+  void onDecodeCancelled() {
+    Util.assertMainThread();
+    activeDecodes--;
+    drain();
+  }
+
+  /**
+   * Called when a decode started by {@link GifFrameLoader#startDecode(long)} completes.
+   *
+   * @param deadline The deadline the decode was started with.
+   */
+  void onDecodeFinished(long deadline) {
+    Util.assertMainThread();
+    activeDecodes--;
+    decodeCount++;
+    windowDecodes++;
+    if (SystemClock.uptimeMillis() > deadline) {
+      missedDeadlineCount++;
+      windowMissedDeadlines++;
+    }
+    if (windowDecodes >= WINDOW_SIZE) {
+      updateDelayMultiplier();
+    }
+    drain();
+  }
+
+  private void updateDelayMultiplier() {
+    float missedRatio = (float) windowMissedDeadlines / windowDecodes;
+    float previous = delayMultiplier;
+    if (missedRatio > HIGH_MISSED_RATIO) {
+      delayMultiplier = Math.min(MAX_DELAY_MULTIPLIER, previous * DELAY_MULTIPLIER_STEP);
+    } else if (missedRatio < LOW_MISSED_RATIO) {
+      delayMultiplier = Math.max(1f, previous / DELAY_MULTIPLIER_STEP);
+    }
+    if (delayMultiplier != previous && Log.isLoggable(TAG, Log.DEBUG)) {
+      Log.d(TAG, "Missed " + windowMissedDeadlines + " of " + windowDecodes
+          + " deadlines, delay multiplier: " + delayMultiplier);
+    }
+    windowDecodes = 0;
+    windowMissedDeadlines = 0;
+  }
+
+  @Synthetic
+  void drain() {
+    long now = SystemClock.uptimeMillis();
+    while (!waitingRequests.isEmpty() && waitingRequests.peek().startTime <= now) {
+      readyRequests.add(waitingRequests.poll());
+    }
+    while (activeDecodes < maxConcurrentDecodes && !readyRequests.isEmpty()) {
+      DecodeRequest request = readyRequests.poll();
+      activeDecodes++;
+      request.loader.startDecode(request.deadline);
+    }
+    handler.removeCallbacks(drainRunnable);
+    if (!waitingRequests.isEmpty()) {
+      handler.postAtTime(drainRunnable, waitingRequests.peek().startTime);
+    }
+  }
+
+  private static final class DecodeRequest implements Comparable<DecodeRequest> {
+    @Synthetic final GifFrameLoader loader;
+    @Synthetic final long order;
+    @Synthetic long deadline;
+    @Synthetic long startTime;
+
+    DecodeRequest(GifFrameLoader loader, long deadline, long order) {
+      this.loader = loader;
+      this.deadline = deadline;
+      this.order = order;
+    }
+
+    @Override
+    public int compareTo(@NonNull DecodeRequest other) {
+      int result = compare(deadline, other.deadline);
+      return result != 0 ? result : compare(order, other.order);
+    }
+  }
+
+  private static final class StartTimeComparator implements Comparator<DecodeRequest> {
+    @Synthetic
+    StartTimeComparator() { }
+
+    @Override
+    public int compare(DecodeRequest first, DecodeRequest second) {
+      int result = AnimationScheduler.compare(first.startTime, second.startTime);
+      return result != 0 ? result : AnimationScheduler.compare(first.order, second.order);
+    }
+  }
+
+  // Long.compare isn't available before API 19.
+  @Synthetic
+  static int compare(long first, long second) {
+    return first < second ? -1 : (first == second ? 0 : 1);
+  }
+}
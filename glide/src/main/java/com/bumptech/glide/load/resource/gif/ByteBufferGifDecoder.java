@@ -27,6 +27,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Queue;
+import java.util.zip.CRC32;
 
 /**
  * An {@link com.bumptech.glide.load.ResourceDecoder} that decodes {@link
@@ -36,12 +37,17 @@ public class ByteBufferGifDecoder implements ResourceDecoder<ByteBuffer, GifDraw
   private static final String TAG = "BufferGifDecoder";
   private static final GifDecoderFactory GIF_DECODER_FACTORY = new GifDecoderFactory();
   private static final GifHeaderParserPool PARSER_POOL = new GifHeaderParserPool();
+  // Headers are small and the same GIF is often decoded at several sizes, share them across
+  // decoders.
+  private static final GifHeaderCache HEADER_CACHE = new GifHeaderCache();
 
   private final Context context;
   private final List<ImageHeaderParser> parsers;
   private final GifHeaderParserPool parserPool;
+  private final GifHeaderCache headerCache;
   private final GifDecoderFactory gifDecoderFactory;
   private final GifBitmapProvider provider;
+  private final ArrayPool arrayPool;
 
   // Public API.
   @SuppressWarnings("unused")
@@ -64,11 +70,25 @@ public class ByteBufferGifDecoder implements ResourceDecoder<ByteBuffer, GifDraw
       ArrayPool arrayPool,
       GifHeaderParserPool parserPool,
       GifDecoderFactory gifDecoderFactory) {
+    this(context, parsers, bitmapPool, arrayPool, parserPool, gifDecoderFactory, HEADER_CACHE);
+  }
+
+  @VisibleForTesting
+  ByteBufferGifDecoder(
+      Context context,
+      List<ImageHeaderParser> parsers,
+      BitmapPool bitmapPool,
+      ArrayPool arrayPool,
+      GifHeaderParserPool parserPool,
+      GifDecoderFactory gifDecoderFactory,
+      GifHeaderCache headerCache) {
     this.context = context.getApplicationContext();
     this.parsers = parsers;
     this.gifDecoderFactory = gifDecoderFactory;
     this.provider = new GifBitmapProvider(bitmapPool, arrayPool);
+    this.arrayPool = arrayPool;
     this.parserPool = parserPool;
+    this.headerCache = headerCache;
   }
 
   @Override
@@ -80,9 +100,25 @@ public class ByteBufferGifDecoder implements ResourceDecoder<ByteBuffer, GifDraw
   @Override
   public GifDrawableResource decode(@NonNull ByteBuffer source, int width, int height,
       @NonNull Options options) {
+    long startTime = LogTime.getLogTime();
+    try {
+      GifHeader header = headerCache.get(source);
+      if (header == null) {
+        header = parseHeader(source);
+        headerCache.put(source, header);
+      }
+      return decode(source, width, height, header, options);
+    } finally {
+      if (Log.isLoggable(TAG, Log.VERBOSE)) {
+        Log.v(TAG, "Decoded GIF from stream in " + LogTime.getElapsedMillis(startTime));
+      }
+    }
+  }
+
+  private GifHeader parseHeader(ByteBuffer source) {
     final GifHeaderParser parser = parserPool.obtain(source);
     try {
-      return decode(source, width, height, parser, options);
+      return parser.parseHeader();
     } finally {
       parserPool.release(parser);
     }
@@ -90,38 +126,59 @@ public class ByteBufferGifDecoder implements ResourceDecoder<ByteBuffer, GifDraw
 
   @Nullable
   private GifDrawableResource decode(
-      ByteBuffer byteBuffer, int width, int height, GifHeaderParser parser, Options options) {
-    long startTime = LogTime.getLogTime();
-    try {
-      final GifHeader header = parser.parseHeader();
-      if (header.getNumFrames() <= 0 || header.getStatus() != GifDecoder.STATUS_OK) {
-        // If we couldn't decode the GIF, we will end up with a frame count of 0.
-        return null;
-      }
+      ByteBuffer byteBuffer, int width, int height, GifHeader header, Options options) {
+    if (header.getNumFrames() <= 0 || header.getStatus() != GifDecoder.STATUS_OK) {
+      // If we couldn't decode the GIF, we will end up with a frame count of 0.
+      return null;
+    }
 
-      Bitmap.Config config = options.get(GifOptions.DECODE_FORMAT) == DecodeFormat.PREFER_RGB_565
-          ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+    Bitmap.Config config = options.get(GifOptions.DECODE_FORMAT) == DecodeFormat.PREFER_RGB_565
+        ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
 
-      int sampleSize = getSampleSize(header, width, height);
-      GifDecoder gifDecoder = gifDecoderFactory.build(provider, header, byteBuffer, sampleSize);
-      gifDecoder.setDefaultBitmapConfig(config);
-      gifDecoder.advance();
-      Bitmap firstFrame = gifDecoder.getNextFrame();
-      if (firstFrame == null) {
-        return null;
-      }
+    int sampleSize = getSampleSize(header, width, height);
+    GifDecoder gifDecoder = gifDecoderFactory.build(provider, header, byteBuffer, sampleSize);
+    gifDecoder.setDefaultBitmapConfig(config);
+    gifDecoder.advance();
+    Bitmap firstFrame = gifDecoder.getNextFrame();
+    if (firstFrame == null) {
+      return null;
+    }
 
-      Transformation<Bitmap> unitTransformation = UnitTransformation.get();
+    Transformation<Bitmap> unitTransformation = UnitTransformation.get();
+    boolean isShared = options.get(GifOptions.SHARE_ANIMATION);
+    // Shared drawables are matched on the main thread, identify their data here instead.
+    Object dataIdentity =
+        isShared ? SharedGifData.getIdentity(byteBuffer, checksum(byteBuffer)) : null;
 
-      GifDrawable gifDrawable =
-          new GifDrawable(context, gifDecoder, unitTransformation, width, height, firstFrame);
+    GifDrawable gifDrawable =
+        new GifDrawable(context, gifDecoder, unitTransformation, width, height, firstFrame,
+            options.get(GifOptions.FRAME_LOOK_AHEAD), options.get(GifOptions.FRAME_CACHE_SIZE),
+            isShared, dataIdentity);
 
-      return new GifDrawableResource(gifDrawable);
-    } finally {
-      if (Log.isLoggable(TAG, Log.VERBOSE)) {
-        Log.v(TAG, "Decoded GIF from stream in " + LogTime.getElapsedMillis(startTime));
+    return new GifDrawableResource(gifDrawable);
+  }
+
+  // Returns the CRC32 of all of the data, from the start of the buffer to its limit. CRC32 only
+  // accepts arrays before API 26, so buffers without an accessible array are copied in chunks.
+  private long checksum(ByteBuffer data) {
+    CRC32 crc = new CRC32();
+    if (data.hasArray()) {
+      crc.update(data.array(), data.arrayOffset(), data.limit());
+    } else {
+      ByteBuffer source = data.duplicate();
+      source.position(0);
+      byte[] chunk = arrayPool.get(ArrayPool.STANDARD_BUFFER_SIZE_BYTES, byte[].class);
+      try {
+        while (source.hasRemaining()) {
+          int length = Math.min(chunk.length, source.remaining());
+          source.get(chunk, 0, length);
+          crc.update(chunk, 0, length);
+        }
+      } finally {
+        arrayPool.put(chunk);
       }
     }
+    return crc.getValue();
   }
 
   private static int getSampleSize(GifHeader gifHeader, int targetWidth, int targetHeight) {
@@ -13,8 +13,10 @@ import android.graphics.Rect;
 import android.graphics.drawable.Animatable;
 import android.graphics.drawable.Drawable;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 import android.view.Gravity;
+import android.view.View;
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.gifdecoder.GifDecoder;
 import com.bumptech.glide.load.Transformation;
@@ -75,6 +77,7 @@ public class GifDrawable extends Drawable implements GifFrameLoader.FrameCallbac
   private boolean applyGravity;
   private Paint paint;
   private Rect destRect;
+  private Rect visibleRect;
 
   /**
    * Constructor for GifDrawable.
@@ -135,6 +138,34 @@ public class GifDrawable extends Drawable implements GifFrameLoader.FrameCallbac
       int targetFrameWidth,
       int targetFrameHeight,
       Bitmap firstFrame) {
+    this(context, gifDecoder, frameTransformation, targetFrameWidth, targetFrameHeight, firstFrame,
+        GifOptions.FRAME_LOOK_AHEAD.getDefaultValue(),
+        GifOptions.FRAME_CACHE_SIZE.getDefaultValue(),
+        GifOptions.SHARE_ANIMATION.getDefaultValue(),
+        null /*dataIdentity*/);
+  }
+
+  /**
+   * @param frameLookAhead The maximum number of frames to decode ahead, see
+   *                       {@link GifOptions#FRAME_LOOK_AHEAD}.
+   * @param frameCacheSize The maximum size of all frames for them to be kept between loops, see
+   *                       {@link GifOptions#FRAME_CACHE_SIZE}.
+   * @param isShared       Whether to share frames with equivalent drawables, see
+   *                       {@link GifOptions#SHARE_ANIMATION}.
+   * @param dataIdentity   The same object for all drawables decoded from the same bytes, see
+   *                       {@link SharedGifData}, or {@code null} if {@code isShared} is false.
+   */
+  GifDrawable(
+      Context context,
+      GifDecoder gifDecoder,
+      Transformation<Bitmap> frameTransformation,
+      int targetFrameWidth,
+      int targetFrameHeight,
+      Bitmap firstFrame,
+      int frameLookAhead,
+      int frameCacheSize,
+      boolean isShared,
+      @Nullable Object dataIdentity) {
     this(
         new GifState(
             new GifFrameLoader(
@@ -144,7 +175,11 @@ public class GifDrawable extends Drawable implements GifFrameLoader.FrameCallbac
                 targetFrameWidth,
                 targetFrameHeight,
                 frameTransformation,
-                firstFrame)));
+                firstFrame,
+                frameLookAhead,
+                frameCacheSize,
+                isShared,
+                dataIdentity)));
   }
 
   GifDrawable(GifState state) {
@@ -232,6 +267,7 @@ public class GifDrawable extends Drawable implements GifFrameLoader.FrameCallbac
       invalidateSelf();
     } else if (!isRunning) {
       isRunning = true;
+      state.shareFrameLoader();
       state.frameLoader.subscribe(this);
       invalidateSelf();
     }
@@ -355,6 +391,21 @@ public class GifDrawable extends Drawable implements GifFrameLoader.FrameCallbac
     }
   }
 
+  @Override
+  public boolean isOnScreen() {
+    Callback callback = findCallback();
+    if (!(callback instanceof View)) {
+      // We can't tell, so assume the frames are visible.
+      return true;
+    }
+    View view = (View) callback;
+    if (visibleRect == null) {
+      visibleRect = new Rect();
+    }
+    return view.getWindowVisibility() == View.VISIBLE && view.isShown()
+        && view.getGlobalVisibleRect(visibleRect);
+  }
+
   @Override
   public ConstantState getConstantState() {
     return state;
@@ -392,12 +443,20 @@ public class GifDrawable extends Drawable implements GifFrameLoader.FrameCallbac
 
   static final class GifState extends ConstantState {
     @VisibleForTesting
-    final GifFrameLoader frameLoader;
+    GifFrameLoader frameLoader;
 
     GifState(GifFrameLoader frameLoader) {
       this.frameLoader = frameLoader;
     }
 
+    /**
+     * Switches to an equivalent loader that's already running, if the loader is shared, see
+     * {@link GifFrameLoader#share()}.
+     */
+    void shareFrameLoader() {
+      frameLoader = frameLoader.share();
+    }
+
     @NonNull
     @Override
     public Drawable newDrawable(Resources res) {
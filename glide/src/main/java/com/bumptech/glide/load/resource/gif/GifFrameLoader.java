@@ -4,6 +4,7 @@ import static com.bumptech.glide.request.RequestOptions.diskCacheStrategyOf;
 import static com.bumptech.glide.request.RequestOptions.signatureOf;
 
 import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
@@ -27,18 +28,48 @@ import com.bumptech.glide.util.Preconditions;
 import com.bumptech.glide.util.Synthetic;
 import com.bumptech.glide.util.Util;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Decodes the frames of a GIF one at a time on Glide's animation executor and displays each of
+ * them after the previous frame's delay.
+ *
+ * <p>Up to {@link GifOptions#FRAME_LOOK_AHEAD} frames are decoded ahead of the frame being
+ * displayed. If all of the frames fit in {@link GifOptions#FRAME_CACHE_SIZE}, every frame is kept
+ * once it's decoded and loops after the first are displayed from those without decoding.
+ *
+ * <p>Loaders created with {@link GifOptions#SHARE_ANIMATION} can be shared by drawables that
+ * weren't created from the same {@link GifDrawable.GifState}, see {@link #share()}.
+ */
 class GifFrameLoader {
+  // Shareable loaders that have been started, accessed only on the main thread.
+  private static final Map<SharedKey, GifFrameLoader> SHARED_LOADERS = new HashMap<>();
+
   private final GifDecoder gifDecoder;
   private final Handler handler;
   private final List<FrameCallback> callbacks = new ArrayList<>();
   @SuppressWarnings("WeakerAccess") @Synthetic final RequestManager requestManager;
   private final BitmapPool bitmapPool;
+  private final int frameLookAhead;
+  private final int frameCacheSize;
+  private final boolean isShared;
+  // Identifies the data for sharing, see SharedGifData. Found off the main thread when the GIF was
+  // decoded, and keeps the identity reachable while this loader is.
+  @Nullable
+  private final Object dataIdentity;
+  @Nullable
+  private final AnimationScheduler scheduler;
+  // Decoded frames waiting to be displayed, in order.
+  private final Queue<DelayTarget> decodedFrames = new ArrayDeque<>();
 
   private boolean isRunning;
   private boolean isLoadPending;
+  private boolean isFrameScheduled;
   private boolean startFromFirstFrame;
   private RequestBuilder<Bitmap> requestBuilder;
   private DelayTarget current;
@@ -46,12 +77,34 @@ class GifFrameLoader {
   private DelayTarget next;
   private Bitmap firstFrame;
   private Transformation<Bitmap> transformation;
-  private DelayTarget pendingTarget;
+  // Every frame by index if they all fit in frameCacheSize, otherwise null.
+  @Nullable
+  private DelayTarget[] frameCache;
+  private int cachedFrameCount;
+  // The index of the frame being displayed, or -1 if the next frame should be displayed at once.
+  private int displayedIndex;
+  private long displayedTime;
+  // The key this loader is registered under in SHARED_LOADERS, if any.
+  @Nullable
+  private SharedKey sharedKey;
+  // The number of GifStates using this loader, it's only cleared once all of them are recycled.
+  private int acquiredCount = 1;
+  // The deadline and start time of the frame being decoded, and the average time frames take to
+  // decode, if frames are scheduled.
+  private long decodeDeadline;
+  private long decodeStartTime;
+  private long averageDecodeMillis;
   @Nullable
   private GifFrameLoader.OnEveryFrameListener onEveryFrameListener;
 
   public interface FrameCallback {
     void onFrameReady();
+
+    /**
+     * Returns {@code false} if the frames aren't currently visible on screen, for example because
+     * they're drawn into a view that's scrolled out of its window.
+     */
+    boolean isOnScreen();
   }
 
   GifFrameLoader(
@@ -60,7 +113,11 @@ class GifFrameLoader {
       int width,
       int height,
       Transformation<Bitmap> transformation,
-      Bitmap firstFrame) {
+      Bitmap firstFrame,
+      int frameLookAhead,
+      int frameCacheSize,
+      boolean isShared,
+      @Nullable Object dataIdentity) {
     this(
         glide.getBitmapPool(),
         Glide.with(glide.getContext()),
@@ -68,10 +125,14 @@ class GifFrameLoader {
         null /*handler*/,
         getRequestBuilder(Glide.with(glide.getContext()), width, height),
         transformation,
-        firstFrame);
+        firstFrame,
+        frameLookAhead,
+        frameCacheSize,
+        isShared,
+        dataIdentity,
+        glide.getAnimationScheduler());
   }
 
-  @SuppressWarnings("PMD.ConstructorCallsOverridableMethod")
   GifFrameLoader(
       BitmapPool bitmapPool,
       RequestManager requestManager,
@@ -80,6 +141,27 @@ class GifFrameLoader {
       RequestBuilder<Bitmap> requestBuilder,
       Transformation<Bitmap> transformation,
       Bitmap firstFrame) {
+    this(bitmapPool, requestManager, gifDecoder, handler, requestBuilder, transformation,
+        firstFrame, GifOptions.FRAME_LOOK_AHEAD.getDefaultValue(),
+        GifOptions.FRAME_CACHE_SIZE.getDefaultValue(), false /*isShared*/, null /*dataIdentity*/,
+        null /*scheduler*/);
+  }
+
+  @SuppressWarnings("PMD.ConstructorCallsOverridableMethod")
+  GifFrameLoader(
+      BitmapPool bitmapPool,
+      RequestManager requestManager,
+      GifDecoder gifDecoder,
+      Handler handler,
+      RequestBuilder<Bitmap> requestBuilder,
+      Transformation<Bitmap> transformation,
+      Bitmap firstFrame,
+      int frameLookAhead,
+      int frameCacheSize,
+      boolean isShared,
+      @Nullable Object dataIdentity,
+      @Nullable AnimationScheduler scheduler) {
+    Preconditions.checkArgument(frameLookAhead > 0, "Frame look ahead must be > 0");
     this.requestManager = requestManager;
     if (handler == null) {
       handler = new Handler(Looper.getMainLooper(), new FrameLoaderCallback());
@@ -89,6 +171,12 @@ class GifFrameLoader {
     this.requestBuilder = requestBuilder;
 
     this.gifDecoder = gifDecoder;
+    this.frameLookAhead = frameLookAhead;
+    this.frameCacheSize = frameCacheSize;
+    this.isShared = isShared;
+    this.dataIdentity = dataIdentity;
+    this.scheduler = scheduler;
+    displayedIndex = gifDecoder.getCurrentFrameIndex();
 
     setFrameTransformation(transformation, firstFrame);
   }
@@ -97,6 +185,42 @@ class GifFrameLoader {
     this.transformation = Preconditions.checkNotNull(transformation);
     this.firstFrame = Preconditions.checkNotNull(firstFrame);
     requestBuilder = requestBuilder.apply(new RequestOptions().transform(transformation));
+    // Frames no longer match the key this loader was shared under.
+    unregisterShared();
+    setUpFrameCache();
+  }
+
+  // Frames kept with the previous transformation can't be displayed with the new one.
+  private void setUpFrameCache() {
+    clearFrameCache();
+    int frameCount = gifDecoder.getFrameCount();
+    long totalSize = (long) Util.getBitmapByteSize(firstFrame) * frameCount;
+    frameCache = frameCount > 1 && totalSize <= frameCacheSize ? new DelayTarget[frameCount] : null;
+    scheduleNextFrame();
+  }
+
+  private void clearFrameCache() {
+    if (frameCache == null) {
+      return;
+    }
+    // The next frame may be one that's about to be cleared.
+    handler.removeMessages(FrameLoaderCallback.MSG_DELAY);
+    isFrameScheduled = false;
+    for (DelayTarget target : frameCache) {
+      if (target != null && target != current && !decodedFrames.contains(target)) {
+        requestManager.clear(target);
+      }
+    }
+    frameCache = null;
+    cachedFrameCount = 0;
+  }
+
+  private boolean isFrameCached(DelayTarget target) {
+    return frameCache != null && frameCache[target.index] == target;
+  }
+
+  private boolean isFrameCacheComplete() {
+    return frameCache != null && cachedFrameCount == frameCache.length;
   }
 
   Transformation<Bitmap> getFrameTransformation() {
@@ -107,6 +231,45 @@ class GifFrameLoader {
     return firstFrame;
   }
 
+  /**
+   * Returns a loader to use in place of this one.
+   *
+   * <p>If this loader is shared and an equivalent one, with the same data, frame size,
+   * transformation and options, has already been started, this loader is cleared and the other one
+   * is returned, so its frames are decoded only once for both. Otherwise this loader is returned and
+   * equivalent loaders will share it once it's started. Loaders that are already running aren't
+   * replaced.
+   */
+  @NonNull
+  GifFrameLoader share() {
+    Util.assertMainThread();
+    if (!isShared || dataIdentity == null || isCleared) {
+      return this;
+    }
+    if (sharedKey == null) {
+      sharedKey = new SharedKey(dataIdentity, firstFrame, transformation, frameLookAhead,
+          frameCacheSize);
+    }
+    GifFrameLoader shared = SHARED_LOADERS.get(sharedKey);
+    if (shared == null) {
+      SHARED_LOADERS.put(sharedKey, this);
+      return this;
+    }
+    if (shared == this || !callbacks.isEmpty()) {
+      return this;
+    }
+    shared.acquiredCount++;
+    clear();
+    return shared;
+  }
+
+  private void unregisterShared() {
+    if (sharedKey != null && SHARED_LOADERS.get(sharedKey) == this) {
+      SHARED_LOADERS.remove(sharedKey);
+    }
+    sharedKey = null;
+  }
+
   void subscribe(FrameCallback frameCallback) {
     if (isCleared) {
       throw new IllegalStateException("Cannot subscribe to a cleared frame loader");
@@ -137,7 +300,8 @@ class GifFrameLoader {
   }
 
   int getSize() {
-    return gifDecoder.getByteSize() + getFrameSize();
+    int frameCount = frameCache != null ? frameCache.length : frameLookAhead;
+    return gifDecoder.getByteSize() + getFrameSize() * frameCount;
   }
 
   int getCurrentIndex() {
@@ -167,15 +331,29 @@ class GifFrameLoader {
     }
     isRunning = true;
     isCleared = false;
+    displayedTime = SystemClock.uptimeMillis();
 
     loadNextFrame();
+    scheduleNextFrame();
   }
 
   private void stop() {
     isRunning = false;
+    // Decodes that haven't started yet aren't needed until the animation restarts.
+    if (scheduler != null && isLoadPending && next == null && scheduler.cancel(this)) {
+      isLoadPending = false;
+    }
+    // Rescheduled by start(), which times the next frame from when the animation restarts.
+    handler.removeMessages(FrameLoaderCallback.MSG_DELAY);
+    isFrameScheduled = false;
   }
 
   void clear() {
+    // Still used by other GifStates sharing it.
+    if (--acquiredCount > 0) {
+      return;
+    }
+    unregisterShared();
     callbacks.clear();
     recycleFirstFrame();
     stop();
@@ -186,11 +364,12 @@ class GifFrameLoader {
     if (next != null) {
       requestManager.clear(next);
       next = null;
+      if (scheduler != null) {
+        scheduler.onDecodeCancelled();
+      }
     }
-    if (pendingTarget != null) {
-      requestManager.clear(pendingTarget);
-      pendingTarget = null;
-    }
+    clearDecodedFrames();
+    clearFrameCache();
     gifDecoder.clear();
     isCleared = true;
   }
@@ -200,30 +379,89 @@ class GifFrameLoader {
   }
 
   private void loadNextFrame() {
-    if (!isRunning || isLoadPending) {
+    if (!isRunning || isLoadPending || isFrameCacheComplete()
+        || decodedFrames.size() >= frameLookAhead) {
       return;
     }
+    isLoadPending = true;
+    if (scheduler != null) {
+      scheduler.requestDecode(this, getNextDecodeDeadline(), isOnScreen());
+    } else {
+      startDecode(0 /*deadline*/);
+    }
+  }
+
+  /**
+   * Starts decoding the next frame, immediately or when the {@link AnimationScheduler} decides
+   * it's this loader's turn.
+   */
+  void startDecode(long deadline) {
     if (startFromFirstFrame) {
-      Preconditions.checkArgument(
-          pendingTarget == null, "Pending target must be null when starting from the first frame");
       gifDecoder.resetFrameIndex();
       startFromFirstFrame = false;
     }
-    if (pendingTarget != null) {
-      DelayTarget temp = pendingTarget;
-      pendingTarget = null;
-      onFrameReady(temp);
+    decodeDeadline = deadline;
+    decodeStartTime = SystemClock.uptimeMillis();
+    gifDecoder.advance();
+    next = new DelayTarget(handler, gifDecoder.getCurrentFrameIndex());
+    requestBuilder.apply(signatureOf(getFrameSignature())).load(gifDecoder).into(next);
+  }
+
+  // The time the next frame to decode should be displayed, after the frames already decoded.
+  private long getNextDecodeDeadline() {
+    long deadline = displayedTime + getFrameDelay(displayedIndex);
+    for (DelayTarget target : decodedFrames) {
+      deadline += getFrameDelay(target.index);
+    }
+    return deadline;
+  }
+
+  // The amount of time to spend on the frame with the given index.
+  private long getFrameDelay(int index) {
+    int delay = Math.max(0, gifDecoder.getDelay(index));
+    return scheduler != null ? scheduler.scaleDelay(delay, averageDecodeMillis) : delay;
+  }
+
+  private boolean isOnScreen() {
+    for (int i = 0; i < callbacks.size(); i++) {
+      if (callbacks.get(i).isOnScreen()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Nullable
+  private DelayTarget peekNextFrame() {
+    DelayTarget result = decodedFrames.peek();
+    if (result == null && isFrameCacheComplete()) {
+      result = frameCache[(displayedIndex + 1) % frameCache.length];
+    }
+    return result;
+  }
+
+  private void scheduleNextFrame() {
+    if (!isRunning || isFrameScheduled) {
       return;
     }
-    isLoadPending = true;
-    // Get the delay before incrementing the pointer because the delay indicates the amount of time
-    // we want to spend on the current frame.
-    int delay = gifDecoder.getNextDelay();
-    long targetTime = SystemClock.uptimeMillis() + delay;
+    DelayTarget target = peekNextFrame();
+    if (target == null) {
+      return;
+    }
+    isFrameScheduled = true;
+    // The delay is the amount of time we want to spend on the frame being displayed.
+    long delay = getFrameDelay(displayedIndex);
+    Message msg = handler.obtainMessage(FrameLoaderCallback.MSG_DELAY, target);
+    handler.sendMessageAtTime(msg, displayedTime + delay);
+  }
 
-    gifDecoder.advance();
-    next = new DelayTarget(handler, gifDecoder.getCurrentFrameIndex(), targetTime);
-    requestBuilder.apply(signatureOf(getFrameSignature())).load(gifDecoder).into(next);
+  private void clearDecodedFrames() {
+    for (DelayTarget target : decodedFrames) {
+      if (!isFrameCached(target)) {
+        requestManager.clear(target);
+      }
+    }
+    decodedFrames.clear();
   }
 
   private void recycleFirstFrame() {
@@ -236,10 +474,8 @@ class GifFrameLoader {
   void setNextStartFromFirstFrame() {
     Preconditions.checkArgument(!isRunning, "Can't restart a running animation");
     startFromFirstFrame = true;
-    if (pendingTarget != null) {
-      requestManager.clear(pendingTarget);
-      pendingTarget = null;
-    }
+    displayedIndex = -1;
+    clearDecodedFrames();
   }
 
   @VisibleForTesting
@@ -247,46 +483,84 @@ class GifFrameLoader {
     this.onEveryFrameListener = onEveryFrameListener;
   }
 
+  @Synthetic
+  void onFrameDecoded(DelayTarget delayTarget) {
+    // Otherwise the decode was cancelled by clear(), which already told the scheduler.
+    if (scheduler != null && delayTarget == next) {
+      if (delayTarget.getResource() != null) {
+        long decodeMillis = SystemClock.uptimeMillis() - decodeStartTime;
+        averageDecodeMillis = averageDecodeMillis == 0
+            ? decodeMillis : (averageDecodeMillis * 3 + decodeMillis) / 4;
+        scheduler.onDecodeFinished(decodeDeadline);
+      } else {
+        scheduler.onDecodeCancelled();
+      }
+    }
+    next = null;
+    if (delayTarget.getResource() == null) {
+      // The frame failed to decode. As before, the animation stops at the current frame since
+      // every later frame depends on this one, isLoadPending stays set so no more are requested.
+      handler.obtainMessage(FrameLoaderCallback.MSG_CLEAR, delayTarget).sendToTarget();
+      return;
+    }
+    isLoadPending = false;
+    // Decoded before setNextStartFromFirstFrame() was called, the frame is no longer next.
+    if (isCleared || startFromFirstFrame) {
+      handler.obtainMessage(FrameLoaderCallback.MSG_CLEAR, delayTarget).sendToTarget();
+      loadNextFrame();
+      return;
+    }
+    // If we're not running, the frame waits in decodedFrames until start() or clear() are called.
+    // Displaying it would recycle the frame that we might currently be showing, which breaks
+    // things (see #2526), and it can't be discarded because we've already incremented the frame
+    // pointer and can't decode the same frame again.
+    decodedFrames.add(delayTarget);
+    if (frameCache != null && frameCache[delayTarget.index] == null) {
+      frameCache[delayTarget.index] = delayTarget;
+      cachedFrameCount++;
+    }
+    loadNextFrame();
+    scheduleNextFrame();
+  }
+
   @VisibleForTesting
   void onFrameReady(DelayTarget delayTarget) {
     if (onEveryFrameListener != null) {
       onEveryFrameListener.onFrameReady();
     }
-    isLoadPending = false;
-    if (isCleared) {
-      handler.obtainMessage(FrameLoaderCallback.MSG_CLEAR, delayTarget).sendToTarget();
+    isFrameScheduled = false;
+    if (isCleared || !isRunning) {
       return;
     }
-    // If we're not running, notifying here will recycle the frame that we might currently be
-    // showing, which breaks things (see #2526). We also can't discard this frame because we've
-    // already incremented the frame pointer and can't decode the same frame again. Instead we'll
-    // just hang on to this next frame until start() or clear() are called.
-    if (!isRunning) {
-      pendingTarget = delayTarget;
-      return;
+    if (decodedFrames.peek() == delayTarget) {
+      decodedFrames.remove();
     }
 
     if (delayTarget.getResource() != null) {
       recycleFirstFrame();
       DelayTarget previous = current;
       current = delayTarget;
+      displayedIndex = delayTarget.index;
+      displayedTime = SystemClock.uptimeMillis();
       // The callbacks may unregister when onFrameReady is called, so iterate in reverse to avoid
       // concurrent modifications.
       for (int i = callbacks.size() - 1; i >= 0; i--) {
         FrameCallback cb = callbacks.get(i);
         cb.onFrameReady();
       }
-      if (previous != null) {
+      if (previous != null && previous != current && !isFrameCached(previous)) {
         handler.obtainMessage(FrameLoaderCallback.MSG_CLEAR, previous).sendToTarget();
       }
     }
 
     loadNextFrame();
+    scheduleNextFrame();
   }
 
   private class FrameLoaderCallback implements Handler.Callback {
     static final int MSG_DELAY = 1;
     static final int MSG_CLEAR = 2;
+    static final int MSG_DECODED = 3;
 
     @Synthetic
     FrameLoaderCallback() { }
@@ -297,6 +571,10 @@ class GifFrameLoader {
         GifFrameLoader.DelayTarget target = (DelayTarget) msg.obj;
         onFrameReady(target);
         return true;
+      } else if (msg.what == MSG_DECODED) {
+        GifFrameLoader.DelayTarget target = (DelayTarget) msg.obj;
+        onFrameDecoded(target);
+        return true;
       } else if (msg.what == MSG_CLEAR) {
         GifFrameLoader.DelayTarget target = (DelayTarget) msg.obj;
         requestManager.clear(target);
@@ -309,13 +587,11 @@ class GifFrameLoader {
   static class DelayTarget extends SimpleTarget<Bitmap> {
     private final Handler handler;
     @Synthetic final int index;
-    private final long targetTime;
     private Bitmap resource;
 
-    DelayTarget(Handler handler, int index, long targetTime) {
+    DelayTarget(Handler handler, int index) {
       this.handler = handler;
       this.index = index;
-      this.targetTime = targetTime;
     }
 
     Bitmap getResource() {
@@ -326,8 +602,18 @@ class GifFrameLoader {
     public void onResourceReady(@NonNull Bitmap resource,
         @Nullable Transition<? super Bitmap> transition) {
       this.resource = resource;
-      Message msg = handler.obtainMessage(FrameLoaderCallback.MSG_DELAY, this);
-      handler.sendMessageAtTime(msg, targetTime);
+      handler.obtainMessage(FrameLoaderCallback.MSG_DECODED, this).sendToTarget();
+    }
+
+    @Override
+    public void onLoadFailed(@Nullable Drawable errorDrawable) {
+      handler.obtainMessage(FrameLoaderCallback.MSG_DECODED, this).sendToTarget();
+    }
+
+    @Override
+    public void onLoadCleared(@Nullable Drawable placeholder) {
+      // The Bitmap is returned to the pool, cached frames must not display it afterwards.
+      resource = null;
     }
   }
 
@@ -348,6 +634,60 @@ class GifFrameLoader {
     return new ObjectKey(Math.random());
   }
 
+  // Identifies loaders whose frames are interchangeable, the first frame stands in for the size and
+  // config of every frame. The data is compared by its identity from SharedGifData so that it isn't
+  // read on the main thread.
+  private static final class SharedKey {
+    private final Object dataIdentity;
+    private final int width;
+    private final int height;
+    private final Bitmap.Config config;
+    private final Transformation<Bitmap> transformation;
+    private final int frameLookAhead;
+    private final int frameCacheSize;
+    private final int hashCode;
+
+    SharedKey(Object dataIdentity, Bitmap firstFrame, Transformation<Bitmap> transformation,
+        int frameLookAhead, int frameCacheSize) {
+      this.dataIdentity = dataIdentity;
+      width = firstFrame.getWidth();
+      height = firstFrame.getHeight();
+      config = firstFrame.getConfig();
+      this.transformation = transformation;
+      this.frameLookAhead = frameLookAhead;
+      this.frameCacheSize = frameCacheSize;
+      int hash = System.identityHashCode(dataIdentity);
+      hash = 31 * hash + width;
+      hash = 31 * hash + height;
+      hash = 31 * hash + (config != null ? config.hashCode() : 0);
+      hash = 31 * hash + transformation.hashCode();
+      hash = 31 * hash + frameLookAhead;
+      hash = 31 * hash + frameCacheSize;
+      hashCode = hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o instanceof SharedKey) {
+        SharedKey other = (SharedKey) o;
+        return hashCode == other.hashCode
+            && dataIdentity == other.dataIdentity
+            && width == other.width
+            && height == other.height
+            && config == other.config
+            && frameLookAhead == other.frameLookAhead
+            && frameCacheSize == other.frameCacheSize
+            && transformation.equals(other.transformation);
+      }
+      return false;
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
   @VisibleForTesting
   interface OnEveryFrameListener {
     void onFrameReady();
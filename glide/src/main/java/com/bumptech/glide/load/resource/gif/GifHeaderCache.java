@@ -0,0 +1,104 @@
+package com.bumptech.glide.load.resource.gif;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.gifdecoder.GifDecoder;
+import com.bumptech.glide.gifdecoder.GifHeader;
+import com.bumptech.glide.util.LruCache;
+import java.nio.ByteBuffer;
+
+/**
+ * Keeps the {@link GifHeader}s of recently decoded GIFs, so that decoding the same data again,
+ * for example at another size or after it's read from the disk cache, doesn't walk every block of
+ * the GIF to find its frames.
+ *
+ * <p>Headers are found by the data's length and a hash of its first and last bytes, which costs
+ * the same regardless of the size of the GIF. Before a header is reused it's checked against the
+ * data with {@link GifHeader#isParsedFrom(ByteBuffer)}, which compares the color tables and every
+ * frame's descriptor and timing but skips the image data, so it costs about as much as the parse
+ * it replaces minus the walk over the image data. Headers are evicted least recently used first
+ * once they hold more than the maximum number of frames. This class is thread safe.
+ */
+final class GifHeaderCache {
+  /** The default maximum number of frames of all cached headers. */
+  static final int DEFAULT_MAX_FRAMES = 1024;
+  // The number of bytes hashed at each end of the data.
+  private static final int HASHED_BYTES = 1024;
+
+  private final LruCache<Key, GifHeader> headers;
+
+  GifHeaderCache() {
+    this(DEFAULT_MAX_FRAMES);
+  }
+
+  GifHeaderCache(int maxFrames) {
+    headers = new LruCache<Key, GifHeader>(maxFrames) {
+      @Override
+      protected int getSize(@Nullable GifHeader item) {
+        return item == null ? super.getSize(null) : Math.max(1, item.getNumFrames());
+      }
+    };
+  }
+
+  /**
+   * Returns the header parsed from the same data as the given data, or {@code null} if there
+   * isn't one.
+   */
+  @Nullable
+  GifHeader get(@NonNull ByteBuffer data) {
+    Key key = new Key(data);
+    GifHeader header = headers.get(key);
+    if (header != null && !header.isParsedFrom(data)) {
+      headers.remove(key);
+      header = null;
+    }
+    return header;
+  }
+
+  /**
+   * Keeps the given header, if it was parsed successfully, for later decodes of the given data.
+   */
+  void put(@NonNull ByteBuffer data, @NonNull GifHeader header) {
+    if (header.getStatus() == GifDecoder.STATUS_OK && header.getNumFrames() > 0) {
+      headers.put(new Key(data), header);
+    }
+  }
+
+  private static final class Key {
+    private final int length;
+    private final int headHash;
+    private final int tailHash;
+
+    Key(ByteBuffer data) {
+      length = data.limit();
+      headHash = hash(data, 0, Math.min(length, HASHED_BYTES));
+      tailHash = hash(data, Math.max(0, length - HASHED_BYTES), length);
+    }
+
+    private static int hash(ByteBuffer data, int start, int end) {
+      int result = 17;
+      for (int i = start; i < end; i++) {
+        result = 31 * result + data.get(i);
+      }
+      return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o instanceof Key) {
+        Key other = (Key) o;
+        return length == other.length && headHash == other.headHash
+            && tailHash == other.tailHash;
+      }
+      return false;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = length;
+      result = 31 * result + headHash;
+      result = 31 * result + tailHash;
+      return result;
+    }
+  }
+}
@@ -26,6 +26,33 @@ public final class GifOptions {
   public static final Option<Boolean> DISABLE_ANIMATION = Option.memory(
       "com.bumptech.glide.load.resource.gif.GifOptions.DisableAnimation", false);
 
+  /**
+   * The maximum number of frames to decode ahead of the frame being displayed. Decoding further
+   * ahead absorbs frames that take longer to decode than their delay, at the cost of keeping a
+   * {@link android.graphics.Bitmap} for each. Defaults to {@code 1}.
+   */
+  public static final Option<Integer> FRAME_LOOK_AHEAD = Option.memory(
+      "com.bumptech.glide.load.resource.gif.GifOptions.FrameLookAhead", 1);
+
+  /**
+   * The maximum size in bytes of all of an animation's decoded frames for them to be kept after
+   * they're displayed, so that loops after the first display them without decoding them again.
+   * Whether a GIF fits is decided from its frame count and the size of its first frame. Defaults to
+   * {@code 0}, frames are decoded again on every loop.
+   */
+  public static final Option<Integer> FRAME_CACHE_SIZE = Option.memory(
+      "com.bumptech.glide.load.resource.gif.GifOptions.FrameCacheSize", 0);
+
+  /**
+   * If set to {@code true}, GIFs with the same data, frame size and frame transformation that are
+   * decoded separately, for example because they're loaded with different signatures or
+   * without the memory cache, share the frames decoded for the first of them that's started, rather
+   * than each decoding and holding their own. Shared drawables all display the same frame.
+   * Defaults to {@code false}.
+   */
+  public static final Option<Boolean> SHARE_ANIMATION = Option.memory(
+      "com.bumptech.glide.load.resource.gif.GifOptions.ShareAnimation", false);
+
   private GifOptions() {
     // Utility class.
   }
@@ -0,0 +1,103 @@
+package com.bumptech.glide.load.resource.gif;
+
+import android.support.annotation.NonNull;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Identifies GIF data for {@link GifOptions#SHARE_ANIMATION}, so that drawables decoded separately
+ * from the same bytes can be matched on the main thread without reading their data there.
+ *
+ * <p>The first data seen with a given length and checksum becomes the identity of all later data
+ * with the same bytes. Candidates are found by checksum, but the bytes are always compared before
+ * an identity is shared, so data that merely collides with another GIF's checksum gets an identity
+ * of its own. Data is only weakly referenced. This class is thread safe.
+ */
+final class SharedGifData {
+  private static final Map<Key, DataReference> IDENTITIES = new HashMap<>();
+  private static final ReferenceQueue<ByteBuffer> COLLECTED = new ReferenceQueue<>();
+
+  private SharedGifData() {
+    // Utility class.
+  }
+
+  /**
+   * Returns an object that is the same instance for all data with the same bytes as the given
+   * data, compared from the start of each buffer to its limit. Reads all of the data, so it must
+   * not be called on the main thread.
+   *
+   * @param checksum A checksum of all of the given data.
+   */
+  @NonNull
+  static Object getIdentity(@NonNull ByteBuffer data, long checksum) {
+    Key key = new Key(data.limit(), checksum);
+    synchronized (IDENTITIES) {
+      removeCollected();
+      DataReference reference = IDENTITIES.get(key);
+      ByteBuffer identity = reference != null ? reference.get() : null;
+      if (identity == null) {
+        IDENTITIES.put(key, new DataReference(key, data));
+        return data;
+      }
+      if (identity == data || isSameData(identity, data)) {
+        return identity;
+      }
+    }
+    // Colliding data isn't registered, it's only shared with drawables decoded from this buffer.
+    return data;
+  }
+
+  private static boolean isSameData(ByteBuffer first, ByteBuffer second) {
+    ByteBuffer firstData = first.duplicate();
+    firstData.position(0);
+    ByteBuffer secondData = second.duplicate();
+    secondData.position(0);
+    return firstData.equals(secondData);
+  }
+
+  // Guarded by IDENTITIES.
+  private static void removeCollected() {
+    DataReference collected;
+    while ((collected = (DataReference) COLLECTED.poll()) != null) {
+      if (IDENTITIES.get(collected.key) == collected) {
+        IDENTITIES.remove(collected.key);
+      }
+    }
+  }
+
+  private static final class DataReference extends WeakReference<ByteBuffer> {
+    final Key key;
+
+    DataReference(Key key, ByteBuffer data) {
+      super(data, COLLECTED);
+      this.key = key;
+    }
+  }
+
+  private static final class Key {
+    private final int length;
+    private final long checksum;
+
+    Key(int length, long checksum) {
+      this.length = length;
+      this.checksum = checksum;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o instanceof Key) {
+        Key other = (Key) o;
+        return length == other.length && checksum == other.checksum;
+      }
+      return false;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * length + (int) (checksum ^ (checksum >>> 32));
+    }
+  }
+}
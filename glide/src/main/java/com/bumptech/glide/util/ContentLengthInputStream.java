@@ -49,6 +49,13 @@ public final class ContentLengthInputStream extends FilterInputStream {
     this.contentLength = contentLength;
   }
 
+  /**
+   * Returns the length of the content from the response headers, or {@code -1} if it isn't known.
+   */
+  public long getContentLength() {
+    return contentLength;
+  }
+
   @Override
   public synchronized int available() throws IOException {
     return (int) Math.max(contentLength - readSoFar, in.available());
@@ -0,0 +1,73 @@
+package com.bumptech.glide.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the hashes and sizes of the entries most recently evicted from a size limited cache,
+ * up to a total size, so that a later miss for one of them shows that a cache larger by that size
+ * would have hit.
+ *
+ * <p>Only hashes are kept so that evicted keys can be collected, collisions make the estimate
+ * slightly optimistic. Not thread safe.
+ */
+public final class GhostEntries {
+  // Insertion ordered, the oldest ghosts are dropped first.
+  private final Map<Integer, Integer> sizes = new LinkedHashMap<>();
+  private long maxSize;
+  private long currentSize;
+
+  /**
+   * Sets the total size of the evicted entries to remember, {@code 0} disables tracking.
+   */
+  public void setMaxSize(long maxSize) {
+    this.maxSize = maxSize;
+    trimToSize(maxSize);
+  }
+
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Records that an entry with the given hash and size was evicted.
+   */
+  public void add(int hash, int size) {
+    if (maxSize == 0) {
+      return;
+    }
+    remove(hash);
+    if (size > maxSize) {
+      return;
+    }
+    sizes.put(hash, size);
+    currentSize += size;
+    trimToSize(maxSize);
+  }
+
+  /**
+   * Forgets the entry with the given hash and returns {@code true} if it was recently evicted.
+   */
+  public boolean remove(int hash) {
+    Integer size = sizes.remove(hash);
+    if (size == null) {
+      return false;
+    }
+    currentSize -= size;
+    return true;
+  }
+
+  public void clear() {
+    sizes.clear();
+    currentSize = 0;
+  }
+
+  private void trimToSize(long size) {
+    Iterator<Map.Entry<Integer, Integer>> iterator = sizes.entrySet().iterator();
+    while (currentSize > size && iterator.hasNext()) {
+      currentSize -= iterator.next().getValue();
+      iterator.remove();
+    }
+  }
+}
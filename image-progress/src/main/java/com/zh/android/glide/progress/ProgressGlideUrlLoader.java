@@ -0,0 +1,143 @@
+package com.zh.android.glide.progress;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.data.Reprioritizable;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+import com.bumptech.glide.load.model.stream.HttpGlideUrlLoader;
+import com.bumptech.glide.util.ContentLengthInputStream;
+
+import java.io.InputStream;
+
+/**
+ * 给不经过OkHttp的网络加载（默认是HttpUrlFetcher）上报进度的ModelLoader，包装另一个GlideUrl加载器
+ * <p>
+ * 使用：registry.replace(GlideUrl.class, InputStream.class, new ProgressGlideUrlLoader.Factory());
+ */
+public class ProgressGlideUrlLoader implements ModelLoader<GlideUrl, InputStream> {
+    private final ModelLoader<GlideUrl, InputStream> wrapped;
+
+    public ProgressGlideUrlLoader(ModelLoader<GlideUrl, InputStream> wrapped) {
+        this.wrapped = wrapped;
+    }
+
+    @Nullable
+    @Override
+    public LoadData<InputStream> buildLoadData(@NonNull GlideUrl model, int width, int height,
+                                               @NonNull Options options) {
+        LoadData<InputStream> loadData = wrapped.buildLoadData(model, width, height, options);
+        if (loadData == null) {
+            return null;
+        }
+        return new LoadData<>(loadData.sourceKey, loadData.alternateKeys,
+                new ProgressFetcher(model, loadData.fetcher));
+    }
+
+    @Override
+    public boolean handles(@NonNull GlideUrl model) {
+        return wrapped.handles(model);
+    }
+
+    /**
+     * 请求完成时才查找监听，监听一般在onLoadStarted()里注册，这时已经注册好了
+     */
+    private static final class ProgressFetcher
+            implements DataFetcher<InputStream>, Reprioritizable {
+        private final GlideUrl model;
+        private final DataFetcher<InputStream> wrapped;
+
+        ProgressFetcher(GlideUrl model, DataFetcher<InputStream> wrapped) {
+            this.model = model;
+            this.wrapped = wrapped;
+        }
+
+        @Override
+        public void loadData(@NonNull Priority priority,
+                             @NonNull final DataCallback<? super InputStream> callback) {
+            wrapped.loadData(priority, new DataCallback<InputStream>() {
+                @Override
+                public void onDataReady(@Nullable InputStream data) {
+                    ProgressReporter reporter = ProgressManager.getReporter(model);
+                    if (data != null && reporter != null
+                            && data instanceof ContentLengthInputStream) {
+                        long contentLength = ((ContentLengthInputStream) data).getContentLength();
+                        //重新包装成ContentLengthInputStream，保留长度信息
+                        data = ContentLengthInputStream.obtain(
+                                new ProgressInputStream(data, reporter, contentLength),
+                                contentLength);
+                    }
+                    callback.onDataReady(data);
+                }
+
+                @Override
+                public void onLoadFailed(@NonNull Exception e) {
+                    callback.onLoadFailed(e);
+                }
+            });
+        }
+
+        @Override
+        public void cleanup() {
+            wrapped.cleanup();
+        }
+
+        @Override
+        public void cancel() {
+            wrapped.cancel();
+        }
+
+        @Override
+        public void setPriority(@NonNull Priority priority) {
+            if (wrapped instanceof Reprioritizable) {
+                ((Reprioritizable) wrapped).setPriority(priority);
+            }
+        }
+
+        @NonNull
+        @Override
+        public Class<InputStream> getDataClass() {
+            return wrapped.getDataClass();
+        }
+
+        @NonNull
+        @Override
+        public DataSource getDataSource() {
+            return wrapped.getDataSource();
+        }
+    }
+
+    public static class Factory implements ModelLoaderFactory<GlideUrl, InputStream> {
+        private final ModelLoaderFactory<GlideUrl, InputStream> wrapped;
+
+        /**
+         * 包装默认的{@link HttpGlideUrlLoader}
+         */
+        public Factory() {
+            this(new HttpGlideUrlLoader.Factory());
+        }
+
+        public Factory(ModelLoaderFactory<GlideUrl, InputStream> wrapped) {
+            this.wrapped = wrapped;
+        }
+
+        @NonNull
+        @Override
+        public ModelLoader<GlideUrl, InputStream> build(
+                @NonNull MultiModelLoaderFactory multiFactory) {
+            return new ProgressGlideUrlLoader(wrapped.build(multiFactory));
+        }
+
+        @Override
+        public void teardown() {
+            wrapped.teardown();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.zh.android.glide.progress;
+
+import android.support.annotation.NonNull;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 统计读取字节数并上报进度的InputStream
+ */
+final class ProgressInputStream extends FilterInputStream {
+    private final ProgressReporter reporter;
+    private final long contentLength;
+    private long totalBytesRead;
+
+    ProgressInputStream(InputStream in, ProgressReporter reporter, long contentLength) {
+        super(in);
+        this.reporter = reporter;
+        this.contentLength = contentLength;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int result = super.read();
+        onRead(result == -1 ? -1 : 1);
+        return result;
+    }
+
+    @Override
+    public int read(@NonNull byte[] buffer, int offset, int length) throws IOException {
+        int read = super.read(buffer, offset, length);
+        onRead(read);
+        return read;
+    }
+
+    @Override
+    public long skip(long byteCount) throws IOException {
+        long skipped = super.skip(byteCount);
+        if (skipped > 0) {
+            totalBytesRead += skipped;
+            reporter.update(totalBytesRead, contentLength);
+        }
+        return skipped;
+    }
+
+    private void onRead(int read) {
+        if (read == -1) {
+            reporter.complete();
+        } else if (read > 0) {
+            totalBytesRead += read;
+            reporter.update(totalBytesRead, contentLength);
+        }
+    }
+}
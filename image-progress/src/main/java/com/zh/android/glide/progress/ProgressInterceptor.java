@@ -1,8 +1,6 @@
 package com.zh.android.glide.progress;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
 
 import okhttp3.Interceptor;
 import okhttp3.Request;
@@ -11,20 +9,42 @@ import okhttp3.ResponseBody;
 
 /**
  * 进度拦截器
+ * <p>
+ * 只包装有进度监听的请求的响应，监听通过{@link ProgressManager}注册
  */
 public class ProgressInterceptor implements Interceptor {
-    private static final Map<Object, ProgressListener> listenerMap = new HashMap<>();
 
+    /**
+     * @deprecated 使用{@link ProgressManager#addListener(Object, ProgressListener)}
+     */
+    @Deprecated
     public static void addListener(Object model, ProgressListener listener) {
-        listenerMap.put(model, listener);
+        ProgressManager.addListener(model, listener);
     }
 
+    /**
+     * @deprecated 使用{@link ProgressManager#removeListener(Object)}
+     */
+    @Deprecated
     public static void removeListener(Object model) {
-        listenerMap.remove(model);
+        ProgressManager.removeListener(model);
     }
 
+    /**
+     * @deprecated 进度由{@link ProgressManager}在主线程统一分发，返回的监听用来上报进度百分比
+     */
+    @Deprecated
     public static ProgressListener getListener(Object model) {
-        return listenerMap.get(model);
+        final ProgressReporter reporter = ProgressManager.getReporter(model);
+        if (reporter == null) {
+            return null;
+        }
+        return new ProgressListener() {
+            @Override
+            public void onProgress(int progress) {
+                reporter.update(progress, 100);
+            }
+        };
     }
 
     @Override
@@ -32,7 +52,11 @@ public class ProgressInterceptor implements Interceptor {
         Request request = chain.request();
         Response response = chain.proceed(request);
         String url = request.url().toString();
+        ProgressReporter reporter = ProgressManager.getReporter(url);
         ResponseBody body = response.body();
-        return response.newBuilder().body(new ProgressResponseBody(url, body)).build();
+        if (reporter == null || body == null) {
+            return response;
+        }
+        return response.newBuilder().body(new ProgressResponseBody(reporter, body)).build();
     }
-}
\ No newline at end of file
+}
@@ -5,7 +5,9 @@ package com.zh.android.glide.progress;
  */
 public interface ProgressListener {
     /**
+     * 在主线程回调，每帧最多一次
+     *
      * @param progress 进度百分比
      */
     void onProgress(int progress);
-}
\ No newline at end of file
+}
@@ -0,0 +1,170 @@
+package com.zh.android.glide.progress;
+
+import android.os.Looper;
+import android.support.annotation.Nullable;
+
+import com.bumptech.glide.request.target.Target;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 进度监听的注册表，按请求的model（url）管理监听，可以在任意线程访问
+ * <p>
+ * 进度在主线程回调，每帧最多一次。加载完成（进度到100）后监听会自动移除。
+ * 通过{@link #addListener(Object, Target, ProgressListener)}绑定到Target的监听，在请求被清除、取消、
+ * Target开始新的请求或者被回收后也会自动移除，配合{@link ProgressRequestListener}加载失败时只移除失败请求的监听。
+ * 没有绑定Target的监听在加载失败或取消时需要调用{@link #removeListener(Object, ProgressListener)}移除。
+ */
+public final class ProgressManager {
+    private static final ConcurrentMap<String, ProgressReporter> reporters =
+            new ConcurrentHashMap<>();
+
+    private ProgressManager() {
+    }
+
+    /**
+     * 添加不绑定Target的监听，同一个model可以有多个监听
+     *
+     * @param model 请求的model，比如url字符串或者GlideUrl
+     * @see #addListener(Object, Target, ProgressListener)
+     */
+    public static void addListener(Object model, ProgressListener listener) {
+        addListener(model, null, listener);
+    }
+
+    /**
+     * 添加绑定到target当前请求的监听，需要在请求开始后调用，比如在{@link Target#onLoadStarted}里
+     * <p>
+     * 一个Target同时只有一个请求，添加时会移除这个Target之前添加的所有监听
+     *
+     * @param model  请求的model，比如url字符串或者GlideUrl
+     * @param target 请求的Target，为null时监听需要手动移除
+     */
+    public static void addListener(Object model, @Nullable Target<?> target,
+                                   ProgressListener listener) {
+        if (target != null) {
+            removeListeners(target);
+        }
+        if (isMainThread()) {
+            removeStaleListeners();
+        }
+        String key = getKey(model);
+        while (true) {
+            ProgressReporter reporter = reporters.get(key);
+            if (reporter == null) {
+                reporter = new ProgressReporter(key);
+                ProgressReporter existing = reporters.putIfAbsent(key, reporter);
+                if (existing != null) {
+                    reporter = existing;
+                }
+            }
+            if (reporter.addListener(listener, target)) {
+                return;
+            }
+            // 已经完成的分发器还没来得及移除，替换成新的
+            reporters.remove(key, reporter);
+        }
+    }
+
+    /**
+     * 移除model的所有监听
+     */
+    public static void removeListener(Object model) {
+        reporters.remove(getKey(model));
+    }
+
+    /**
+     * 移除model的一个监听
+     */
+    public static void removeListener(Object model, ProgressListener listener) {
+        String key = getKey(model);
+        ProgressReporter reporter = reporters.get(key);
+        if (reporter != null) {
+            reporter.removeListener(listener);
+            removeIfUnused(key, reporter);
+        }
+    }
+
+    /**
+     * 移除model绑定到target的监听，同一个model的其他请求的监听不受影响
+     */
+    public static void removeListener(Object model, Target<?> target) {
+        String key = getKey(model);
+        ProgressReporter reporter = reporters.get(key);
+        if (reporter != null) {
+            reporter.removeListeners(target);
+            removeIfUnused(key, reporter);
+        }
+    }
+
+    /**
+     * 标记model加载完成，比如从内存或磁盘缓存加载，没有下载进度时直接回调100
+     */
+    public static void complete(Object model) {
+        ProgressReporter reporter = reporters.get(getKey(model));
+        if (reporter != null) {
+            reporter.complete();
+        }
+    }
+
+    /**
+     * 标记target的请求加载完成，立即给它的监听和没有绑定Target的监听回调100并移除，
+     * 同一个model的其他请求的监听不受影响，只在主线程调用
+     */
+    public static void complete(Object model, Target<?> target) {
+        String key = getKey(model);
+        ProgressReporter reporter = reporters.get(key);
+        if (reporter != null) {
+            reporter.complete(target);
+            removeIfUnused(key, reporter);
+        }
+    }
+
+    /**
+     * 获取model的进度分发器，没有监听时返回null，调用方可以跳过统计
+     */
+    @Nullable
+    static ProgressReporter getReporter(Object model) {
+        return reporters.get(getKey(model));
+    }
+
+    static void onComplete(String key, ProgressReporter reporter) {
+        reporters.remove(key, reporter);
+    }
+
+    private static void removeListeners(Target<?> target) {
+        for (Map.Entry<String, ProgressReporter> entry : reporters.entrySet()) {
+            entry.getValue().removeListeners(target);
+            removeIfUnused(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * 移除所有请求已经结束的监听，Target的请求只能在主线程获取
+     */
+    private static void removeStaleListeners() {
+        for (Map.Entry<String, ProgressReporter> entry : reporters.entrySet()) {
+            entry.getValue().removeStaleListeners();
+            removeIfUnused(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static void removeIfUnused(String key, ProgressReporter reporter) {
+        if (reporter.retireIfUnused()) {
+            reporters.remove(key, reporter);
+        }
+    }
+
+    private static boolean isMainThread() {
+        return Looper.myLooper() == Looper.getMainLooper();
+    }
+
+    /**
+     * GlideUrl的toString()就是url字符串，所以url字符串和GlideUrl对应同一个key
+     */
+    private static String getKey(Object model) {
+        return String.valueOf(model);
+    }
+}
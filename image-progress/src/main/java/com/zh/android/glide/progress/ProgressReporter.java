@@ -0,0 +1,238 @@
+package com.zh.android.glide.progress;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.Nullable;
+import android.view.Choreographer;
+
+import com.bumptech.glide.request.Request;
+import com.bumptech.glide.request.target.Target;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一个请求的进度分发器
+ * <p>
+ * 下载线程可以随时、频繁地调用{@link #update(long, long)}，进度只在变大时记录，
+ * 并且合并到下一帧在主线程回调给监听，每帧最多回调一次。进度到100后自动从{@link ProgressManager}移除。
+ * <p>
+ * 绑定了{@link Target}的监听只属于注册时Target上的请求，请求被清除、取消或者Target被回收后，
+ * 监听在主线程下次分发进度或者注册新监听时自动移除。
+ */
+final class ProgressReporter implements Runnable, Choreographer.FrameCallback {
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+    private static final int COMPLETE = 100;
+
+    private final String key;
+    private final CopyOnWriteArrayList<Registration> registrations = new CopyOnWriteArrayList<>();
+    private final AtomicInteger progress = new AtomicInteger(-1);
+    private final AtomicBoolean isScheduled = new AtomicBoolean();
+    /**
+     * 完成或者从{@link ProgressManager}移除后不再接受新的监听
+     */
+    private volatile boolean isComplete;
+    /**
+     * 只在主线程访问
+     */
+    private int deliveredProgress = -1;
+
+    ProgressReporter(String key) {
+        this.key = key;
+    }
+
+    /**
+     * 同一个Target重复添加同一个监听时替换之前的，绑定到Target当前的请求
+     *
+     * @param target 监听所属的Target，为null时监听需要手动移除
+     * @return 已经完成时返回false，需要创建新的分发器
+     */
+    synchronized boolean addListener(ProgressListener listener, @Nullable Target<?> target) {
+        if (isComplete) {
+            return false;
+        }
+        for (Registration registration : registrations) {
+            if (registration.listener == listener && registration.belongsTo(target)) {
+                registrations.remove(registration);
+            }
+        }
+        registrations.add(new Registration(listener, target));
+        return true;
+    }
+
+    /**
+     * 没有监听时标记为完成，之后不再接受新的监听，和{@link #addListener(ProgressListener, Target)}互斥
+     *
+     * @return 没有监听时返回true，可以从{@link ProgressManager}移除
+     */
+    synchronized boolean retireIfUnused() {
+        if (registrations.isEmpty()) {
+            isComplete = true;
+        }
+        return isComplete;
+    }
+
+    void removeListener(ProgressListener listener) {
+        for (Registration registration : registrations) {
+            if (registration.listener == listener) {
+                registrations.remove(registration);
+            }
+        }
+    }
+
+    /**
+     * 移除绑定到target的监听，可以在任意线程调用
+     */
+    void removeListeners(Target<?> target) {
+        for (Registration registration : registrations) {
+            if (registration.belongsTo(target)) {
+                registrations.remove(registration);
+            }
+        }
+    }
+
+    /**
+     * 移除请求已经结束的监听，只在主线程调用
+     */
+    void removeStaleListeners() {
+        for (Registration registration : registrations) {
+            if (registration.isStale()) {
+                registrations.remove(registration);
+            }
+        }
+    }
+
+    boolean hasListeners() {
+        return !registrations.isEmpty();
+    }
+
+    /**
+     * 更新进度，可以在任意线程调用
+     *
+     * @param bytesRead     已读取的字节数
+     * @param contentLength 总字节数，未知时小于等于0，不更新进度
+     */
+    void update(long bytesRead, long contentLength) {
+        if (contentLength <= 0) {
+            return;
+        }
+        int newProgress = (int) Math.min(COMPLETE, Math.max(0, 100 * bytesRead / contentLength));
+        // 只在进度变大时记录，避免多个线程乱序更新时进度回退
+        int current;
+        do {
+            current = progress.get();
+            if (newProgress <= current) {
+                return;
+            }
+        } while (!progress.compareAndSet(current, newProgress));
+        schedule();
+    }
+
+    /**
+     * 标记加载完成，比如从缓存加载完成时不会有下载进度，直接回调100
+     */
+    void complete() {
+        progress.set(COMPLETE);
+        schedule();
+    }
+
+    /**
+     * 只给target的请求和没有绑定Target的监听回调100并移除它们，同一个url的其他请求不受影响，只在主线程调用
+     */
+    void complete(Target<?> target) {
+        for (Registration registration : registrations) {
+            if (registration.belongsTo(target) || registration.isUnscoped()) {
+                registrations.remove(registration);
+                registration.listener.onProgress(COMPLETE);
+            }
+        }
+    }
+
+    private void schedule() {
+        if (isScheduled.compareAndSet(false, true)) {
+            // Choreographer只能在主线程获取
+            MAIN_HANDLER.post(this);
+        }
+    }
+
+    @Override
+    public void run() {
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        isScheduled.set(false);
+        removeStaleListeners();
+        int current = progress.get();
+        if (current > deliveredProgress) {
+            deliveredProgress = current;
+            for (Registration registration : registrations) {
+                registration.listener.onProgress(current);
+            }
+        }
+        if (current >= COMPLETE) {
+            isComplete = true;
+            registrations.clear();
+            ProgressManager.onComplete(key, this);
+        } else if (retireIfUnused()) {
+            ProgressManager.onComplete(key, this);
+        }
+    }
+
+    /**
+     * 一个监听，可以绑定到Target上的一个请求
+     * <p>
+     * Target和请求用弱引用持有，监听本身是强引用，匿名监听没有其他地方引用
+     */
+    private static final class Registration {
+        final ProgressListener listener;
+        @Nullable
+        private final WeakReference<Target<?>> target;
+        @Nullable
+        private final WeakReference<Request> request;
+
+        Registration(ProgressListener listener, @Nullable Target<?> target) {
+            this.listener = listener;
+            if (target != null) {
+                this.target = new WeakReference<Target<?>>(target);
+                Request current = target.getRequest();
+                this.request = current != null ? new WeakReference<>(current) : null;
+            } else {
+                this.target = null;
+                this.request = null;
+            }
+        }
+
+        /**
+         * @param other 为null时匹配没有绑定Target的监听
+         */
+        boolean belongsTo(@Nullable Target<?> other) {
+            return target == null ? other == null : target.get() == other;
+        }
+
+        boolean isUnscoped() {
+            return target == null;
+        }
+
+        /**
+         * 没有绑定Target的监听需要手动移除，不会过期
+         */
+        boolean isStale() {
+            if (target == null) {
+                return false;
+            }
+            Target<?> current = target.get();
+            if (current == null) {
+                return true;
+            }
+            Request currentRequest = current.getRequest();
+            Request registered = request != null ? request.get() : currentRequest;
+            // Target开始了新的请求，或者请求已经结束
+            return currentRequest == null || currentRequest != registered
+                    || !currentRequest.isRunning();
+        }
+    }
+}
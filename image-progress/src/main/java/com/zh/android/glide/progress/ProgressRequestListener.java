@@ -0,0 +1,31 @@
+package com.zh.android.glide.progress;
+
+import android.support.annotation.Nullable;
+
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
+
+/**
+ * 把请求的结束和进度监听绑定起来
+ * <p>
+ * 从内存或磁盘缓存加载时没有下载进度，加载完成时回调100；加载失败时只移除失败请求的Target的监听，
+ * 同一个url的其他请求不受影响。监听需要通过{@link ProgressManager#addListener(Object, Target, ProgressListener)}添加
+ */
+public class ProgressRequestListener<R> implements RequestListener<R> {
+
+    @Override
+    public boolean onLoadFailed(@Nullable GlideException e, Object model, Target<R> target,
+                                boolean isFirstResource) {
+        ProgressManager.removeListener(model, target);
+        return false;
+    }
+
+    @Override
+    public boolean onResourceReady(R resource, Object model, Target<R> target,
+                                   DataSource dataSource, boolean isFirstResource) {
+        ProgressManager.complete(model, target);
+        return false;
+    }
+}
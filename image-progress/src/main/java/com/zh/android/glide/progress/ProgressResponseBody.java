@@ -16,11 +16,21 @@ import okio.Source;
 public class ProgressResponseBody extends ResponseBody {
     private BufferedSource bufferedSource;
     private final ResponseBody responseBody;
-    private ProgressListener listener;
+    private final ProgressReporter reporter;
+    private final long contentLength;
 
+    /**
+     * @param url 请求的url，没有注册监听时不上报进度
+     */
     public ProgressResponseBody(String url, ResponseBody responseBody) {
+        this(ProgressManager.getReporter(url), responseBody);
+    }
+
+    ProgressResponseBody(ProgressReporter reporter, ResponseBody responseBody) {
         this.responseBody = responseBody;
-        this.listener = ProgressInterceptor.getListener(url);
+        this.reporter = reporter;
+        //只获取一次长度，避免每次read都调用
+        this.contentLength = responseBody.contentLength();
     }
 
     @Override
@@ -30,20 +40,21 @@ public class ProgressResponseBody extends ResponseBody {
 
     @Override
     public long contentLength() {
-        return responseBody.contentLength();
+        return contentLength;
     }
 
     @Override
     public BufferedSource source() {
         if (bufferedSource == null) {
-            bufferedSource = Okio.buffer(new ProgressSource(responseBody.source()));
+            bufferedSource = reporter == null
+                    ? responseBody.source()
+                    : Okio.buffer(new ProgressSource(responseBody.source()));
         }
         return bufferedSource;
     }
 
     private class ProgressSource extends ForwardingSource {
         long totalBytesRead = 0;
-        int currentProgress;
 
         ProgressSource(Source source) {
             super(source);
@@ -52,21 +63,14 @@ public class ProgressResponseBody extends ResponseBody {
         @Override
         public long read(Buffer sink, long byteCount) throws IOException {
             long bytesRead = super.read(sink, byteCount);
-            long fullLength = responseBody.contentLength();
             if (bytesRead == -1) {
-                totalBytesRead = fullLength;
+                totalBytesRead = contentLength;
             } else {
                 totalBytesRead += bytesRead;
             }
-            int progress = (int) (100f * totalBytesRead / fullLength);
-            if (listener != null && progress != currentProgress) {
-                listener.onProgress(progress);
-            }
-            if (listener != null && totalBytesRead == fullLength) {
-                listener = null;
-            }
-            currentProgress = progress;
+            //分发器只记录进度，合并到下一帧在主线程回调
+            reporter.update(totalBytesRead, contentLength);
             return bytesRead;
         }
     }
-}
\ No newline at end of file
+}
@@ -8,7 +8,9 @@ import com.bumptech.glide.annotation.GlideModule;
 import com.bumptech.glide.load.model.GlideUrl;
 import com.bumptech.glide.module.AppGlideModule;
 import com.bumptech.glide.module.LibraryGlideModule;
+import com.zh.android.glide.progress.ProgressInterceptor;
 import java.io.InputStream;
+import okhttp3.OkHttpClient;
 
 /**
  * Registers OkHttp related classes via Glide's annotation processor.
@@ -22,6 +24,10 @@ public final class OkHttpLibraryGlideModule extends LibraryGlideModule {
   @Override
   public void registerComponents(@NonNull Context context, @NonNull Glide glide,
       @NonNull Registry registry) {
-    registry.replace(GlideUrl.class, InputStream.class, new OkHttpUrlLoader.Factory());
+    // The interceptor only wraps responses for urls with a registered progress listener.
+    OkHttpClient client = new OkHttpClient.Builder()
+        .addInterceptor(new ProgressInterceptor())
+        .build();
+    registry.replace(GlideUrl.class, InputStream.class, new OkHttpUrlLoader.Factory(client));
   }
 }
@@ -6,12 +6,16 @@ import com.bumptech.glide.Priority;
 import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.HttpException;
 import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.data.NetworkScheduler;
+import com.bumptech.glide.load.data.Reprioritizable;
 import com.bumptech.glide.load.model.GlideUrl;
 import com.bumptech.glide.util.ContentLengthInputStream;
 import com.bumptech.glide.util.Preconditions;
+import com.bumptech.glide.util.Synthetic;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import okhttp3.Call;
 import okhttp3.Request;
 import okhttp3.Response;
@@ -19,23 +23,40 @@ import okhttp3.ResponseBody;
 
 /**
  * Fetches an {@link InputStream} using the okhttp library.
+ *
+ * <p>Calls are only enqueued with OkHttp once the {@link NetworkScheduler} lets them start, so
+ * they're ordered by Glide's {@link Priority} rather than by OkHttp's dispatcher.
  */
-public class OkHttpStreamFetcher implements DataFetcher<InputStream>, okhttp3.Callback {
+public class OkHttpStreamFetcher
+    implements DataFetcher<InputStream>, okhttp3.Callback, Reprioritizable {
   private static final String TAG = "OkHttpFetcher";
   private final Call.Factory client;
   private final GlideUrl url;
+  private final NetworkScheduler networkScheduler;
   private InputStream stream;
   private ResponseBody responseBody;
   private DataCallback<? super InputStream> callback;
   // call may be accessed on the main thread while the object is in use on other threads. All other
   // accesses to variables may occur on different threads, but only one at a time.
   private volatile Call call;
+  private volatile NetworkScheduler.Ticket ticket;
+  private volatile boolean isCancelled;
+  // Set once a load cancelled before its call was made has been failed, so that it's failed once.
+  private final AtomicBoolean isCancellationReported = new AtomicBoolean();
 
   // Public API.
   @SuppressWarnings("WeakerAccess")
   public OkHttpStreamFetcher(Call.Factory client, GlideUrl url) {
+    this(client, url, NetworkScheduler.getDefault());
+  }
+
+  // Public API.
+  @SuppressWarnings("WeakerAccess")
+  public OkHttpStreamFetcher(Call.Factory client, GlideUrl url,
+      NetworkScheduler networkScheduler) {
     this.client = client;
     this.url = url;
+    this.networkScheduler = networkScheduler;
   }
 
   @Override
@@ -46,11 +67,35 @@ public class OkHttpStreamFetcher implements DataFetcher<InputStream>, okhttp3.Ca
       String key = headerEntry.getKey();
       requestBuilder.addHeader(key, headerEntry.getValue());
     }
-    Request request = requestBuilder.build();
+    final Request request = requestBuilder.build();
     this.callback = callback;
 
-    call = client.newCall(request);
-    call.enqueue(this);
+    NetworkScheduler.Ticket local =
+        networkScheduler.enqueue(request.url().host(), priority, new Runnable() {
+          @Override
+          public void run() {
+            startCall(request);
+          }
+        });
+    ticket = local;
+    if (isCancelled) {
+      finishCancelled(local);
+    }
+  }
+
+  // May be called on the thread of another fetcher whose call just finished.
+  @Synthetic
+  void startCall(Request request) {
+    if (isCancelled) {
+      reportCancelled();
+      return;
+    }
+    Call local = client.newCall(request);
+    call = local;
+    local.enqueue(this);
+    if (isCancelled) {
+      local.cancel();
+    }
   }
 
   @Override
@@ -87,16 +132,52 @@ public class OkHttpStreamFetcher implements DataFetcher<InputStream>, okhttp3.Ca
       responseBody.close();
     }
     callback = null;
+    NetworkScheduler.Ticket localTicket = ticket;
+    if (localTicket != null) {
+      localTicket.finish();
+    }
   }
 
   @Override
   public void cancel() {
+    isCancelled = true;
+    NetworkScheduler.Ticket localTicket = ticket;
+    if (localTicket != null) {
+      finishCancelled(localTicket);
+    }
     Call local = call;
     if (local != null) {
       local.cancel();
     }
   }
 
+  private void finishCancelled(NetworkScheduler.Ticket ticket) {
+    if (!ticket.isStarted()) {
+      // Gives up the call's place in the queue. If the ticket didn't start before it was finished,
+      // the call will never be made and OkHttp won't call back, so the load is failed here.
+      ticket.finish();
+      if (!ticket.isStarted()) {
+        reportCancelled();
+      }
+    }
+  }
+
+  // Tickets that start after the load is cancelled also end up here, via startCall.
+  private void reportCancelled() {
+    DataCallback<? super InputStream> local = callback;
+    if (local != null && isCancellationReported.compareAndSet(false, true)) {
+      local.onLoadFailed(new IOException("Canceled before the request started"));
+    }
+  }
+
+  @Override
+  public void setPriority(@NonNull Priority priority) {
+    NetworkScheduler.Ticket localTicket = ticket;
+    if (localTicket != null) {
+      localTicket.setPriority(priority);
+    }
+  }
+
   @NonNull
   @Override
   public Class<InputStream> getDataClass() {